@@ -0,0 +1,103 @@
+/**
+ * BuildOptionsBenchmark.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.benchmark;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.BuildOptionFormatter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultFilteringOtherProjectBuildOptionsProvider;
+import hudson.model.Result;
+import hudson.util.ListBoxModel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+
+/**
+ * BuildOptionsBenchmark - measures the production of build selector options
+ * for a project with a long history
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildOptionsBenchmark {
+
+    /**
+     * Number of builds in the history of the project
+     */
+    @Param({"10", "1000", "10000", "100000"})
+    public int buildCount;
+
+    /**
+     * Maximum number of options to produce
+     */
+    @Param({"50"})
+    public int limit;
+
+    private SyntheticProject project;
+    private BuildOptionFormatter.DefaultImpl formatter;
+    private ResultFilteringOtherProjectBuildOptionsProvider unfilteredProvider;
+    private ResultFilteringOtherProjectBuildOptionsProvider successProvider;
+
+    @Setup
+    public void setUp() {
+        this.project = new SyntheticProject("synthetic", this.buildCount);
+        this.formatter = new BuildOptionFormatter.DefaultImpl();
+        this.unfilteredProvider = new ResultFilteringOtherProjectBuildOptionsProvider(null, this.formatter);
+        this.successProvider = new ResultFilteringOtherProjectBuildOptionsProvider(Result.SUCCESS, this.formatter);
+    }
+
+    @Benchmark
+    public ListBoxModel getOptionsForProject() {
+        return this.unfilteredProvider.getOptionsForProject(this.project.getProject());
+    }
+
+    @Benchmark
+    public ListBoxModel getOptionsForProjectFilteredByResult() {
+        return this.successProvider.getOptionsForProject(this.project.getProject());
+    }
+
+    @Benchmark
+    public ListBoxModel getBoundedOptionsForProject() {
+        return this.successProvider.getOptionsForProject(this.project.getProject(), 0, this.limit);
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * EnvVarsCopierBenchmark.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.benchmark;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import hudson.EnvVars;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+
+/**
+ * EnvVarsCopierBenchmark - measures the templated copy of environment
+ * variables from another build by {@link EnvContributingVarsImporter}
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EnvVarsCopierBenchmark {
+
+    /**
+     * Number of variables in the environment of the other build
+     */
+    @Param({"10", "100", "1000", "5000"})
+    public int varCount;
+
+    /**
+     * Variable name template
+     */
+    @Param({"OTHER_%s", "100%%_%s"})
+    public String varNameTemplate;
+
+    private EnvContributingVarsImporter importer;
+    private EnvVars source;
+
+    @Setup
+    public void setUp() {
+        this.importer = new EnvContributingVarsImporter(this.varNameTemplate);
+        this.source = new EnvVars();
+
+        for (int i = 0; i < this.varCount; i++) {
+            this.source.put("VARIABLE_" + i, "/var/lib/jenkins/workspace/value-" + i);
+        }
+    }
+
+    /**
+     * Copies into an environment, as when importing during a build step
+     * 
+     * @return 
+     *      Target environment
+     */
+    @Benchmark
+    public EnvVars copyEnvVarsIntoEnvVars() {
+        EnvVars target = new EnvVars();
+
+        this.importer.copyEnvVars(this.source, target);
+
+        return target;
+    }
+
+    /**
+     * Copies into a hash map, as when contributing to a build environment
+     * 
+     * @return 
+     *      Target map
+     */
+    @Benchmark
+    public Map<String, String> copyEnvVarsIntoHashMap() {
+        Map<String, String> target = new HashMap<>();
+
+        this.importer.copyEnvVars(this.source, target);
+
+        return target;
+    }
+
+    /**
+     * Copies into a pre-sized map
+     * 
+     * @return 
+     *      Target map
+     */
+    @Benchmark
+    public Map<String, String> templateEnvVars() {
+        return this.importer.templateEnvVars(this.source);
+    }
+
+}
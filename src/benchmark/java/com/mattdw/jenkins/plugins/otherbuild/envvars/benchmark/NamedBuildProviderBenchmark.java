@@ -0,0 +1,108 @@
+/**
+ * NamedBuildProviderBenchmark.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.benchmark;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildNotFoundException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.IndexedNamedBuildExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.NamedBuildExternalBuildProvider;
+import hudson.model.AbstractBuild;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+
+/**
+ * NamedBuildProviderBenchmark - measures the location of a build by display
+ * name (and by number, through the display name fallback) in a project with
+ * a long history
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NamedBuildProviderBenchmark {
+
+    /**
+     * Number of builds in the history of the project
+     */
+    @Param({"10", "1000", "10000", "100000"})
+    public int buildCount;
+
+    private SyntheticProject project;
+    private NamedBuildExternalBuildProvider namedProvider;
+    private IndexedNamedBuildExternalBuildProvider indexedProvider;
+    private String newestName;
+    private String oldestName;
+    private String newestNumber;
+
+    @Setup
+    public void setUp() {
+        this.project = new SyntheticProject("synthetic", this.buildCount);
+        this.namedProvider = new NamedBuildExternalBuildProvider();
+        this.indexedProvider = new IndexedNamedBuildExternalBuildProvider(new DisplayNameBuildIndex());
+        this.newestName = SyntheticProject.displayName(this.buildCount);
+        this.oldestName = SyntheticProject.displayName(1);
+        this.newestNumber = String.valueOf(this.buildCount);
+    }
+
+    @Benchmark
+    public AbstractBuild provideNewestBuildByName() throws BuildNotFoundException {
+        return this.namedProvider.provideBuild(this.project.getProject(), this.newestName);
+    }
+
+    @Benchmark
+    public AbstractBuild provideOldestBuildByName() throws BuildNotFoundException {
+        return this.namedProvider.provideBuild(this.project.getProject(), this.oldestName);
+    }
+
+    @Benchmark
+    public AbstractBuild provideBuildByNumber() throws BuildNotFoundException {
+        return this.namedProvider.provideBuild(this.project.getProject(), this.newestNumber);
+    }
+
+    @Benchmark
+    public AbstractBuild provideOldestBuildByNameIndexed() throws BuildNotFoundException {
+        return this.indexedProvider.provideBuild(this.project.getProject(), this.oldestName);
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * SyntheticProject.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.benchmark;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.RunList;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import static org.mockito.Mockito.*;
+
+
+
+/**
+ * SyntheticProject - stands in for a project with a long build history, for
+ * the benchmarks to run against without a Jenkins instance
+ * 
+ * Projects and builds are stub-only Mockito mocks; the cost of dispatching
+ * through a mock is included in every measurement, so results are for
+ * comparison between runs of these benchmarks rather than absolute figures
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public final class SyntheticProject {
+
+    /**
+     * Results assigned to builds in turn, so that result filtering discards
+     * a realistic proportion of the history
+     */
+    private static final Result[] RESULTS = new Result[] {
+        Result.SUCCESS,
+        Result.SUCCESS,
+        Result.UNSTABLE,
+        Result.SUCCESS,
+        Result.FAILURE,
+        Result.SUCCESS,
+        Result.ABORTED,
+        Result.SUCCESS
+    };
+
+    /**
+     * Mocked project
+     */
+    private final AbstractProject project;
+
+    /**
+     * Mocked builds, newest first
+     */
+    private final List<AbstractBuild> builds;
+
+
+
+    /**
+     * Constructor - creates a new instance of SyntheticProject
+     * 
+     * @param name
+     *      Full name of the project
+     * @param buildCount
+     *      Number of builds in the history of the project, numbered from 1
+     */
+    public SyntheticProject(final String name, final int buildCount) {
+        this.project = mock(AbstractProject.class, withSettings().stubOnly());
+        this.builds = new ArrayList<>(buildCount);
+
+        AbstractBuild previous = null;
+
+        for (int number = 1; number <= buildCount; number++) {
+            AbstractBuild build = mock(AbstractBuild.class, withSettings().stubOnly());
+            Calendar timestamp = Calendar.getInstance();
+            timestamp.setTimeInMillis(1450000000000L + number * 60000L);
+
+            when(build.getNumber()).thenReturn(number);
+            when(build.getId()).thenReturn(String.valueOf(number));
+            when(build.getDisplayName()).thenReturn(displayName(number));
+            when(build.getResult()).thenReturn(RESULTS[number % RESULTS.length]);
+            when(build.getTimestamp()).thenReturn(timestamp);
+            when(build.getTime()).thenReturn(timestamp.getTime());
+            when(build.getTimeInMillis()).thenReturn(timestamp.getTimeInMillis());
+            when(build.getParent()).thenReturn(this.project);
+            when(build.getPreviousBuild()).thenReturn(previous);
+            when(this.project.getBuildByNumber(number)).thenReturn(build);
+            when(this.project.getBuild(String.valueOf(number))).thenReturn(build);
+
+            this.builds.add(0, build);
+            previous = build;
+        }
+
+        when(this.project.getName()).thenReturn(name);
+        when(this.project.getFullName()).thenReturn(name);
+        when(this.project.getNextBuildNumber()).thenReturn(buildCount + 1);
+        when(this.project.getLastBuild()).thenReturn(previous);
+        when(this.project.getBuilds()).thenReturn(RunList.fromRuns(this.builds));
+    }
+
+    /**
+     * Display name given to the build with a given number
+     * 
+     * @param number
+     *      Build number
+     * @return 
+     *      Display name of the build
+     */
+    public static String displayName(final int number) {
+        return "release-1." + number;
+    }
+
+    /**
+     * Getter for project
+     * 
+     * @return 
+     *      Mocked project
+     */
+    public AbstractProject getProject() {
+        return this.project;
+    }
+
+    /**
+     * Retrieves the build with a given number
+     * 
+     * @param number
+     *      Build number, from 1
+     * @return 
+     *      Mocked build
+     */
+    public AbstractBuild getBuild(final int number) {
+        return this.builds.get(this.builds.size() - number);
+    }
+
+}
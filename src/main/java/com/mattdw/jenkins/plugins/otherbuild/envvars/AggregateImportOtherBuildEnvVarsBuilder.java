@@ -0,0 +1,544 @@
+/**
+ * AggregateImportOtherBuildEnvVarsBuilder.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.AggregateImportConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.VarReducer;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultOptionsProvider;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import jenkins.tasks.SimpleBuildStep;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+
+
+/**
+ * Builder to import environment variables from the latest builds of another
+ * project, reducing the values of each variable across those builds to one
+ * 
+ * The history of the other project is walked once, newest first, stopping
+ * as soon as enough builds have been found; the environment of each build is
+ * streamed through the reducer rather than held until every build is loaded
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class AggregateImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBuildStep {
+
+    /**
+     * Project name of the project from whose builds variables are imported
+     */
+    private final String projectName;
+
+    /**
+     * Maximum number of builds from which variables are imported, newest first
+     */
+    private final int buildCount;
+
+    /**
+     * Variable importer mechanism, providing the variable name template and
+     * filter applied to the reduced variables
+     */
+    private final EnvContributingVarsImporter varTemplater;
+
+    /**
+     * Variable importer mechanism for the reduced variables, which have already
+     * been templated
+     */
+    private final TemplatingOtherBuildEnvVarsImporter varImporter;
+
+    /**
+     * String name of the result (corresponding to {@link Result} constants)
+     * which builds must have for their variables to be imported; NULL for
+     * any result
+     */
+    private String buildResultFilter;
+
+    /**
+     * Means by which the values of each variable are reduced to one; NULL
+     * for distinct values
+     */
+    private VarReducer reducer;
+
+    /**
+     * Separator between values, where the reducer joins them; NULL for the
+     * default separator
+     */
+    private String separator;
+
+    /**
+     * Factory the build executor (to which the actual logic of importing build
+     * variables from another project is delegated)
+     */
+    private transient ImportVarsExecutorFactory executorFactory;
+
+
+
+    /**
+     * Constructor - creates a new instance of AggregateImportOtherBuildEnvVarsBuilder
+     * 
+     * @param projectName
+     *      Project name of the project from whose builds variables are imported
+     * @param buildCount
+     *      Maximum number of builds from which variables are imported, newest first
+     * @param varTemplater
+     *      Variable importer mechanism, providing the variable name template
+     *      and filter applied to the reduced variables
+     * @param executorFactory
+     *      Factory for the executor to which the import is delegated
+     */
+    public AggregateImportOtherBuildEnvVarsBuilder(
+        final String projectName,
+        final int buildCount,
+        final EnvContributingVarsImporter varTemplater,
+        final ImportVarsExecutorFactory executorFactory
+    ) {
+        this.projectName = projectName;
+        this.buildCount = buildCount;
+        this.varTemplater = varTemplater;
+        this.varImporter = new EnvContributingVarsImporter(EnvContributingVarsImporter.VAR_NAME_TOKEN);
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Constructor - creates a new instance of AggregateImportOtherBuildEnvVarsBuilder
+     * using data bound arguments provided by Jenkins and a default executor factory
+     * 
+     * @param projectName
+     *      Project name of the project from whose builds variables are imported
+     * @param buildCount
+     *      Maximum number of builds from which variables are imported, newest first
+     * @param varNameTemplate 
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     * @param includeVars
+     *      Glob or /regex/ patterns of variable names to import, separated by
+     *      commas or new lines; empty to import all variables
+     * @param excludeVars
+     *      Glob or /regex/ patterns of variable names not to import, separated
+     *      by commas or new lines
+     */
+    @DataBoundConstructor
+    public AggregateImportOtherBuildEnvVarsBuilder(
+        final String projectName,
+        final int buildCount,
+        final String varNameTemplate,
+        final String includeVars,
+        final String excludeVars
+    ) {
+        this(
+            projectName,
+            buildCount,
+            new EnvContributingVarsImporter(varNameTemplate, new VarNameFilter(includeVars, excludeVars)),
+            new ImportVarsExecutorFactory.ImporterImpl()
+        );
+    }
+
+    /**
+     * Getter for projectName
+     * 
+     * @return
+     *      Project name of the project from whose builds variables are imported
+     */
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * Getter for buildCount
+     * 
+     * @return
+     *      Maximum number of builds from which variables are imported, newest first
+     */
+    public int getBuildCount() {
+        return this.buildCount;
+    }
+
+    /**
+     * Pseudo-getter for varNameTemplate
+     * 
+     * @return
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     */
+    public String getVarNameTemplate() {
+        return this.varTemplater.getVarNameTemplate();
+    }
+
+    /**
+     * Pseudo-getter for includeVars
+     * 
+     * @return
+     *      Patterns of variable names to import; NULL if all variables
+     *      are imported
+     */
+    public String getIncludeVars() {
+        VarNameFilter filter = this.varTemplater.getVarNameFilter();
+
+        return (filter != null ? filter.getIncludes() : null);
+    }
+
+    /**
+     * Pseudo-getter for excludeVars
+     * 
+     * @return
+     *      Patterns of variable names not to import; NULL if no variables
+     *      are excluded
+     */
+    public String getExcludeVars() {
+        VarNameFilter filter = this.varTemplater.getVarNameFilter();
+
+        return (filter != null ? filter.getExcludes() : null);
+    }
+
+    /**
+     * Getter for buildResultFilter
+     * 
+     * @return
+     *      String name of the result which builds must have for their
+     *      variables to be imported; NULL for any result
+     */
+    public String getBuildResultFilter() {
+        return this.buildResultFilter;
+    }
+
+    /**
+     * Setter for buildResultFilter
+     * 
+     * @param buildResultFilter
+     *      String name of the result which builds must have for their
+     *      variables to be imported; NULL or empty for any result
+     */
+    @DataBoundSetter
+    public void setBuildResultFilter(final String buildResultFilter) {
+        this.buildResultFilter = Util.fixEmptyAndTrim(buildResultFilter);
+    }
+
+    /**
+     * Getter for reducer
+     * 
+     * @return
+     *      Means by which the values of each variable are reduced to one
+     */
+    public VarReducer getReducer() {
+        return (this.reducer != null ? this.reducer : VarReducer.DISTINCT);
+    }
+
+    /**
+     * Setter for reducer
+     * 
+     * @param reducer
+     *      Means by which the values of each variable are reduced to one;
+     *      NULL for distinct values
+     */
+    @DataBoundSetter
+    public void setReducer(final VarReducer reducer) {
+        this.reducer = reducer;
+    }
+
+    /**
+     * Getter for separator
+     * 
+     * @return
+     *      Separator between values, where the reducer joins them
+     */
+    public String getSeparator() {
+        return (this.separator != null ? this.separator : VarReducer.DEFAULT_SEPARATOR);
+    }
+
+    /**
+     * Setter for separator
+     * 
+     * @param separator
+     *      Separator between values, where the reducer joins them; NULL or
+     *      empty for the default separator
+     */
+    @DataBoundSetter
+    public void setSeparator(final String separator) {
+        this.separator = Util.fixEmpty(separator);
+    }
+
+    /**
+     * Executes preparatory actions for <pre>perform()</pre>, most notably
+     * ensuring that service properties have been set, or are initialised to
+     * their nominal defaults
+     */
+    protected void prePerform() {
+        if (this.executorFactory == null) {
+            this.executorFactory = new ImportVarsExecutorFactory.ImporterImpl();
+        }
+    }
+
+    /**
+     * Performs the build action of importing environment variables from
+     * the latest builds of another project
+     * 
+     * @param build
+     *      Current build
+     * @param workspace
+     *      Workspace of the current build; not used in this implementation
+     * @param launcher
+     *      Launcher for the current build; not used in this implementation
+     * @param listener
+     *      TaskListener responsible for managing events for the current build;
+     *      essential for accessing the current build's environment
+     */
+    @Override
+    public void perform(Run<?,?> build, FilePath workspace, Launcher launcher, TaskListener listener) {
+
+        // Essential that services have been initialised
+        this.prePerform();
+
+        final PrintStream logger = listener.getLogger();
+
+        try {
+            ImportVarsResult result = this.executorFactory.createExecutor().performAggregate(
+                new AggregateImportConfiguration<>(
+                    this.projectName,
+                    this.buildCount,
+                    this.buildResultFilter != null ? Result.fromString(this.buildResultFilter) : null,
+                    this.reducer,
+                    this.separator,
+                    this.varTemplater
+                ),
+                this.varImporter,
+                build.getEnvironment(listener),
+                listener,
+                (AbstractBuild) build
+            );
+
+            ImportOtherBuildEnvVarsBuilder.logResult(logger, result);
+
+            ImportVarsResultAction.record(build, Collections.singletonList(result));
+        } catch (OtherBuildVarImportException ex) {
+
+            // Any failure to import another project or build should fail the build
+            build.setResult(Result.FAILURE);
+            logger.println(
+                Messages.ImportOtherBuildEnvVarsBuilder_ImportError(ex.getMessage())
+            );
+
+        } catch (InterruptedException | IOException ex) {
+
+            // Any other exception that occurs should also fail the build
+            build.setResult(Result.FAILURE);
+            logger.println(
+                Messages.ImportOtherBuildEnvVarsBuilder_FailedToObtainEnvironment()
+            );
+            ex.printStackTrace(logger);
+        }
+    }
+
+    /**
+     * Returns the descriptor of this extensible object, which is defined below
+     * as a public, static inner class
+     * 
+     * @return
+     *      {@link DescriptorImpl} of this extensible object
+     */
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return (DescriptorImpl) (super.getDescriptor());
+    }
+
+
+
+    /**
+     * Descriptor for {@link AggregateImportOtherBuildEnvVarsBuilder}
+     */
+    @Extension
+    public static class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        /**
+         * Provider of build result options
+         */
+        protected final ResultOptionsProvider resultOptionsProvider;
+
+
+
+        /**
+         * Constructor - creates a new instance of DescriptorImpl
+         * 
+         * @param resultOptionsProvider
+         *      Provider of build result options
+         */
+        public DescriptorImpl(final ResultOptionsProvider resultOptionsProvider) {
+            this.resultOptionsProvider = resultOptionsProvider;
+        }
+
+        /**
+         * Constructor - creates a new instance of DescriptorImpl using the
+         * default build result options
+         */
+        public DescriptorImpl() {
+            this(new ResultOptionsProvider.Impl());
+        }
+
+        /**
+         * Generates a list box model of options for build result filters,
+         * headed by an option for any result
+         * 
+         * @return 
+         *      {@link ListBoxModel} hydrated with options for build result filters
+         */
+        public ListBoxModel doFillBuildResultFilterItems() {
+            ListBoxModel options = new ListBoxModel();
+
+            options.add(Messages.AggregateImportOtherBuildEnvVarsBuilder_AnyResult(), "");
+            options.addAll(this.resultOptionsProvider.getBuildResultOptions());
+
+            return options;
+        }
+
+        /**
+         * Performs validation on any submitted value for buildCount;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of buildCount (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is a positive integer;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckBuildCount(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for varNameTemplate;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of varNameTemplate (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckVarNameTemplate(@QueryParameter String value) {
+            return (
+                value.isEmpty() || EnvContributingVarsImporter.isVarNameTemplateValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNameTemplateInvalid())
+            );
+        }
+
+        /**
+         * Performs validation on any submitted value for includeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of includeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckIncludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for excludeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of excludeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckExcludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Validates a list of variable name patterns
+         * 
+         * @param value
+         *      Given list of patterns
+         * @return
+         *      {@link FormValidation}.ok() if every pattern is valid;
+         *      otherwise FormValidation.error()
+         */
+        private static FormValidation checkVarNamePatterns(String value) {
+            return (
+                VarNameFilter.arePatternsValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNamePatternsInvalid())
+            );
+        }
+
+        /**
+         * Indicates whether this extension is compatible with certain projects.
+         * This method always returns TRUE to indicate universal compatibility.
+         * 
+         * @param aClass
+         *      AbstractProject implementation class descriptor to be
+         *      checked for compatibility
+         * @return 
+         *      TRUE, unconditionally
+         */
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        /**
+         * Returns the display name of this builder
+         * 
+         * @return Display name of this builder
+         */
+        @Override
+        public String getDisplayName() {
+            return Messages.AggregateImportOtherBuildEnvVarsBuilder_BuilderDisplayName();
+        }
+
+    }
+
+}
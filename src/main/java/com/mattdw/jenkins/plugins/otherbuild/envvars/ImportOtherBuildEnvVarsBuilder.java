@@ -30,8 +30,14 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.VarValueBuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.metrics.ImportMetrics;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.NamedBuildExternalBuildProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
 import hudson.Launcher;
 import hudson.Extension;
@@ -46,10 +52,14 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.util.FormValidation;
 import java.io.PrintStream;
 import java.io.IOException;
+import java.util.Collections;
 import javax.servlet.ServletException;
 import jenkins.tasks.SimpleBuildStep;
+import net.sf.json.JSONObject;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
 
 
 
@@ -77,6 +87,12 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
      */
     private final TemplatingOtherBuildEnvVarsImporter varImporter;
 
+    /**
+     * Order in which the build identifier is tried as a display name and as
+     * a build number; NULL for display names first
+     */
+    private BuildResolutionOrder resolutionOrder;
+
     /**
      * Factory the build executor (to which the actual logic of importing build
      * variables from another project is delegated)
@@ -151,7 +167,6 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
      *      variable names will be provided (notionally, so as not to overwrite
      *      existing variables within the scope of the build)
      */
-    @DataBoundConstructor
     public ImportOtherBuildEnvVarsBuilder(
         final String projectName,
         final String buildId,
@@ -164,6 +179,43 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
         );
     }
 
+    /**
+     * Constructor - creates a new instance of ImportOtherBuildEnvVarsBuilder
+     * using data bound arguments provided by Jenkins when a builder of this
+     * type is initialised or [re]configured; this assumes a default variable
+     * importing implementation of {@link EnvContributingVarsImporter}, importing only
+     * those variables accepted by the given include and exclude patterns
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param varNameTemplate 
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     * @param includeVars
+     *      Glob or /regex/ patterns of variable names to import, separated by
+     *      commas or new lines; empty to import all variables
+     * @param excludeVars
+     *      Glob or /regex/ patterns of variable names not to import, separated
+     *      by commas or new lines
+     */
+    @DataBoundConstructor
+    public ImportOtherBuildEnvVarsBuilder(
+        final String projectName,
+        final String buildId,
+        final String varNameTemplate,
+        final String includeVars,
+        final String excludeVars
+    ) {
+        this(
+            projectName,
+            buildId,
+            new EnvContributingVarsImporter(varNameTemplate, new VarNameFilter(includeVars, excludeVars))
+        );
+    }
+
     /**
      * Getter for projectName
      * 
@@ -197,6 +249,69 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
         return this.varImporter.getVarNameTemplate();
     }
 
+    /**
+     * Pseudo-getter for includeVars
+     * 
+     * @return
+     *      Patterns of variable names to import; NULL if all variables
+     *      are imported
+     */
+    public String getIncludeVars() {
+        VarNameFilter filter = this.getVarNameFilter();
+
+        return (filter != null ? filter.getIncludes() : null);
+    }
+
+    /**
+     * Pseudo-getter for excludeVars
+     * 
+     * @return
+     *      Patterns of variable names not to import; NULL if no variables
+     *      are excluded
+     */
+    public String getExcludeVars() {
+        VarNameFilter filter = this.getVarNameFilter();
+
+        return (filter != null ? filter.getExcludes() : null);
+    }
+
+    /**
+     * Retrieves the variable name filter of the variable importer
+     * 
+     * @return
+     *      Variable name filter, or NULL if there is none
+     */
+    private VarNameFilter getVarNameFilter() {
+        return this.varImporter.getVarNameFilter();
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return (
+            this.resolutionOrder != null
+            ? this.resolutionOrder
+            : BuildResolutionOrder.NAME_FIRST
+        );
+    }
+
+    /**
+     * Setter for resolutionOrder
+     * 
+     * @param resolutionOrder
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for display names first
+     */
+    @DataBoundSetter
+    public void setResolutionOrder(final BuildResolutionOrder resolutionOrder) {
+        this.resolutionOrder = resolutionOrder;
+    }
+
     /**
      * Executes preparatory actions for <pre>perform()</pre>, most notably
      * ensuring that service properties have been set, or are initialised to
@@ -244,7 +359,8 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
                 new ImportVarsConfiguration(
                     this.projectName,
                     this.buildId,
-                    this.varImporter
+                    this.varImporter,
+                    this.resolutionOrder
                 ),
                 this.varImporter,
                 build.getEnvironment(listener),
@@ -252,13 +368,10 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
                 (AbstractBuild) build
             );
 
-            logger.println(
-                Messages.ImportOtherBuildEnvVarsBuilder_Imported(
-                    result.getTotalVarsImported(),
-                    result.getBuildId(),
-                    result.getProjectName()
-                )
-            );
+            logResult(logger, result);
+
+            // Recorded on the build so that a slow import may be diagnosed later
+            ImportVarsResultAction.record(build, Collections.singletonList(result));
         } catch (OtherBuildVarImportException ex) {
             
             // Any failure to import another project or build should fail the build
@@ -280,6 +393,40 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
         }
     }
 
+    /**
+     * Logs the result of an import, including the means by which the other
+     * build was located and the timings and size of the import
+     * 
+     * @param logger
+     *      Build log to which to write
+     * @param result 
+     *      Result of the import
+     */
+    static void logResult(final PrintStream logger, final ImportVarsResult result) {
+        final String projectName = result.getProjectName();
+        final String buildId = result.getBuildId();
+
+        logger.println(
+            Messages.ImportOtherBuildEnvVarsBuilder_Imported(
+                result.getTotalVarsImported(),
+                buildId,
+                projectName
+            )
+        );
+        logger.println(
+            Messages.ImportOtherBuildEnvVarsBuilder_ImportTimings(
+                projectName,
+                buildId,
+                result.getLookupStrategy(),
+                ImportMetrics.toMicros(result.getProjectLookupNanos()),
+                ImportMetrics.toMicros(result.getBuildLookupNanos()),
+                ImportMetrics.toMicros(result.getEnvironmentNanos()),
+                ImportMetrics.toMicros(result.getTransferNanos()),
+                result.getEnvBytes()
+            )
+        );
+    }
+
     /**
      * Returns the descriptor of this extensible object, which is defined below
      * as a public, static inner class
@@ -308,6 +455,33 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
     @Extension // This indicates to Jenkins that this is an implementation of an extension point.
     public static class DescriptorImpl extends BuildStepDescriptor<Builder> {
 
+        /**
+         * Indicates whether or not a snapshot of the environment of every
+         * build is saved on completion, to be imported in place of computing
+         * the environment of the build at the time of import
+         */
+        private boolean snapshotEnvironments;
+
+        /**
+         * Names of the parameters and environment variables whose values are
+         * indexed, so that builds may be identified as NAME=value
+         */
+        private String indexedVarNames;
+
+        /**
+         * Maximum number of past builds, newest first, searched for a display
+         * name; NULL for the system property default
+         */
+        private Integer maxSearchDepth;
+
+        /**
+         * Maximum age of past builds searched for a display name, in
+         * milliseconds; NULL for the system property default
+         */
+        private Long maxSearchAgeMillis;
+
+
+
         /**
          * Constructor - creates a new instance of DescriptorImpl;
          * 
@@ -316,6 +490,153 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
          */
         public DescriptorImpl() {
             load();
+
+            VarValueBuildIndex.getInstance().setIndexedVarNames(
+                VarValueBuildIndex.parseVarNames(this.indexedVarNames)
+            );
+            configureSearchLimits();
+        }
+
+        /**
+         * Getter for snapshotEnvironments
+         * 
+         * @return
+         *      TRUE if a snapshot of the environment of every build is saved
+         *      on completion; otherwise FALSE
+         */
+        public boolean isSnapshotEnvironments() {
+            return this.snapshotEnvironments;
+        }
+
+        /**
+         * Setter for snapshotEnvironments
+         * 
+         * @param snapshotEnvironments 
+         *      TRUE if a snapshot of the environment of every build is to be
+         *      saved on completion; otherwise FALSE
+         */
+        public void setSnapshotEnvironments(boolean snapshotEnvironments) {
+            this.snapshotEnvironments = snapshotEnvironments;
+        }
+
+        /**
+         * Getter for indexedVarNames
+         * 
+         * @return
+         *      Names of the parameters and environment variables whose values
+         *      are indexed, separated by commas or new lines
+         */
+        public String getIndexedVarNames() {
+            return this.indexedVarNames;
+        }
+
+        /**
+         * Setter for indexedVarNames; the names take effect for builds which
+         * complete from this point onwards
+         * 
+         * @param indexedVarNames 
+         *      Names of the parameters and environment variables whose values
+         *      are to be indexed, separated by commas or new lines
+         */
+        public void setIndexedVarNames(String indexedVarNames) {
+            this.indexedVarNames = indexedVarNames;
+
+            VarValueBuildIndex.getInstance().setIndexedVarNames(
+                VarValueBuildIndex.parseVarNames(indexedVarNames)
+            );
+        }
+
+        /**
+         * Getter for maxSearchDepth
+         * 
+         * @return
+         *      Maximum number of past builds, newest first, searched for a
+         *      display name; zero or less for no limit; NULL for the system
+         *      property default
+         */
+        public Integer getMaxSearchDepth() {
+            return this.maxSearchDepth;
+        }
+
+        /**
+         * Setter for maxSearchDepth; the limit takes effect for searches
+         * which begin from this point onwards
+         * 
+         * @param maxSearchDepth 
+         *      Maximum number of past builds, newest first, to be searched
+         *      for a display name; zero or less for no limit; NULL for the
+         *      system property default
+         */
+        public void setMaxSearchDepth(Integer maxSearchDepth) {
+            this.maxSearchDepth = maxSearchDepth;
+
+            configureSearchLimits();
+        }
+
+        /**
+         * Getter for maxSearchAgeMillis
+         * 
+         * @return
+         *      Maximum age of past builds searched for a display name, in
+         *      milliseconds; zero or less for no limit; NULL for the system
+         *      property default
+         */
+        public Long getMaxSearchAgeMillis() {
+            return this.maxSearchAgeMillis;
+        }
+
+        /**
+         * Setter for maxSearchAgeMillis; the limit takes effect for searches
+         * which begin from this point onwards
+         * 
+         * @param maxSearchAgeMillis 
+         *      Maximum age of past builds to be searched for a display name,
+         *      in milliseconds; zero or less for no limit; NULL for the
+         *      system property default
+         */
+        public void setMaxSearchAgeMillis(Long maxSearchAgeMillis) {
+            this.maxSearchAgeMillis = maxSearchAgeMillis;
+
+            configureSearchLimits();
+        }
+
+        /**
+         * Applies the configured display name search limits to every
+         * {@link NamedBuildExternalBuildProvider} without limits of its own
+         */
+        private void configureSearchLimits() {
+            NamedBuildExternalBuildProvider.configureSearchLimits(
+                (
+                    this.maxSearchDepth != null
+                    ? this.maxSearchDepth
+                    : NamedBuildExternalBuildProvider.DEFAULT_MAX_SEARCH_DEPTH
+                ),
+                (
+                    this.maxSearchAgeMillis != null
+                    ? this.maxSearchAgeMillis
+                    : NamedBuildExternalBuildProvider.DEFAULT_MAX_SEARCH_AGE_MILLIS
+                )
+            );
+        }
+
+        /**
+         * Applies and persists the submitted global configuration
+         * 
+         * @param req
+         *      Stapler request in which the configuration was submitted
+         * @param json
+         *      JSONObject containing the submitted global configuration
+         * @return
+         *      TRUE, unconditionally
+         * @throws FormException 
+         *      If the submitted configuration cannot be applied
+         */
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+            req.bindJSON(this, json);
+            save();
+
+            return true;
         }
 
         /**
@@ -341,6 +662,96 @@ public class ImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBui
                 : FormValidation.error("Variable name template must contain one instance of '%s' for string population")
             );
         }
+
+        /**
+         * Performs validation on any submitted value for includeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of includeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckIncludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for excludeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of excludeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckExcludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for maxSearchDepth;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of maxSearchDepth (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckMaxSearchDepth(@QueryParameter String value) {
+            try {
+                if (value != null && !value.trim().isEmpty()) {
+                    Integer.parseInt(value.trim());
+                }
+
+                return FormValidation.ok();
+            } catch (NumberFormatException ex) {
+                return FormValidation.error("Maximum search depth must be a whole number of builds");
+            }
+        }
+
+        /**
+         * Performs validation on any submitted value for maxSearchAgeMillis;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of maxSearchAgeMillis (injected as a query
+         *      parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckMaxSearchAgeMillis(@QueryParameter String value) {
+            try {
+                if (value != null && !value.trim().isEmpty()) {
+                    Long.parseLong(value.trim());
+                }
+
+                return FormValidation.ok();
+            } catch (NumberFormatException ex) {
+                return FormValidation.error("Maximum search age must be a whole number of milliseconds");
+            }
+        }
+
+        /**
+         * Validates a list of variable name patterns
+         * 
+         * @param value
+         *      Given list of patterns
+         * @return
+         *      {@link FormValidation}.ok() if every pattern is valid;
+         *      otherwise FormValidation.error()
+         */
+        private static FormValidation checkVarNamePatterns(String value) {
+            return (
+                VarNameFilter.arePatternsValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNamePatternsInvalid())
+            );
+        }
         
         /**
          * Indicates whether this extension is compatible with certain projects.
@@ -0,0 +1,504 @@
+/**
+ * ImportOtherBuildEnvVarsStep.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.google.inject.Inject;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.EnvVarsImport;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.LazyImportedEnvVars;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+import java.util.Map;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepDescriptorImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractStepImpl;
+import org.jenkinsci.plugins.workflow.steps.AbstractSynchronousNonBlockingStepExecution;
+import org.jenkinsci.plugins.workflow.steps.StepContextParameter;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+
+
+/**
+ * Pipeline step (<pre>importOtherBuildEnvVars</pre>) which returns the
+ * environment variables of another build [in another project] as a map
+ * 
+ * Unlike {@link ImportOtherBuildEnvVarsBuilder}, nothing is attached to the
+ * current build, so that any number of imports may be made by a pipeline
+ * without adding to its actions; the variables are either imported when the
+ * step runs or, where the step is lazy, when the map is first read (the
+ * other build is nonetheless resolved when the step runs)
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ImportOtherBuildEnvVarsStep extends AbstractStepImpl {
+
+    /**
+     * Project name of the project to which the target build belongs
+     */
+    private final String projectName;
+
+    /**
+     * Identifier of the target build from which environment variables
+     * are imported
+     */
+    private final String buildId;
+
+    /**
+     * String.format (printf) template to which the original environment
+     * variable names will be provided; NULL to keep the original names
+     */
+    private String varNameTemplate;
+
+    /**
+     * Patterns of variable names to import; NULL to import all variables
+     */
+    private String includeVars;
+
+    /**
+     * Patterns of variable names not to import
+     */
+    private String excludeVars;
+
+    /**
+     * Order in which the build identifier is tried as a display name and
+     * as a build number; NULL for display names first
+     */
+    private BuildResolutionOrder resolutionOrder;
+
+    /**
+     * Indicates whether the variables are imported when first read rather
+     * than when the step runs
+     */
+    private boolean lazy;
+
+
+
+    /**
+     * Constructor - creates a new instance of ImportOtherBuildEnvVarsStep
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     */
+    @DataBoundConstructor
+    public ImportOtherBuildEnvVarsStep(final String projectName, final String buildId) {
+        this.projectName = projectName;
+        this.buildId = buildId;
+    }
+
+    /**
+     * Getter for projectName
+     * 
+     * @return
+     *      Project name of the project to which the target build belongs
+     */
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * Getter for buildId
+     * 
+     * @return
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     */
+    public String getBuildId() {
+        return this.buildId;
+    }
+
+    /**
+     * Getter for varNameTemplate
+     * 
+     * @return
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided; NULL to keep the original names
+     */
+    public String getVarNameTemplate() {
+        return this.varNameTemplate;
+    }
+
+    /**
+     * Setter for varNameTemplate
+     * 
+     * @param varNameTemplate
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided; NULL or empty to keep the
+     *      original names
+     */
+    @DataBoundSetter
+    public void setVarNameTemplate(final String varNameTemplate) {
+        this.varNameTemplate = varNameTemplate;
+    }
+
+    /**
+     * Getter for includeVars
+     * 
+     * @return
+     *      Patterns of variable names to import; NULL to import all variables
+     */
+    public String getIncludeVars() {
+        return this.includeVars;
+    }
+
+    /**
+     * Setter for includeVars
+     * 
+     * @param includeVars
+     *      Glob or /regex/ patterns of variable names to import, separated by
+     *      commas or new lines; empty to import all variables
+     */
+    @DataBoundSetter
+    public void setIncludeVars(final String includeVars) {
+        this.includeVars = includeVars;
+    }
+
+    /**
+     * Getter for excludeVars
+     * 
+     * @return
+     *      Patterns of variable names not to import
+     */
+    public String getExcludeVars() {
+        return this.excludeVars;
+    }
+
+    /**
+     * Setter for excludeVars
+     * 
+     * @param excludeVars
+     *      Glob or /regex/ patterns of variable names not to import, separated
+     *      by commas or new lines
+     */
+    @DataBoundSetter
+    public void setExcludeVars(final String excludeVars) {
+        this.excludeVars = excludeVars;
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return (
+            this.resolutionOrder != null
+            ? this.resolutionOrder
+            : BuildResolutionOrder.NAME_FIRST
+        );
+    }
+
+    /**
+     * Setter for resolutionOrder
+     * 
+     * @param resolutionOrder
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for display names first
+     */
+    @DataBoundSetter
+    public void setResolutionOrder(final BuildResolutionOrder resolutionOrder) {
+        this.resolutionOrder = resolutionOrder;
+    }
+
+    /**
+     * Getter for lazy
+     * 
+     * @return
+     *      TRUE if the variables are imported when first read; FALSE if they
+     *      are imported when the step runs
+     */
+    public boolean isLazy() {
+        return this.lazy;
+    }
+
+    /**
+     * Setter for lazy
+     * 
+     * @param lazy
+     *      TRUE to import the variables when first read; FALSE to import
+     *      them when the step runs
+     */
+    @DataBoundSetter
+    public void setLazy(final boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Creates the description of the import made by this step
+     * 
+     * @param env
+     *      Environment of the current build, against which the build
+     *      identifier is expanded
+     * @return
+     *      Description of the import
+     */
+    protected EnvVarsImport createImport(final EnvVars env) {
+        return new EnvVarsImport(
+            this.projectName,
+            (env != null ? env.expand(this.buildId) : this.buildId),
+            this.varNameTemplate,
+            this.includeVars,
+            this.excludeVars,
+            this.resolutionOrder
+        );
+    }
+
+
+
+    /**
+     * Execution of {@link ImportOtherBuildEnvVarsStep}, which completes
+     * synchronously but on a thread of its own, since the import may read
+     * and search the records of many builds, during which the pipeline
+     * engine (and any other branches of the pipeline) would otherwise block
+     */
+    public static class Execution extends AbstractSynchronousNonBlockingStepExecution<Map<String, String>> {
+
+        /**
+         * Serial version UID
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Step being executed
+         */
+        @Inject
+        private transient ImportOtherBuildEnvVarsStep step;
+
+        /**
+         * Environment of the current build
+         */
+        @StepContextParameter
+        private transient EnvVars env;
+
+        /**
+         * Listener for the current build
+         */
+        @StepContextParameter
+        private transient TaskListener listener;
+
+        /**
+         * Factory for the executor to which the import is delegated
+         */
+        private transient ImportVarsExecutorFactory<EnvVarsCopier, TemplatingEnvVarsCopier, ?> executorFactory;
+
+
+
+        /**
+         * Performs the import (or, for a lazy step, resolves the other build
+         * and describes the import of its variables)
+         * 
+         * @return
+         *      Map of imported variables
+         * @throws Exception
+         *      If the other project or build cannot be found, or if the
+         *      import otherwise fails
+         */
+        @Override
+        protected Map<String, String> run() throws Exception {
+            if (this.executorFactory == null) {
+                this.executorFactory = new ImportVarsExecutorFactory.CopierImpl();
+            }
+
+            return perform(this.step, this.env, this.listener, this.executorFactory);
+        }
+
+        /**
+         * Performs the import for a given step
+         * 
+         * @param step
+         *      Step describing the import
+         * @param env
+         *      Environment of the current build
+         * @param listener
+         *      Listener for the current build
+         * @param executorFactory
+         *      Factory for the executor to which the import is delegated
+         * @return
+         *      Map of imported variables; a {@link LazyImportedEnvVars} if
+         *      the step is lazy
+         * @throws Exception
+         *      If the other project or build cannot be found, or if the
+         *      import otherwise fails
+         */
+        static Map<String, String> perform(
+            final ImportOtherBuildEnvVarsStep step,
+            final EnvVars env,
+            final TaskListener listener,
+            final ImportVarsExecutorFactory<EnvVarsCopier, TemplatingEnvVarsCopier, ?> executorFactory
+        ) throws Exception {
+            final EnvVarsImport envVarsImport = step.createImport(env);
+            final EnvVars imported = new EnvVars();
+
+            try {
+
+                /*
+                 * The other build is resolved here, off the pipeline thread,
+                 * so that only the variables of a lazy import are left to be
+                 * read by whichever thread first reads the map
+                 */
+                if (step.isLazy()) {
+                    return new LazyImportedEnvVars(
+                        envVarsImport.pin(executorFactory.createExecutor()),
+                        executorFactory,
+                        listener
+                    );
+                }
+
+                ImportVarsResult result = envVarsImport.perform(
+                    executorFactory.createExecutor(),
+                    imported,
+                    listener
+                );
+
+                ImportOtherBuildEnvVarsBuilder.logResult(listener.getLogger(), result);
+            } catch (OtherBuildVarImportException ex) {
+                throw new AbortException(
+                    Messages.ImportOtherBuildEnvVarsBuilder_ImportError(ex.getMessage())
+                );
+            }
+
+            return imported;
+        }
+
+    }
+
+
+
+    /**
+     * Descriptor for {@link ImportOtherBuildEnvVarsStep}; optional, as the
+     * step is only available where pipeline support is installed
+     */
+    @Extension(optional = true)
+    public static class DescriptorImpl extends AbstractStepDescriptorImpl {
+
+        /**
+         * Constructor - creates a new instance of DescriptorImpl
+         */
+        public DescriptorImpl() {
+            super(Execution.class);
+        }
+
+        /**
+         * Returns the name by which the step is invoked in a pipeline
+         * 
+         * @return
+         *      Function name of the step
+         */
+        @Override
+        public String getFunctionName() {
+            return "importOtherBuildEnvVars";
+        }
+
+        /**
+         * Performs validation on any submitted value for varNameTemplate
+         * 
+         * @param value
+         *      Given value of varNameTemplate (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is empty or valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckVarNameTemplate(@QueryParameter String value) {
+            return (
+                value == null || value.isEmpty() || EnvContributingVarsImporter.isVarNameTemplateValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNameTemplateInvalid())
+            );
+        }
+
+        /**
+         * Performs validation on any submitted value for includeVars
+         * 
+         * @param value
+         *      Given value of includeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckIncludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for excludeVars
+         * 
+         * @param value
+         *      Given value of excludeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckExcludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Validates a list of variable name patterns
+         * 
+         * @param value
+         *      Given list of patterns
+         * @return
+         *      {@link FormValidation}.ok() if every pattern is valid;
+         *      otherwise FormValidation.error()
+         */
+        private static FormValidation checkVarNamePatterns(String value) {
+            return (
+                VarNameFilter.arePatternsValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNamePatternsInvalid())
+            );
+        }
+
+        /**
+         * Returns the display name of this step
+         * 
+         * @return Display name of this step
+         */
+        @Override
+        public String getDisplayName() {
+            return Messages.ImportOtherBuildEnvVarsStep_DisplayName();
+        }
+
+    }
+
+}
@@ -0,0 +1,255 @@
+/**
+ * MultiSourceImportOtherBuildEnvVarsBuilder.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.Builder;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jenkins.tasks.SimpleBuildStep;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+
+
+/**
+ * Builder to import environment variables from several other builds,
+ * optionally in other projects, in a single step
+ * 
+ * The environments of the other builds are resolved concurrently; where
+ * two sources produce the same (templated) variable, the source listed
+ * later takes precedence, as it would were each imported in turn
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class MultiSourceImportOtherBuildEnvVarsBuilder extends Builder implements SimpleBuildStep {
+
+    /**
+     * Builds from which environment variables are imported, in ascending
+     * order of precedence
+     */
+    private final List<OtherBuildImportSource> sources;
+
+    /**
+     * Variable importer mechanism for the merged variables, which have already
+     * been templated by their sources
+     */
+    private final TemplatingOtherBuildEnvVarsImporter varImporter;
+
+    /**
+     * Factory the build executor (to which the actual logic of importing build
+     * variables from another project is delegated)
+     */
+    private transient ImportVarsExecutorFactory executorFactory;
+
+
+
+    /**
+     * Constructor - creates a new instance of MultiSourceImportOtherBuildEnvVarsBuilder
+     * 
+     * @param sources
+     *      Builds from which environment variables are imported, in ascending
+     *      order of precedence
+     * @param executorFactory
+     *      Factory for the executor to which the import is delegated
+     */
+    public MultiSourceImportOtherBuildEnvVarsBuilder(
+        final List<OtherBuildImportSource> sources,
+        final ImportVarsExecutorFactory executorFactory
+    ) {
+        this.sources = (
+            sources != null
+            ? new ArrayList<>(sources)
+            : new ArrayList<OtherBuildImportSource>()
+        );
+        this.varImporter = new EnvContributingVarsImporter(EnvContributingVarsImporter.VAR_NAME_TOKEN);
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Constructor - creates a new instance of MultiSourceImportOtherBuildEnvVarsBuilder
+     * using data bound arguments provided by Jenkins and a default executor factory
+     * 
+     * @param sources
+     *      Builds from which environment variables are imported, in ascending
+     *      order of precedence
+     */
+    @DataBoundConstructor
+    public MultiSourceImportOtherBuildEnvVarsBuilder(final List<OtherBuildImportSource> sources) {
+        this(sources, new ImportVarsExecutorFactory.ImporterImpl());
+    }
+
+    /**
+     * Getter for sources
+     * 
+     * @return
+     *      Builds from which environment variables are imported, in ascending
+     *      order of precedence
+     */
+    public List<OtherBuildImportSource> getSources() {
+        return Collections.unmodifiableList(this.sources);
+    }
+
+    /**
+     * Executes preparatory actions for <pre>perform()</pre>, most notably
+     * ensuring that service properties have been set, or are initialised to
+     * their nominal defaults
+     */
+    protected void prePerform() {
+        if (this.executorFactory == null) {
+            this.executorFactory = new ImportVarsExecutorFactory.ImporterImpl();
+        }
+    }
+
+    /**
+     * Performs the build action of importing environment variables from
+     * several other builds [in other projects]
+     * 
+     * @param build
+     *      Current build
+     * @param workspace
+     *      Workspace of the current build; not used in this implementation
+     * @param launcher
+     *      Launcher for the current build; not used in this implementation
+     * @param listener
+     *      TaskListener responsible for managing events for the current build;
+     *      essential for accessing the current build's environment
+     */
+    @Override
+    public void perform(Run<?,?> build, FilePath workspace, Launcher launcher, TaskListener listener) {
+
+        // Essential that services have been initialised
+        this.prePerform();
+
+        final PrintStream logger = listener.getLogger();
+        final List<ImportVarsConfiguration<TemplatingOtherBuildEnvVarsImporter>> configurations = new ArrayList<>(
+            this.sources.size()
+        );
+
+        for (OtherBuildImportSource source : this.sources) {
+            configurations.add(source.toConfiguration());
+        }
+
+        try {
+            List<ImportVarsResult> results = this.executorFactory.createExecutor().performAll(
+                configurations,
+                this.varImporter,
+                build.getEnvironment(listener),
+                listener,
+                (AbstractBuild) build
+            );
+
+            for (ImportVarsResult result : results) {
+                ImportOtherBuildEnvVarsBuilder.logResult(logger, result);
+            }
+
+            ImportVarsResultAction.record(build, results);
+        } catch (OtherBuildVarImportException ex) {
+
+            // Any failure to import another project or build should fail the build
+            build.setResult(Result.FAILURE);
+            logger.println(
+                Messages.ImportOtherBuildEnvVarsBuilder_ImportError(ex.getMessage())
+            );
+
+        } catch (InterruptedException | IOException ex) {
+
+            // Any other exception that occurs should also fail the build
+            build.setResult(Result.FAILURE);
+            logger.println(
+                Messages.ImportOtherBuildEnvVarsBuilder_FailedToObtainEnvironment()
+            );
+            ex.printStackTrace(logger);
+        }
+    }
+
+    /**
+     * Returns the descriptor of this extensible object, which is defined below
+     * as a public, static inner class
+     * 
+     * @return
+     *      {@link DescriptorImpl} of this extensible object
+     */
+    @Override
+    public DescriptorImpl getDescriptor() {
+        return (DescriptorImpl) (super.getDescriptor());
+    }
+
+
+
+    /**
+     * Descriptor for {@link MultiSourceImportOtherBuildEnvVarsBuilder}
+     */
+    @Extension
+    public static class DescriptorImpl extends BuildStepDescriptor<Builder> {
+
+        /**
+         * Indicates whether this extension is compatible with certain projects.
+         * This method always returns TRUE to indicate universal compatibility.
+         * 
+         * @param aClass
+         *      AbstractProject implementation class descriptor to be
+         *      checked for compatibility
+         * @return 
+         *      TRUE, unconditionally
+         */
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> aClass) {
+            return true;
+        }
+
+        /**
+         * Returns the display name of this builder
+         * 
+         * @return Display name of this builder
+         */
+        @Override
+        public String getDisplayName() {
+            return Messages.MultiSourceImportOtherBuildEnvVarsBuilder_BuilderDisplayName();
+        }
+
+    }
+
+}
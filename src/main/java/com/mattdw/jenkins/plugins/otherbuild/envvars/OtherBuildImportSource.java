@@ -0,0 +1,350 @@
+/**
+ * OtherBuildImportSource.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+
+
+/**
+ * A single build [in another project] from which environment variables are
+ * imported by {@link MultiSourceImportOtherBuildEnvVarsBuilder}
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class OtherBuildImportSource extends AbstractDescribableImpl<OtherBuildImportSource> {
+
+    /**
+     * Project name of the project to which the target build belongs
+     */
+    private final String projectName;
+
+    /**
+     * Identifier of the target build from which environment variables
+     * are imported
+     */
+    private final String buildId;
+
+    /**
+     * Variable importer mechanism, which applies the variable name template
+     * of this source
+     */
+    private final TemplatingOtherBuildEnvVarsImporter varImporter;
+
+    /**
+     * Order in which the build identifier is tried as a display name and as
+     * a build number; NULL for display names first
+     */
+    private BuildResolutionOrder resolutionOrder;
+
+
+
+    /**
+     * Constructor - creates a new instance of OtherBuildImportSource
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param varImporter 
+     *      Variable importer mechanism, which applies the variable name
+     *      template of this source
+     */
+    public OtherBuildImportSource(
+        final String projectName,
+        final String buildId,
+        final TemplatingOtherBuildEnvVarsImporter varImporter
+    ) {
+        this.projectName = projectName;
+        this.buildId = buildId;
+        this.varImporter = varImporter;
+    }
+
+    /**
+     * Constructor - creates a new instance of OtherBuildImportSource using
+     * data bound arguments provided by Jenkins
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param varNameTemplate 
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     */
+    public OtherBuildImportSource(
+        final String projectName,
+        final String buildId,
+        final String varNameTemplate
+    ) {
+        this(projectName, buildId, new EnvContributingVarsImporter(varNameTemplate));
+    }
+
+    /**
+     * Constructor - creates a new instance of OtherBuildImportSource using
+     * data bound arguments provided by Jenkins, importing only
+     * those variables accepted by the given include and exclude patterns
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param varNameTemplate 
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     * @param includeVars
+     *      Glob or /regex/ patterns of variable names to import, separated by
+     *      commas or new lines; empty to import all variables
+     * @param excludeVars
+     *      Glob or /regex/ patterns of variable names not to import, separated
+     *      by commas or new lines
+     */
+    @DataBoundConstructor
+    public OtherBuildImportSource(
+        final String projectName,
+        final String buildId,
+        final String varNameTemplate,
+        final String includeVars,
+        final String excludeVars
+    ) {
+        this(
+            projectName,
+            buildId,
+            new EnvContributingVarsImporter(varNameTemplate, new VarNameFilter(includeVars, excludeVars))
+        );
+    }
+
+    /**
+     * Getter for projectName
+     * 
+     * @return
+     *      Project name of the project to which the target build belongs
+     */
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * Getter for buildId
+     * 
+     * @return
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     */
+    public String getBuildId() {
+        return this.buildId;
+    }
+
+    /**
+     * Pseudo-getter for varNameTemplate
+     * 
+     * @return
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     */
+    public String getVarNameTemplate() {
+        return this.varImporter.getVarNameTemplate();
+    }
+
+    /**
+     * Pseudo-getter for includeVars
+     * 
+     * @return
+     *      Patterns of variable names to import; NULL if all variables
+     *      are imported
+     */
+    public String getIncludeVars() {
+        VarNameFilter filter = this.getVarNameFilter();
+
+        return (filter != null ? filter.getIncludes() : null);
+    }
+
+    /**
+     * Pseudo-getter for excludeVars
+     * 
+     * @return
+     *      Patterns of variable names not to import; NULL if no variables
+     *      are excluded
+     */
+    public String getExcludeVars() {
+        VarNameFilter filter = this.getVarNameFilter();
+
+        return (filter != null ? filter.getExcludes() : null);
+    }
+
+    /**
+     * Retrieves the variable name filter of the variable importer
+     * 
+     * @return
+     *      Variable name filter, or NULL if there is none
+     */
+    private VarNameFilter getVarNameFilter() {
+        return this.varImporter.getVarNameFilter();
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return (
+            this.resolutionOrder != null
+            ? this.resolutionOrder
+            : BuildResolutionOrder.NAME_FIRST
+        );
+    }
+
+    /**
+     * Setter for resolutionOrder
+     * 
+     * @param resolutionOrder
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for display names first
+     */
+    @DataBoundSetter
+    public void setResolutionOrder(final BuildResolutionOrder resolutionOrder) {
+        this.resolutionOrder = resolutionOrder;
+    }
+
+    /**
+     * Produces the executor configuration for this source
+     * 
+     * @return 
+     *      Configuration providing the project name, build identifier,
+     *      variable name template and resolution order of this source
+     */
+    public ImportVarsConfiguration<TemplatingOtherBuildEnvVarsImporter> toConfiguration() {
+        return new ImportVarsConfiguration<>(
+            this.projectName,
+            this.buildId,
+            this.varImporter,
+            this.resolutionOrder
+        );
+    }
+
+
+
+    /**
+     * Descriptor for {@link OtherBuildImportSource}
+     */
+    @Extension
+    public static class DescriptorImpl extends Descriptor<OtherBuildImportSource> {
+
+        /**
+         * Performs validation on any submitted value for varNameTemplate;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of varNameTemplate (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckVarNameTemplate(@QueryParameter String value) {
+            return (
+                EnvContributingVarsImporter.isVarNameTemplateValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNameTemplateInvalid())
+            );
+        }
+
+        /**
+         * Performs validation on any submitted value for includeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of includeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckIncludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Performs validation on any submitted value for excludeVars;
+         * automatically triggered by Jenkins
+         * 
+         * @param value
+         *      Given value of excludeVars (injected as a query parameter)
+         * @return
+         *      {@link FormValidation}.ok() if value is valid;
+         *      otherwise FormValidation.error()
+         */
+        public FormValidation doCheckExcludeVars(@QueryParameter String value) {
+            return checkVarNamePatterns(value);
+        }
+
+        /**
+         * Validates a list of variable name patterns
+         * 
+         * @param value
+         *      Given list of patterns
+         * @return
+         *      {@link FormValidation}.ok() if every pattern is valid;
+         *      otherwise FormValidation.error()
+         */
+        private static FormValidation checkVarNamePatterns(String value) {
+            return (
+                VarNameFilter.arePatternsValid(value)
+                ? FormValidation.ok()
+                : FormValidation.error(Messages.ImportOtherBuildEnvVarsBuilder_VarNamePatternsInvalid())
+            );
+        }
+
+        /**
+         * Returns the display name of this source
+         * 
+         * @return Display name of this source
+         */
+        @Override
+        public String getDisplayName() {
+            return Messages.OtherBuildImportSource_DisplayName();
+        }
+
+    }
+
+}
@@ -33,12 +33,15 @@ import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVar
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvVarsCopier;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildSearchIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.CachingResultFilteringOtherProjectBuildOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.OtherProjectBuildOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultFilteringOtherProjectBuildOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
-import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.SingletonCallExternalProjectProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.CachingSingletonCallExternalProjectProvider;
 import hudson.Extension;
 import hudson.model.AbstractProject;
 import hudson.model.ParameterDefinition;
@@ -49,12 +52,16 @@ import hudson.model.Result;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
 import java.io.IOException;
+import java.util.List;
 import javax.servlet.ServletException;
+import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 
 
@@ -83,6 +90,19 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
      */
     protected final TemplatingEnvVarsCopier varImporter;
 
+    /**
+     * Maximum number of past builds to present for selection, newest first;
+     * zero or less indicates that every past build will be presented
+     */
+    protected int maxBuildOptions = 0;
+
+    /**
+     * Order in which the selected build identifier is tried as a display name
+     * and as a build number; NULL for build numbers first, as the options
+     * presented for selection are build numbers
+     */
+    protected BuildResolutionOrder resolutionOrder;
+
     /**
      * Factory the build executor (to which the actual logic of importing build
      * variables from another project is delegated)
@@ -269,6 +289,56 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
         return this.projectName;
     }
 
+    /**
+     * Getter for maxBuildOptions
+     * 
+     * @return
+     *      Maximum number of past builds to present for selection, newest
+     *      first; zero or less indicates that every past build will be presented
+     */
+    public int getMaxBuildOptions() {
+        return this.maxBuildOptions;
+    }
+
+    /**
+     * Setter for maxBuildOptions
+     * 
+     * @param maxBuildOptions
+     *      Maximum number of past builds to present for selection, newest
+     *      first; zero or less indicates that every past build will be presented
+     */
+    @DataBoundSetter
+    public void setMaxBuildOptions(final int maxBuildOptions) {
+        this.maxBuildOptions = maxBuildOptions;
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return
+     *      Order in which the selected build identifier is tried as a display
+     *      name and as a build number
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return (
+            this.resolutionOrder != null
+            ? this.resolutionOrder
+            : BuildResolutionOrder.NUMBER_FIRST
+        );
+    }
+
+    /**
+     * Setter for resolutionOrder
+     * 
+     * @param resolutionOrder
+     *      Order in which the selected build identifier is tried as a display
+     *      name and as a build number; NULL for build numbers first
+     */
+    @DataBoundSetter
+    public void setResolutionOrder(final BuildResolutionOrder resolutionOrder) {
+        this.resolutionOrder = resolutionOrder;
+    }
+
     /**
      * Executes preparatory actions for <pre>createValue()</pre>, most notably
      * ensuring that service properties have been set, or are initialised to
@@ -314,7 +384,8 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
             new ImportVarsConfiguration(
                 this.projectName,
                 jo.getString("value"),
-                this.varImporter
+                this.varImporter,
+                this.getResolutionOrder()
             ),
             this.executorFactory.createExecutor()
         );
@@ -362,6 +433,23 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
     @Extension
     public static class DescriptorImpl extends ParameterDescriptor {
 
+        /**
+         * Number of build options returned by a single request for options
+         * where no limit is given
+         */
+        public static final int OPTIONS_PAGE_SIZE = 50;
+
+        /**
+         * Greatest number of build options returned by a single request for
+         * options, regardless of the limit given
+         */
+        public static final int MAX_OPTIONS_PAGE_SIZE = 500;
+
+        /**
+         * Number of build options returned by a search where no limit is given
+         */
+        public static final int SEARCH_RESULT_LIMIT = 20;
+
         /**
          * Provider of possible result state options for list hydration
          */
@@ -379,6 +467,11 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
          */
         protected OtherProjectBuildOptionsProvider.Factory<ResultFilteringOtherProjectBuildOptionsProvider, Result> buildOptionsProviderFactory;
 
+        /**
+         * In-memory index through which past builds are searched
+         */
+        protected BuildSearchIndex searchIndex;
+
 
 
         /**
@@ -395,19 +488,44 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
          * @param buildOptionsProviderFactory 
          *      Provider of possible build options given an optional result filter
          *      and a selected project
+         * @param searchIndex
+         *      In-memory index through which past builds are searched
          */
         public DescriptorImpl(
             final ResultOptionsProvider resultOptionsProvider,
             final ExternalProjectProvider projectProvider,
-            final OtherProjectBuildOptionsProvider.Factory<ResultFilteringOtherProjectBuildOptionsProvider, Result> buildOptionsProviderFactory
+            final OtherProjectBuildOptionsProvider.Factory<ResultFilteringOtherProjectBuildOptionsProvider, Result> buildOptionsProviderFactory,
+            final BuildSearchIndex searchIndex
         ) {
             this.resultOptionsProvider = resultOptionsProvider;
             this.projectProvider = projectProvider;
             this.buildOptionsProviderFactory = buildOptionsProviderFactory;
+            this.searchIndex = searchIndex;
             
             load();
         }
 
+        /**
+         * Constructor - creates a new instance of DescriptorImpl using the
+         * shared build search index
+         * 
+         * @param resultOptionsProvider
+         *      Provider of possible result state options for list hydration
+         * @param projectProvider
+         *      External project provider, for the purpose of enumerating projects
+         *      from which optionally-filtered builds may be presented for selection
+         * @param buildOptionsProviderFactory 
+         *      Provider of possible build options given an optional result filter
+         *      and a selected project
+         */
+        public DescriptorImpl(
+            final ResultOptionsProvider resultOptionsProvider,
+            final ExternalProjectProvider projectProvider,
+            final OtherProjectBuildOptionsProvider.Factory<ResultFilteringOtherProjectBuildOptionsProvider, Result> buildOptionsProviderFactory
+        ) {
+            this(resultOptionsProvider, projectProvider, buildOptionsProviderFactory, BuildSearchIndex.getInstance());
+        }
+
         /**
          * Constructor - creates a new instance of DescriptorImpl with no arguments,
          * assuming default implementations of services required by the
@@ -418,8 +536,8 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
         public DescriptorImpl() {
             this(
                 new ResultOptionsProvider.Impl(),
-                new SingletonCallExternalProjectProvider(),
-                new ResultFilteringOtherProjectBuildOptionsProvider.Factory()
+                new CachingSingletonCallExternalProjectProvider(),
+                new CachingResultFilteringOtherProjectBuildOptionsProvider.Factory()
             );
         }
 
@@ -484,16 +602,287 @@ public class OtherBuildSelectorParameterDefinition extends ParameterDefinition {
          */
         protected ListBoxModel doFillValueItems(OtherBuildSelectorParameterDefinition definition) {
             String resultFilter = definition.getBuildResultFilter();
+            int maxBuildOptions = definition.getMaxBuildOptions();
 
             try {
-                return this.buildOptionsProviderFactory.buildProvider(
+                OtherProjectBuildOptionsProvider optionsProvider = this.buildOptionsProviderFactory.buildProvider(
                     resultFilter != null ? Result.fromString(resultFilter) : null
-                ).getOptionsForProject(this.projectProvider.provideProject(definition.getProjectName()));
+                );
+                AbstractProject project = this.projectProvider.provideProject(definition.getProjectName());
+
+                // Only walk as far back through the history as the limit requires
+                if (maxBuildOptions > 0) {
+                    return optionsProvider.getOptionsForProject(project, 0, maxBuildOptions);
+                }
+
+                return optionsProvider.getOptionsForProject(project);
             } catch (ProjectNotFoundException ex) {
                 return new ListBoxModel();
             }
         }
         
+        /**
+         * Writes a JSON page of options for past builds from the configured
+         * source project, newest first, so that the selection list can be
+         * populated progressively as the user scrolls or searches rather than
+         * all at once when the build page is loaded
+         * 
+         * @param project
+         *      Current project in the context of this request
+         * @param param
+         *      Name of the defined parameter for which to retrieve these options
+         * @param offset
+         *      Number of options on previous pages
+         * @param before
+         *      Number of the last build on the previous page, from which the
+         *      page continues; zero or less for the first page
+         * @param limit
+         *      Maximum number of options in the page; zero or less for the
+         *      default page size
+         * @param q
+         *      Text which the presented name or the number of each build must
+         *      contain (ignoring case); NULL or empty to match every build
+         * @param rsp
+         *      Stapler response to which the JSON page is written
+         * @throws IOException
+         *      If any I/O errors occur in writing the response
+         */
+        public void doValueOptions(
+            @AncestorInPath AbstractProject project,
+            @QueryParameter String param,
+            @QueryParameter int offset,
+            @QueryParameter int before,
+            @QueryParameter int limit,
+            @QueryParameter String q,
+            StaplerResponse rsp
+        ) throws IOException {
+            ParametersDefinitionProperty prop = (
+                project != null
+                ? (ParametersDefinitionProperty) project.getProperty(ParametersDefinitionProperty.class)
+                : null
+            );
+
+            ParameterDefinition def;
+            JSONObject json = (
+                prop != null
+                && (def = prop.getParameterDefinition(param)) instanceof OtherBuildSelectorParameterDefinition
+                ? this.getValueOptions((OtherBuildSelectorParameterDefinition) def, offset, before, limit, q)
+                : this.createValueOptionsPage(new ListBoxModel(), offset, false)
+            );
+
+            rsp.setContentType("application/json;charset=UTF-8");
+            rsp.getWriter().write(json.toString());
+        }
+
+        /**
+         * Produces a page of options for past builds for a given
+         * {@link OtherBuildSelectorParameterDefinition} object, as established
+         * by <pre>DescriptorImpl.doValueOptions</pre>
+         * 
+         * @param definition
+         *      Parameter definition from which source project and optional
+         *      filter can be retrieved
+         * @param offset
+         *      Number of options on previous pages, counted against the
+         *      configured number of build options
+         * @param before
+         *      Number of the last build on the previous page, from which the
+         *      page continues; zero or less for the first page
+         * @param limit
+         *      Maximum number of options in the page; zero or less for the
+         *      default page size
+         * @param query
+         *      Text which the presented name or the number of each build must
+         *      contain (ignoring case); NULL or empty to match every build
+         * @return 
+         *      JSON object holding the options in the page, the offset of the
+         *      page, the build from which the next page continues and whether
+         *      or not further options follow it
+         */
+        protected JSONObject getValueOptions(
+            OtherBuildSelectorParameterDefinition definition,
+            int offset,
+            int before,
+            int limit,
+            String query
+        ) {
+            String resultFilter = definition.getBuildResultFilter();
+            int maxBuildOptions = definition.getMaxBuildOptions();
+
+            offset = Math.max(offset, 0);
+            limit = (limit > 0 ? Math.min(limit, MAX_OPTIONS_PAGE_SIZE) : OPTIONS_PAGE_SIZE);
+
+            // Pages never extend beyond the configured number of build options
+            if (maxBuildOptions > 0) {
+                limit = Math.min(limit, maxBuildOptions - offset);
+            }
+
+            if (limit <= 0) {
+                return this.createValueOptionsPage(new ListBoxModel(), offset, false);
+            }
+
+            try {
+                OtherProjectBuildOptionsProvider optionsProvider = this.buildOptionsProviderFactory.buildProvider(
+                    resultFilter != null ? Result.fromString(resultFilter) : null
+                );
+                AbstractProject project = this.projectProvider.provideProject(definition.getProjectName());
+
+                /*
+                 * Each page continues from the last build of the previous one,
+                 * rather than skipping the options before it, so that a page
+                 * costs the same however far down the list it is; one option
+                 * beyond the page is requested purely to establish whether or
+                 * not there is another page to follow
+                 */
+                ListBoxModel options = optionsProvider.getOptionsForProjectBefore(project, before, limit + 1, query);
+                boolean more = (options.size() > limit);
+
+                while (options.size() > limit) {
+                    options.remove(options.size() - 1);
+                }
+
+                return this.createValueOptionsPage(options, offset, more);
+            } catch (ProjectNotFoundException ex) {
+                return this.createValueOptionsPage(new ListBoxModel(), offset, false);
+            }
+        }
+
+        /**
+         * Writes JSON holding the newest past builds from the configured
+         * source project which match a search query on build number, display
+         * name, description or result; matches are found through an in-memory
+         * index, so that only the matching builds are loaded
+         * 
+         * @param project
+         *      Current project in the context of this request
+         * @param param
+         *      Name of the defined parameter for which to search
+         * @param q
+         *      Search query, every whitespace-separated term of which must
+         *      appear in a matching build; NULL or empty to match every build
+         * @param limit
+         *      Maximum number of matches; zero or less for the default
+         * @param rsp
+         *      Stapler response to which the JSON is written
+         * @throws IOException
+         *      If any I/O errors occur in writing the response
+         */
+        public void doSearchValueOptions(
+            @AncestorInPath AbstractProject project,
+            @QueryParameter String param,
+            @QueryParameter String q,
+            @QueryParameter int limit,
+            StaplerResponse rsp
+        ) throws IOException {
+            ParametersDefinitionProperty prop = (
+                project != null
+                ? (ParametersDefinitionProperty) project.getProperty(ParametersDefinitionProperty.class)
+                : null
+            );
+
+            ParameterDefinition def;
+            JSONObject json = (
+                prop != null
+                && (def = prop.getParameterDefinition(param)) instanceof OtherBuildSelectorParameterDefinition
+                ? this.searchValueOptions((OtherBuildSelectorParameterDefinition) def, q, limit)
+                : this.createValueOptionsPage(new ListBoxModel(), 0, false)
+            );
+
+            rsp.setContentType("application/json;charset=UTF-8");
+            rsp.getWriter().write(json.toString());
+        }
+
+        /**
+         * Searches the past builds for a given {@link OtherBuildSelectorParameterDefinition}
+         * object, as established by <pre>DescriptorImpl.doSearchValueOptions</pre>
+         * 
+         * @param definition
+         *      Parameter definition from which source project and optional
+         *      filter can be retrieved
+         * @param query
+         *      Search query; NULL or empty to match every build
+         * @param limit
+         *      Maximum number of matches; zero or less for the default
+         * @return 
+         *      JSON object holding the options for the newest matching builds
+         *      and whether or not further matches exist
+         */
+        protected JSONObject searchValueOptions(
+            OtherBuildSelectorParameterDefinition definition,
+            String query,
+            int limit
+        ) {
+            String resultFilter = definition.getBuildResultFilter();
+            int maxBuildOptions = definition.getMaxBuildOptions();
+
+            limit = (limit > 0 ? Math.min(limit, MAX_OPTIONS_PAGE_SIZE) : SEARCH_RESULT_LIMIT);
+
+            if (maxBuildOptions > 0) {
+                limit = Math.min(limit, maxBuildOptions);
+            }
+
+            try {
+                Result result = (resultFilter != null ? Result.fromString(resultFilter) : null);
+                OtherProjectBuildOptionsProvider optionsProvider = this.buildOptionsProviderFactory.buildProvider(result);
+                AbstractProject project = this.projectProvider.provideProject(definition.getProjectName());
+
+                // As with paging, one match beyond the limit indicates that there are more
+                List<Integer> numbers = this.searchIndex.search(project, query, result, limit + 1);
+                boolean more = (numbers.size() > limit);
+
+                return this.createValueOptionsPage(
+                    optionsProvider.getOptionsForBuilds(project, (more ? numbers.subList(0, limit) : numbers)),
+                    0,
+                    more
+                );
+            } catch (ProjectNotFoundException ex) {
+                return this.createValueOptionsPage(new ListBoxModel(), 0, false);
+            }
+        }
+
+        /**
+         * Creates the JSON representation of a page of build options
+         * 
+         * @param options
+         *      Options in the page
+         * @param offset
+         *      Offset of the page
+         * @param more
+         *      Indicates whether or not further options follow the page
+         * @return 
+         *      JSON object holding the options, offset, number of the last
+         *      build in the page (from which the next page continues) and
+         *      further options indicator
+         */
+        protected JSONObject createValueOptionsPage(ListBoxModel options, int offset, boolean more) {
+            JSONArray optionsJson = new JSONArray();
+            int next = 0;
+
+            for (ListBoxModel.Option option : options) {
+                JSONObject optionJson = new JSONObject();
+
+                optionJson.put("name", option.name);
+                optionJson.put("value", option.value);
+
+                optionsJson.add(optionJson);
+
+                try {
+                    next = Integer.parseInt(option.value);
+                } catch (NumberFormatException ex) {
+                    next = 0;
+                }
+            }
+
+            JSONObject json = new JSONObject();
+
+            json.put("options", optionsJson);
+            json.put("offset", offset);
+            json.put("next", next);
+            json.put("more", more);
+
+            return json;
+        }
+
         /**
          * Performs validation on any submitted value for varImporter;
          * automatically triggered by Jenkins
@@ -31,12 +31,16 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
 import hudson.EnvVars;
 import hudson.model.Run;
 import hudson.model.StringParameterValue;
 import hudson.model.TaskListener;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
 
 
 
@@ -55,7 +59,7 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
      * which provides the originating project's name, build number and variable
      * importer 
      */
-    private final ImportVarsConfiguration<TemplatingEnvVarsCopier<EnvVars>> configuration;
+    private final ImportVarsConfiguration<TemplatingEnvVarsCopier<Map<String, String>>> configuration;
 
     /**
      * Variable importer mechanism; a NULL value indicates that variable import
@@ -69,6 +73,19 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
      */
     private final transient TaskListener listener;
 
+    /**
+     * Build for which variables were last imported; held weakly so that this
+     * value does not retain the build beyond its natural lifetime
+     */
+    private transient WeakReference<Run<?, ?>> importedBuild;
+
+    /**
+     * Variables (as templated) last imported for importedBuild; Jenkins
+     * builds the environment many times per build, so these are reused
+     * rather than importing from the other build each time
+     */
+    private transient Map<String, String> importedVars;
+
     
     
     /**
@@ -130,7 +147,7 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
      *      import, which provides the originating project's name, build number
      *      and variable importer 
      */
-    public ImportVarsConfiguration<TemplatingEnvVarsCopier<EnvVars>> getConfiguration() {
+    public ImportVarsConfiguration<TemplatingEnvVarsCopier<Map<String, String>>> getConfiguration() {
         return configuration;
     }
 
@@ -153,15 +170,51 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
         super.buildEnvironment(build, env);
         
         // Retrieve the templater for a null check
-        TemplatingEnvVarsCopier<EnvVars> varCopier = this.configuration.getVarTemplater();
+        TemplatingEnvVarsCopier<Map<String, String>> varCopier = this.configuration.getVarTemplater();
 
         /*
          * If null, then we assume the condition that variable import is not 
          * configured for this parameter instance, and we therefore do not import
          */
         if (varCopier != null) {
-            this.doEnvImport(varCopier, env);
+            this.doEnvImport(varCopier, env, build);
+        }
+    }
+
+    /**
+     * Performs the variable import once for a given build, thereafter
+     * contributing the variables imported on that first occasion
+     * 
+     * @param varCopier
+     *      Variable copier implementation
+     * @param env
+     *      Environment variable map thus far
+     * @param build
+     *      Current build for which to contribute environment variables
+     * @throws RuntimeException 
+     *      Runtime wrapper for any exception that occurs during the scope
+     *      of the variable import operation
+     */
+    protected synchronized void doEnvImport(
+        TemplatingEnvVarsCopier<Map<String, String>> varCopier,
+        EnvVars env,
+        Run<?, ?> build
+    ) throws RuntimeException {
+        if (
+            this.importedVars != null
+            && this.importedBuild != null
+            && this.importedBuild.get() == build
+        ) {
+            env.putAll(this.importedVars);
+            return;
         }
+
+        RecordingEnvVarsCopier recordingCopier = new RecordingEnvVarsCopier(varCopier);
+
+        this.doEnvImport(recordingCopier, env);
+
+        this.importedVars = recordingCopier.getRecordedVars();
+        this.importedBuild = new WeakReference<Run<?, ?>>(build);
     }
 
     /**
@@ -176,7 +229,7 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
      *      of the variable import operation
      */
     protected void doEnvImport(
-        TemplatingEnvVarsCopier<EnvVars> varCopier,
+        TemplatingEnvVarsCopier<Map<String, String>> varCopier,
         EnvVars env
     ) throws RuntimeException {
         try {
@@ -191,5 +244,93 @@ public class OtherBuildSelectorParameterValue extends StringParameterValue {
             throw new RuntimeException(ex);
         }
     }
+
+
+
+    /**
+     * Decorator for a {@link TemplatingEnvVarsCopier} which records the
+     * variables copied (with their templated names) as well as copying them
+     * into the target map
+     * 
+     * Typed on plain maps, as the environment of the other build may be
+     * provided as any map (such as an unmodifiable snapshot) rather than
+     * as {@link EnvVars}
+     */
+    protected static class RecordingEnvVarsCopier implements TemplatingEnvVarsCopier<Map<String, String>> {
+
+        /**
+         * Variable copier to which copying is delegated
+         */
+        private final TemplatingEnvVarsCopier<Map<String, String>> varCopier;
+
+        /**
+         * Variables recorded in the last copy operation; NULL if no copy
+         * has yet taken place
+         */
+        private Map<String, String> recordedVars;
+
+
+
+        /**
+         * Constructor - creates a new instance of RecordingEnvVarsCopier
+         * 
+         * @param varCopier 
+         *      Variable copier to which copying is delegated
+         */
+        public RecordingEnvVarsCopier(final TemplatingEnvVarsCopier<Map<String, String>> varCopier) {
+            this.varCopier = varCopier;
+        }
+
+        /**
+         * Copies variables from a source map to target map through the
+         * underlying copier, recording the variables copied
+         * 
+         * @param source
+         *      Source map from which to copy variables
+         * @param target 
+         *      Target map on which to place variables with their templated name
+         */
+        @Override
+        public void copyEnvVars(Map<String, String> source, Map<String, String> target) {
+            Map<String, String> copied = new HashMap<>();
+
+            this.varCopier.copyEnvVars(source, copied);
+            target.putAll(copied);
+
+            this.recordedVars = copied;
+        }
+
+        /**
+         * Returns the variable name template of the underlying copier
+         * 
+         * @return Variable name template to be used when assigning new variable names
+         */
+        @Override
+        public String getVarNameTemplate() {
+            return this.varCopier.getVarNameTemplate();
+        }
+
+        /**
+         * Returns the variable name filter of the underlying copier
+         * 
+         * @return Filter of variable names, or NULL if every variable is copied
+         */
+        @Override
+        public VarNameFilter getVarNameFilter() {
+            return this.varCopier.getVarNameFilter();
+        }
+
+        /**
+         * Getter for recordedVars
+         * 
+         * @return
+         *      Variables recorded in the last copy operation; NULL if no copy
+         *      has yet taken place
+         */
+        public Map<String, String> getRecordedVars() {
+            return this.recordedVars;
+        }
+
+    }
     
 }
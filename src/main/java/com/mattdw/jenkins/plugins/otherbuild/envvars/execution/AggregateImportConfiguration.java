@@ -0,0 +1,176 @@
+/**
+ * AggregateImportConfiguration.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameTemplateAware;
+import hudson.model.Result;
+
+
+
+/**
+ * AggregateImportConfiguration - configuration of an import of the variables
+ * of several of the latest builds of another project, reduced to a single
+ * value per variable
+ * 
+ * @param <V>
+ *      Type of variable template aware object
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class AggregateImportConfiguration <V extends VarNameTemplateAware> {
+
+    /**
+     * Project name of the project from whose builds variables are imported
+     */
+    protected final String projectName;
+
+    /**
+     * Maximum number of builds from which variables are imported, newest first
+     */
+    protected final int buildCount;
+
+    /**
+     * Result which builds must have for their variables to be imported;
+     * NULL for any result
+     */
+    protected final Result resultFilter;
+
+    /**
+     * Means by which the values of each variable are reduced to one
+     */
+    protected final VarReducer reducer;
+
+    /**
+     * Separator between values, where the reducer joins them
+     */
+    protected final String separator;
+
+    /**
+     * Variable template aware object
+     */
+    protected final V varTemplater;
+
+
+
+    /**
+     * Constructor - creates a new instance of AggregateImportConfiguration
+     * 
+     * @param projectName
+     *      Project name of the project from whose builds variables are imported
+     * @param buildCount
+     *      Maximum number of builds from which variables are imported, newest first
+     * @param resultFilter
+     *      Result which builds must have for their variables to be imported;
+     *      NULL for any result
+     * @param reducer
+     *      Means by which the values of each variable are reduced to one;
+     *      NULL for distinct values
+     * @param separator
+     *      Separator between values, where the reducer joins them; NULL for
+     *      the default separator
+     * @param varTemplater 
+     *      Variable template aware object
+     */
+    public AggregateImportConfiguration(
+        String projectName,
+        int buildCount,
+        Result resultFilter,
+        VarReducer reducer,
+        String separator,
+        V varTemplater
+    ) {
+        this.projectName = projectName;
+        this.buildCount = buildCount;
+        this.resultFilter = resultFilter;
+        this.reducer = (reducer != null ? reducer : VarReducer.DISTINCT);
+        this.separator = (separator != null ? separator : VarReducer.DEFAULT_SEPARATOR);
+        this.varTemplater = varTemplater;
+    }
+
+    /**
+     * Getter for projectName
+     * 
+     * @return 
+     *      Project name of the project from whose builds variables are imported
+     */
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * Getter for buildCount
+     * 
+     * @return 
+     *      Maximum number of builds from which variables are imported, newest first
+     */
+    public int getBuildCount() {
+        return this.buildCount;
+    }
+
+    /**
+     * Getter for resultFilter
+     * 
+     * @return 
+     *      Result which builds must have for their variables to be imported;
+     *      NULL for any result
+     */
+    public Result getResultFilter() {
+        return this.resultFilter;
+    }
+
+    /**
+     * Getter for reducer
+     * 
+     * @return 
+     *      Means by which the values of each variable are reduced to one
+     */
+    public VarReducer getReducer() {
+        return this.reducer;
+    }
+
+    /**
+     * Getter for separator
+     * 
+     * @return 
+     *      Separator between values, where the reducer joins them
+     */
+    public String getSeparator() {
+        return this.separator;
+    }
+
+    /**
+     * Getter for varTemplater
+     * 
+     * @return 
+     *      Variable template aware object
+     */
+    public V getVarTemplater() {
+        return this.varTemplater;
+    }
+
+}
@@ -0,0 +1,281 @@
+/**
+ * EnvVarsImport.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serializable;
+
+
+
+/**
+ * EnvVarsImport - serialisable description of a single import of variables
+ * from another build into a standalone map, rather than into the current build
+ * 
+ * Only the description of the import is persisted, so that it may be held by
+ * (for example) a pipeline without persisting the variables themselves
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class EnvVarsImport implements Serializable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Variable name template under which variables keep their original names
+     */
+    public static final String DEFAULT_VAR_NAME_TEMPLATE = EnvContributingVarsImporter.VAR_NAME_TOKEN;
+
+    /**
+     * Project name of the project to which the target build belongs
+     */
+    private final String projectName;
+
+    /**
+     * Identifier of the target build, already expanded against the
+     * environment of the current build
+     */
+    private final String buildId;
+
+    /**
+     * String.format (printf) template to which the original environment
+     * variable names will be provided
+     */
+    private final String varNameTemplate;
+
+    /**
+     * Patterns of variable names to import; NULL or empty to import all variables
+     */
+    private final String includeVars;
+
+    /**
+     * Patterns of variable names not to import
+     */
+    private final String excludeVars;
+
+    /**
+     * Order in which the build identifier is tried as a display name and as
+     * a build number; NULL for the default order of the build provider
+     */
+    private final BuildResolutionOrder resolutionOrder;
+
+
+
+    /**
+     * Constructor - creates a new instance of EnvVarsImport
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build, already expanded against the
+     *      environment of the current build
+     * @param varNameTemplate
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided; NULL or empty to keep the
+     *      original names
+     * @param includeVars
+     *      Patterns of variable names to import; NULL or empty to import all variables
+     * @param excludeVars
+     *      Patterns of variable names not to import
+     * @param resolutionOrder
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for the default order of the build provider
+     */
+    public EnvVarsImport(
+        final String projectName,
+        final String buildId,
+        final String varNameTemplate,
+        final String includeVars,
+        final String excludeVars,
+        final BuildResolutionOrder resolutionOrder
+    ) {
+        this.projectName = projectName;
+        this.buildId = buildId;
+        this.varNameTemplate = (
+            varNameTemplate != null && !varNameTemplate.isEmpty()
+            ? varNameTemplate
+            : DEFAULT_VAR_NAME_TEMPLATE
+        );
+        this.includeVars = includeVars;
+        this.excludeVars = excludeVars;
+        this.resolutionOrder = resolutionOrder;
+    }
+
+    /**
+     * Getter for projectName
+     * 
+     * @return
+     *      Project name of the project to which the target build belongs
+     */
+    public String getProjectName() {
+        return this.projectName;
+    }
+
+    /**
+     * Getter for buildId
+     * 
+     * @return
+     *      Identifier of the target build
+     */
+    public String getBuildId() {
+        return this.buildId;
+    }
+
+    /**
+     * Getter for varNameTemplate
+     * 
+     * @return
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided
+     */
+    public String getVarNameTemplate() {
+        return this.varNameTemplate;
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for the default order of the build provider
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return this.resolutionOrder;
+    }
+
+    /**
+     * Creates a copy of this import pinned to a given build number, so that
+     * repeating the import always reads the same build
+     * 
+     * @param buildNumber
+     *      Number of the build to which to pin the import
+     * @return
+     *      New import of the given build number
+     */
+    public EnvVarsImport pinTo(final String buildNumber) {
+        return new EnvVarsImport(
+            this.projectName,
+            buildNumber,
+            this.varNameTemplate,
+            this.includeVars,
+            this.excludeVars,
+            BuildResolutionOrder.NUMBER_FIRST
+        );
+    }
+
+    /**
+     * Resolves the other build now and creates a copy of this import pinned
+     * to it, so that only the variables remain to be read when the import
+     * is later performed
+     * 
+     * @param executor
+     *      Executor with which the other build is resolved
+     * @return
+     *      New import of the number of the resolved build
+     * @throws OtherBuildVarImportException 
+     *      If the other project or build cannot be found
+     */
+    public EnvVarsImport pin(
+        final ImportVarsExecutor<EnvVars, EnvVarsCopier, TemplatingEnvVarsCopier, TaskListener> executor
+    ) throws OtherBuildVarImportException {
+        final AbstractBuild build = executor.resolve(
+            new ImportVarsConfiguration<TemplatingEnvVarsCopier>(
+                this.projectName,
+                this.buildId,
+                null,
+                this.resolutionOrder
+            ),
+            new EnvVars()
+        );
+
+        return this.pinTo(String.valueOf(build.getNumber()));
+    }
+
+    /**
+     * Performs the import, placing the templated variables of the other
+     * build on a given map
+     * 
+     * @param executor
+     *      Executor to which the import is delegated; as no build is passed
+     *      to it, this must be a copying (rather than a build importing) executor
+     * @param target
+     *      Map on which to place the imported variables
+     * @param listener
+     *      Listener with which the environment of the other build is derived
+     * @return
+     *      {@link ImportVarsResult} object describing the result of the
+     *      variable import
+     * @throws IOException
+     *      If any I/O errors occur during the import
+     * @throws InterruptedException 
+     *      If any interruption errors occur during the import
+     * @throws OtherBuildVarImportException 
+     *      If the other project or build cannot be found
+     * @throws IllegalArgumentException
+     *      If the variable name template or patterns are invalid
+     */
+    public ImportVarsResult perform(
+        final ImportVarsExecutor<EnvVars, EnvVarsCopier, TemplatingEnvVarsCopier, TaskListener> executor,
+        final EnvVars target,
+        final TaskListener listener
+    ) throws InterruptedException, IOException, OtherBuildVarImportException {
+        final EnvContributingVarsImporter copier = new EnvContributingVarsImporter(
+            this.varNameTemplate,
+            new VarNameFilter(this.includeVars, this.excludeVars)
+        );
+
+        /*
+         * The target map is empty, so cannot expand the build identifier; it
+         * is for this reason that the identifier is expanded ahead of time
+         */
+        return executor.perform(
+            new ImportVarsConfiguration<TemplatingEnvVarsCopier>(
+                this.projectName,
+                this.buildId,
+                copier,
+                this.resolutionOrder
+            ),
+            copier,
+            target,
+            listener,
+            null
+        );
+    }
+
+}
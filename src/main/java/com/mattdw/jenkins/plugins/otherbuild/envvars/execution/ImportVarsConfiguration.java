@@ -29,6 +29,7 @@
 package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameTemplateAware;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
 
 
 
@@ -62,6 +63,12 @@ public class ImportVarsConfiguration <V extends VarNameTemplateAware> {
      */
     protected final V varTemplater;
 
+    /**
+     * Order in which the build identifier is tried as a display name and as
+     * a build number; NULL for the default order of the build provider
+     */
+    protected final BuildResolutionOrder resolutionOrder;
+
     
     
     /**
@@ -76,9 +83,33 @@ public class ImportVarsConfiguration <V extends VarNameTemplateAware> {
      *      Variable template aware object
      */
     public ImportVarsConfiguration(String projectName, String buildId, V varTemplater) {
+        this(projectName, buildId, varTemplater, null);
+    }
+
+    /**
+     * Constructor - creates a new instance of ImportVarsConfiguration
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param varTemplater 
+     *      Variable template aware object
+     * @param resolutionOrder
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for the default order of the build provider
+     */
+    public ImportVarsConfiguration(
+        String projectName,
+        String buildId,
+        V varTemplater,
+        BuildResolutionOrder resolutionOrder
+    ) {
         this.projectName = projectName;
         this.buildId = buildId;
         this.varTemplater = varTemplater;
+        this.resolutionOrder = resolutionOrder;
     }
     
    /**
@@ -111,5 +142,16 @@ public class ImportVarsConfiguration <V extends VarNameTemplateAware> {
     public V getVarTemplater() {
         return varTemplater;
     }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return 
+     *      Order in which the build identifier is tried as a display name and
+     *      as a build number; NULL for the default order of the build provider
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return resolutionOrder;
+    }
     
 }
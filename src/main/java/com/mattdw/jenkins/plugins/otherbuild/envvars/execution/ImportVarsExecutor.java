@@ -28,21 +28,51 @@
 
 package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvVarsCopier;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.OtherBuildEnvVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarImporterOrCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameTemplateAware;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.metrics.ImportMetrics;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookup;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildNotFoundException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.ExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.LookupReportingExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment.BuildEnvironmentProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment.CoalescingBuildEnvironmentProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.Result;
 import hudson.model.TaskListener;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.acegisecurity.Authentication;
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
 
 
 
@@ -105,6 +135,107 @@ public interface ImportVarsExecutor <M extends Map<String, String>, V extends Va
         AbstractBuild currentBuild
     ) throws InterruptedException, IOException, OtherBuildVarImportException;
 
+    /**
+     * Performs (executes) the action of importing environment variables
+     * from several other builds into the current build at once
+     * 
+     * The environments of the other builds are resolved concurrently and
+     * each is templated by its own configuration; they are then merged in
+     * the order given, so that a variable from a later configuration takes
+     * precedence over the same variable from an earlier one, and transferred
+     * to the current build in one operation
+     * 
+     * @param configurations
+     *      Configurations for each source of variables, in ascending order
+     *      of precedence
+     * @param envVarTransferAgent
+     *      Variable importer mechanism for the merged variables, which have
+     *      already been templated and so should not be templated further
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build
+     * @param listener
+     *      Build listener - necessary for the executor to derive an environment
+     *      from a past build
+     * @param currentBuild
+     *      Current build
+     * @return
+     *      {@link ImportVarsResult} objects describing the result of the 
+     *      variable import from each source, in the order given
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException 
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException 
+     *      If any errors occur during the import of an external build
+     */
+    public List<ImportVarsResult> performAll(
+        List<ImportVarsConfiguration<T>> configurations,
+        V envVarTransferAgent,
+        M currentBuildVars,
+        L listener,
+        AbstractBuild currentBuild
+    ) throws InterruptedException, IOException, OtherBuildVarImportException;
+
+    /**
+     * Performs (executes) the action of importing environment variables
+     * from the latest builds of another project into the current build,
+     * reduced to a single value per variable
+     *
+     * The history of the other project is walked once, newest first, and
+     * stops as soon as enough builds have been found; the (filtered)
+     * environment of each build is streamed through the reducer and is not
+     * retained, and only the reduced variables are templated and transferred
+     *
+     * @param configuration
+     *      Configuration for the aggregate import, which provides the
+     *      originating project's name, the number of builds and the reducer
+     * @param envVarTransferAgent
+     *      Variable importer mechanism for the reduced variables, which have
+     *      already been templated and so should not be templated further
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build
+     * @param listener
+     *      Build listener - necessary for the executor to derive an environment
+     *      from a past build
+     * @param currentBuild
+     *      Current build
+     * @return
+     *      {@link ImportVarsResult} object describing the result of the
+     *      variable import, identifying the range of builds reduced
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException
+     *      If the project cannot be found or has no matching builds
+     */
+    public ImportVarsResult performAggregate(
+        AggregateImportConfiguration<T> configuration,
+        V envVarTransferAgent,
+        M currentBuildVars,
+        L listener,
+        AbstractBuild currentBuild
+    ) throws InterruptedException, IOException, OtherBuildVarImportException;
+
+    /**
+     * Resolves the other build for a given configuration, without deriving
+     * its environment or importing anything
+     * 
+     * @param configuration
+     *      Configuration providing the project name and build identifier
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build, with which the
+     *      build identifier is expanded
+     * @return
+     *      Other build
+     * @throws OtherBuildVarImportException 
+     *      If the project or build cannot be found
+     */
+    public AbstractBuild resolve(
+        ImportVarsConfiguration<T> configuration,
+        M currentBuildVars
+    ) throws OtherBuildVarImportException;
+
 
 
     /**
@@ -132,6 +263,53 @@ public interface ImportVarsExecutor <M extends Map<String, String>, V extends Va
             super(projectProvider, buildProvider);
         }
 
+        /**
+         * Constructor - creates a new instance of CopierImpl
+         * 
+         * @param projectProvider
+         *      Project provider mechanism for the target build from which
+         *      variables are imported
+         * @param buildProvider 
+         *      Build provider mechanism for the target build from which
+         *      variables are imported
+         * @param environmentProvider
+         *      Environment provider mechanism for the target build from which
+         *      variables are imported
+         */
+        public CopierImpl(
+            ExternalProjectProvider projectProvider,
+            ExternalBuildProvider buildProvider,
+            BuildEnvironmentProvider environmentProvider
+        ) {
+            super(projectProvider, buildProvider, environmentProvider);
+        }
+
+        /**
+         * Constructor - creates a new instance of CopierImpl
+         * 
+         * @param projectProvider
+         *      Project provider mechanism for the target build from which
+         *      variables are imported
+         * @param buildProvider 
+         *      Build provider mechanism for the target build from which
+         *      variables are imported
+         * @param environmentProvider
+         *      Environment provider mechanism for the target build from which
+         *      variables are imported
+         * @param metadataIndex
+         *      Index of build metadata through which the builds of a given
+         *      result are found for aggregate imports; NULL to walk the
+         *      history of the project
+         */
+        public CopierImpl(
+            ExternalProjectProvider projectProvider,
+            ExternalBuildProvider buildProvider,
+            BuildEnvironmentProvider environmentProvider,
+            BuildMetadataIndex metadataIndex
+        ) {
+            super(projectProvider, buildProvider, environmentProvider, ImportMetrics.getInstance(), metadataIndex);
+        }
+
         /**
          * Handles the actual transfer of environment variables from
          * other build to current build
@@ -191,6 +369,53 @@ public interface ImportVarsExecutor <M extends Map<String, String>, V extends Va
             super(projectProvider, buildProvider);
         }
 
+        /**
+         * Constructor - creates a new instance of ImporterImpl
+         * 
+         * @param projectProvider
+         *      Project provider mechanism for the target build from which
+         *      variables are imported
+         * @param buildProvider 
+         *      Build provider mechanism for the target build from which
+         *      variables are imported
+         * @param environmentProvider
+         *      Environment provider mechanism for the target build from which
+         *      variables are imported
+         */
+        public ImporterImpl(
+            ExternalProjectProvider<AbstractProject> projectProvider,
+            ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider,
+            BuildEnvironmentProvider<AbstractBuild> environmentProvider
+        ) {
+            super(projectProvider, buildProvider, environmentProvider);
+        }
+
+        /**
+         * Constructor - creates a new instance of ImporterImpl
+         * 
+         * @param projectProvider
+         *      Project provider mechanism for the target build from which
+         *      variables are imported
+         * @param buildProvider 
+         *      Build provider mechanism for the target build from which
+         *      variables are imported
+         * @param environmentProvider
+         *      Environment provider mechanism for the target build from which
+         *      variables are imported
+         * @param metadataIndex
+         *      Index of build metadata through which the builds of a given
+         *      result are found for aggregate imports; NULL to walk the
+         *      history of the project
+         */
+        public ImporterImpl(
+            ExternalProjectProvider<AbstractProject> projectProvider,
+            ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider,
+            BuildEnvironmentProvider<AbstractBuild> environmentProvider,
+            BuildMetadataIndex metadataIndex
+        ) {
+            super(projectProvider, buildProvider, environmentProvider, ImportMetrics.getInstance(), metadataIndex);
+        }
+
         /**
          * Handles the actual transfer of environment variables from
          * other build to current build
@@ -252,6 +477,22 @@ public interface ImportVarsExecutor <M extends Map<String, String>, V extends Va
  */
 abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTemplateAware> implements ImportVarsExecutor<EnvVars, V, T, TaskListener> {
 
+    /**
+     * Maximum number of other builds whose environments are resolved
+     * concurrently across all multi-source imports; may be set through the
+     * system property ImportVarsExecutor.maxConcurrentSources
+     */
+    static final int MAX_CONCURRENT_SOURCES = Integer.getInteger(
+        ImportVarsExecutor.class.getSimpleName() + ".maxConcurrentSources",
+        4
+    );
+
+    /**
+     * Bounded pool on which the environments of other builds are resolved
+     * for multi-source imports; idle threads are released
+     */
+    private static final ThreadPoolExecutor SOURCE_POOL = createSourcePool();
+
     /**
      * Project provider mechanism for the target build from which
      * variables are imported
@@ -264,6 +505,23 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
      */
     protected final transient ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider;
 
+    /**
+     * Environment provider mechanism for the target build from which
+     * variables are imported
+     */
+    protected final transient BuildEnvironmentProvider<AbstractBuild> environmentProvider;
+
+    /**
+     * Metrics on which the timings and counts of each import are recorded
+     */
+    protected final transient ImportMetrics metrics;
+
+    /**
+     * Index of build metadata through which the builds of a given result are
+     * found for aggregate imports; NULL if the history of the project is walked
+     */
+    protected final transient BuildMetadataIndex metadataIndex;
+
 
 
     /**
@@ -275,13 +533,94 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
      * @param buildProvider 
      *      Build provider mechanism for the target build from which
      *      variables are imported
+     * @param environmentProvider
+     *      Environment provider mechanism for the target build from which
+     *      variables are imported
+     * @param metrics
+     *      Metrics on which the timings and counts of each import are recorded
+     * @param metadataIndex
+     *      Index of build metadata through which the builds of a given result
+     *      are found for aggregate imports; NULL to walk the history of the
+     *      project
      */
     public AbstractImpl(
         ExternalProjectProvider<AbstractProject> projectProvider,
-        ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider
+        ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider,
+        BuildEnvironmentProvider<AbstractBuild> environmentProvider,
+        ImportMetrics metrics,
+        BuildMetadataIndex metadataIndex
     ) {
         this.projectProvider = projectProvider;
         this.buildProvider = buildProvider;
+        this.environmentProvider = environmentProvider;
+        this.metrics = metrics;
+        this.metadataIndex = metadataIndex;
+    }
+
+    /**
+     * Constructor - creates a new instance of AbstractImpl which finds builds
+     * of a given result through the shared build metadata index
+     * 
+     * @param projectProvider
+     *      Project provider mechanism for the target build from which
+     *      variables are imported
+     * @param buildProvider 
+     *      Build provider mechanism for the target build from which
+     *      variables are imported
+     * @param environmentProvider
+     *      Environment provider mechanism for the target build from which
+     *      variables are imported
+     * @param metrics
+     *      Metrics on which the timings and counts of each import are recorded
+     */
+    public AbstractImpl(
+        ExternalProjectProvider<AbstractProject> projectProvider,
+        ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider,
+        BuildEnvironmentProvider<AbstractBuild> environmentProvider,
+        ImportMetrics metrics
+    ) {
+        this(projectProvider, buildProvider, environmentProvider, metrics, BuildMetadataIndex.getInstance());
+    }
+
+    /**
+     * Constructor - creates a new instance of AbstractImpl which records
+     * on the shared metrics
+     * 
+     * @param projectProvider
+     *      Project provider mechanism for the target build from which
+     *      variables are imported
+     * @param buildProvider 
+     *      Build provider mechanism for the target build from which
+     *      variables are imported
+     * @param environmentProvider
+     *      Environment provider mechanism for the target build from which
+     *      variables are imported
+     */
+    public AbstractImpl(
+        ExternalProjectProvider<AbstractProject> projectProvider,
+        ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider,
+        BuildEnvironmentProvider<AbstractBuild> environmentProvider
+    ) {
+        this(projectProvider, buildProvider, environmentProvider, ImportMetrics.getInstance());
+    }
+
+    /**
+     * Constructor - creates a new instance of AbstractImpl which imports
+     * from environment snapshots where they exist, sharing the environment
+     * of a build between concurrent imports from it
+     * 
+     * @param projectProvider
+     *      Project provider mechanism for the target build from which
+     *      variables are imported
+     * @param buildProvider 
+     *      Build provider mechanism for the target build from which
+     *      variables are imported
+     */
+    public AbstractImpl(
+        ExternalProjectProvider<AbstractProject> projectProvider,
+        ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider
+    ) {
+        this(projectProvider, buildProvider, CoalescingBuildEnvironmentProvider.getInstance());
     }
 
     /**
@@ -321,23 +660,17 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
         AbstractBuild currentBuild
     ) throws InterruptedException, IOException, OtherBuildVarImportException {
         final String projectName = configuration.getProjectName();
-        final String buildId = configuration.getBuildId();
 
-        final AbstractProject otherProject = this.projectProvider.provideProject(
-            projectName
-        );
-
-        final AbstractBuild otherBuild = this.buildProvider.provideBuild(
-            otherProject,
-            currentBuildVars.expand(buildId)
-        );
-
-        final Map<String, String> otherBuildEnvVars = otherBuild.getEnvironment(listener);
+        final Fetched fetched = this.fetch(configuration, currentBuildVars, listener);
+        final AbstractBuild otherBuild = fetched.build;
+        final Map<String, String> otherBuildEnvVars = fetched.envVars;
 
         /*
          * Import these variables into the current build as the mechanism
          * prescribes; the exact details are decoupled from this builder
          */
+        final long transferStart = System.nanoTime();
+
         this.doEnvVarTransfer(
             envVarTransferAgent,
             currentBuildVars,
@@ -347,6 +680,14 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
             listener
         );
 
+        final long transferNanos = System.nanoTime() - transferStart;
+        final int totalVarsImported = otherBuildEnvVars.size();
+
+        this.metrics.recordPhase(ImportMetrics.Phase.TRANSFER, transferNanos);
+        this.metrics.recordProject(fetched.projectFullName, fetched.getTotalNanos() + transferNanos);
+        this.metrics.increment(ImportMetrics.Counter.IMPORTS);
+        this.metrics.add(ImportMetrics.Counter.VARS_COPIED, totalVarsImported);
+
         /*
          * A return type object was designated and specified so that calling
          * implementations may use granular details about the result in
@@ -355,10 +696,617 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
         return new ImportVarsResult(
             projectName,
             String.valueOf(otherBuild.getNumber()),
-            otherBuildEnvVars.size()
+            totalVarsImported,
+            fetched.lookupStrategy,
+            fetched.projectLookupNanos,
+            fetched.buildLookupNanos,
+            fetched.environmentNanos,
+            transferNanos,
+            ImportVarsResult.sizeOf(otherBuildEnvVars)
+        );
+    }
+
+    /**
+     * Performs (executes) the action of importing environment variables
+     * from several other builds into the current build at once
+     * 
+     * @param configurations
+     *      Configurations for each source of variables, in ascending order
+     *      of precedence
+     * @param envVarTransferAgent
+     *      Variable importer mechanism for the merged variables, which have
+     *      already been templated and so should not be templated further
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build
+     * @param listener
+     *      Build listener - necessary for the executor to derive an environment
+     *      from a past build
+     * @param currentBuild
+     *      Current build
+     * @return
+     *      {@link ImportVarsResult} objects describing the result of the 
+     *      variable import from each source, in the order given
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException 
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException 
+     *      If any errors occur during the import of an external build
+     */
+    @Override
+    public final List<ImportVarsResult> performAll(
+        List<ImportVarsConfiguration<T>> configurations,
+        V envVarTransferAgent,
+        EnvVars currentBuildVars,
+        TaskListener listener,
+        AbstractBuild currentBuild
+    ) throws InterruptedException, IOException, OtherBuildVarImportException {
+        final List<Fetched> fetched = this.fetchAll(configurations, currentBuildVars, listener);
+        final List<ImportVarsResult> results = new ArrayList<>(fetched.size());
+
+        final int[] sizes = new int[fetched.size()];
+        int totalVars = 0;
+
+        for (int i = 0; i < sizes.length; i++) {
+            totalVars += (sizes[i] = fetched.get(i).envVars.size());
+        }
+
+        // Merged in the order given, so later sources take precedence
+        final Map<String, String> mergedEnvVars = new HashMap<>((int) (totalVars / 0.75f) + 1);
+
+        for (int i = 0; i < fetched.size(); i++) {
+            this.templateEnvVars(configurations.get(i).getVarTemplater(), fetched.get(i).envVars, mergedEnvVars);
+        }
+
+        final long transferStart = System.nanoTime();
+
+        this.doEnvVarTransfer(
+            envVarTransferAgent,
+            currentBuildVars,
+            mergedEnvVars,
+            currentBuild,
+            null,
+            listener
+        );
+
+        final long transferNanos = System.nanoTime() - transferStart;
+
+        // Each source reports the single transfer which all of them share
+        for (int i = 0; i < fetched.size(); i++) {
+            final Fetched f = fetched.get(i);
+
+            results.add(
+                new ImportVarsResult(
+                    configurations.get(i).getProjectName(),
+                    String.valueOf(f.build.getNumber()),
+                    sizes[i],
+                    f.lookupStrategy,
+                    f.projectLookupNanos,
+                    f.buildLookupNanos,
+                    f.environmentNanos,
+                    transferNanos,
+                    ImportVarsResult.sizeOf(f.envVars)
+                )
+            );
+        }
+
+        this.metrics.recordPhase(ImportMetrics.Phase.TRANSFER, transferNanos);
+
+        // The single transfer is shared by every source, so is not attributed to any one project
+        for (Fetched f : fetched) {
+            this.metrics.recordProject(f.projectFullName, f.getTotalNanos());
+        }
+
+        this.metrics.add(ImportMetrics.Counter.IMPORTS, fetched.size());
+        this.metrics.add(ImportMetrics.Counter.VARS_COPIED, totalVars);
+
+        return results;
+    }
+
+    /**
+     * Performs (executes) the action of importing environment variables
+     * from the latest builds of another project into the current build,
+     * reduced to a single value per variable
+     *
+     * @param configuration
+     *      Configuration for the aggregate import, which provides the
+     *      originating project's name, the number of builds and the reducer
+     * @param envVarTransferAgent
+     *      Variable importer mechanism for the reduced variables, which have
+     *      already been templated and so should not be templated further
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build
+     * @param listener
+     *      Build listener - necessary for the executor to derive an environment
+     *      from a past build
+     * @param currentBuild
+     *      Current build
+     * @return
+     *      {@link ImportVarsResult} object describing the result of the
+     *      variable import, identifying the range of builds reduced
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException
+     *      If the project cannot be found or has no matching builds
+     */
+    @Override
+    public final ImportVarsResult performAggregate(
+        AggregateImportConfiguration<T> configuration,
+        V envVarTransferAgent,
+        EnvVars currentBuildVars,
+        TaskListener listener,
+        AbstractBuild currentBuild
+    ) throws InterruptedException, IOException, OtherBuildVarImportException {
+        final String projectName = configuration.getProjectName();
+        final long start = System.nanoTime();
+        final AbstractProject otherProject;
+
+        try {
+            otherProject = this.projectProvider.provideProject(projectName);
+        } catch (ProjectNotFoundException ex) {
+            this.metrics.increment(ImportMetrics.Counter.PROJECT_NOT_FOUND);
+            throw ex;
+        }
+
+        final long projectFound = System.nanoTime();
+        this.metrics.recordPhase(ImportMetrics.Phase.PROJECT_LOOKUP, projectFound - start);
+
+        final VarNameFilter filter = this.getVarNameFilter(configuration.getVarTemplater());
+        final VarReducer.Accumulator accumulator = configuration.getReducer().createAccumulator(
+            configuration.getSeparator()
+        );
+        final Result resultFilter = configuration.getResultFilter();
+        final int buildCount = configuration.getBuildCount();
+
+        int matched = 0;
+        int newest = 0;
+        int oldest = 0;
+        long environmentNanos = 0L;
+
+        /*
+         * Builds are loaded lazily and newest first, so the walk stops as
+         * soon as enough have been found; each environment is discarded
+         * once it has been accumulated
+         */
+        for (Object o : this.getCandidateBuilds(otherProject, resultFilter)) {
+            if (matched >= buildCount) {
+                break;
+            }
+
+            final AbstractBuild build = (AbstractBuild) o;
+
+            if (build == null || build.isBuilding() || (resultFilter != null && build.getResult() != resultFilter)) {
+                continue;
+            }
+
+            final long environmentStart = System.nanoTime();
+            final Map<String, String> envVars = this.environmentProvider.provideEnvironment(build, listener);
+
+            accumulator.accumulate(filter != null ? filter.filter(envVars) : envVars);
+            environmentNanos += System.nanoTime() - environmentStart;
+
+            if (matched++ == 0) {
+                newest = build.getNumber();
+            }
+
+            oldest = build.getNumber();
+        }
+
+        final long buildsWalked = System.nanoTime();
+        final long buildLookupNanos = buildsWalked - projectFound - environmentNanos;
+
+        this.metrics.recordPhase(ImportMetrics.Phase.BUILD_LOOKUP, buildLookupNanos);
+
+        if (matched == 0) {
+            this.metrics.increment(ImportMetrics.Counter.BUILD_NOT_FOUND);
+            throw new BuildNotFoundException(projectName, "latest " + buildCount);
+        }
+
+        this.metrics.recordPhase(ImportMetrics.Phase.ENVIRONMENT, environmentNanos);
+
+        final Map<String, String> reducedEnvVars = accumulator.getResult();
+        final Map<String, String> templatedEnvVars = new HashMap<>((int) (reducedEnvVars.size() / 0.75f) + 1);
+
+        this.templateEnvVars(configuration.getVarTemplater(), reducedEnvVars, templatedEnvVars);
+
+        final long transferStart = System.nanoTime();
+
+        this.doEnvVarTransfer(
+            envVarTransferAgent,
+            currentBuildVars,
+            templatedEnvVars,
+            currentBuild,
+            null,
+            listener
+        );
+
+        final long transferNanos = System.nanoTime() - transferStart;
+        final int totalVarsImported = templatedEnvVars.size();
+
+        this.metrics.recordPhase(ImportMetrics.Phase.TRANSFER, transferNanos);
+        this.metrics.recordProject(otherProject.getFullName(), (buildsWalked - start) + transferNanos);
+        this.metrics.increment(ImportMetrics.Counter.IMPORTS);
+        this.metrics.add(ImportMetrics.Counter.VARS_COPIED, totalVarsImported);
+
+        return new ImportVarsResult(
+            projectName,
+            (newest == oldest ? String.valueOf(newest) : newest + ".." + oldest),
+            totalVarsImported,
+            (resultFilter != null && this.metadataIndex != null ? BuildLookupStrategy.RESULT_INDEX : BuildLookupStrategy.SCAN),
+            projectFound - start,
+            buildLookupNanos,
+            environmentNanos,
+            transferNanos,
+            ImportVarsResult.sizeOf(templatedEnvVars)
+        );
+    }
+
+    /**
+     * Resolves the other build for a given configuration, without deriving
+     * its environment or importing anything
+     * 
+     * @param configuration
+     *      Configuration providing the project name and build identifier
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build, with which the
+     *      build identifier is expanded
+     * @return
+     *      Other build
+     * @throws OtherBuildVarImportException 
+     *      If the project or build cannot be found
+     */
+    @Override
+    public AbstractBuild resolve(
+        ImportVarsConfiguration<T> configuration,
+        EnvVars currentBuildVars
+    ) throws OtherBuildVarImportException {
+        final AbstractProject otherProject = this.projectProvider.provideProject(configuration.getProjectName());
+
+        return this.lookupBuild(
+            otherProject,
+            currentBuildVars.expand(configuration.getBuildId()),
+            configuration.getResolutionOrder()
+        ).getBuild();
+    }
+
+    /**
+     * Resolves the other build for a given configuration and derives its
+     * environment, restricted by the variable name filter of the source
+     * 
+     * @param configuration
+     *      Configuration providing the project name and build identifier
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build, with which the
+     *      build identifier is expanded
+     * @param listener
+     *      Build listener
+     * @return
+     *      Other build and its environment
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException 
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException 
+     *      If the project or build cannot be found
+     */
+    protected Fetched fetch(
+        ImportVarsConfiguration<T> configuration,
+        EnvVars currentBuildVars,
+        TaskListener listener
+    ) throws InterruptedException, IOException, OtherBuildVarImportException {
+        final long start = System.nanoTime();
+        final AbstractProject otherProject;
+
+        try {
+            otherProject = this.projectProvider.provideProject(configuration.getProjectName());
+        } catch (ProjectNotFoundException ex) {
+            this.metrics.increment(ImportMetrics.Counter.PROJECT_NOT_FOUND);
+            throw ex;
+        }
+
+        final long projectFound = System.nanoTime();
+        this.metrics.recordPhase(ImportMetrics.Phase.PROJECT_LOOKUP, projectFound - start);
+
+        final BuildLookup<AbstractBuild> lookup;
+
+        try {
+            lookup = this.lookupBuild(
+                otherProject,
+                currentBuildVars.expand(configuration.getBuildId()),
+                configuration.getResolutionOrder()
+            );
+        } catch (BuildNotFoundException ex) {
+            this.metrics.increment(ImportMetrics.Counter.BUILD_NOT_FOUND);
+            throw ex;
+        }
+
+        final long buildFound = System.nanoTime();
+        this.metrics.recordPhase(ImportMetrics.Phase.BUILD_LOOKUP, buildFound - projectFound);
+
+        final AbstractBuild otherBuild = lookup.getBuild();
+        final VarNameFilter filter = this.getVarNameFilter(configuration.getVarTemplater());
+
+        /*
+         * Filtered here rather than only by the copier, so that the variables
+         * counted and sized for the result are those actually imported
+         */
+        Map<String, String> envVars = this.environmentProvider.provideEnvironment(otherBuild, listener);
+
+        if (filter != null) {
+            envVars = filter.filter(envVars);
+        }
+
+        final long environmentProvided = System.nanoTime();
+        this.metrics.recordPhase(ImportMetrics.Phase.ENVIRONMENT, environmentProvided - buildFound);
+
+        return new Fetched(
+            otherBuild,
+            envVars,
+            otherProject.getFullName(),
+            lookup.getStrategy(),
+            projectFound - start,
+            buildFound - projectFound,
+            environmentProvided - buildFound
+        );
+    }
+
+    /**
+     * Looks up the other build through the build provider, together with the
+     * means by which it was located where the provider reports this
+     * 
+     * @param project
+     *      Project from which to provide the other build
+     * @param id
+     *      Expanded identifier of the other build
+     * @param order
+     *      Order in which the identifier is tried as a display name and as a
+     *      build number, where the provider supports this; NULL for the
+     *      default order of the provider
+     * @return
+     *      Other build and the means by which it was located
+     *      ({@link BuildLookupStrategy#UNKNOWN} for providers which do not
+     *      report this)
+     * @throws BuildNotFoundException 
+     *      If the build cannot be found
+     */
+    protected BuildLookup<AbstractBuild> lookupBuild(
+        AbstractProject project,
+        String id,
+        BuildResolutionOrder order
+    ) throws BuildNotFoundException {
+        if (this.buildProvider instanceof LookupReportingExternalBuildProvider) {
+            return ((LookupReportingExternalBuildProvider<AbstractProject, AbstractBuild>) this.buildProvider).lookupBuild(
+                project,
+                id,
+                order
+            );
+        }
+
+        return new BuildLookup<>(
+            this.buildProvider.provideBuild(project, id),
+            BuildLookupStrategy.UNKNOWN
         );
     }
 
+    /**
+     * Resolves the other builds for several configurations concurrently on
+     * the bounded source pool, under the authentication of the calling thread
+     * 
+     * @param configurations
+     *      Configurations providing the project names and build identifiers
+     * @param currentBuildVars
+     *      Build variables (so far) for the current build
+     * @param listener
+     *      Build listener
+     * @return
+     *      Other builds and their environments, in the order of the
+     *      given configurations
+     * @throws IOException
+     *      If any I/O errors occur during generation
+     * @throws InterruptedException 
+     *      If any interruption errors occur during generation
+     * @throws OtherBuildVarImportException 
+     *      If any project or build cannot be found; where more than one
+     *      source fails, the failure of the earliest is thrown
+     */
+    protected List<Fetched> fetchAll(
+        List<ImportVarsConfiguration<T>> configurations,
+        final EnvVars currentBuildVars,
+        final TaskListener listener
+    ) throws InterruptedException, IOException, OtherBuildVarImportException {
+        final List<Fetched> fetched = new ArrayList<>(configurations.size());
+
+        // Nothing is to be gained from handing a single source to the pool
+        if (configurations.size() < 2) {
+            for (ImportVarsConfiguration<T> configuration : configurations) {
+                fetched.add(this.fetch(configuration, currentBuildVars, listener));
+            }
+
+            return fetched;
+        }
+
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        final List<Future<Fetched>> futures = new ArrayList<>(configurations.size());
+
+        try {
+            for (final ImportVarsConfiguration<T> configuration : configurations) {
+                futures.add(SOURCE_POOL.submit(new Callable<Fetched>() {
+                    @Override
+                    public Fetched call() throws Exception {
+                        SecurityContext previous = ACL.impersonate(authentication);
+
+                        try {
+                            return fetch(configuration, currentBuildVars, listener);
+                        } finally {
+                            SecurityContextHolder.setContext(previous);
+                        }
+                    }
+                }));
+            }
+
+            for (Future<Fetched> future : futures) {
+                fetched.add(future.get());
+            }
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof OtherBuildVarImportException) {
+                throw (OtherBuildVarImportException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new IOException(cause);
+        } finally {
+
+            // Does nothing for completed sources; abandons the rest upon failure
+            for (Future<Fetched> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        return fetched;
+    }
+
+    /**
+     * Applies the variable name template of a source to its variables,
+     * placing them on a target map
+     * 
+     * @param templater
+     *      Variable name template aware object of the source
+     * @param source
+     *      Variables of the source
+     * @param target 
+     *      Map on which to place the templated variables
+     */
+    protected void templateEnvVars(
+        T templater,
+        Map<String, String> source,
+        Map<String, String> target
+    ) {
+        if (templater instanceof TemplatingEnvVarsCopier) {
+            ((TemplatingEnvVarsCopier<Map<String, String>>) templater).copyEnvVars(source, target);
+        } else {
+            new EnvContributingVarsImporter(
+                templater.getVarNameTemplate(),
+                this.getVarNameFilter(templater)
+            ).copyEnvVars(source, target);
+        }
+    }
+
+    /**
+     * Retrieves the builds of a project which are candidates for an aggregate
+     * import, newest first, each loaded only as it is reached
+     * 
+     * Where builds are filtered by result and a {@link BuildMetadataIndex} was
+     * given, only the builds recorded with that result are loaded, rather
+     * than every build newer than the oldest of those imported
+     * 
+     * @param project
+     *      Project from which to retrieve the builds
+     * @param resultFilter
+     *      Result which the builds must have; NULL for builds of any result
+     * @return
+     *      Candidate builds, which must still be checked for completion and
+     *      result, as a build may have changed since it was recorded
+     */
+    protected Iterable<?> getCandidateBuilds(final AbstractProject project, final Result resultFilter) {
+        if (resultFilter == null || this.metadataIndex == null) {
+            return project.getBuilds();
+        }
+
+        final int[] numbers = this.metadataIndex.getBuildNumbers(project, resultFilter);
+
+        return new Iterable<AbstractBuild>() {
+            @Override
+            public Iterator<AbstractBuild> iterator() {
+                return new Iterator<AbstractBuild>() {
+
+                    private int i = 0;
+
+                    private AbstractBuild next = this.advance();
+
+                    private AbstractBuild advance() {
+                        while (this.i < numbers.length) {
+                            AbstractBuild build = (AbstractBuild) project.getBuildByNumber(numbers[this.i++]);
+
+                            // A build deleted since it was recorded is skipped
+                            if (build != null) {
+                                return build;
+                            }
+                        }
+
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return (this.next != null);
+                    }
+
+                    @Override
+                    public AbstractBuild next() {
+                        if (this.next == null) {
+                            throw new NoSuchElementException();
+                        }
+
+                        AbstractBuild current = this.next;
+                        this.next = this.advance();
+
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                };
+            }
+        };
+    }
+
+    /**
+     * Retrieves the variable name filter of a source, if it has one
+     *
+     * @param templater
+     *      Variable name template aware object of the source
+     * @return
+     *      Filter restricting the variables of the source by name; NULL if
+     *      every variable is accepted
+     */
+    protected VarNameFilter getVarNameFilter(T templater) {
+        return (templater != null ? templater.getVarNameFilter() : null);
+    }
+
+    /**
+     * Creates the bounded pool on which the environments of other builds are
+     * resolved for multi-source imports
+     * 
+     * @return 
+     *      Pool of at most MAX_CONCURRENT_SOURCES daemon threads
+     */
+    private static ThreadPoolExecutor createSourcePool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            MAX_CONCURRENT_SOURCES,
+            MAX_CONCURRENT_SOURCES,
+            60L,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new NamingThreadFactory(new DaemonThreadFactory(), "ImportOtherBuildEnvVars")
+        );
+
+        pool.allowCoreThreadTimeOut(true);
+
+        return pool;
+    }
+
     /**
      * Handles the actual transfer of environment variables from
      * other build to current build; defined as a skeleton method for
@@ -375,7 +1323,8 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
      * @param currentBuild
      *      Current build
      * @param otherBuild
-     *      Other (target) build from which to import the variables
+     *      Other (target) build from which to import the variables; NULL
+     *      when the variables of several builds are transferred at once
      * @param listener 
      *      Build listener
      */
@@ -389,3 +1338,97 @@ abstract class AbstractImpl <V extends VarImporterOrCopier, T extends VarNameTem
     );
 
 }
+
+
+
+/**
+ * Other build resolved by an executor, together with its environment
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+final class Fetched {
+
+    /**
+     * Other build
+     */
+    final AbstractBuild build;
+
+    /**
+     * Environment of the other build
+     */
+    final Map<String, String> envVars;
+
+    /**
+     * Full name of the project of the other build; may be NULL
+     */
+    final String projectFullName;
+
+    /**
+     * Means by which the other build was located
+     */
+    final BuildLookupStrategy lookupStrategy;
+
+    /**
+     * Time taken to look up the project, in nanoseconds
+     */
+    final long projectLookupNanos;
+
+    /**
+     * Time taken to look up the build, in nanoseconds
+     */
+    final long buildLookupNanos;
+
+    /**
+     * Time taken to provide the environment, in nanoseconds
+     */
+    final long environmentNanos;
+
+
+
+    /**
+     * Constructor - creates a new instance of Fetched
+     * 
+     * @param build
+     *      Other build
+     * @param envVars 
+     *      Environment of the other build
+     * @param projectFullName
+     *      Full name of the project of the other build; may be NULL
+     * @param lookupStrategy
+     *      Means by which the other build was located
+     * @param projectLookupNanos
+     *      Time taken to look up the project, in nanoseconds
+     * @param buildLookupNanos
+     *      Time taken to look up the build, in nanoseconds
+     * @param environmentNanos
+     *      Time taken to provide the environment, in nanoseconds
+     */
+    Fetched(
+        final AbstractBuild build,
+        final Map<String, String> envVars,
+        final String projectFullName,
+        final BuildLookupStrategy lookupStrategy,
+        final long projectLookupNanos,
+        final long buildLookupNanos,
+        final long environmentNanos
+    ) {
+        this.build = build;
+        this.envVars = envVars;
+        this.projectFullName = projectFullName;
+        this.lookupStrategy = lookupStrategy;
+        this.projectLookupNanos = projectLookupNanos;
+        this.buildLookupNanos = buildLookupNanos;
+        this.environmentNanos = environmentNanos;
+    }
+
+    /**
+     * Calculates the total time taken to fetch the other build
+     * 
+     * @return
+     *      Total time taken, in nanoseconds
+     */
+    long getTotalNanos() {
+        return this.projectLookupNanos + this.buildLookupNanos + this.environmentNanos;
+    }
+
+}
@@ -28,6 +28,8 @@
 
 package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
+import java.util.Map;
 
 
 /**
@@ -54,6 +56,40 @@ public class ImportVarsResult {
      */
     private final int totalVarsImported;
 
+    /**
+     * Means by which the target build was located
+     */
+    private final BuildLookupStrategy lookupStrategy;
+
+    /**
+     * Time taken to look up the project to which the target build belongs,
+     * in nanoseconds
+     */
+    private final long projectLookupNanos;
+
+    /**
+     * Time taken to look up the target build, in nanoseconds
+     */
+    private final long buildLookupNanos;
+
+    /**
+     * Time taken to compute the environment of the target build, in
+     * nanoseconds
+     */
+    private final long environmentNanos;
+
+    /**
+     * Time taken to transfer the variables into the current build, in
+     * nanoseconds
+     */
+    private final long transferNanos;
+
+    /**
+     * Size of the environment data (names and values) of the target build,
+     * in bytes when encoded as UTF-8
+     */
+    private final long envBytes;
+
 
 
     /**
@@ -69,9 +105,68 @@ public class ImportVarsResult {
      *      overwrites)
      */
     public ImportVarsResult(String projectName, String buildId, int totalVarsImported) {
+        this(
+            projectName,
+            buildId,
+            totalVarsImported,
+            BuildLookupStrategy.UNKNOWN,
+            0L,
+            0L,
+            0L,
+            0L,
+            0L
+        );
+    }
+
+    /**
+     * Constructor - creates a new instance of ImportVarsResult, including the
+     * timings and size of the import
+     * 
+     * @param projectName
+     *      Project name of the project to which the target build belongs
+     * @param buildId
+     *      Identifier of the target build from which environment variables
+     *      are imported
+     * @param totalVarsImported 
+     *      Total number of environment variables imported (not including
+     *      overwrites)
+     * @param lookupStrategy
+     *      Means by which the target build was located
+     * @param projectLookupNanos
+     *      Time taken to look up the project, in nanoseconds
+     * @param buildLookupNanos
+     *      Time taken to look up the target build, in nanoseconds
+     * @param environmentNanos
+     *      Time taken to compute the environment of the target build, in
+     *      nanoseconds
+     * @param transferNanos
+     *      Time taken to transfer the variables into the current build, in
+     *      nanoseconds
+     * @param envBytes 
+     *      Size of the environment data of the target build, in bytes
+     */
+    public ImportVarsResult(
+        String projectName,
+        String buildId,
+        int totalVarsImported,
+        BuildLookupStrategy lookupStrategy,
+        long projectLookupNanos,
+        long buildLookupNanos,
+        long environmentNanos,
+        long transferNanos,
+        long envBytes
+    ) {
         this.projectName = projectName;
         this.buildId = buildId;
         this.totalVarsImported = totalVarsImported;
+        this.lookupStrategy = (
+            lookupStrategy != null ? lookupStrategy : BuildLookupStrategy.UNKNOWN
+        );
+        this.projectLookupNanos = projectLookupNanos;
+        this.buildLookupNanos = buildLookupNanos;
+        this.environmentNanos = environmentNanos;
+        this.transferNanos = transferNanos;
+        this.envBytes = envBytes;
     }
 
     /**
@@ -106,4 +201,140 @@ public class ImportVarsResult {
         return this.totalVarsImported;
     }
 
+    /**
+     * Getter for lookupStrategy
+     * 
+     * @return 
+     *      Means by which the target build was located
+     */
+    public BuildLookupStrategy getLookupStrategy() {
+        return this.lookupStrategy;
+    }
+
+    /**
+     * Getter for projectLookupNanos
+     * 
+     * @return 
+     *      Time taken to look up the project, in nanoseconds
+     */
+    public long getProjectLookupNanos() {
+        return this.projectLookupNanos;
+    }
+
+    /**
+     * Getter for buildLookupNanos
+     * 
+     * @return 
+     *      Time taken to look up the target build, in nanoseconds
+     */
+    public long getBuildLookupNanos() {
+        return this.buildLookupNanos;
+    }
+
+    /**
+     * Getter for environmentNanos
+     * 
+     * @return 
+     *      Time taken to compute the environment of the target build, in
+     *      nanoseconds
+     */
+    public long getEnvironmentNanos() {
+        return this.environmentNanos;
+    }
+
+    /**
+     * Getter for transferNanos
+     * 
+     * @return 
+     *      Time taken to transfer the variables into the current build, in
+     *      nanoseconds
+     */
+    public long getTransferNanos() {
+        return this.transferNanos;
+    }
+
+    /**
+     * Getter for envBytes
+     * 
+     * @return 
+     *      Size of the environment data of the target build, in bytes
+     */
+    public long getEnvBytes() {
+        return this.envBytes;
+    }
+
+    /**
+     * Calculates the total time taken by the import
+     * 
+     * @return 
+     *      Sum of the times taken by each phase of the import, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return (
+            this.projectLookupNanos
+            + this.buildLookupNanos
+            + this.environmentNanos
+            + this.transferNanos
+        );
+    }
+
+    /**
+     * Calculates the size of a set of environment variables, as the number
+     * of bytes their names and values occupy when encoded as UTF-8 (without
+     * actually encoding them)
+     * 
+     * @param vars
+     *      Environment variables to measure
+     * @return 
+     *      Size of the names and values of the given variables, in bytes
+     */
+    public static long sizeOf(final Map<String, String> vars) {
+        long bytes = 0L;
+
+        if (vars == null) {
+            return bytes;
+        }
+
+        for (Map.Entry<String, String> entry : vars.entrySet()) {
+            bytes += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Calculates the number of bytes a string occupies when encoded as UTF-8
+     * 
+     * @param value
+     *      String to measure
+     * @return 
+     *      Size of the given string, in bytes
+     */
+    protected static long sizeOf(final String value) {
+        if (value == null) {
+            return 0L;
+        }
+
+        final int length = value.length();
+        long bytes = 0L;
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // A surrogate pair encodes a single four byte code point
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+
+        return bytes;
+    }
+
 }
@@ -0,0 +1,195 @@
+/**
+ * ImportVarsResultAction.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.metrics.ImportMetrics;
+import hudson.model.Run;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import jenkins.model.RunAction2;
+
+
+
+/**
+ * ImportVarsResultAction - records on a build the results of each import of
+ * environment variables from another build into it, including the timings
+ * and size of each, so that a slow import may be diagnosed after the fact
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ImportVarsResultAction implements RunAction2 {
+
+    /**
+     * URL name of the action, relative to the build
+     */
+    public static final String URL_NAME = "otherbuild-envvars-imports";
+
+    /**
+     * Lock under which the action of a build is found or added, so that
+     * concurrent imports into the same build share a single action; the
+     * monitor of the build itself is left to Jenkins core
+     */
+    private static final Object RECORD_LOCK = new Object();
+
+    /**
+     * Results of the imports into the build, in the order in which they
+     * were performed
+     */
+    private final List<ImportVarsResult> results = new ArrayList<>();
+
+    /**
+     * Build to which the action is attached
+     */
+    private transient Run<?, ?> run;
+
+
+
+    /**
+     * Records the results of imports on a given build, adding them to those
+     * already recorded by earlier build steps
+     * 
+     * @param build
+     *      Build into which the variables were imported
+     * @param results 
+     *      Results of the imports
+     */
+    public static void record(final Run<?, ?> build, final List<ImportVarsResult> results) {
+        ImportVarsResultAction action;
+
+        synchronized (RECORD_LOCK) {
+            action = build.getAction(ImportVarsResultAction.class);
+
+            if (action == null) {
+                build.addAction((action = new ImportVarsResultAction()));
+            }
+        }
+
+        action.addResults(results);
+    }
+
+    /**
+     * Adds the results of imports to those recorded
+     * 
+     * @param results 
+     *      Results of the imports
+     */
+    public synchronized void addResults(final List<ImportVarsResult> results) {
+        this.results.addAll(results);
+    }
+
+    /**
+     * Getter for results
+     * 
+     * @return 
+     *      Results of the imports into the build, in the order in which they
+     *      were performed
+     */
+    public synchronized List<ImportVarsResult> getResults() {
+        return Collections.unmodifiableList(new ArrayList<>(this.results));
+    }
+
+    /**
+     * Getter for run
+     * 
+     * @return 
+     *      Build to which the action is attached
+     */
+    public Run<?, ?> getRun() {
+        return this.run;
+    }
+
+    /**
+     * Retains the build to which the action has been attached
+     * 
+     * @param r 
+     *      Build to which the action has been attached
+     */
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    /**
+     * Retains the build from which the action has been loaded
+     * 
+     * @param r 
+     *      Build from which the action has been loaded
+     */
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    /**
+     * Converts nanoseconds to microseconds, for display
+     * 
+     * @param nanos
+     *      Duration in nanoseconds
+     * @return
+     *      Duration in microseconds
+     */
+    public long toMicros(final long nanos) {
+        return ImportMetrics.toMicros(nanos);
+    }
+
+    /**
+     * Getter for iconFileName
+     * 
+     * @return 
+     *      Icon shown in the side panel of the build
+     */
+    @Override
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    /**
+     * Getter for displayName
+     * 
+     * @return 
+     *      Name shown in the side panel of the build
+     */
+    @Override
+    public String getDisplayName() {
+        return Messages.ImportVarsResultAction_DisplayName();
+    }
+
+    /**
+     * Getter for urlName
+     * 
+     * @return 
+     *      URL name of the action, relative to the build
+     */
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+}
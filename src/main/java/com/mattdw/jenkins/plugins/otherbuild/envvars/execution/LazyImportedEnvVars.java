@@ -0,0 +1,280 @@
+/**
+ * LazyImportedEnvVars.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.OtherBuildVarImportException;
+import hudson.EnvVars;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+
+
+/**
+ * LazyImportedEnvVars - read-only map of the variables of another build which
+ * are only imported when the map is first read
+ * 
+ * The variables are not read at all if the map is never used; the import is
+ * performed by (and blocks) whichever thread first reads the map. Where the
+ * import given has not been pinned to a build, a symbolic build identifier
+ * (e.g. lastSuccessfulBuild) is also resolved at that point, so callers which
+ * must not block for long upon reading (such as the pipeline step) should pin
+ * the import with {@link EnvVarsImport#pin} beforehand. Once imported, the
+ * variables are persisted with the map (for example, with a pipeline), so
+ * that they are not imported again after deserialisation and remain
+ * available should the build they were imported from since have been
+ * discarded; the import is also pinned to that build, for reference
+ * 
+ * A failure to import is reported to the listener of the build by which the
+ * map was created (where it is still available) as well as to the reader
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class LazyImportedEnvVars extends AbstractMap<String, String> implements Serializable {
+
+    /**
+     * Serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Description of the import; pinned to a build number once performed
+     */
+    private EnvVarsImport envVarsImport;
+
+    /**
+     * Factory for the executor to which the import is delegated
+     */
+    private transient ImportVarsExecutorFactory<EnvVarsCopier, TemplatingEnvVarsCopier, ?> executorFactory;
+
+    /**
+     * Listener to which a failure to import is reported; not persisted
+     */
+    private transient TaskListener listener;
+
+    /**
+     * Imported variables; NULL until first read
+     */
+    private Map<String, String> vars;
+
+
+
+    /**
+     * Constructor - creates a new instance of LazyImportedEnvVars
+     * 
+     * @param envVarsImport
+     *      Description of the import
+     * @param executorFactory
+     *      Factory for the (copying) executor to which the import is delegated
+     * @param listener
+     *      Listener of the current build, to which the import is reported;
+     *      NULL to report nothing
+     */
+    public LazyImportedEnvVars(
+        final EnvVarsImport envVarsImport,
+        final ImportVarsExecutorFactory<EnvVarsCopier, TemplatingEnvVarsCopier, ?> executorFactory,
+        final TaskListener listener
+    ) {
+        this.envVarsImport = envVarsImport;
+        this.executorFactory = executorFactory;
+        this.listener = listener;
+    }
+
+    /**
+     * Constructor - creates a new instance of LazyImportedEnvVars which
+     * reports nothing
+     * 
+     * @param envVarsImport
+     *      Description of the import
+     * @param executorFactory
+     *      Factory for the (copying) executor to which the import is delegated
+     */
+    public LazyImportedEnvVars(
+        final EnvVarsImport envVarsImport,
+        final ImportVarsExecutorFactory<EnvVarsCopier, TemplatingEnvVarsCopier, ?> executorFactory
+    ) {
+        this(envVarsImport, executorFactory, null);
+    }
+
+    /**
+     * Constructor - creates a new instance of LazyImportedEnvVars using the
+     * default copying executor
+     * 
+     * @param envVarsImport
+     *      Description of the import
+     */
+    public LazyImportedEnvVars(final EnvVarsImport envVarsImport) {
+        this(envVarsImport, new ImportVarsExecutorFactory.CopierImpl(), null);
+    }
+
+    /**
+     * Getter for envVarsImport
+     * 
+     * @return
+     *      Description of the import; pinned to a build number once performed
+     */
+    public synchronized EnvVarsImport getEnvVarsImport() {
+        return this.envVarsImport;
+    }
+
+    /**
+     * Indicates whether or not the variables have been imported
+     * 
+     * @return
+     *      TRUE if the variables have been imported; otherwise FALSE
+     */
+    public synchronized boolean isImported() {
+        return (this.vars != null);
+    }
+
+    /**
+     * Returns the imported variables, importing them on first use
+     * 
+     * @return
+     *      Read-only set of imported variables
+     * @throws IllegalStateException
+     *      If the variables cannot be imported
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return this.getVars().entrySet();
+    }
+
+    /**
+     * Returns the value of a given imported variable, importing the variables
+     * on first use
+     * 
+     * @param key
+     *      Name of the variable
+     * @return
+     *      Value of the variable, or NULL if it was not imported
+     * @throws IllegalStateException
+     *      If the variables cannot be imported
+     */
+    @Override
+    public String get(final Object key) {
+        return this.getVars().get(key);
+    }
+
+    /**
+     * Indicates whether or not a given variable was imported, importing the
+     * variables on first use
+     * 
+     * @param key
+     *      Name of the variable
+     * @return
+     *      TRUE if the variable was imported; otherwise FALSE
+     * @throws IllegalStateException
+     *      If the variables cannot be imported
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return this.getVars().containsKey(key);
+    }
+
+    /**
+     * Returns the number of imported variables, importing the variables on
+     * first use
+     * 
+     * @return
+     *      Number of imported variables
+     * @throws IllegalStateException
+     *      If the variables cannot be imported
+     */
+    @Override
+    public int size() {
+        return this.getVars().size();
+    }
+
+    /**
+     * Returns the imported variables, importing them if this has not yet
+     * been done
+     * 
+     * @return
+     *      Read-only map of imported variables
+     * @throws IllegalStateException
+     *      If the variables cannot be imported; the failure is also reported
+     *      to the listener, where there is one
+     */
+    protected synchronized Map<String, String> getVars() throws IllegalStateException {
+        if (this.vars != null) {
+            return this.vars;
+        }
+
+        if (this.executorFactory == null) {
+            this.executorFactory = new ImportVarsExecutorFactory.CopierImpl();
+        }
+
+        final TaskListener taskListener = (this.listener != null ? this.listener : TaskListener.NULL);
+        final EnvVars imported = new EnvVars();
+
+        try {
+            ImportVarsResult result = this.envVarsImport.perform(
+                this.executorFactory.createExecutor(),
+                imported,
+                taskListener
+            );
+
+            this.envVarsImport = this.envVarsImport.pinTo(result.getBuildId());
+        } catch (OtherBuildVarImportException | IOException ex) {
+            throw this.importFailed(taskListener, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw this.importFailed(taskListener, ex);
+        }
+
+        return (this.vars = Collections.unmodifiableMap(imported));
+    }
+
+    /**
+     * Reports a failure to import to a given listener
+     * 
+     * @param taskListener
+     *      Listener to which to report the failure
+     * @param cause
+     *      Cause of the failure
+     * @return
+     *      Exception to be thrown to the reader of the map
+     */
+    private IllegalStateException importFailed(final TaskListener taskListener, final Exception cause) {
+        final String message = Messages.ImportOtherBuildEnvVarsBuilder_ImportError(cause.getMessage());
+
+        taskListener.getLogger().println(message);
+
+        return new IllegalStateException(message, cause);
+    }
+
+}
@@ -0,0 +1,251 @@
+/**
+ * VarReducer.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+
+/**
+ * VarReducer - means by which the variables of several builds of the same
+ * project are reduced to a single value per variable name
+ * 
+ * Builds are streamed through an {@link Accumulator} one at a time, newest
+ * first, so that the environment of each build may be discarded as soon as
+ * it has been accumulated
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public enum VarReducer {
+
+    /**
+     * Every value of a variable is kept, newest first, joined by the separator
+     */
+    COLLECT {
+        @Override
+        public String getDisplayName() {
+            return Messages.VarReducer_Collect();
+        }
+
+        @Override
+        public Accumulator createAccumulator(final String separator) {
+            return new Accumulator() {
+
+                private final Map<String, StringBuilder> values = new HashMap<>();
+
+                @Override
+                public void accumulate(final Map<String, String> vars) {
+                    for (Map.Entry<String, String> entry : vars.entrySet()) {
+                        StringBuilder value = this.values.get(entry.getKey());
+
+                        if (value == null) {
+                            this.values.put(entry.getKey(), new StringBuilder(entry.getValue()));
+                        } else {
+                            value.append(separator).append(entry.getValue());
+                        }
+                    }
+                }
+
+                @Override
+                public Map<String, String> getResult() {
+                    Map<String, String> result = new HashMap<>((int) (this.values.size() / 0.75f) + 1);
+
+                    for (Map.Entry<String, StringBuilder> entry : this.values.entrySet()) {
+                        result.put(entry.getKey(), entry.getValue().toString());
+                    }
+
+                    return result;
+                }
+
+            };
+        }
+    },
+
+    /**
+     * Only the value of a variable in the newest build to have it is kept,
+     * as it would be were each build imported in turn from the oldest
+     */
+    NEWEST {
+        @Override
+        public String getDisplayName() {
+            return Messages.VarReducer_Newest();
+        }
+
+        @Override
+        public Accumulator createAccumulator(final String separator) {
+            return new Accumulator() {
+
+                private final Map<String, String> values = new HashMap<>();
+
+                @Override
+                public void accumulate(final Map<String, String> vars) {
+                    // Builds arrive newest first, so a value already held is never replaced
+                    for (Map.Entry<String, String> entry : vars.entrySet()) {
+                        if (!this.values.containsKey(entry.getKey())) {
+                            this.values.put(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+
+                @Override
+                public Map<String, String> getResult() {
+                    return this.values;
+                }
+
+            };
+        }
+    },
+
+    /**
+     * Each distinct value of a variable is kept once, newest first, joined
+     * by the separator
+     */
+    DISTINCT {
+        @Override
+        public String getDisplayName() {
+            return Messages.VarReducer_Distinct();
+        }
+
+        @Override
+        public Accumulator createAccumulator(final String separator) {
+            return new Accumulator() {
+
+                private final Map<String, Set<String>> values = new HashMap<>();
+
+                @Override
+                public void accumulate(final Map<String, String> vars) {
+                    for (Map.Entry<String, String> entry : vars.entrySet()) {
+                        Set<String> value = this.values.get(entry.getKey());
+
+                        if (value == null) {
+                            this.values.put(entry.getKey(), (value = new LinkedHashSet<>()));
+                        }
+
+                        value.add(entry.getValue());
+                    }
+                }
+
+                @Override
+                public Map<String, String> getResult() {
+                    Map<String, String> result = new HashMap<>((int) (this.values.size() / 0.75f) + 1);
+
+                    for (Map.Entry<String, Set<String>> entry : this.values.entrySet()) {
+                        result.put(entry.getKey(), join(entry.getValue(), separator));
+                    }
+
+                    return result;
+                }
+
+            };
+        }
+    };
+
+
+
+    /**
+     * Separator between values where none is given
+     */
+    public static final String DEFAULT_SEPARATOR = ",";
+
+
+
+    /**
+     * Getter for displayName
+     * 
+     * @return 
+     *      Name of the reducer, for display
+     */
+    public abstract String getDisplayName();
+
+    /**
+     * Creates an accumulator for a single reduction
+     * 
+     * @param separator
+     *      Separator between values, where the reducer joins them
+     * @return
+     *      New, empty accumulator
+     */
+    public abstract Accumulator createAccumulator(String separator);
+
+    /**
+     * Joins a set of values with a separator
+     * 
+     * @param values
+     *      Values to join
+     * @param separator
+     *      Separator between values
+     * @return
+     *      Joined values
+     */
+    private static String join(final Set<String> values, final String separator) {
+        StringBuilder joined = new StringBuilder();
+        boolean first = true;
+
+        for (String value : values) {
+            if (!first) {
+                joined.append(separator);
+            }
+
+            joined.append(value);
+            first = false;
+        }
+
+        return joined.toString();
+    }
+
+
+
+    /**
+     * Accumulator of the variables of several builds, streamed one build at
+     * a time, newest first
+     */
+    public static interface Accumulator {
+
+        /**
+         * Accumulates the (filtered) variables of a single build
+         * 
+         * @param vars
+         *      Variables of the build
+         */
+        public void accumulate(Map<String, String> vars);
+
+        /**
+         * Getter for the reduced variables
+         * 
+         * @return
+         *      Single value of each variable accumulated
+         */
+        public Map<String, String> getResult();
+
+    }
+
+}
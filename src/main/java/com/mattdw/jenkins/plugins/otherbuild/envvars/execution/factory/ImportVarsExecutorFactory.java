@@ -36,9 +36,9 @@ import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBui
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarImporterOrCopier;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameTemplateAware;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.ExternalBuildProvider;
-import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.NamedBuildExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.VarValueExternalBuildProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
-import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.SingletonCallExternalProjectProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.CachingSingletonCallExternalProjectProvider;
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -108,8 +108,8 @@ public interface ImportVarsExecutorFactory <V extends VarImporterOrCopier, T ext
          */
         public CopierImpl() {
             this(
-                new SingletonCallExternalProjectProvider(),
-                new NamedBuildExternalBuildProvider()
+                new CachingSingletonCallExternalProjectProvider(),
+                new VarValueExternalBuildProvider()
             );
         }
 
@@ -155,8 +155,8 @@ public interface ImportVarsExecutorFactory <V extends VarImporterOrCopier, T ext
          */
         public ImporterImpl() {
             this(
-                new SingletonCallExternalProjectProvider(),
-                new NamedBuildExternalBuildProvider()
+                new CachingSingletonCallExternalProjectProvider(),
+                new VarValueExternalBuildProvider()
             );
         }
         
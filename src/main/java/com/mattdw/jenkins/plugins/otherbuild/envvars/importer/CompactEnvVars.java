@@ -0,0 +1,318 @@
+/**
+ * CompactEnvVars.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.importer;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+
+
+/**
+ * CompactEnvVars - compact, persistable encoding of a map of environment
+ * variables, for storage in place of the map itself within the build record
+ * 
+ * Values are written once each to a dictionary (many variables of a build
+ * share the same value), which is then referenced by index from each entry;
+ * the whole is deflated and Base64 encoded. On decoding, names and values are
+ * interned through a single, shared pool, so that the many builds holding the
+ * same names (and frequently the same values) share a single copy of each
+ * in memory
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public final class CompactEnvVars {
+
+    /**
+     * Version of the encoding, written as the first byte of every encoded map
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Maximum size of an encoding once inflated, in bytes, beyond which it is
+     * treated as corrupt rather than inflated further; may be set through the
+     * system property CompactEnvVars.maxInflatedBytes
+     */
+    static final int MAX_INFLATED_BYTES = Integer.getInteger(
+        CompactEnvVars.class.getSimpleName() + ".maxInflatedBytes",
+        32 * 1024 * 1024
+    );
+
+    /**
+     * Pool of names and values shared by every decoded map; held weakly so
+     * that a string no longer referenced by any build may be collected
+     */
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+
+
+    /**
+     * Private constructor - this class is not to be instantiated
+     */
+    private CompactEnvVars() {
+    }
+
+    /**
+     * Encodes a map of environment variables
+     * 
+     * @param envVars
+     *      Environment variables to encode
+     * @return 
+     *      Compact encoding of the given variables
+     */
+    public static String encode(final Map<String, String> envVars) {
+        final Map<String, Integer> valueIndexes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        final int[] entryValueIndexes = new int[envVars.size()];
+
+        int i = 0;
+        for (String value : envVars.values()) {
+            Integer index = valueIndexes.get(value);
+
+            if (index == null) {
+                valueIndexes.put(value, (index = values.size()));
+                values.add(value);
+            }
+
+            entryValueIndexes[i++] = index;
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        // Not ended by the stream, as it was not created by it; its native memory is otherwise held until finalised
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeByte(FORMAT_VERSION);
+
+            out.writeInt(values.size());
+            for (String value : values) {
+                writeString(out, value);
+            }
+
+            out.writeInt(envVars.size());
+            i = 0;
+            for (String name : envVars.keySet()) {
+                writeString(out, name);
+                out.writeInt(entryValueIndexes[i++]);
+            }
+        } catch (IOException ex) {
+
+            // Not possible when writing to memory
+            throw new IllegalStateException(ex);
+        } finally {
+            deflater.end();
+        }
+
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a map of environment variables
+     * 
+     * @param encoded
+     *      Compact encoding of environment variables, as produced by
+     *      <pre>encode()</pre>
+     * @return 
+     *      New map of the decoded variables, with names and values interned
+     * @throws IOException 
+     *      If the encoded form is corrupt or of an unknown version
+     */
+    public static Map<String, String> decode(final String encoded) throws IOException {
+        final byte[] bytes;
+
+        try {
+            bytes = Base64.getDecoder().decode(encoded);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("Encoded environment variables are corrupt", ex);
+        }
+
+        // Inflated in full first, so that every count and length read can be checked against what remains
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(inflate(bytes, MAX_INFLATED_BYTES)))) {
+            int version = in.readUnsignedByte();
+
+            if (version != FORMAT_VERSION) {
+                throw new IOException(
+                    String.format("Unknown encoding version %d for environment variables", version)
+                );
+            }
+
+            // Each value is at least its length (4)
+            final String[] values = new String[readCount(in, 4)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = intern(readString(in));
+            }
+
+            // Each entry is at least the length of its name (4) and its value index (4)
+            final int size = readCount(in, 8);
+            final Map<String, String> envVars = new HashMap<>((int) (size / 0.75f) + 1);
+
+            for (int i = 0; i < size; i++) {
+                String name = intern(readString(in));
+                int index = in.readInt();
+
+                if (index < 0 || index >= values.length) {
+                    throw new IOException("Encoded environment variables are corrupt");
+                }
+
+                envVars.put(name, values[index]);
+            }
+
+            return envVars;
+        }
+    }
+
+    /**
+     * Interns a given name or value through the shared pool
+     * 
+     * @param s
+     *      Name or value; may be NULL
+     * @return 
+     *      Shared instance equal to the given string, or NULL
+     */
+    public static String intern(final String s) {
+        return (s != null ? STRINGS.intern(s) : null);
+    }
+
+    /**
+     * Inflates the whole of a deflated encoding, up to a given size
+     * 
+     * @param bytes
+     *      Deflated encoding
+     * @param maxInflatedBytes
+     *      Maximum size of the inflated encoding, in bytes
+     * @return
+     *      Inflated encoding
+     * @throws IOException
+     *      If the encoding cannot be inflated, or would inflate beyond the
+     *      maximum size
+     */
+    static byte[] inflate(final byte[] bytes, final int maxInflatedBytes) throws IOException {
+        final ByteArrayOutputStream inflated = new ByteArrayOutputStream(
+            (int) Math.min((long) bytes.length * 4, maxInflatedBytes)
+        );
+        final byte[] buffer = new byte[4096];
+
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            for (int read; (read = in.read(buffer)) != -1;) {
+                if (read > maxInflatedBytes - inflated.size()) {
+                    throw new IOException("Encoded environment variables are too large");
+                }
+
+                inflated.write(buffer, 0, read);
+            }
+        }
+
+        return inflated.toByteArray();
+    }
+
+    /**
+     * Reads the number of items which follow, checking that the remaining
+     * input could hold them
+     * 
+     * @param in
+     *      Stream from which to read, over the whole of the inflated encoding
+     * @param minItemSize
+     *      Minimum size of each item, in bytes
+     * @return
+     *      Number of items
+     * @throws IOException
+     *      If the number cannot be read, or is negative or too large
+     */
+    private static int readCount(final DataInputStream in, final int minItemSize) throws IOException {
+        final int count = in.readInt();
+
+        if (count < 0 || (long) count * minItemSize > in.available()) {
+            throw new IOException("Encoded environment variables are corrupt");
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes a possibly NULL string of any length
+     * 
+     * @param out
+     *      Stream to which to write
+     * @param s
+     *      String to write
+     * @throws IOException 
+     *      If the string cannot be written
+     */
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    /**
+     * Reads a string as written by <pre>writeString()</pre>
+     * 
+     * @param in
+     *      Stream from which to read
+     * @return 
+     *      String read, or NULL
+     * @throws IOException 
+     *      If the string cannot be read, or its length is invalid
+     */
+    private static String readString(final DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length == -1) {
+            return null;
+        }
+
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Encoded environment variables are corrupt");
+        }
+
+        byte[] b = new byte[length];
+        in.readFully(b);
+
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+}
@@ -31,7 +31,12 @@ import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.EnvironmentContributingAction;
 import hudson.model.Run;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -47,6 +52,33 @@ import java.util.regex.Pattern;
  */
 public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsImporter, TemplatingEnvVarsCopier<Map<String, String>> {
 
+    /**
+     * Token in the variable name template which is replaced by the original
+     * environment variable name
+     */
+    public static final String VAR_NAME_TOKEN = "%s";
+
+    /**
+     * Compiled pattern to locate the variable name token inside a template
+     */
+    private static final Pattern VAR_NAME_TOKEN_PATTERN = Pattern.compile("(%s)");
+
+    /**
+     * Minimum number of imported variables for which the variables are
+     * persisted in the compact, compressed form of {@link CompactEnvVars}
+     * rather than as a plain map; configurable through the system property
+     * <pre>EnvContributingVarsImporter.compactThreshold</pre>
+     */
+    static final int COMPACT_THRESHOLD = Integer.getInteger(
+        EnvContributingVarsImporter.class.getSimpleName() + ".compactThreshold",
+        32
+    );
+
+    /**
+     * Logger for failures to decode persisted variables
+     */
+    private static final Logger LOGGER = Logger.getLogger(EnvContributingVarsImporter.class.getName());
+
     /**
      * String.format (printf) template to which the original environment
      * variable names will be provided (notionally, so as not to overwrite
@@ -54,6 +86,25 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
      */
     private final String varNameTemplate;
 
+    /**
+     * Filter restricting the variables imported by name; NULL if every
+     * variable is imported
+     */
+    private final VarNameFilter varNameFilter;
+
+    /**
+     * Portion of the variable name template preceding the variable name token;
+     * NULL if the template contains further format directives, in which case
+     * each name is produced with String.format
+     */
+    private transient String varNamePrefix;
+
+    /**
+     * Portion of the variable name template following the variable name token;
+     * NULL if the template contains further format directives
+     */
+    private transient String varNameSuffix;
+
 
 
     /**
@@ -68,6 +119,28 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
      *      out in isVarNameTemplateValid()
      */
     public EnvContributingVarsImporter(final String varNameTemplate) throws IllegalArgumentException {
+        this(varNameTemplate, null);
+    }
+
+    /**
+     * Constructor - creates a new instance of EnvContributingVarsImporter
+     * which imports only the variables accepted by a given filter
+     * 
+     * @param varNameTemplate
+     *      String.format (printf) template to which the original environment
+     *      variable names will be provided (notionally, so as not to overwrite
+     *      existing variables within the scope of the build)
+     * @param varNameFilter
+     *      Filter restricting the variables imported by name; NULL (or a
+     *      filter accepting every name) to import every variable
+     * @throws IllegalArgumentException 
+     *      If the string template does not conform to the valid pattern laid
+     *      out in isVarNameTemplateValid()
+     */
+    public EnvContributingVarsImporter(
+        final String varNameTemplate,
+        final VarNameFilter varNameFilter
+    ) throws IllegalArgumentException {
         if (!isVarNameTemplateValid(varNameTemplate)) {
             throw new IllegalArgumentException(
                 String.format("Var name template %s is invalid", varNameTemplate)
@@ -75,6 +148,43 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
         }
 
         this.varNameTemplate = varNameTemplate;
+        this.varNameFilter = (varNameFilter != null && !varNameFilter.isAcceptAll() ? varNameFilter : null);
+        this.compileVarNameTemplate();
+    }
+
+    /**
+     * Recompiles the variable name template after deserialisation, as the
+     * compiled form is not persisted
+     * 
+     * @return 
+     *      This instance
+     */
+    protected Object readResolve() {
+        this.compileVarNameTemplate();
+
+        return this;
+    }
+
+    /**
+     * Splits the variable name template into the portions either side of the
+     * variable name token, so that names can be produced by concatenation
+     * rather than by parsing the template for every variable
+     * 
+     * Templates containing any other format directive (including an escaped
+     * %%) are left uncompiled and continue to be applied through String.format
+     */
+    private void compileVarNameTemplate() {
+        int tokenIndex = this.varNameTemplate.indexOf(VAR_NAME_TOKEN);
+        String prefix = this.varNameTemplate.substring(0, tokenIndex);
+        String suffix = this.varNameTemplate.substring(tokenIndex + VAR_NAME_TOKEN.length());
+
+        if (prefix.indexOf('%') < 0 && suffix.indexOf('%') < 0) {
+            this.varNamePrefix = prefix;
+            this.varNameSuffix = suffix;
+        } else {
+            this.varNamePrefix = null;
+            this.varNameSuffix = null;
+        }
     }
 
     /**
@@ -89,9 +199,23 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
         return this.varNameTemplate;
     }
 
+    /**
+     * Getter for varNameFilter
+     * 
+     * @return
+     *      Filter restricting the variables imported by name; NULL if every
+     *      variable is imported
+     */
+    @Override
+    public VarNameFilter getVarNameFilter() {
+        return this.varNameFilter;
+    }
+
     /**
      * Imports variables into a build by adding a {@link ContributingAction}
-     * action to the build which handles the actual import
+     * action to the build which handles the actual import; variables rejected
+     * by the filter (if any) are dropped beforehand, so are neither persisted
+     * with the build nor contributed to its environment
      * 
      * @param targetBuild
      *      Build into which variables are to be imported
@@ -100,12 +224,16 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
      */
     @Override
     public void importVars(Run<?, ?> targetBuild, Map<String, String> otherBuildEnvVars) {
-        targetBuild.replaceAction(new ContributingAction(otherBuildEnvVars));
+        targetBuild.replaceAction(
+            new ContributingAction(
+                this.varNameFilter != null ? this.varNameFilter.filter(otherBuildEnvVars) : otherBuildEnvVars
+            )
+        );
     }
 
     /**
      * Copies variables from a source map to target map, applying the variable
-     * name templating as configured
+     * name filter and templating as configured
      * 
      * @param source
      *      Source map from which to copy variables
@@ -117,14 +245,55 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
         Map<String, String> source,
         Map<String, String> target
     ) {
-        for (String key : source.keySet()) {
+        final VarNameFilter filter = this.varNameFilter;
+
+        for (Map.Entry<String, String> entry : source.entrySet()) {
+            if (filter != null && !filter.accepts(entry.getKey())) {
+                continue;
+            }
+
             target.put(
-                String.format(varNameTemplate, key),
-                source.get(key)
+                this.templateVarName(entry.getKey()),
+                entry.getValue()
             );
         }
     }
 
+    /**
+     * Copies variables from a source map to a new map, pre-sized to hold
+     * them all, applying the variable name templating as configured
+     * 
+     * @param source
+     *      Source map from which to copy variables
+     * @return 
+     *      New map of variables with their templated names
+     */
+    public Map<String, String> templateEnvVars(Map<String, String> source) {
+        Map<String, String> target = new HashMap<>((int) (source.size() / 0.75f) + 1);
+
+        this.copyEnvVars(source, target);
+
+        return target;
+    }
+
+    /**
+     * Applies the variable name template to a given variable name
+     * 
+     * @param name
+     *      Original variable name
+     * @return 
+     *      Templated variable name
+     */
+    public String templateVarName(String name) {
+        if (this.varNamePrefix == null) {
+            return String.format(this.varNameTemplate, name);
+        }
+
+        return new StringBuilder(
+            this.varNamePrefix.length() + name.length() + this.varNameSuffix.length()
+        ).append(this.varNamePrefix).append(name).append(this.varNameSuffix).toString();
+    }
+
     /**
      * Indicates whether or not a given variable name is of a valid format
      * 
@@ -138,9 +307,8 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
      */
     public static boolean isVarNameTemplateValid(String varNameTemplate) {
         
-        // Compile a regular expresion pattern to locate %s inside a string
-        Pattern p = Pattern.compile("(%s)");
-        Matcher m = p.matcher(varNameTemplate);
+        // Locate %s inside a string with the precompiled pattern
+        Matcher m = VAR_NAME_TOKEN_PATTERN.matcher(varNameTemplate);
 
         // Not only must the pattern match, but we only want a single %s
         int count = 0;
@@ -172,18 +340,91 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
     protected class ContributingAction implements EnvironmentContributingAction {
 
         /**
-         * Environment variables to inject into a build when triggered
+         * Environment variables to inject into a build when triggered, held
+         * as a plain map; NULL if held in compact form
+         */
+        private Map<String, String> otherBuildEnvVars;
+
+        /**
+         * Environment variables to inject into a build when triggered, held
+         * in the compact form of {@link CompactEnvVars}; NULL if held as a
+         * plain map
+         * 
+         * Only this string is parsed when the build record is loaded; the
+         * variables themselves are decoded on first contribution
+         */
+        private String compactEnvVars;
+
+        /**
+         * Environment variables with their templated names, produced on first
+         * contribution; Jenkins contributes the environment of a build many
+         * times over, so the templating is only applied once
          */
-        private final Map<String, String> otherBuildEnvVars;
+        private transient Map<String, String> templatedEnvVars;
 
         /**
          * Constructor - creates a new instance of ContributingAction
          * 
+         * Variables numbering at least COMPACT_THRESHOLD are held (and so
+         * persisted) in compact form
+         * 
          * @param otherBuildEnvVars 
          *      Environment variables to inject into a build when triggered
          */
         public ContributingAction(final Map<String, String> otherBuildEnvVars) {
-            this.otherBuildEnvVars = otherBuildEnvVars;
+            if (otherBuildEnvVars != null && otherBuildEnvVars.size() >= COMPACT_THRESHOLD) {
+                this.compactEnvVars = CompactEnvVars.encode(otherBuildEnvVars);
+            } else {
+                this.otherBuildEnvVars = otherBuildEnvVars;
+            }
+        }
+
+        /**
+         * Interns the names and values of variables persisted as a plain map
+         * as the build record is loaded, so that they are shared with other
+         * builds importing the same variables
+         * 
+         * @return 
+         *      This instance
+         */
+        protected Object readResolve() {
+            if (this.otherBuildEnvVars != null) {
+                Map<String, String> interned = new HashMap<>(
+                    (int) (this.otherBuildEnvVars.size() / 0.75f) + 1
+                );
+
+                for (Map.Entry<String, String> entry : this.otherBuildEnvVars.entrySet()) {
+                    interned.put(
+                        CompactEnvVars.intern(entry.getKey()),
+                        CompactEnvVars.intern(entry.getValue())
+                    );
+                }
+
+                this.otherBuildEnvVars = interned;
+            }
+
+            return this;
+        }
+
+        /**
+         * Getter for otherBuildEnvVars, decoding the variables if they are
+         * held in compact form
+         * 
+         * @return
+         *      Environment variables to inject into a build when triggered
+         * @throws IOException 
+         *      If the variables are held in compact form which is corrupt
+         */
+        public Map<String, String> getOtherBuildEnvVars() throws IOException {
+            if (this.compactEnvVars != null) {
+                return CompactEnvVars.decode(this.compactEnvVars);
+            }
+
+            return (
+                this.otherBuildEnvVars != null
+                ? this.otherBuildEnvVars
+                : Collections.<String, String>emptyMap()
+            );
         }
 
         /**
@@ -191,7 +432,7 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
          * (notionally the current build, but the specific build provision is
          * decoupled from this implementation)
          * 
-         * This defers to the <pre>copyEnvVars()</pre> method in the
+         * This defers to the <pre>templateEnvVars()</pre> method in the
          * encapsulating instance
          * 
          * @param build
@@ -202,7 +443,22 @@ public class EnvContributingVarsImporter implements TemplatingOtherBuildEnvVarsI
          */
         @Override
         public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
-            copyEnvVars(otherBuildEnvVars, env);
+            Map<String, String> templated = this.templatedEnvVars;
+
+            if (templated == null) {
+                try {
+                    templated = templateEnvVars(this.getOtherBuildEnvVars());
+                } catch (IOException ex) {
+
+                    // A corrupt record should not prevent the build environment being computed
+                    LOGGER.log(Level.WARNING, "Failed to decode imported environment variables", ex);
+                    templated = Collections.emptyMap();
+                }
+
+                this.templatedEnvVars = templated;
+            }
+
+            env.putAll(templated);
         }
 
         /**
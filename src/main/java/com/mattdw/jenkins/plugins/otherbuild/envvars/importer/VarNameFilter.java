@@ -0,0 +1,594 @@
+/**
+ * VarNameFilter.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.importer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * VarNameFilter - allow and deny lists of environment variable names, so that
+ * only the variables of interest are imported from another build
+ * 
+ * Each list is given as a series of patterns separated by commas or new lines;
+ * a pattern enclosed in forward slashes (e.g. <pre>/^JAVA_.*$/</pre>) is a
+ * regular expression, which may itself contain commas (e.g.
+ * <pre>/^A{1,3}$/</pre>), while any other pattern is a glob in which <pre>*</pre>
+ * matches any sequence of characters and <pre>?</pre> matches any single
+ * character. A name is accepted if it matches any include pattern (or no
+ * include patterns are given) and matches no exclude pattern
+ * 
+ * Patterns are compiled once, into a set of exact names, a prefix trie for
+ * globs of the common <pre>PREFIX_*</pre> form, and a single regular expression
+ * for everything else, so that matching a name does not scale with the number
+ * of patterns given; only a regular expression with groups of its own (whose
+ * numbering, and so any backreference to them, would be shifted by merging it)
+ * is compiled and matched separately
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class VarNameFilter {
+
+    /**
+     * Delimiter enclosing a regular expression pattern
+     */
+    public static final char REGEX_DELIMITER = '/';
+
+    /**
+     * Include patterns, as given; persisted in place of the compiled form
+     */
+    private final String includes;
+
+    /**
+     * Exclude patterns, as given; persisted in place of the compiled form
+     */
+    private final String excludes;
+
+    /**
+     * Compiled include patterns; NULL if no include patterns were given
+     */
+    private transient CompiledPatterns includePatterns;
+
+    /**
+     * Compiled exclude patterns; NULL if no exclude patterns were given
+     */
+    private transient CompiledPatterns excludePatterns;
+
+
+
+    /**
+     * Constructor - creates a new instance of VarNameFilter
+     * 
+     * @param includes
+     *      Patterns of names to include; NULL or empty to include all names
+     * @param excludes
+     *      Patterns of names to exclude; NULL or empty to exclude no names
+     * @throws IllegalArgumentException 
+     *      If any pattern given as a regular expression is invalid
+     */
+    public VarNameFilter(final String includes, final String excludes) throws IllegalArgumentException {
+        this.includes = normalise(includes);
+        this.excludes = normalise(excludes);
+        this.compile();
+    }
+
+    /**
+     * Recompiles the patterns after deserialisation, as the compiled form is
+     * not persisted
+     * 
+     * @return 
+     *      This instance
+     */
+    protected Object readResolve() {
+        this.compile();
+
+        return this;
+    }
+
+    /**
+     * Compiles the include and exclude patterns
+     */
+    private void compile() {
+        this.includePatterns = CompiledPatterns.compile(this.includes);
+        this.excludePatterns = CompiledPatterns.compile(this.excludes);
+    }
+
+    /**
+     * Getter for includes
+     * 
+     * @return 
+     *      Patterns of names to include; NULL if all names are included
+     */
+    public String getIncludes() {
+        return this.includes;
+    }
+
+    /**
+     * Getter for excludes
+     * 
+     * @return 
+     *      Patterns of names to exclude; NULL if no names are excluded
+     */
+    public String getExcludes() {
+        return this.excludes;
+    }
+
+    /**
+     * Indicates whether or not this filter would accept every name
+     * 
+     * @return 
+     *      TRUE if neither include nor exclude patterns were given;
+     *      otherwise FALSE
+     */
+    public boolean isAcceptAll() {
+        return (this.includePatterns == null && this.excludePatterns == null);
+    }
+
+    /**
+     * Indicates whether or not a given variable name is accepted
+     * 
+     * @param name
+     *      Variable name
+     * @return 
+     *      TRUE if the name matches any include pattern (or there are none)
+     *      and matches no exclude pattern; otherwise FALSE
+     */
+    public boolean accepts(final String name) {
+        return (
+            (this.includePatterns == null || this.includePatterns.matches(name))
+            && (this.excludePatterns == null || !this.excludePatterns.matches(name))
+        );
+    }
+
+    /**
+     * Copies the accepted variables from a source map to a new map
+     * 
+     * @param source
+     *      Source map from which to copy variables
+     * @return 
+     *      New map of the accepted variables, or the source map itself if
+     *      this filter accepts every name
+     */
+    public Map<String, String> filter(final Map<String, String> source) {
+        if (this.isAcceptAll()) {
+            return source;
+        }
+
+        Map<String, String> target = new HashMap<>();
+
+        for (Map.Entry<String, String> entry : source.entrySet()) {
+            if (this.accepts(entry.getKey())) {
+                target.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Indicates whether or not a given list of patterns is valid
+     * 
+     * @param patterns
+     *      Patterns, separated by commas or new lines
+     * @return 
+     *      TRUE if every pattern given as a regular expression compiles;
+     *      otherwise FALSE
+     */
+    public static boolean arePatternsValid(final String patterns) {
+        try {
+            CompiledPatterns.compile(normalise(patterns));
+
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Normalises a given list of patterns, such that an empty list is NULL
+     * 
+     * @param patterns
+     *      Patterns, separated by commas or new lines
+     * @return 
+     *      Trimmed patterns, or NULL if there are none
+     */
+    private static String normalise(final String patterns) {
+        if (patterns == null) {
+            return null;
+        }
+
+        String trimmed = patterns.trim();
+
+        return (trimmed.isEmpty() ? null : trimmed);
+    }
+
+
+
+    /**
+     * Compiled form of a list of patterns
+     */
+    protected static class CompiledPatterns {
+
+        /**
+         * Names matched exactly (from globs with no wildcards)
+         */
+        private final Set<String> names = new HashSet<>();
+
+        /**
+         * Trie of prefixes (from globs with a single, trailing *)
+         */
+        private final PrefixNode prefixes = new PrefixNode();
+
+        /**
+         * Indicates whether or not any prefixes have been added to the trie
+         */
+        private boolean hasPrefixes = false;
+
+        /**
+         * Single alternation of every other glob and regular expression
+         * without groups of its own; NULL if there are none
+         */
+        private Pattern pattern;
+
+        /**
+         * Regular expressions with groups of their own, each matched separately
+         */
+        private final List<Pattern> groupedPatterns = new ArrayList<>();
+
+
+
+        /**
+         * Compiles a given list of patterns
+         * 
+         * @param patterns
+         *      Patterns, separated by commas or new lines; may be NULL
+         * @return 
+         *      Compiled patterns, or NULL if no patterns were given
+         * @throws IllegalArgumentException 
+         *      If any pattern given as a regular expression is invalid
+         */
+        public static CompiledPatterns compile(final String patterns) throws IllegalArgumentException {
+            if (patterns == null) {
+                return null;
+            }
+
+            CompiledPatterns compiled = new CompiledPatterns();
+            List<String> expressions = new ArrayList<>();
+
+            for (String pattern : split(patterns)) {
+                if (
+                    pattern.length() > 1
+                    && pattern.charAt(0) == REGEX_DELIMITER
+                    && pattern.charAt(pattern.length() - 1) == REGEX_DELIMITER
+                ) {
+                    String expression = pattern.substring(1, pattern.length() - 1);
+
+                    // Compiled individually so that an error identifies the pattern at fault
+                    Pattern regex = Pattern.compile(expression);
+
+                    if (regex.matcher("").groupCount() > 0) {
+                        compiled.groupedPatterns.add(regex);
+                    } else {
+                        expressions.add(expression);
+                    }
+
+                    continue;
+                }
+
+                int wildcard = indexOfWildcard(pattern);
+
+                if (wildcard < 0) {
+                    compiled.names.add(pattern);
+                } else if (wildcard == pattern.length() - 1 && pattern.charAt(wildcard) == '*') {
+                    compiled.prefixes.add(pattern.substring(0, wildcard));
+                    compiled.hasPrefixes = true;
+                } else {
+                    expressions.add(globToRegex(pattern));
+                }
+            }
+
+            if (!expressions.isEmpty()) {
+                StringBuilder alternation = new StringBuilder();
+
+                for (String expression : expressions) {
+                    if (alternation.length() > 0) {
+                        alternation.append('|');
+                    }
+
+                    alternation.append("(?:").append(expression).append(')');
+                }
+
+                compiled.pattern = Pattern.compile(alternation.toString());
+            }
+
+            return compiled;
+        }
+
+        /**
+         * Indicates whether or not a given name matches any of the patterns
+         * 
+         * @param name
+         *      Variable name
+         * @return 
+         *      TRUE if the name matches any pattern; otherwise FALSE
+         */
+        public boolean matches(final String name) {
+            return (
+                this.names.contains(name)
+                || (this.hasPrefixes && this.prefixes.matchesPrefixOf(name))
+                || (this.pattern != null && this.pattern.matcher(name).matches())
+                || this.matchesGroupedPattern(name)
+            );
+        }
+
+        /**
+         * Indicates whether or not a given name matches any of the regular
+         * expressions with groups of their own
+         * 
+         * @param name
+         *      Variable name
+         * @return 
+         *      TRUE if the name matches any such expression; otherwise FALSE
+         */
+        private boolean matchesGroupedPattern(final String name) {
+            for (Pattern regex : this.groupedPatterns) {
+                if (regex.matcher(name).matches()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Splits a list of patterns at commas and new lines, other than the
+         * commas within a regular expression
+         * 
+         * A pattern beginning with a forward slash extends to the first forward
+         * slash on its line which is followed only by whitespace before a
+         * comma or the end of the line; should there be none, it is split as
+         * any other pattern
+         * 
+         * @param patterns
+         *      Patterns, separated by commas or new lines
+         * @return 
+         *      Trimmed, non-empty patterns
+         */
+        static List<String> split(final String patterns) {
+            final List<String> split = new ArrayList<>();
+            final int length = patterns.length();
+            int start = 0;
+
+            while (start < length) {
+                int end = -1;
+
+                if (patterns.charAt(start) == REGEX_DELIMITER) {
+                    end = endOfRegex(patterns, start);
+                }
+
+                if (end < 0) {
+                    end = start;
+
+                    while (end < length && !isSeparator(patterns.charAt(end))) {
+                        end++;
+                    }
+                }
+
+                String pattern = patterns.substring(start, end).trim();
+
+                if (!pattern.isEmpty()) {
+                    split.add(pattern);
+                }
+
+                start = end + 1;
+
+                // Leading whitespace is skipped, so that a regular expression is recognised after ", "
+                while (start < length && Character.isWhitespace(patterns.charAt(start)) && !isSeparator(patterns.charAt(start))) {
+                    start++;
+                }
+            }
+
+            return split;
+        }
+
+        /**
+         * Locates the end of a regular expression pattern
+         * 
+         * @param patterns
+         *      Patterns, separated by commas or new lines
+         * @param start
+         *      Index of the opening forward slash
+         * @return 
+         *      Index of the separator (or end of input) following the closing
+         *      forward slash, or -1 if it has none
+         */
+        private static int endOfRegex(final String patterns, final int start) {
+            for (int i = start + 1; i < patterns.length(); i++) {
+                char c = patterns.charAt(i);
+
+                if (c == '\r' || c == '\n') {
+                    break;
+                }
+
+                if (c != REGEX_DELIMITER) {
+                    continue;
+                }
+
+                int next = i + 1;
+
+                while (next < patterns.length() && (patterns.charAt(next) == ' ' || patterns.charAt(next) == '\t')) {
+                    next++;
+                }
+
+                if (next == patterns.length() || isSeparator(patterns.charAt(next))) {
+                    return next;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Indicates whether or not a given character separates patterns
+         * 
+         * @param c
+         *      Character
+         * @return 
+         *      TRUE if the character is a comma or line break; otherwise FALSE
+         */
+        private static boolean isSeparator(final char c) {
+            return (c == ',' || c == '\r' || c == '\n');
+        }
+
+        /**
+         * Locates the first glob wildcard in a given pattern
+         * 
+         * @param pattern
+         *      Glob pattern
+         * @return 
+         *      Index of the first * or ?, or -1 if there is none
+         */
+        private static int indexOfWildcard(final String pattern) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+
+                if (c == '*' || c == '?') {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Translates a glob pattern into an equivalent regular expression
+         * 
+         * @param glob
+         *      Glob pattern
+         * @return 
+         *      Regular expression matching the same names as the glob
+         */
+        private static String globToRegex(final String glob) {
+            StringBuilder regex = new StringBuilder(glob.length() + 8);
+            int literalStart = 0;
+
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+
+                if (c == '*' || c == '?') {
+                    if (i > literalStart) {
+                        regex.append(Pattern.quote(glob.substring(literalStart, i)));
+                    }
+
+                    regex.append(c == '*' ? ".*" : ".");
+                    literalStart = i + 1;
+                }
+            }
+
+            if (literalStart < glob.length()) {
+                regex.append(Pattern.quote(glob.substring(literalStart)));
+            }
+
+            return regex.toString();
+        }
+
+    }
+
+
+
+    /**
+     * Node of a trie of name prefixes
+     */
+    protected static class PrefixNode {
+
+        /**
+         * Child nodes, keyed by the next character of the prefix
+         */
+        private final Map<Character, PrefixNode> children = new HashMap<>();
+
+        /**
+         * Indicates whether or not a prefix ends at this node
+         */
+        private boolean terminal = false;
+
+
+
+        /**
+         * Adds a prefix to the trie rooted at this node
+         * 
+         * @param prefix
+         *      Prefix to add
+         */
+        public void add(final String prefix) {
+            PrefixNode node = this;
+
+            for (int i = 0; i < prefix.length(); i++) {
+                Character c = prefix.charAt(i);
+                PrefixNode child = node.children.get(c);
+
+                if (child == null) {
+                    node.children.put(c, (child = new PrefixNode()));
+                }
+
+                node = child;
+            }
+
+            node.terminal = true;
+        }
+
+        /**
+         * Indicates whether or not any prefix in the trie rooted at this node
+         * is a prefix of a given name
+         * 
+         * @param name
+         *      Variable name
+         * @return 
+         *      TRUE if the name begins with any prefix in the trie;
+         *      otherwise FALSE
+         */
+        public boolean matchesPrefixOf(final String name) {
+            PrefixNode node = this;
+
+            for (int i = 0; !node.terminal; i++) {
+                if (i >= name.length() || (node = node.children.get(name.charAt(i))) == null) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
@@ -32,7 +32,8 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars.importer;
 
 /**
  * VarNameTemplateAware - defines a supertype for an object which is aware of
- a variable name template
+ * a variable name template, and of any filter on the names of the variables
+ * to which the template is applied
  * 
  * @author M.D.Ward <dev@mattdw.co.uk>
  */
@@ -46,4 +47,12 @@ public interface VarNameTemplateAware {
      */
     public String getVarNameTemplate();
 
+    /**
+     * Returns the filter restricting by name the environment variables
+     * imported into a given build
+     * 
+     * @return Filter of variable names, or NULL if every variable is imported
+     */
+    public VarNameFilter getVarNameFilter();
+
 }
@@ -0,0 +1,69 @@
+/**
+ * BuildIndex.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.Run;
+
+
+
+/**
+ * BuildIndex - interface definition for an in-memory index over past builds
+ * which is kept current by {@link BuildIndexListener} rather than by walking
+ * the build history of a project on every lookup
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public interface BuildIndex {
+
+    /**
+     * Records a new or changed build (started, completed, renamed or
+     * otherwise saved) in the index
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    public void updateBuild(Run<?, ?> build);
+
+    /**
+     * Removes a deleted build from the index
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    public void removeBuild(Run<?, ?> build);
+
+    /**
+     * Discards everything indexed for a given project, notionally because
+     * it has been deleted, renamed or moved
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    public void removeProject(String projectFullName);
+
+}
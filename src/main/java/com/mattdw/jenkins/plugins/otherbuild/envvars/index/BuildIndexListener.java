@@ -0,0 +1,241 @@
+/**
+ * BuildIndexListener.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.model.listeners.SaveableListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+
+/**
+ * BuildIndexListener - registry of {@link BuildIndex} instances, together with
+ * the Jenkins listener extensions which keep every registered index current
+ * as builds are created, renamed or deleted and as projects are deleted or moved
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public final class BuildIndexListener {
+
+    /**
+     * Indexes to be notified of build and project changes
+     */
+    private static final List<BuildIndex> INDEXES = new CopyOnWriteArrayList<>();
+
+
+
+    /**
+     * Private constructor - this class is not to be instantiated
+     */
+    private BuildIndexListener() {
+    }
+
+    /**
+     * Registers an index to be notified of build and project changes
+     *
+     * @param <I>
+     *      Type of index being registered
+     * @param index
+     *      Index to register
+     * @return
+     *      The given index (for convenience in static initialisers)
+     */
+    public static <I extends BuildIndex> I register(final I index) {
+        INDEXES.add(index);
+
+        return index;
+    }
+
+    /**
+     * Removes an index from notification of build and project changes
+     *
+     * @param index
+     *      Index to remove
+     */
+    public static void unregister(final BuildIndex index) {
+        INDEXES.remove(index);
+    }
+
+    /**
+     * Notifies all registered indexes of a new or changed build
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    static void fireBuildUpdated(final Run<?, ?> build) {
+        for (BuildIndex index : INDEXES) {
+            index.updateBuild(build);
+        }
+    }
+
+    /**
+     * Notifies all registered indexes of a deleted build
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    static void fireBuildRemoved(final Run<?, ?> build) {
+        for (BuildIndex index : INDEXES) {
+            index.removeBuild(build);
+        }
+    }
+
+    /**
+     * Notifies all registered indexes of a deleted, renamed or moved project
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    static void fireProjectRemoved(final String projectFullName) {
+        for (BuildIndex index : INDEXES) {
+            index.removeProject(projectFullName);
+        }
+    }
+
+
+
+    /**
+     * Run listener which notifies indexes of builds starting, completing
+     * and being deleted
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run> {
+
+        /**
+         * Notifies indexes that a build has started
+         *
+         * @param build
+         *      Build which has started
+         * @param listener
+         *      Listener for the build; not used in this implementation
+         */
+        @Override
+        public void onStarted(Run build, TaskListener listener) {
+            fireBuildUpdated(build);
+        }
+
+        /**
+         * Notifies indexes that a build has completed
+         *
+         * @param build
+         *      Build which has completed
+         * @param listener
+         *      Listener for the build; not used in this implementation
+         */
+        @Override
+        public void onCompleted(Run build, TaskListener listener) {
+            fireBuildUpdated(build);
+        }
+
+        /**
+         * Notifies indexes that a build has been deleted
+         *
+         * @param build
+         *      Build which has been deleted
+         */
+        @Override
+        public void onDeleted(Run build) {
+            fireBuildRemoved(build);
+        }
+
+    }
+
+
+
+    /**
+     * Saveable listener which notifies indexes of changes to builds made
+     * outside of the build lifecycle (e.g. a display name or description
+     * being changed after the build has completed)
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener {
+
+        /**
+         * Notifies indexes that a build has been saved
+         *
+         * @param o
+         *      Object which has been saved; only builds are of interest
+         * @param file
+         *      File to which the object was saved; not used in this implementation
+         */
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Run) {
+                fireBuildUpdated((Run<?, ?>) o);
+            }
+        }
+
+    }
+
+
+
+    /**
+     * Item listener which notifies indexes of projects being deleted, renamed
+     * or moved (under which circumstances anything indexed under the previous
+     * full name is stale)
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+
+        /**
+         * Notifies indexes that a project has been deleted
+         *
+         * @param item
+         *      Item which has been deleted
+         */
+        @Override
+        public void onDeleted(Item item) {
+            fireProjectRemoved(item.getFullName());
+        }
+
+        /**
+         * Notifies indexes that a project has been renamed or moved
+         *
+         * @param item
+         *      Item which has been renamed or moved
+         * @param oldFullName
+         *      Full name of the item prior to the change
+         * @param newFullName
+         *      Full name of the item after the change
+         */
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            fireProjectRemoved(oldFullName);
+        }
+
+    }
+
+}
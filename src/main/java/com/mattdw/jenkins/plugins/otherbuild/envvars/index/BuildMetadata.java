@@ -0,0 +1,151 @@
+/**
+ * BuildMetadata.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.Result;
+
+
+
+/**
+ * BuildMetadata - the number, display name, result and timestamp of a
+ * completed build, as recorded in a {@link BuildMetadataIndex}, which suffice
+ * to present or locate the build without loading it
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public final class BuildMetadata {
+
+    /**
+     * Build number
+     */
+    private final int number;
+
+    /**
+     * Display name of the build, possibly truncated
+     */
+    private final String displayName;
+
+    /**
+     * Indicates whether or not the display name is complete (i.e. was not
+     * truncated to fit the index record)
+     */
+    private final boolean displayNameComplete;
+
+    /**
+     * Result of the build; NULL if it has none
+     */
+    private final Result result;
+
+    /**
+     * Time at which the build was scheduled, in milliseconds since the epoch
+     */
+    private final long timeInMillis;
+
+
+
+    /**
+     * Constructor - creates a new instance of BuildMetadata
+     *
+     * @param number
+     *      Build number
+     * @param displayName
+     *      Display name of the build, possibly truncated
+     * @param displayNameComplete
+     *      Indicates whether or not the display name is complete
+     * @param result
+     *      Result of the build; NULL if it has none
+     * @param timeInMillis
+     *      Time at which the build was scheduled, in milliseconds since the epoch
+     */
+    public BuildMetadata(
+        final int number,
+        final String displayName,
+        final boolean displayNameComplete,
+        final Result result,
+        final long timeInMillis
+    ) {
+        this.number = number;
+        this.displayName = displayName;
+        this.displayNameComplete = displayNameComplete;
+        this.result = result;
+        this.timeInMillis = timeInMillis;
+    }
+
+    /**
+     * Getter for number
+     *
+     * @return
+     *      Build number
+     */
+    public int getNumber() {
+        return this.number;
+    }
+
+    /**
+     * Getter for displayName
+     *
+     * @return
+     *      Display name of the build, possibly truncated
+     */
+    public String getDisplayName() {
+        return this.displayName;
+    }
+
+    /**
+     * Getter for displayNameComplete
+     *
+     * @return
+     *      TRUE if the display name is complete; FALSE if it was truncated to
+     *      fit the index record, in which case the build must be loaded for
+     *      its full display name
+     */
+    public boolean isDisplayNameComplete() {
+        return this.displayNameComplete;
+    }
+
+    /**
+     * Getter for result
+     *
+     * @return
+     *      Result of the build; NULL if it has none
+     */
+    public Result getResult() {
+        return this.result;
+    }
+
+    /**
+     * Getter for timeInMillis
+     *
+     * @return
+     *      Time at which the build was scheduled, in milliseconds since the epoch
+     */
+    public long getTimeInMillis() {
+        return this.timeInMillis;
+    }
+
+}
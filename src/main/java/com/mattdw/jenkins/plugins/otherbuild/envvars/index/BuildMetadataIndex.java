@@ -0,0 +1,1168 @@
+/**
+ * BuildMetadataIndex.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * BuildMetadataIndex - per-project index of the number, display name, result
+ * and timestamp of every completed build, held in a memory-mapped file of
+ * fixed-width records in the project directory, so that builds may be listed
+ * and located without loading their build records
+ *
+ * The records of a project are rebuilt through a single walk of its history
+ * the first time the project is accessed without an index file (e.g. on the
+ * first start with this index); thereafter a record is appended as each build
+ * completes and updated in place as it changes, through {@link BuildIndexListener}.
+ * The record of a deleted build is reused by the next build recorded, and the
+ * file is compacted when loaded if most of its records are of deleted builds,
+ * so that it does not grow without bound as old builds are discarded
+ *
+ * An existing file is reconciled with the build directories of the project
+ * when it is first loaded, since builds may have been deleted or completed
+ * while the index was not listening (e.g. while the plugin was disabled);
+ * only the builds which differ are loaded, rather than the whole history
+ *
+ * Only the mapped records, a map of build numbers to record slots and a
+ * bitmap of build numbers for each result are held by each project; the
+ * records themselves are read from the mapping on demand, so builds with a
+ * given result are found without reading the records of any others
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class BuildMetadataIndex implements BuildIndex {
+
+    /**
+     * Name of the index file within the project directory
+     */
+    public static final String FILE_NAME = "otherbuild-envvars-builds.idx";
+
+    /**
+     * Identifies a file as an index file ("OBEM")
+     */
+    static final int MAGIC = 0x4F42454D;
+
+    /**
+     * Version of the file layout; a file of any other version is rebuilt
+     */
+    static final short VERSION = 1;
+
+    /**
+     * Size of the file header, in bytes: magic (4), version (2), record
+     * size (2), record count (4) and reserved (4)
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of each record, in bytes: number (4), timestamp (8), result (1),
+     * flags (1), display name length (2) and display name
+     */
+    static final int RECORD_SIZE = 256;
+
+    /**
+     * Maximum length of a display name in a record, in UTF-8 bytes; longer
+     * display names are truncated and flagged as such
+     */
+    static final int MAX_NAME_BYTES = RECORD_SIZE - 16;
+
+    /**
+     * Number of records for which space is mapped when a file is created
+     */
+    static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Record flag for a deleted build
+     */
+    private static final byte FLAG_DELETED = 1;
+
+    /**
+     * Record flag for a truncated display name
+     */
+    private static final byte FLAG_NAME_TRUNCATED = 2;
+
+    /**
+     * Results which may be recorded, indexed by their code in a record
+     */
+    private static final Result[] RESULTS = new Result[] {
+        Result.SUCCESS,
+        Result.UNSTABLE,
+        Result.FAILURE,
+        Result.NOT_BUILT,
+        Result.ABORTED
+    };
+
+    /**
+     * Logger for failures to read or write index files (which are not fatal,
+     * as the file is rebuilt on the next access)
+     */
+    private static final Logger LOGGER = Logger.getLogger(BuildMetadataIndex.class.getName());
+
+    /**
+     * Shared instance, registered for notification of build and project changes
+     */
+    private static final BuildMetadataIndex INSTANCE = BuildIndexListener.register(
+        new BuildMetadataIndex()
+    );
+
+    /**
+     * Loaded indexes, keyed by project full name
+     */
+    private final ProjectIndexes<ProjectMetadata> projectIndexes = new ProjectIndexes<>(
+        new ProjectIndexes.Loader<ProjectMetadata>() {
+            @Override
+            public ProjectMetadata load(Job<?, ?> project) {
+                return BuildMetadataIndex.this.loadProjectMetadata(project);
+            }
+        }
+    );
+
+
+
+    /**
+     * Getter for the shared instance
+     *
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static BuildMetadataIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves the metadata of a given completed build
+     *
+     * @param project
+     *      Project to which the build belongs
+     * @param number
+     *      Build number
+     * @return
+     *      Metadata of the build, or NULL if no completed build with the
+     *      given number is indexed
+     */
+    public BuildMetadata get(final Job<?, ?> project, final int number) {
+        return this.getProjectMetadata(project).get(number);
+    }
+
+    /**
+     * Retrieves the metadata of every completed build of a project, newest
+     * first; each record is read from the index as it is iterated, so only as
+     * many are read as are needed
+     *
+     * @param project
+     *      Project whose builds are to be retrieved
+     * @return
+     *      Metadata of the completed builds of the project, newest first
+     */
+    public Iterable<BuildMetadata> getBuilds(final Job<?, ?> project) {
+        return this.getBuilds(project, 0);
+    }
+
+    /**
+     * Retrieves the metadata of the completed builds of a project older than
+     * a given build number, newest first, so that the history of a project
+     * may be walked a page at a time from where the previous page ended
+     *
+     * @param project
+     *      Project whose builds are to be retrieved
+     * @param before
+     *      Number below which builds are retrieved; zero or less for every build
+     * @return
+     *      Metadata of the completed builds of the project older than the
+     *      given build number, newest first
+     */
+    public Iterable<BuildMetadata> getBuilds(final Job<?, ?> project, final int before) {
+        final ProjectMetadata metadata = this.getProjectMetadata(project);
+
+        return iterate(metadata, metadata.getNumbersNewestFirst(before));
+    }
+
+    /**
+     * Retrieves the metadata of every completed build of a project with a
+     * given result, newest first; builds with other results are not read
+     *
+     * @param project
+     *      Project whose builds are to be retrieved
+     * @param result
+     *      Result of the builds to retrieve
+     * @return
+     *      Metadata of the completed builds of the project with the given
+     *      result, newest first
+     */
+    public Iterable<BuildMetadata> getBuilds(final Job<?, ?> project, final Result result) {
+        return this.getBuilds(project, result, 0);
+    }
+
+    /**
+     * Retrieves the metadata of the completed builds of a project with a
+     * given result older than a given build number, newest first; builds
+     * with other results are not read
+     *
+     * @param project
+     *      Project whose builds are to be retrieved
+     * @param result
+     *      Result of the builds to retrieve
+     * @param before
+     *      Number below which builds are retrieved; zero or less for every build
+     * @return
+     *      Metadata of the completed builds of the project with the given
+     *      result older than the given build number, newest first
+     */
+    public Iterable<BuildMetadata> getBuilds(final Job<?, ?> project, final Result result, final int before) {
+        final ProjectMetadata metadata = this.getProjectMetadata(project);
+
+        return iterate(metadata, metadata.getNumbersNewestFirst(result, before));
+    }
+
+    /**
+     * Retrieves the numbers of every completed build of a project with a
+     * given result, newest first, from the bitmap of that result
+     *
+     * @param project
+     *      Project whose builds are to be retrieved
+     * @param result
+     *      Result of the builds to retrieve
+     * @return
+     *      Numbers of the completed builds with the given result, newest first
+     */
+    public int[] getBuildNumbers(final Job<?, ?> project, final Result result) {
+        return this.getProjectMetadata(project).getNumbersNewestFirst(result);
+    }
+
+    /**
+     * Retrieves the number of the newest completed build of a project
+     *
+     * @param project
+     *      Project whose builds are to be searched
+     * @return
+     *      Number of the newest completed build, or NULL if there is none
+     */
+    public Integer getLastBuildNumber(final Job<?, ?> project) {
+        return this.getProjectMetadata(project).getLastNumber();
+    }
+
+    /**
+     * Discards the index of a given project, together with its file, so that
+     * it is rebuilt from the history of the project on the next access
+     *
+     * @param project
+     *      Project for which to discard the index
+     */
+    public void invalidate(final Job<?, ?> project) {
+        this.projectIndexes.remove(project.getFullName());
+
+        File file = getFile(project);
+
+        if (file != null && file.isFile() && !file.delete()) {
+            LOGGER.log(Level.WARNING, "Failed to delete build metadata index {0}", file);
+        }
+    }
+
+    /**
+     * Records a completed or changed build, if its project has an index
+     * (loaded or on disk); a project without one will include the build
+     * when its index is built
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        final Job<?, ?> project = build.getParent();
+
+        if (project == null || build.isBuilding()) {
+            return;
+        }
+
+        final ProjectMetadata metadata = this.getExistingProjectMetadata(project);
+
+        if (metadata == null) {
+            return;
+        }
+
+        try {
+            metadata.put(toMetadata(build));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to record " + build + " in build metadata index", ex);
+            this.invalidate(project);
+        }
+    }
+
+    /**
+     * Removes a deleted build, if its project has an index
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        final Job<?, ?> project = build.getParent();
+        final ProjectMetadata metadata = (project != null ? this.getExistingProjectMetadata(project) : null);
+
+        if (metadata != null) {
+            metadata.remove(build.getNumber());
+        }
+    }
+
+    /**
+     * Discards the loaded index for a given project; the index file moves
+     * or is deleted along with the project directory
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        this.projectIndexes.remove(projectFullName);
+    }
+
+    /**
+     * Retrieves the index for a given project, loading it if it has not yet
+     * been loaded for the project object; a load blocks only requests for
+     * the same project
+     *
+     * @param project
+     *      Project for which to retrieve the index
+     * @return
+     *      Index for the given project
+     */
+    protected ProjectMetadata getProjectMetadata(final Job<?, ?> project) {
+        return this.projectIndexes.get(project);
+    }
+
+    /**
+     * Retrieves the index for a given project if it is loaded or has a file,
+     * without building one
+     *
+     * @param project
+     *      Project for which to retrieve the index
+     * @return
+     *      Index for the given project, or NULL if it has none
+     */
+    protected ProjectMetadata getExistingProjectMetadata(final Job<?, ?> project) {
+        ProjectMetadata metadata = this.projectIndexes.getExisting(project);
+
+        if (metadata != null) {
+            return metadata;
+        }
+
+        File file = getFile(project);
+
+        return (file != null && file.isFile() ? this.getProjectMetadata(project) : null);
+    }
+
+    /**
+     * Loads the index for a given project, mapping and reconciling its file
+     * or (where there is no valid file) building it from the history of the
+     * project
+     *
+     * @param project
+     *      Project for which to load the index
+     * @return
+     *      Loaded index for the given project
+     */
+    protected ProjectMetadata loadProjectMetadata(final Job<?, ?> project) {
+        ProjectMetadata metadata = new ProjectMetadata(getFile(project));
+
+        try {
+            if (!metadata.load()) {
+                metadata.rebuild(project);
+            } else {
+                Set<Integer> numbers = listBuildNumbers(project);
+
+                if (numbers != null) {
+                    metadata.reconcile(project, numbers);
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to load build metadata index of " + project.getFullName(), ex);
+
+            // Held in memory only, so that the project is not walked on every access
+            metadata = new ProjectMetadata(null);
+
+            try {
+                metadata.rebuild(project);
+            } catch (IOException never) {
+                throw new IllegalStateException(never);
+            }
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Returns the index file of a given project
+     *
+     * @param project
+     *      Project for which to return the index file
+     * @return
+     *      Index file (which may not exist), or NULL if the project has no
+     *      project directory
+     */
+    protected static File getFile(final Job<?, ?> project) {
+        File rootDir = project.getRootDir();
+
+        return (rootDir != null ? new File(rootDir, FILE_NAME) : null);
+    }
+
+    /**
+     * Lists the numbers of the builds of a given project from the names of
+     * its build directories, without loading any build
+     *
+     * @param project
+     *      Project for which to list the builds
+     * @return
+     *      Build numbers, or NULL if the build directory cannot be listed
+     */
+    protected static Set<Integer> listBuildNumbers(final Job<?, ?> project) {
+        File buildDir = project.getBuildDir();
+        String[] names = (buildDir != null ? buildDir.list() : null);
+
+        if (names == null) {
+            return null;
+        }
+
+        Set<Integer> numbers = new HashSet<>();
+
+        for (String name : names) {
+            // Permalinks (e.g. lastSuccessfulBuild) and other entries are not build numbers
+            if (name.matches("[0-9]{1,9}")) {
+                numbers.add(Integer.valueOf(name));
+            }
+        }
+
+        return numbers;
+    }
+
+    /**
+     * Iterates over the metadata of the given builds, reading each record as
+     * it is reached
+     *
+     * @param metadata
+     *      Index of the project to which the builds belong
+     * @param numbers
+     *      Numbers of the builds, in the order in which they are to be iterated
+     * @return
+     *      Metadata of those builds which are still recorded
+     */
+    private static Iterable<BuildMetadata> iterate(final ProjectMetadata metadata, final int[] numbers) {
+        return new Iterable<BuildMetadata>() {
+            @Override
+            public Iterator<BuildMetadata> iterator() {
+                return new Iterator<BuildMetadata>() {
+
+                    private int i = 0;
+
+                    private BuildMetadata next = this.advance();
+
+                    private BuildMetadata advance() {
+                        while (this.i < numbers.length) {
+                            BuildMetadata build = metadata.get(numbers[this.i++]);
+
+                            // A build deleted since the numbers were taken is skipped
+                            if (build != null) {
+                                return build;
+                            }
+                        }
+
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return (this.next != null);
+                    }
+
+                    @Override
+                    public BuildMetadata next() {
+                        if (this.next == null) {
+                            throw new NoSuchElementException();
+                        }
+
+                        BuildMetadata current = this.next;
+                        this.next = this.advance();
+
+                        return current;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+
+                };
+            }
+        };
+    }
+
+    /**
+     * Captures the metadata of a given build
+     *
+     * @param build
+     *      Build from which to capture the metadata
+     * @return
+     *      Metadata of the build
+     */
+    protected static BuildMetadata toMetadata(final Run<?, ?> build) {
+        return new BuildMetadata(
+            build.getNumber(),
+            build.getDisplayName(),
+            true,
+            build.getResult(),
+            build.getTimeInMillis()
+        );
+    }
+
+
+
+    /**
+     * Fixed-width records of the completed builds of a single project, mapped
+     * from the index file of the project or (where it has none) held off-heap
+     */
+    protected static class ProjectMetadata {
+
+        /**
+         * Index file; NULL if the records are not persisted
+         */
+        private final File file;
+
+        /**
+         * Record slots, keyed by build number
+         */
+        private final NavigableMap<Integer, Integer> slots = new TreeMap<>();
+
+        /**
+         * Slots of deleted builds, to be reused by the next builds recorded
+         */
+        private final NavigableSet<Integer> freeSlots = new TreeSet<>();
+
+        /**
+         * Numbers of the recorded builds with each result, indexed by result code
+         */
+        private final BitSet[] numbersByResult = new BitSet[RESULTS.length];
+
+        /**
+         * Header and records, mapped from the file where there is one
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * Number of record slots in use, including those of deleted builds
+         */
+        private int count = 0;
+
+
+
+        /**
+         * Constructor - creates a new instance of ProjectMetadata
+         *
+         * @param file
+         *      Index file; NULL if the records are not to be persisted
+         */
+        public ProjectMetadata(final File file) {
+            this.file = file;
+
+            for (int code = 0; code < RESULTS.length; code++) {
+                this.numbersByResult[code] = new BitSet();
+            }
+        }
+
+        /**
+         * Maps the index file, if it exists and is valid
+         *
+         * @return
+         *      TRUE if the file was mapped; FALSE if there is no valid file
+         *      and the index must be rebuilt
+         * @throws IOException
+         *      If the file exists but cannot be mapped
+         */
+        public synchronized boolean load() throws IOException {
+            if (this.file == null || !this.file.isFile() || this.file.length() < HEADER_SIZE) {
+                return false;
+            }
+
+            ByteBuffer mapped = this.map((int) this.file.length(), null);
+            int records = mapped.getInt(8);
+
+            if (
+                mapped.getInt(0) != MAGIC
+                || mapped.getShort(4) != VERSION
+                || mapped.getShort(6) != RECORD_SIZE
+                || records < 0
+                || HEADER_SIZE + (long) records * RECORD_SIZE > mapped.capacity()
+            ) {
+                return false;
+            }
+
+            this.buffer = mapped;
+            this.count = records;
+            this.clear();
+
+            for (int slot = 0; slot < records; slot++) {
+                int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+                if ((mapped.get(offset + 13) & FLAG_DELETED) != 0) {
+                    this.freeSlots.add(slot);
+                    continue;
+                }
+
+                Integer previous = this.slots.put(mapped.getInt(offset), slot);
+
+                // A record duplicated by an interrupted compaction is superseded by the later copy
+                if (previous != null) {
+                    this.freeSlots.add(previous);
+                }
+
+                this.setResult(mapped.getInt(offset), mapped.get(offset + 12), true);
+            }
+
+            if (this.freeSlots.size() > this.slots.size()) {
+                this.compact();
+            }
+
+            return true;
+        }
+
+        /**
+         * Rebuilds the index through a single walk of the history of the
+         * project, replacing any existing file
+         *
+         * @param project
+         *      Project from which to load the builds
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        public synchronized void rebuild(final Job<?, ?> project) throws IOException {
+            if (this.file != null && this.file.exists() && !this.file.delete()) {
+                throw new IOException("Failed to delete " + this.file);
+            }
+
+            this.buffer = null;
+            this.count = 0;
+            this.clear();
+            this.ensureCapacity(INITIAL_CAPACITY);
+
+            for (Run<?, ?> build : project.getBuilds()) {
+                if (build != null && !build.isBuilding()) {
+                    this.write(toMetadata(build));
+                }
+            }
+
+            this.force();
+        }
+
+        /**
+         * Reconciles the records with the builds which exist, removing the
+         * records of builds which no longer exist and recording any completed
+         * builds which are missing, each of which is loaded individually
+         *
+         * @param project
+         *      Project to which the builds belong
+         * @param numbers
+         *      Numbers of the builds which exist
+         * @throws IOException
+         *      If the file cannot be extended
+         */
+        public synchronized void reconcile(final Job<?, ?> project, final Set<Integer> numbers) throws IOException {
+            for (Integer number : new ArrayList<>(this.slots.keySet())) {
+                if (!numbers.contains(number)) {
+                    this.remove(number);
+                }
+            }
+
+            for (Integer number : numbers) {
+                if (this.slots.containsKey(number)) {
+                    continue;
+                }
+
+                Run<?, ?> build = project.getBuildByNumber(number);
+
+                // A build still in progress is recorded by the listener once it completes
+                if (build != null && !build.isBuilding()) {
+                    this.write(toMetadata(build));
+                }
+            }
+
+            this.force();
+        }
+
+        /**
+         * Retrieves the metadata of a given build
+         *
+         * @param number
+         *      Build number
+         * @return
+         *      Metadata of the build, or NULL if it is not indexed
+         */
+        public synchronized BuildMetadata get(final int number) {
+            Integer slot = this.slots.get(number);
+
+            return (slot != null ? this.read(slot) : null);
+        }
+
+        /**
+         * Retrieves the numbers of the indexed builds, newest first
+         *
+         * @return
+         *      Snapshot of the indexed build numbers
+         */
+        public synchronized int[] getNumbersNewestFirst() {
+            return this.getNumbersNewestFirst(0);
+        }
+
+        /**
+         * Retrieves the numbers of the indexed builds older than a given
+         * build number, newest first
+         *
+         * @param before
+         *      Number below which builds are retrieved; zero or less for every build
+         * @return
+         *      Snapshot of the indexed build numbers below the given number
+         */
+        public synchronized int[] getNumbersNewestFirst(final int before) {
+            final NavigableMap<Integer, Integer> older = (before > 0 ? this.slots.headMap(before, false) : this.slots);
+            final int[] numbers = new int[older.size()];
+            int i = 0;
+
+            for (Integer number : older.descendingKeySet()) {
+                numbers[i++] = number;
+            }
+
+            return numbers;
+        }
+
+        /**
+         * Retrieves the numbers of the indexed builds with a given result,
+         * newest first
+         *
+         * @param result
+         *      Result of the builds
+         * @return
+         *      Snapshot of the numbers of the indexed builds with the result
+         */
+        public synchronized int[] getNumbersNewestFirst(final Result result) {
+            return this.getNumbersNewestFirst(result, 0);
+        }
+
+        /**
+         * Retrieves the numbers of the indexed builds with a given result
+         * older than a given build number, newest first
+         *
+         * @param result
+         *      Result of the builds
+         * @param before
+         *      Number below which builds are retrieved; zero or less for every build
+         * @return
+         *      Snapshot of the numbers of the indexed builds with the result
+         *      below the given number
+         */
+        public synchronized int[] getNumbersNewestFirst(final Result result, final int before) {
+            final byte code = encodeResult(result);
+
+            if (code < 0) {
+                return new int[0];
+            }
+
+            final BitSet bitmap = (
+                before > 0
+                ? this.numbersByResult[code].get(0, before)
+                : this.numbersByResult[code]
+            );
+            final int[] numbers = new int[bitmap.cardinality()];
+            int i = 0;
+
+            for (int number = bitmap.length() - 1; number >= 0; number = bitmap.previousSetBit(number - 1)) {
+                numbers[i++] = number;
+            }
+
+            return numbers;
+        }
+
+        /**
+         * Retrieves the number of the newest indexed build
+         *
+         * @return
+         *      Build number, or NULL if no builds are indexed
+         */
+        public synchronized Integer getLastNumber() {
+            return (this.slots.isEmpty() ? null : this.slots.lastKey());
+        }
+
+        /**
+         * Records the metadata of a build, in place of any existing record
+         * for the build or otherwise in a new record
+         *
+         * @param build
+         *      Metadata of the build
+         * @throws IOException
+         *      If the file cannot be extended
+         */
+        public synchronized void put(final BuildMetadata build) throws IOException {
+            Integer slot = this.slots.get(build.getNumber());
+
+            // A build is saved for many reasons after it completes, most of which leave its record unchanged
+            if (slot != null && this.matches(slot, build)) {
+                return;
+            }
+
+            this.write(build);
+            this.force();
+        }
+
+        /**
+         * Marks the record of a given build as deleted
+         *
+         * @param number
+         *      Build number
+         */
+        public synchronized void remove(final int number) {
+            Integer slot = this.slots.remove(number);
+
+            if (slot != null) {
+                int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+                this.setResult(number, this.buffer.get(offset + 12), false);
+                this.buffer.put(offset + 13, (byte) (this.buffer.get(offset + 13) | FLAG_DELETED));
+                this.freeSlots.add(slot);
+                this.force();
+            }
+        }
+
+        /**
+         * Writes the metadata of a build to its existing record, to the record
+         * of a deleted build or to a new record at the end of the file
+         *
+         * @param build
+         *      Metadata of the build
+         * @throws IOException
+         *      If the file cannot be extended
+         */
+        private void write(final BuildMetadata build) throws IOException {
+            Integer slot = this.slots.get(build.getNumber());
+            final boolean recorded = (slot != null);
+
+            if (!recorded) {
+                slot = this.freeSlots.pollFirst();
+
+                if (slot == null) {
+                    this.ensureCapacity(this.count + 1);
+
+                    slot = this.count++;
+                    this.buffer.putInt(8, this.count);
+                }
+
+                this.slots.put(build.getNumber(), slot);
+            }
+
+            final int offset = HEADER_SIZE + slot * RECORD_SIZE;
+
+            // The build is moved from the bitmap of its previous result, should that have changed
+            if (recorded) {
+                this.setResult(build.getNumber(), this.buffer.get(offset + 12), false);
+            }
+
+            final byte[] name = (build.getDisplayName() != null ? build.getDisplayName() : "").getBytes(
+                StandardCharsets.UTF_8
+            );
+
+            int length = name.length;
+
+            // Truncated on a character boundary, so that the stored name is valid UTF-8
+            if (length > MAX_NAME_BYTES) {
+                length = MAX_NAME_BYTES;
+
+                while (length > 0 && (name[length] & 0xC0) == 0x80) {
+                    length--;
+                }
+            }
+
+            this.buffer.putInt(offset, build.getNumber());
+            this.buffer.putLong(offset + 4, build.getTimeInMillis());
+            this.buffer.put(offset + 12, encodeResult(build.getResult()));
+            this.setResult(build.getNumber(), encodeResult(build.getResult()), true);
+            this.buffer.put(offset + 13, (length < name.length ? FLAG_NAME_TRUNCATED : 0));
+            this.buffer.putShort(offset + 14, (short) length);
+
+            ByteBuffer record = this.buffer.duplicate();
+            record.position(offset + 16);
+            record.put(name, 0, length);
+        }
+
+        /**
+         * Sets or clears the bit of a given build in the bitmap of a given
+         * result
+         *
+         * @param number
+         *      Build number
+         * @param code
+         *      Code of the result; builds without a result are not mapped
+         * @param value
+         *      TRUE to set the bit; FALSE to clear it
+         */
+        private void setResult(final int number, final byte code, final boolean value) {
+            if (code >= 0 && code < RESULTS.length && number >= 0) {
+                this.numbersByResult[code].set(number, value);
+            }
+        }
+
+        /**
+         * Moves the records of recorded builds into the lowest slots, in place,
+         * so that the slots of deleted builds are dropped from the end of the
+         * file; records are moved in slot order, so none is overwritten before
+         * it has been moved
+         */
+        private void compact() {
+            final NavigableMap<Integer, Integer> numbersBySlot = new TreeMap<>();
+            final byte[] record = new byte[RECORD_SIZE];
+
+            for (Map.Entry<Integer, Integer> entry : this.slots.entrySet()) {
+                numbersBySlot.put(entry.getValue(), entry.getKey());
+            }
+
+            int target = 0;
+
+            for (Map.Entry<Integer, Integer> entry : numbersBySlot.entrySet()) {
+                if (entry.getKey() != target) {
+                    ByteBuffer from = this.buffer.duplicate();
+                    from.position(HEADER_SIZE + entry.getKey() * RECORD_SIZE);
+                    from.get(record);
+
+                    ByteBuffer to = this.buffer.duplicate();
+                    to.position(HEADER_SIZE + target * RECORD_SIZE);
+                    to.put(record);
+
+                    this.slots.put(entry.getValue(), target);
+                }
+
+                target++;
+            }
+
+            this.count = target;
+            this.buffer.putInt(8, this.count);
+            this.freeSlots.clear();
+            this.force();
+        }
+
+        /**
+         * Discards every slot and result bitmap, ahead of loading or rebuilding
+         */
+        private void clear() {
+            this.slots.clear();
+            this.freeSlots.clear();
+
+            for (BitSet bitmap : this.numbersByResult) {
+                bitmap.clear();
+            }
+        }
+
+        /**
+         * Reads the metadata in a given record
+         *
+         * @param slot
+         *      Record slot
+         * @return
+         *      Metadata of the build
+         */
+        private BuildMetadata read(final int slot) {
+            final int offset = HEADER_SIZE + slot * RECORD_SIZE;
+            final byte[] name = new byte[this.buffer.getShort(offset + 14)];
+
+            ByteBuffer record = this.buffer.duplicate();
+            record.position(offset + 16);
+            record.get(name);
+
+            return new BuildMetadata(
+                this.buffer.getInt(offset),
+                new String(name, StandardCharsets.UTF_8),
+                (this.buffer.get(offset + 13) & FLAG_NAME_TRUNCATED) == 0,
+                decodeResult(this.buffer.get(offset + 12)),
+                this.buffer.getLong(offset + 4)
+            );
+        }
+
+        /**
+         * Indicates whether or not a given record already holds the given
+         * metadata
+         *
+         * @param slot
+         *      Record slot
+         * @param build
+         *      Metadata of the build
+         * @return
+         *      TRUE if the record is unchanged; otherwise FALSE
+         */
+        private boolean matches(final int slot, final BuildMetadata build) {
+            BuildMetadata recorded = this.read(slot);
+
+            return (
+                recorded.getResult() == build.getResult()
+                && recorded.getTimeInMillis() == build.getTimeInMillis()
+                && recorded.isDisplayNameComplete()
+                && recorded.getDisplayName().equals(build.getDisplayName())
+            );
+        }
+
+        /**
+         * Ensures that there is space for a given number of records, mapping
+         * a larger region (and so extending the file) if necessary
+         *
+         * @param records
+         *      Number of records for which space is required
+         * @throws IOException
+         *      If the file cannot be extended
+         */
+        private void ensureCapacity(final int records) throws IOException {
+            final long required = HEADER_SIZE + (long) records * RECORD_SIZE;
+
+            if (this.buffer != null && this.buffer.capacity() >= required) {
+                return;
+            }
+
+            final int current = (this.buffer != null ? (this.buffer.capacity() - HEADER_SIZE) / RECORD_SIZE : 0);
+            final long capacity = HEADER_SIZE + (long) Math.max(records, current * 2) * RECORD_SIZE;
+
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Build metadata index of " + this.file + " is full");
+            }
+
+            final boolean created = (this.buffer == null);
+
+            this.buffer = this.map((int) capacity, this.buffer);
+
+            if (created) {
+                this.buffer.putInt(0, MAGIC);
+                this.buffer.putShort(4, VERSION);
+                this.buffer.putShort(6, (short) RECORD_SIZE);
+                this.buffer.putInt(8, 0);
+            }
+        }
+
+        /**
+         * Maps a region of a given size from the index file, or allocates
+         * one off-heap where there is no file
+         *
+         * @param size
+         *      Size of the region, in bytes
+         * @param previous
+         *      Region previously allocated off-heap, whose contents are to be
+         *      carried over; ignored where there is a file (as the contents
+         *      are in the file)
+         * @return
+         *      Mapped or allocated region
+         * @throws IOException
+         *      If the file cannot be mapped
+         */
+        private ByteBuffer map(final int size, final ByteBuffer previous) throws IOException {
+            if (this.file == null) {
+                ByteBuffer allocated = ByteBuffer.allocateDirect(size);
+
+                if (previous != null) {
+                    ByteBuffer contents = previous.duplicate();
+                    contents.clear();
+                    allocated.put(contents);
+                }
+
+                return allocated;
+            }
+
+            // The mapping remains valid once the channel is closed
+            try (FileChannel channel = FileChannel.open(
+                this.file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+            )) {
+                return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+        }
+
+        /**
+         * Flushes changes to the mapped records to the index file
+         */
+        private void force() {
+            if (this.buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) this.buffer).force();
+            }
+        }
+
+        /**
+         * Encodes a build result for a record
+         *
+         * @param result
+         *      Build result; may be NULL
+         * @return
+         *      Code of the result, or -1 for none
+         */
+        private static byte encodeResult(final Result result) {
+            for (byte code = 0; code < RESULTS.length; code++) {
+                if (RESULTS[code] == result) {
+                    return code;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Decodes a build result from a record
+         *
+         * @param code
+         *      Code of the result
+         * @return
+         *      Build result, or NULL for none
+         */
+        private static Result decodeResult(final byte code) {
+            return (code >= 0 && code < RESULTS.length ? RESULTS[code] : null);
+        }
+
+    }
+
+}
@@ -0,0 +1,680 @@
+/**
+ * BuildSearchIndex.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+
+
+/**
+ * BuildSearchIndex - per-project, in-memory index of the words in the
+ * searchable text of each build (number, display name, description and
+ * result) to build numbers, so that builds matching a search query may be
+ * found without loading build records or scanning every build
+ *
+ * The index for a project is populated by a single walk of its history the
+ * first time it is searched, and is thereafter kept current through
+ * {@link BuildIndexListener}
+ *
+ * Where a {@link BuildMetadataIndex} is given, the index is populated from
+ * its records instead, and the description of a completed build (which is
+ * not recorded) is loaded only once a search needs it to decide whether or
+ * not the build matches; builds are loaded without holding the index, and
+ * only a limited number are described by any one search, so that a query
+ * matching nothing does not load the whole history of the project at once
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class BuildSearchIndex implements BuildIndex {
+
+    /**
+     * Maximum number of builds whose descriptions are loaded by a single
+     * search; may be set through the system property
+     * BuildSearchIndex.maxDescribedPerSearch
+     */
+    public static final int DEFAULT_MAX_DESCRIBED_PER_SEARCH = Integer.getInteger(
+        BuildSearchIndex.class.getSimpleName() + ".maxDescribedPerSearch",
+        100
+    );
+
+    /**
+     * Shared instance, registered for notification of build and project changes
+     */
+    private static final BuildSearchIndex INSTANCE = BuildIndexListener.register(
+        new BuildSearchIndex(BuildMetadataIndex.getInstance())
+    );
+
+    /**
+     * Index of build metadata from which to populate project indexes; NULL
+     * if they are populated from the history of each project
+     */
+    private final BuildMetadataIndex metadataIndex;
+
+    /**
+     * Maximum number of builds whose descriptions are loaded by a single search
+     */
+    private final int maxDescribedPerSearch;
+
+    /**
+     * Searchable build words, keyed by project full name
+     */
+    private final ProjectIndexes<ProjectIndex> projectIndexes = new ProjectIndexes<>(
+        new ProjectIndexes.Loader<ProjectIndex>() {
+            @Override
+            public ProjectIndex load(final Job<?, ?> project) {
+                return BuildSearchIndex.this.loadProjectIndex(project);
+            }
+        }
+    );
+
+
+
+    /**
+     * Constructor - creates a new instance of BuildSearchIndex
+     *
+     * @param metadataIndex
+     *      Index of build metadata from which to populate project indexes;
+     *      NULL if they are to be populated from the history of each project
+     * @param maxDescribedPerSearch
+     *      Maximum number of builds whose descriptions are loaded by a
+     *      single search
+     */
+    public BuildSearchIndex(final BuildMetadataIndex metadataIndex, final int maxDescribedPerSearch) {
+        this.metadataIndex = metadataIndex;
+        this.maxDescribedPerSearch = maxDescribedPerSearch;
+    }
+
+    /**
+     * Constructor - creates a new instance of BuildSearchIndex which loads
+     * the default maximum number of descriptions per search
+     *
+     * @param metadataIndex
+     *      Index of build metadata from which to populate project indexes;
+     *      NULL if they are to be populated from the history of each project
+     */
+    public BuildSearchIndex(final BuildMetadataIndex metadataIndex) {
+        this(metadataIndex, DEFAULT_MAX_DESCRIBED_PER_SEARCH);
+    }
+
+    /**
+     * Constructor - creates a new instance of BuildSearchIndex which
+     * populates project indexes from the history of each project
+     */
+    public BuildSearchIndex() {
+        this(null);
+    }
+
+    /**
+     * Getter for the shared instance
+     *
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static BuildSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Searches a project for builds matching a query, newest first
+     *
+     * Every whitespace-separated term of the query must begin (ignoring case)
+     * a word of the number, display name, description or result of a build
+     * for it to match; a build whose description has yet to be loaded, and
+     * which is reached once the maximum number have been loaded, is matched
+     * on its other words alone
+     *
+     * @param project
+     *      Project in which to search
+     * @param query
+     *      Search query; NULL or empty to match every build
+     * @param result
+     *      Result which matching builds must have; NULL for any result
+     * @param limit
+     *      Maximum number of matches to return
+     * @return
+     *      Numbers of the newest matching builds, newest first
+     */
+    public List<Integer> search(
+        final AbstractProject project,
+        final String query,
+        final Result result,
+        final int limit
+    ) {
+        return this.getProjectIndex(project).search(
+            project,
+            toTerms(query),
+            result,
+            limit,
+            this.maxDescribedPerSearch
+        );
+    }
+
+    /**
+     * Discards the index for a given project, which will be rebuilt on the
+     * next search
+     *
+     * @param project
+     *      Project for which to discard the index
+     */
+    public void invalidate(final AbstractProject project) {
+        this.projectIndexes.remove(project.getFullName());
+    }
+
+    /**
+     * Records a new or changed build in the index, if its project has
+     * already been indexed
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        ProjectIndex index = this.getExistingProjectIndex(build);
+
+        if (index != null) {
+            index.put(build);
+        }
+    }
+
+    /**
+     * Removes a deleted build from the index, if its project has already
+     * been indexed
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        ProjectIndex index = this.getExistingProjectIndex(build);
+
+        if (index != null) {
+            index.remove(build.getNumber());
+        }
+    }
+
+    /**
+     * Discards the index for a given project
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        this.projectIndexes.remove(projectFullName);
+    }
+
+    /**
+     * Retrieves the index for a given project, populating it if it has not
+     * yet been populated for the project object; concurrent searches of the
+     * same project wait for (and share) a single population
+     *
+     * @param project
+     *      Project for which to retrieve the index
+     * @return
+     *      Populated index for the given project
+     */
+    protected ProjectIndex getProjectIndex(final Job<?, ?> project) {
+        return this.projectIndexes.get(project);
+    }
+
+    /**
+     * Retrieves the existing index for the project of a given build, without
+     * creating one
+     *
+     * @param build
+     *      Build for whose project to retrieve the index
+     * @return
+     *      Index for the project of the given build, or NULL if the project
+     *      has not been indexed
+     */
+    protected ProjectIndex getExistingProjectIndex(final Run<?, ?> build) {
+        final Job<?, ?> project = build.getParent();
+
+        return (project != null ? this.projectIndexes.getExisting(project) : null);
+    }
+
+    /**
+     * Creates and populates the index for a given project
+     *
+     * @param project
+     *      Project for which to populate the index
+     * @return
+     *      Populated index for the given project
+     */
+    protected ProjectIndex loadProjectIndex(final Job<?, ?> project) {
+        ProjectIndex index = new ProjectIndex();
+
+        index.populate(project, this.metadataIndex);
+
+        return index;
+    }
+
+    /**
+     * Splits a search query (or searchable text) into lower case terms
+     *
+     * @param query
+     *      Search query
+     * @return
+     *      Lower case terms of the query; empty if the query is NULL or blank
+     */
+    protected static String[] toTerms(final String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return new String[0];
+        }
+
+        return query.trim().toLowerCase(Locale.ENGLISH).split("\\s+");
+    }
+
+
+
+    /**
+     * Searchable build words for a single project
+     */
+    protected static class ProjectIndex {
+
+        /**
+         * Results of the indexed builds, keyed by build number; a NULL result
+         * denotes a build which has not completed
+         */
+        private final NavigableMap<Integer, Result> results = new TreeMap<>();
+
+        /**
+         * Numbers of the builds whose searchable text includes each word,
+         * keyed (in order, so that words beginning with a term are adjacent)
+         * by word
+         */
+        private final NavigableMap<String, NavigableSet<Integer>> numbersByWord = new TreeMap<>();
+
+        /**
+         * Words of the searchable text of each build, keyed by build number
+         */
+        private final Map<Integer, Set<String>> wordsByNumber = new HashMap<>();
+
+        /**
+         * Numbers of the builds recorded from their metadata, whose
+         * descriptions have yet to be loaded
+         */
+        private final NavigableSet<Integer> undescribed = new TreeSet<>();
+
+
+
+        /**
+         * Populates the index through a single walk of the history of the
+         * project (or of its build metadata)
+         *
+         * @param project
+         *      Project from which to load the builds
+         * @param metadataIndex
+         *      Index of build metadata from which to populate; NULL to walk
+         *      the history of the project
+         */
+        public synchronized void populate(
+            final Job<?, ?> project,
+            final BuildMetadataIndex metadataIndex
+        ) {
+            if (metadataIndex == null) {
+                for (Run<?, ?> build : project.getBuilds()) {
+                    if (build != null) {
+                        this.put(build);
+                    }
+                }
+            } else {
+                this.populate(project, metadataIndex.getBuilds(project));
+            }
+        }
+
+        /**
+         * Populates the index from the build metadata of the project, loading
+         * only builds in progress (which are not recorded) and builds whose
+         * display names are recorded incompletely
+         *
+         * @param project
+         *      Project from which to load the builds
+         * @param builds
+         *      Metadata of the completed builds of the project
+         */
+        private void populate(final Job<?, ?> project, final Iterable<BuildMetadata> builds) {
+            for (
+                Run<?, ?> build = project.getLastBuild();
+                build != null && build.isBuilding();
+                build = build.getPreviousBuild()
+            ) {
+                this.put(build);
+            }
+
+            for (BuildMetadata metadata : builds) {
+                if (metadata.isDisplayNameComplete()) {
+                    this.put(metadata.getNumber(), metadata.getDisplayName(), metadata.getResult(), null);
+                    this.undescribed.add(metadata.getNumber());
+                    continue;
+                }
+
+                Run<?, ?> build = project.getBuildByNumber(metadata.getNumber());
+
+                if (build != null) {
+                    this.put(build);
+                }
+            }
+        }
+
+        /**
+         * Searches the index for the newest builds matching the given terms,
+         * loading the description of a build only where its other words do
+         * not match and its description has not yet been loaded
+         *
+         * The index is held only while each candidate is checked, and not
+         * while a build is loaded for its description
+         *
+         * @param project
+         *      Project from which to load descriptions
+         * @param terms
+         *      Lower case terms which must each begin a word of the build text
+         * @param result
+         *      Result which matching builds must have; NULL for any result
+         * @param limit
+         *      Maximum number of matches to return
+         * @param maxDescribed
+         *      Maximum number of builds whose descriptions are loaded; any
+         *      further builds are matched on their other words alone
+         * @return
+         *      Numbers of the newest matching builds, newest first
+         */
+        public List<Integer> search(
+            final Job<?, ?> project,
+            final String[] terms,
+            final Result result,
+            final int limit,
+            final int maxDescribed
+        ) {
+            final List<Integer> numbers = new ArrayList<>(Math.max(Math.min(limit, 64), 0));
+            final NavigableSet<Integer> candidates;
+
+            synchronized (this) {
+                candidates = this.getCandidates(terms);
+            }
+
+            int described = 0;
+
+            for (Integer number : candidates.descendingSet()) {
+                if (numbers.size() >= limit) {
+                    break;
+                }
+
+                Boolean matched = this.check(number, terms, result, described < maxDescribed);
+
+                if (matched == null) {
+                    described++;
+                    matched = this.describe(number, project.getBuildByNumber(number), terms);
+                }
+
+                if (matched) {
+                    numbers.add(number);
+                }
+            }
+
+            return numbers;
+        }
+
+        /**
+         * Records the searchable text of a given build, replacing any
+         * previously recorded for it
+         *
+         * @param build
+         *      Build to record
+         */
+        public synchronized void put(final Run<?, ?> build) {
+            this.put(build.getNumber(), build.getDisplayName(), build.getResult(), build.getDescription());
+        }
+
+        /**
+         * Removes a given build number from the index
+         *
+         * @param number
+         *      Build number
+         */
+        public synchronized void remove(final int number) {
+            this.results.remove(number);
+            this.undescribed.remove(number);
+
+            Set<String> words = this.wordsByNumber.remove(number);
+
+            if (words == null) {
+                return;
+            }
+
+            for (String word : words) {
+                NavigableSet<Integer> numbers = this.numbersByWord.get(word);
+
+                if (numbers != null && numbers.remove(number) && numbers.isEmpty()) {
+                    this.numbersByWord.remove(word);
+                }
+            }
+        }
+
+        /**
+         * Records the searchable text of a given build number, replacing any
+         * previously recorded for it
+         *
+         * @param number
+         *      Build number
+         * @param displayName
+         *      Display name of the build
+         * @param result
+         *      Result of the build; NULL if it has not completed
+         * @param description
+         *      Description of the build; NULL if it has none
+         */
+        private void put(final int number, final String displayName, final Result result, final String description) {
+            this.remove(number);
+
+            Set<String> words = new LinkedHashSet<>();
+
+            words.add("#" + number);
+            words.add(Integer.toString(number));
+            Collections.addAll(words, toTerms(displayName));
+            Collections.addAll(words, toTerms(result != null ? result.toString() : null));
+            Collections.addAll(words, toTerms(description));
+
+            for (String word : words) {
+                NavigableSet<Integer> numbers = this.numbersByWord.get(word);
+
+                if (numbers == null) {
+                    this.numbersByWord.put(word, (numbers = new TreeSet<>()));
+                }
+
+                numbers.add(number);
+            }
+
+            this.results.put(number, result);
+            this.wordsByNumber.put(number, words);
+        }
+
+        /**
+         * Retrieves the numbers of the builds which may match the given
+         * terms: those with a word beginning with every term, along with
+         * those whose descriptions have yet to be loaded
+         *
+         * @param terms
+         *      Lower case terms
+         * @return
+         *      Numbers of the candidate builds, in a set of their own
+         */
+        private NavigableSet<Integer> getCandidates(final String[] terms) {
+            if (terms.length == 0) {
+                return new TreeSet<>(this.results.keySet());
+            }
+
+            NavigableSet<Integer> candidates = null;
+
+            for (String term : terms) {
+                NavigableSet<Integer> matching = new TreeSet<>(this.undescribed);
+
+                for (NavigableSet<Integer> numbers : this.numbersByWord.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+                    matching.addAll(numbers);
+                }
+
+                if (candidates == null) {
+                    candidates = matching;
+                } else {
+                    candidates.retainAll(matching);
+                }
+
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+
+            return candidates;
+        }
+
+        /**
+         * Indicates whether or not a word of the recorded text of a given
+         * build begins with every one of the given terms
+         *
+         * @param number
+         *      Build number
+         * @param terms
+         *      Lower case terms
+         * @return
+         *      TRUE if the build matches; otherwise FALSE
+         */
+        private boolean matches(final int number, final String[] terms) {
+            Set<String> words = this.wordsByNumber.get(number);
+
+            if (words == null) {
+                return false;
+            }
+
+            for (String term : terms) {
+                if (!matchesAny(words, term)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Indicates whether or not a given candidate build matches the given
+         * terms and result on the text recorded for it
+         *
+         * @param number
+         *      Build number
+         * @param terms
+         *      Lower case terms
+         * @param result
+         *      Result which the build must have; NULL for any result
+         * @param mayDescribe
+         *      Whether or not the description of the build may yet be loaded
+         * @return
+         *      TRUE if the build matches; FALSE if it does not; NULL if its
+         *      description must be loaded to decide
+         */
+        private synchronized Boolean check(
+            final int number,
+            final String[] terms,
+            final Result result,
+            final boolean mayDescribe
+        ) {
+            if (result != null && this.results.get(number) != result) {
+                return Boolean.FALSE;
+            }
+
+            if (this.matches(number, terms)) {
+                return Boolean.TRUE;
+            }
+
+            return (mayDescribe && this.undescribed.contains(number) ? null : Boolean.FALSE);
+        }
+
+        /**
+         * Records the description of a given build, loaded for a search, and
+         * indicates whether or not the build then matches the given terms; a
+         * build which no longer exists is removed from the index
+         *
+         * @param number
+         *      Build number
+         * @param build
+         *      Build loaded by number; NULL if it no longer exists
+         * @param terms
+         *      Lower case terms
+         * @return
+         *      TRUE if the build matches; otherwise FALSE
+         */
+        private synchronized boolean describe(final int number, final Run<?, ?> build, final String[] terms) {
+            if (build == null) {
+                this.remove(number);
+                return false;
+            }
+
+            // The build may since have been recorded anew through the listener
+            if (this.undescribed.contains(number)) {
+                this.put(build);
+            }
+
+            return this.matches(number, terms);
+        }
+
+        /**
+         * Indicates whether or not any of a set of words begins with a term
+         *
+         * @param words
+         *      Words to check
+         * @param term
+         *      Lower case term
+         * @return
+         *      TRUE if a word begins with the term; otherwise FALSE
+         */
+        private static boolean matchesAny(final Set<String> words, final String term) {
+            for (String word : words) {
+                if (word.startsWith(term)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,369 @@
+/**
+ * DisplayNameBuildIndex.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import hudson.model.Run;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+
+
+/**
+ * DisplayNameBuildIndex - per-project index of build display names to build
+ * numbers, so that a build may be located by display name without loading
+ * every build in the history of a project
+ *
+ * The index for a project is populated by a single walk of its history the
+ * first time it is looked up, and is thereafter kept current through
+ * {@link BuildIndexListener}
+ *
+ * Where a {@link BuildMetadataIndex} is given, the index is populated from
+ * its records instead, so that only builds in progress (and those whose
+ * display names are too long to be recorded in full) are loaded
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class DisplayNameBuildIndex implements BuildIndex {
+
+    /**
+     * Shared instance, registered for notification of build and project changes
+     */
+    private static final DisplayNameBuildIndex INSTANCE = BuildIndexListener.register(
+        new DisplayNameBuildIndex(BuildMetadataIndex.getInstance())
+    );
+
+    /**
+     * Index of build metadata from which to populate project indexes; NULL
+     * if they are populated from the history of each project
+     */
+    private final BuildMetadataIndex metadataIndex;
+
+    /**
+     * Indexes of display names to build numbers, keyed by project full name
+     */
+    private final ProjectIndexes<ProjectIndex> projectIndexes = new ProjectIndexes<>(
+        new ProjectIndexes.Loader<ProjectIndex>() {
+            @Override
+            public ProjectIndex load(final Job<?, ?> project) {
+                return DisplayNameBuildIndex.this.loadProjectIndex(project);
+            }
+        }
+    );
+
+
+
+    /**
+     * Constructor - creates a new instance of DisplayNameBuildIndex
+     *
+     * @param metadataIndex
+     *      Index of build metadata from which to populate project indexes;
+     *      NULL if they are to be populated from the history of each project
+     */
+    public DisplayNameBuildIndex(final BuildMetadataIndex metadataIndex) {
+        this.metadataIndex = metadataIndex;
+    }
+
+    /**
+     * Constructor - creates a new instance of DisplayNameBuildIndex which
+     * populates project indexes from the history of each project
+     */
+    public DisplayNameBuildIndex() {
+        this(null);
+    }
+
+    /**
+     * Getter for the shared instance
+     *
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static DisplayNameBuildIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks up the number of the newest build in a project with a given
+     * display name
+     *
+     * @param project
+     *      Project in which to look up the build
+     * @param displayName
+     *      Display name of the target build
+     * @return
+     *      Build number of the newest build with the given display name,
+     *      or NULL if no such build exists
+     */
+    public Integer lookup(final AbstractProject project, final String displayName) {
+        return this.getProjectIndex(project).lookup(displayName);
+    }
+
+    /**
+     * Discards the index for a given project, which will be rebuilt on the
+     * next lookup
+     *
+     * @param project
+     *      Project for which to discard the index
+     */
+    public void invalidate(final AbstractProject project) {
+        this.projectIndexes.remove(project.getFullName());
+    }
+
+    /**
+     * Records a new or changed build in the index, if its project has
+     * already been indexed
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        ProjectIndex index = this.getExistingProjectIndex(build);
+
+        if (index != null) {
+            index.put(build.getNumber(), build.getDisplayName());
+        }
+    }
+
+    /**
+     * Removes a deleted build from the index, if its project has already
+     * been indexed
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        ProjectIndex index = this.getExistingProjectIndex(build);
+
+        if (index != null) {
+            index.remove(build.getNumber());
+        }
+    }
+
+    /**
+     * Discards the index for a given project
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        this.projectIndexes.remove(projectFullName);
+    }
+
+    /**
+     * Retrieves the index for a given project, populating it if it has not
+     * yet been populated for the project object; concurrent lookups in the
+     * same project wait for (and share) a single population
+     *
+     * @param project
+     *      Project for which to retrieve the index
+     * @return
+     *      Populated index for the given project
+     */
+    protected ProjectIndex getProjectIndex(final Job<?, ?> project) {
+        return this.projectIndexes.get(project);
+    }
+
+    /**
+     * Retrieves the existing index for the project of a given build, without
+     * creating one
+     *
+     * @param build
+     *      Build for whose project to retrieve the index
+     * @return
+     *      Index for the project of the given build, or NULL if the project
+     *      has not been indexed
+     */
+    protected ProjectIndex getExistingProjectIndex(final Run<?, ?> build) {
+        final Job<?, ?> project = build.getParent();
+
+        return (project != null ? this.projectIndexes.getExisting(project) : null);
+    }
+
+    /**
+     * Creates and populates the index for a given project
+     *
+     * @param project
+     *      Project for which to populate the index
+     * @return
+     *      Populated index for the given project
+     */
+    protected ProjectIndex loadProjectIndex(final Job<?, ?> project) {
+        ProjectIndex index = new ProjectIndex();
+
+        index.populate(project, this.metadataIndex);
+
+        return index;
+    }
+
+
+
+    /**
+     * Index of display names to build numbers for a single project
+     */
+    protected static class ProjectIndex {
+
+        /**
+         * Build numbers, keyed by display name; more than one build may
+         * share a display name
+         */
+        private final Map<String, NavigableSet<Integer>> numbersByName = new HashMap<>();
+
+        /**
+         * Display names, keyed by build number
+         */
+        private final Map<Integer, String> namesByNumber = new HashMap<>();
+
+
+
+        /**
+         * Populates the index through a single walk of the history of the
+         * project (or of its build metadata)
+         *
+         * @param project
+         *      Project from which to load the builds
+         * @param metadataIndex
+         *      Index of build metadata from which to populate; NULL to walk
+         *      the history of the project
+         */
+        public synchronized void populate(
+            final Job<?, ?> project,
+            final BuildMetadataIndex metadataIndex
+        ) {
+            if (metadataIndex == null) {
+                for (Run<?, ?> build : project.getBuilds()) {
+                    if (build != null) {
+                        this.put(build.getNumber(), build.getDisplayName());
+                    }
+                }
+            } else {
+                this.populate(project, metadataIndex.getBuilds(project));
+            }
+        }
+
+        /**
+         * Populates the index from the build metadata of the project, loading
+         * only builds in progress (which are not recorded) and builds whose
+         * display names are recorded incompletely
+         *
+         * @param project
+         *      Project from which to load the builds
+         * @param builds
+         *      Metadata of the completed builds of the project
+         */
+        private void populate(final Job<?, ?> project, final Iterable<BuildMetadata> builds) {
+            for (
+                Run<?, ?> build = project.getLastBuild();
+                build != null && build.isBuilding();
+                build = build.getPreviousBuild()
+            ) {
+                this.put(build.getNumber(), build.getDisplayName());
+            }
+
+            for (BuildMetadata metadata : builds) {
+                if (metadata.isDisplayNameComplete()) {
+                    this.put(metadata.getNumber(), metadata.getDisplayName());
+                    continue;
+                }
+
+                Run<?, ?> build = project.getBuildByNumber(metadata.getNumber());
+
+                if (build != null) {
+                    this.put(build.getNumber(), build.getDisplayName());
+                }
+            }
+        }
+
+        /**
+         * Looks up the number of the newest build with a given display name
+         *
+         * @param displayName
+         *      Display name of the target build
+         * @return
+         *      Build number, or NULL if no build has the given display name
+         */
+        public synchronized Integer lookup(final String displayName) {
+            NavigableSet<Integer> numbers = this.numbersByName.get(displayName);
+
+            return (numbers != null && !numbers.isEmpty() ? numbers.last() : null);
+        }
+
+        /**
+         * Records the display name of a given build number, replacing any
+         * display name previously recorded for it
+         *
+         * @param number
+         *      Build number
+         * @param displayName
+         *      Display name of the build
+         */
+        public synchronized void put(final int number, final String displayName) {
+            this.remove(number);
+
+            if (displayName == null) {
+                return;
+            }
+
+            NavigableSet<Integer> numbers = this.numbersByName.get(displayName);
+
+            if (numbers == null) {
+                this.numbersByName.put(displayName, (numbers = new TreeSet<>()));
+            }
+
+            numbers.add(number);
+            this.namesByNumber.put(number, displayName);
+        }
+
+        /**
+         * Removes a given build number from the index
+         *
+         * @param number
+         *      Build number
+         */
+        public synchronized void remove(final int number) {
+            String displayName = this.namesByNumber.remove(number);
+
+            if (displayName == null) {
+                return;
+            }
+
+            NavigableSet<Integer> numbers = this.numbersByName.get(displayName);
+
+            if (numbers != null && numbers.remove(number) && numbers.isEmpty()) {
+                this.numbersByName.remove(displayName);
+            }
+        }
+
+    }
+
+}
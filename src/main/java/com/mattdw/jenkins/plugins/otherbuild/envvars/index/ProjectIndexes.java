@@ -0,0 +1,240 @@
+/**
+ * ProjectIndexes.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.Job;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+
+/**
+ * ProjectIndexes - the per-project state of a {@link BuildIndex}, keyed by
+ * project full name, each loaded at most once per project object
+ *
+ * Each project has its own holder, so loading the state of one project (which
+ * may walk its entire history) blocks only those requests which need the state
+ * of the same project. State loaded for a different project object (one
+ * deleted and recreated under the same name, or replaced by a configuration
+ * reload) cannot be trusted, so is replaced
+ *
+ * @param <I>
+ *      Type of the per-project state
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ProjectIndexes<I> {
+
+    /**
+     * Loads the state of a single project
+     */
+    public interface Loader<I> {
+
+        /**
+         * Loads the state of a given project
+         *
+         * @param project
+         *      Project for which to load the state
+         * @return
+         *      Loaded state of the project; never NULL
+         */
+        public I load(Job<?, ?> project);
+
+    }
+
+
+
+    /**
+     * Loader of the state of each project
+     */
+    private final Loader<I> loader;
+
+    /**
+     * Holders of the state of each project, keyed by project full name
+     */
+    private final ConcurrentMap<String, Holder<I>> holders = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Constructor - creates a new instance of ProjectIndexes
+     *
+     * @param loader
+     *      Loader of the state of each project
+     */
+    public ProjectIndexes(final Loader<I> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Retrieves the state of a given project, loading it if it has not yet
+     * been loaded for the project object; concurrent requests for the same
+     * project wait for (and share) a single load
+     *
+     * @param project
+     *      Project for which to retrieve the state
+     * @return
+     *      Loaded state of the project
+     */
+    public I get(final Job<?, ?> project) {
+        final String fullName = project.getFullName();
+
+        while (true) {
+            Holder<I> holder = this.holders.get(fullName);
+
+            if (holder == null || !holder.isFor(project)) {
+                Holder<I> created = new Holder<>(project);
+
+                // Another request may have installed (or replaced) the holder in the meantime
+                if (holder == null ? this.holders.putIfAbsent(fullName, created) != null : !this.holders.replace(fullName, holder, created)) {
+                    continue;
+                }
+
+                holder = created;
+            }
+
+            return holder.get(this.loader, project);
+        }
+    }
+
+    /**
+     * Retrieves the state of a given project, if it has already been loaded
+     * (or is being loaded) for the project object, without loading it
+     *
+     * @param project
+     *      Project for which to retrieve the state
+     * @return
+     *      Loaded state of the project, or NULL if it has not been loaded
+     */
+    public I getExisting(final Job<?, ?> project) {
+        Holder<I> holder = this.holders.get(project.getFullName());
+
+        return (holder != null && holder.isFor(project) ? holder.getLoaded() : null);
+    }
+
+    /**
+     * Indicates whether or not the state of a project is held, whichever
+     * project object it was loaded for
+     *
+     * @param projectFullName
+     *      Full name of the project
+     * @return
+     *      TRUE if state is held for the project; otherwise FALSE
+     */
+    public boolean contains(final String projectFullName) {
+        return this.holders.containsKey(projectFullName);
+    }
+
+    /**
+     * Discards the state of a given project, which will be loaded again on
+     * the next request for it
+     *
+     * @param projectFullName
+     *      Full name of the project
+     */
+    public void remove(final String projectFullName) {
+        if (projectFullName != null) {
+            this.holders.remove(projectFullName);
+        }
+    }
+
+
+
+    /**
+     * Holder of the state of a single project object
+     */
+    private static final class Holder<I> {
+
+        /**
+         * Project for which the state is held; held weakly so that a deleted
+         * project is not retained by stale state
+         */
+        private final WeakReference<Object> project;
+
+        /**
+         * Loaded state; NULL until loaded
+         */
+        private I index;
+
+
+
+        /**
+         * Constructor - creates a new instance of Holder
+         *
+         * @param project
+         *      Project for which the state is to be held
+         */
+        private Holder(final Object project) {
+            this.project = new WeakReference<>(project);
+        }
+
+        /**
+         * Indicates whether or not this holder is for a given project
+         *
+         * @param project
+         *      Project to check
+         * @return
+         *      TRUE if this holder was created for the given project object;
+         *      otherwise FALSE
+         */
+        private boolean isFor(final Object project) {
+            return (this.project.get() == project);
+        }
+
+        /**
+         * Retrieves the state, loading it if it has not yet been loaded; a
+         * failed load is retried on the next request
+         *
+         * @param loader
+         *      Loader of the state
+         * @param project
+         *      Project for which to load the state
+         * @return
+         *      Loaded state
+         */
+        private synchronized I get(final Loader<I> loader, final Job<?, ?> project) {
+            if (this.index == null) {
+                this.index = loader.load(project);
+            }
+
+            return this.index;
+        }
+
+        /**
+         * Retrieves the state, waiting for any load in progress
+         *
+         * @return
+         *      Loaded state, or NULL if it has not been loaded
+         */
+        private synchronized I getLoaded() {
+            return this.index;
+        }
+
+    }
+
+}
@@ -0,0 +1,841 @@
+/**
+ * VarValueBuildIndex.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment.EnvironmentSnapshot;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.AtomicFileWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+
+/**
+ * VarValueBuildIndex - per-project inverted index of the values of a configured
+ * set of parameters and environment variables to the numbers of the builds
+ * in which they took those values, so that (for example) the build with a
+ * given GIT_COMMIT may be located without walking the history of a project
+ *
+ * Builds are recorded as they complete, through {@link BuildIndexListener};
+ * the index of each project is persisted as a side file in the project
+ * directory, so it is reloaded rather than rebuilt after a restart. Each
+ * build recorded or removed is appended to the file, which is only rewritten
+ * (when loaded) once most of what it holds is of removed builds
+ *
+ * The index of each project records which variables it covers; the first
+ * lookup of a variable it does not cover (one newly added to the configured
+ * set, or any variable for a project not previously indexed) re-indexes the
+ * completed builds of the project through a single walk of its history, so
+ * that builds which completed before the variable was indexed are found too
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class VarValueBuildIndex implements BuildIndex {
+
+    /**
+     * Name of the index file within the project directory
+     */
+    public static final String FILE_NAME = "otherbuild-envvars-var-index.properties";
+
+    /**
+     * Logger for failures to read, write or populate the index (which are
+     * not fatal, as the affected builds are simply not found through it)
+     */
+    private static final Logger LOGGER = Logger.getLogger(VarValueBuildIndex.class.getName());
+
+    /**
+     * Shared instance, registered for notification of build and project changes
+     */
+    private static final VarValueBuildIndex INSTANCE = BuildIndexListener.register(
+        new VarValueBuildIndex()
+    );
+
+    /**
+     * Names of the parameters and environment variables whose values are indexed
+     */
+    private volatile Set<String> indexedVarNames = Collections.emptySet();
+
+    /**
+     * Indexes of variable values to build numbers, keyed by project full name
+     */
+    private final ProjectIndexes<ProjectIndex> projectIndexes = new ProjectIndexes<>(
+        new ProjectIndexes.Loader<ProjectIndex>() {
+            @Override
+            public ProjectIndex load(final Job<?, ?> project) {
+                return VarValueBuildIndex.this.loadProjectIndex(project);
+            }
+        }
+    );
+
+
+
+    /**
+     * Getter for the shared instance
+     *
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static VarValueBuildIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Parses a list of variable names
+     *
+     * @param varNames
+     *      Variable names, separated by commas, whitespace or new lines;
+     *      may be NULL
+     * @return
+     *      Distinct variable names, in the order given
+     */
+    public static Set<String> parseVarNames(final String varNames) {
+        Set<String> names = new LinkedHashSet<>();
+
+        if (varNames != null) {
+            for (String name : varNames.split("[,\\s]+")) {
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Getter for indexedVarNames
+     *
+     * @return
+     *      Names of the parameters and environment variables whose values
+     *      are indexed
+     */
+    public Set<String> getIndexedVarNames() {
+        return this.indexedVarNames;
+    }
+
+    /**
+     * Setter for indexedVarNames
+     *
+     * @param indexedVarNames
+     *      Names of the parameters and environment variables whose values
+     *      are to be indexed; NULL or empty to index none
+     */
+    public void setIndexedVarNames(final Collection<String> indexedVarNames) {
+        this.indexedVarNames = (
+            indexedVarNames != null && !indexedVarNames.isEmpty()
+            ? Collections.unmodifiableSet(new LinkedHashSet<>(indexedVarNames))
+            : Collections.<String>emptySet()
+        );
+    }
+
+    /**
+     * Indicates whether or not the values of a given variable are indexed
+     *
+     * @param varName
+     *      Name of the parameter or environment variable
+     * @return
+     *      TRUE if the values of the variable are indexed; otherwise FALSE
+     */
+    public boolean isIndexed(final String varName) {
+        return this.indexedVarNames.contains(varName);
+    }
+
+    /**
+     * Looks up the number of the newest build in a project in which a given
+     * variable took a given value
+     *
+     * @param project
+     *      Project in which to look up the build
+     * @param varName
+     *      Name of the parameter or environment variable
+     * @param value
+     *      Value of the variable in the target build
+     * @return
+     *      Build number of the newest build in which the variable took the
+     *      given value, or NULL if there is no such build or the variable
+     *      is not indexed
+     */
+    public Integer lookup(final Job<?, ?> project, final String varName, final String value) {
+        if (!this.isIndexed(varName)) {
+            return null;
+        }
+
+        final ProjectIndex index = this.getProjectIndex(project);
+
+        // Held throughout, so that concurrent lookups wait for a single re-index
+        synchronized (index) {
+            if (!index.covers(varName)) {
+                this.reindex(project, index, this.indexedVarNames);
+            }
+
+            return index.lookup(varName, value);
+        }
+    }
+
+    /**
+     * Records the values of the indexed variables of a completed build, if
+     * they have not already been recorded
+     *
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        final Set<String> varNames = this.indexedVarNames;
+        final Job<?, ?> project = build.getParent();
+
+        // Values are only final once a build has completed
+        if (varNames.isEmpty() || project == null || build.isBuilding()) {
+            return;
+        }
+
+        final ProjectIndex index = this.getProjectIndex(project);
+
+        // A build is saved for many reasons after it completes, none of which alter its variables
+        if (index.contains(build.getNumber())) {
+            return;
+        }
+
+        try {
+            index.put(build.getNumber(), this.readValues(build, varNames));
+            index.saveBuild(build.getNumber());
+
+            // A variable no longer indexed is not covered by builds which complete without it
+            if (index.retainVarNames(varNames)) {
+                index.saveVarNames();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to index variable values of " + build, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Removes a deleted build from the index
+     *
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        final Job<?, ?> project = build.getParent();
+
+        // Nothing is loaded merely to be removed from while no variables are indexed
+        if (project == null || (this.indexedVarNames.isEmpty() && !this.projectIndexes.contains(project.getFullName()))) {
+            return;
+        }
+
+        final ProjectIndex index = this.getProjectIndex(project);
+
+        try {
+            if (index.remove(build.getNumber())) {
+                index.saveRemoval(build.getNumber());
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to remove " + build + " from variable value index", ex);
+        }
+    }
+
+    /**
+     * Discards the loaded index for a given project; the index file moves
+     * or is deleted along with the project directory
+     *
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        this.projectIndexes.remove(projectFullName);
+    }
+
+    /**
+     * Reads the values of given variables in a given build, from its
+     * parameters where possible and otherwise from its environment
+     *
+     * @param build
+     *      Completed build from which to read the values
+     * @param varNames
+     *      Names of the variables to read
+     * @return
+     *      Values of those of the given variables which the build defines
+     * @throws IOException
+     *      If the environment of the build cannot be read
+     * @throws InterruptedException
+     *      If interrupted while reading the environment of the build
+     */
+    protected Map<String, String> readValues(
+        final Run<?, ?> build,
+        final Set<String> varNames
+    ) throws IOException, InterruptedException {
+        final Map<String, String> values = new HashMap<>();
+        final ParametersAction parameters = build.getAction(ParametersAction.class);
+
+        if (parameters != null) {
+            for (String varName : varNames) {
+                ParameterValue parameter = parameters.getParameter(varName);
+                Object value = (parameter != null ? parameter.getValue() : null);
+
+                if (value != null) {
+                    values.put(varName, value.toString());
+                }
+            }
+        }
+
+        // The environment is only derived where a parameter does not suffice
+        if (values.size() < varNames.size()) {
+            Map<String, String> env = EnvironmentSnapshot.load(build);
+
+            if (env == null) {
+                env = build.getEnvironment(TaskListener.NULL);
+            }
+
+            for (String varName : varNames) {
+                String value = env.get(varName);
+
+                if (value != null && !values.containsKey(varName)) {
+                    values.put(varName, value);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Re-indexes the values of given variables in the completed builds of a
+     * given project, through a single walk of its history
+     *
+     * @param project
+     *      Project to re-index
+     * @param index
+     *      Index of the project
+     * @param varNames
+     *      Names of the variables to index
+     */
+    protected void reindex(final Job<?, ?> project, final ProjectIndex index, final Set<String> varNames) {
+        final Iterable<? extends Run<?, ?>> builds = project.getBuilds();
+
+        if (builds != null) {
+            for (Run<?, ?> build : builds) {
+                if (build == null || build.isBuilding()) {
+                    continue;
+                }
+
+                try {
+                    index.put(build.getNumber(), this.readValues(build, varNames));
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Failed to index variable values of " + build, ex);
+                } catch (InterruptedException ex) {
+
+                    // Left uncovered, so that the re-index is attempted again
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        index.setVarNames(varNames);
+
+        try {
+            index.save();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to save variable value index of " + project.getFullName(), ex);
+        }
+    }
+
+    /**
+     * Retrieves the index for a given project, loading it from the index file
+     * of the project if it has not yet been loaded for the project object
+     *
+     * @param project
+     *      Project for which to retrieve the index
+     * @return
+     *      Loaded index for the given project
+     */
+    protected ProjectIndex getProjectIndex(final Job<?, ?> project) {
+        return this.projectIndexes.get(project);
+    }
+
+    /**
+     * Loads the index for a given project from the index file of the project
+     *
+     * @param project
+     *      Project for which to load the index
+     * @return
+     *      Loaded index for the given project; empty if it has no file or
+     *      the file cannot be read
+     */
+    protected ProjectIndex loadProjectIndex(final Job<?, ?> project) {
+        File rootDir = project.getRootDir();
+        ProjectIndex index = new ProjectIndex(rootDir != null ? new File(rootDir, FILE_NAME) : null);
+
+        try {
+            index.load();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to load variable value index of " + project.getFullName(), ex);
+        }
+
+        return index;
+    }
+
+
+
+    /**
+     * Index of variable values to build numbers for a single project
+     */
+    protected static class ProjectIndex {
+
+        /**
+         * Separator between the build number and the variable name in the
+         * keys of the index file
+         */
+        private static final char KEY_SEPARATOR = ':';
+
+        /**
+         * Value of the key of a build number which marks the build as removed,
+         * superseding anything recorded for it earlier in the index file
+         */
+        private static final String REMOVED = "-";
+
+        /**
+         * Key under which the names of the variables covered by the index are
+         * persisted in the index file
+         */
+        private static final String VAR_NAMES_KEY = "vars";
+
+        /**
+         * File in which the index is persisted; NULL if it is not persisted
+         */
+        private final File file;
+
+        /**
+         * Build numbers, keyed by variable name and then by value
+         */
+        private final Map<String, Map<String, NavigableSet<Integer>>> numbersByValue = new HashMap<>();
+
+        /**
+         * Indexed variable values, keyed by build number; a build is present
+         * (if only with an empty map) once its values have been read
+         */
+        private final Map<Integer, Map<String, String>> valuesByNumber = new HashMap<>();
+
+        /**
+         * Names of the variables whose values have been indexed for every
+         * completed build of the project
+         */
+        private Set<String> varNames = Collections.emptySet();
+
+
+
+        /**
+         * Constructor - creates a new instance of ProjectIndex
+         *
+         * @param file
+         *      File in which the index is persisted; NULL if it is not to
+         *      be persisted
+         */
+        public ProjectIndex(final File file) {
+            this.file = file;
+        }
+
+        /**
+         * Indicates whether or not the values of a given variable have been
+         * indexed for every completed build of the project
+         *
+         * @param varName
+         *      Name of the variable
+         * @return
+         *      TRUE if the variable is covered by the index; otherwise FALSE
+         */
+        public synchronized boolean covers(final String varName) {
+            return this.varNames.contains(varName);
+        }
+
+        /**
+         * Setter for the names of the variables covered by the index
+         *
+         * @param varNames
+         *      Names of the variables whose values have been indexed for
+         *      every completed build of the project
+         */
+        public synchronized void setVarNames(final Set<String> varNames) {
+            this.varNames = Collections.unmodifiableSet(new LinkedHashSet<>(varNames));
+        }
+
+        /**
+         * Restricts the names of the variables covered by the index to those
+         * in a given set
+         *
+         * @param varNames
+         *      Names of the variables which remain covered, if they were already
+         * @return
+         *      TRUE if any name was dropped; otherwise FALSE
+         */
+        public synchronized boolean retainVarNames(final Set<String> varNames) {
+            if (varNames.containsAll(this.varNames)) {
+                return false;
+            }
+
+            Set<String> retained = new LinkedHashSet<>(this.varNames);
+
+            retained.retainAll(varNames);
+            this.setVarNames(retained);
+
+            return true;
+        }
+
+        /**
+         * Indicates whether or not the values of a given build have been read
+         *
+         * @param number
+         *      Build number
+         * @return
+         *      TRUE if the build is present in the index; otherwise FALSE
+         */
+        public synchronized boolean contains(final int number) {
+            return this.valuesByNumber.containsKey(number);
+        }
+
+        /**
+         * Looks up the number of the newest build in which a given variable
+         * took a given value
+         *
+         * @param varName
+         *      Name of the variable
+         * @param value
+         *      Value of the variable
+         * @return
+         *      Build number, or NULL if no build is indexed with the value
+         */
+        public synchronized Integer lookup(final String varName, final String value) {
+            Map<String, NavigableSet<Integer>> values = this.numbersByValue.get(varName);
+            NavigableSet<Integer> numbers = (values != null ? values.get(value) : null);
+
+            return (numbers != null && !numbers.isEmpty() ? numbers.last() : null);
+        }
+
+        /**
+         * Records the variable values of a given build number, replacing any
+         * values previously recorded for it
+         *
+         * @param number
+         *      Build number
+         * @param values
+         *      Values of the indexed variables of the build
+         */
+        public synchronized void put(final int number, final Map<String, String> values) {
+            this.remove(number);
+
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                Map<String, NavigableSet<Integer>> numbersByValue = this.numbersByValue.get(entry.getKey());
+
+                if (numbersByValue == null) {
+                    this.numbersByValue.put(entry.getKey(), (numbersByValue = new HashMap<>()));
+                }
+
+                NavigableSet<Integer> numbers = numbersByValue.get(entry.getValue());
+
+                if (numbers == null) {
+                    numbersByValue.put(entry.getValue(), (numbers = new TreeSet<>()));
+                }
+
+                numbers.add(number);
+            }
+
+            this.valuesByNumber.put(number, new HashMap<>(values));
+        }
+
+        /**
+         * Removes a given build number from the index
+         *
+         * @param number
+         *      Build number
+         * @return
+         *      TRUE if the build was present in the index; otherwise FALSE
+         */
+        public synchronized boolean remove(final int number) {
+            Map<String, String> values = this.valuesByNumber.remove(number);
+
+            if (values == null) {
+                return false;
+            }
+
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                Map<String, NavigableSet<Integer>> numbersByValue = this.numbersByValue.get(entry.getKey());
+                NavigableSet<Integer> numbers = (numbersByValue != null ? numbersByValue.get(entry.getValue()) : null);
+
+                if (numbers != null && numbers.remove(number) && numbers.isEmpty()) {
+                    numbersByValue.remove(entry.getValue());
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Loads the index from its file, if the file exists
+         *
+         * @throws IOException
+         *      If the file exists but cannot be read
+         */
+        public synchronized void load() throws IOException {
+            if (this.file == null || !this.file.isFile()) {
+                return;
+            }
+
+            Properties properties = new Properties();
+
+            try (Reader reader = new InputStreamReader(new FileInputStream(this.file), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+
+            Map<Integer, Map<String, String>> loaded = new HashMap<>();
+            int removed = 0;
+
+            this.setVarNames(parseVarNames(properties.getProperty(VAR_NAMES_KEY)));
+
+            for (String key : properties.stringPropertyNames()) {
+                int separator = key.indexOf(KEY_SEPARATOR);
+
+                if (key.equals(VAR_NAMES_KEY)) {
+                    continue;
+                }
+
+                try {
+                    Integer number = Integer.valueOf(key.substring(0, separator < 0 ? key.length() : separator));
+
+                    if (REMOVED.equals(properties.getProperty(number.toString()))) {
+                        if (separator < 0) {
+                            removed++;
+                        }
+
+                        continue;
+                    }
+
+                    Map<String, String> values = loaded.get(number);
+
+                    if (values == null) {
+                        loaded.put(number, (values = new HashMap<>()));
+                    }
+
+                    // A key without a variable name marks a build which defines none of the variables
+                    if (separator >= 0 && separator < key.length() - 1) {
+                        values.put(key.substring(separator + 1), properties.getProperty(key));
+                    }
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.FINE, "Ignoring malformed key {0} in {1}", new Object[] {key, this.file});
+                }
+            }
+
+            for (Map.Entry<Integer, Map<String, String>> entry : loaded.entrySet()) {
+                this.put(entry.getKey(), entry.getValue());
+            }
+
+            // Rewritten without the removed builds once they make up most of the file
+            if (removed > loaded.size()) {
+                this.save();
+            }
+        }
+
+        /**
+         * Appends the recorded values of a given build to the index file
+         *
+         * @param number
+         *      Build number
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        public synchronized void saveBuild(final int number) throws IOException {
+            Map<String, String> values = this.valuesByNumber.get(number);
+
+            if (values != null) {
+                Properties properties = new Properties();
+
+                setProperties(properties, number, values);
+                this.append(properties);
+            }
+        }
+
+        /**
+         * Appends the removal of a given build to the index file
+         *
+         * @param number
+         *      Build number
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        public synchronized void saveRemoval(final int number) throws IOException {
+            Properties properties = new Properties();
+
+            properties.setProperty(String.valueOf(number), REMOVED);
+            this.append(properties);
+        }
+
+        /**
+         * Appends the names of the variables covered by the index to the
+         * index file
+         *
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        public synchronized void saveVarNames() throws IOException {
+            Properties properties = new Properties();
+
+            setVarNamesProperty(properties, this.varNames);
+            this.append(properties);
+        }
+
+        /**
+         * Saves the whole index to its file, replacing the file atomically
+         *
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        public synchronized void save() throws IOException {
+            if (this.file == null) {
+                return;
+            }
+
+            Properties properties = new Properties();
+
+            setVarNamesProperty(properties, this.varNames);
+
+            for (Map.Entry<Integer, Map<String, String>> entry : this.valuesByNumber.entrySet()) {
+                setProperties(properties, entry.getKey(), entry.getValue());
+            }
+
+            AtomicFileWriter writer = new AtomicFileWriter(this.file, StandardCharsets.UTF_8.name());
+
+            try {
+                properties.store(writer, null);
+                writer.commit();
+            } finally {
+                writer.abort();
+            }
+        }
+
+        /**
+         * Appends given properties to the index file, creating it if necessary;
+         * a key appended supersedes the same key earlier in the file
+         *
+         * @param properties
+         *      Properties to append
+         * @throws IOException
+         *      If the file cannot be written
+         */
+        private void append(final Properties properties) throws IOException {
+            if (this.file == null) {
+                return;
+            }
+
+            StringWriter text = new StringWriter();
+
+            properties.store(text, null);
+
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(this.file, true), StandardCharsets.UTF_8)) {
+                for (String line : text.toString().split("\\r?\\n")) {
+
+                    // The timestamp comment written by store() need not be repeated for every build
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        writer.write(line);
+                        writer.write(System.lineSeparator());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sets the property by which the names of the covered variables are
+         * persisted
+         *
+         * @param properties
+         *      Properties to set
+         * @param varNames
+         *      Names of the covered variables
+         */
+        private static void setVarNamesProperty(final Properties properties, final Set<String> varNames) {
+            StringBuilder names = new StringBuilder();
+
+            for (String name : varNames) {
+                names.append(names.length() > 0 ? "," : "").append(name);
+            }
+
+            properties.setProperty(VAR_NAMES_KEY, names.toString());
+        }
+
+        /**
+         * Sets the properties by which the values of a build are persisted
+         *
+         * @param properties
+         *      Properties to set
+         * @param number
+         *      Build number
+         * @param values
+         *      Values of the indexed variables of the build
+         */
+        private static void setProperties(
+            final Properties properties,
+            final int number,
+            final Map<String, String> values
+        ) {
+            String key = String.valueOf(number);
+
+            properties.setProperty(key, "");
+
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                properties.setProperty(key + KEY_SEPARATOR + value.getKey(), value.getValue());
+            }
+        }
+
+    }
+
+}
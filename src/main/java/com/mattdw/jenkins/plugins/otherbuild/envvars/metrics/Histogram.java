@@ -0,0 +1,230 @@
+/**
+ * Histogram.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+
+/**
+ * Histogram - concurrent, fixed-memory histogram of non-negative values (such
+ * as durations in nanoseconds), in the manner of an HDR histogram
+ * 
+ * Values are counted in log-linear buckets: each power of two is divided into
+ * 2^SUB_BUCKET_BITS linear sub-buckets, bounding the relative error of any
+ * reported percentile to 1/2^SUB_BUCKET_BITS (12.5%) across the entire range
+ * of a long, without allocation or locking on record
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class Histogram {
+
+    /**
+     * Number of bits of each value below its most significant bit which
+     * determine its sub-bucket
+     */
+    static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Number of sub-buckets into which each power of two is divided
+     */
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets, sufficient for any non-negative long
+     */
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /**
+     * Count of values recorded in each bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Total count of values recorded
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Sum of values recorded
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Largest value recorded
+     */
+    private final AtomicLong max = new AtomicLong();
+
+
+
+    /**
+     * Records a value; negative values are recorded as zero
+     * 
+     * @param value
+     *      Value to record
+     */
+    public void record(final long value) {
+        final long v = Math.max(0L, value);
+
+        this.counts.incrementAndGet(bucketIndex(v));
+        this.count.increment();
+        this.sum.add(v);
+
+        long current;
+        while (v > (current = this.max.get()) && !this.max.compareAndSet(current, v)) {
+            // Retry until this value is recorded as the maximum or exceeded
+        }
+    }
+
+    /**
+     * Getter for count
+     * 
+     * @return
+     *      Total count of values recorded
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Getter for sum
+     * 
+     * @return
+     *      Sum of values recorded
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Getter for max
+     * 
+     * @return
+     *      Largest value recorded; zero if none
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Calculates the mean of the values recorded
+     * 
+     * @return
+     *      Mean value; zero if none
+     */
+    public long getMean() {
+        long n = this.getCount();
+
+        return (n > 0 ? this.getSum() / n : 0L);
+    }
+
+    /**
+     * Calculates the value at a given percentile, to within the precision
+     * of the buckets
+     * 
+     * @param percentile
+     *      Percentile, between 0 and 100
+     * @return
+     *      Highest value of the bucket containing the given percentile
+     *      (capped at the largest value recorded); zero if none
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long total = this.getCount();
+
+        if (total == 0) {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * total));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += this.counts.get(i);
+
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), this.getMax());
+            }
+        }
+
+        return this.getMax();
+    }
+
+    /**
+     * Discards every value recorded
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            this.counts.set(i, 0L);
+        }
+
+        this.count.reset();
+        this.sum.reset();
+        this.max.set(0L);
+    }
+
+    /**
+     * Calculates the bucket in which a given value is counted
+     * 
+     * @param value
+     *      Non-negative value
+     * @return
+     *      Index of the bucket
+     */
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int magnitude = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        final int shift = magnitude - SUB_BUCKET_BITS;
+
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+    }
+
+    /**
+     * Calculates the highest value counted in a given bucket
+     * 
+     * @param index
+     *      Index of the bucket
+     * @return
+     *      Highest value counted in the bucket
+     */
+    static long highestValueOf(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long lowest = ((long) (SUB_BUCKET_COUNT | (index & (SUB_BUCKET_COUNT - 1)))) << shift;
+
+        return lowest + ((1L << shift) - 1);
+    }
+
+}
@@ -0,0 +1,379 @@
+/**
+ * ImportMetrics.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.metrics;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndexListener;
+import hudson.model.Run;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+
+
+/**
+ * ImportMetrics - timings and counts of the imports performed by every
+ * executor, for display on the {@link ImportMetricsManagementLink} page
+ * 
+ * The time taken by each phase of an import is recorded in a
+ * {@link Histogram}, as is the total time of imports from each upstream
+ * project (so that slow upstream projects can be identified); figures for a
+ * project are discarded when it is deleted, renamed or moved
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ImportMetrics implements BuildIndex {
+
+    /**
+     * Phases of an import, each of which is timed
+     */
+    public enum Phase {
+
+        /**
+         * Lookup of the upstream project by name
+         */
+        PROJECT_LOOKUP,
+
+        /**
+         * Lookup of the upstream build by identifier
+         */
+        BUILD_LOOKUP,
+
+        /**
+         * Computation (or loading) of the environment of the upstream build
+         */
+        ENVIRONMENT,
+
+        /**
+         * Transfer of the variables into the current build
+         */
+        TRANSFER
+
+    }
+
+    /**
+     * Counted events
+     */
+    public enum Counter {
+
+        /**
+         * Imports performed to completion (including each source of a
+         * multi-source import)
+         */
+        IMPORTS,
+
+        /**
+         * Variables imported
+         */
+        VARS_COPIED,
+
+        /**
+         * Environments shared from a computation already in flight or
+         * recently completed
+         */
+        CACHE_HITS,
+
+        /**
+         * Environments computed afresh
+         */
+        CACHE_MISSES,
+
+        /**
+         * Imports failed as the upstream project could not be found
+         */
+        PROJECT_NOT_FOUND,
+
+        /**
+         * Imports failed as the upstream build could not be found
+         */
+        BUILD_NOT_FOUND
+
+    }
+
+    /**
+     * Shared instance, registered for notification of project changes
+     */
+    private static final ImportMetrics INSTANCE = BuildIndexListener.register(new ImportMetrics());
+
+    /**
+     * Durations of each phase, in nanoseconds
+     */
+    private final Map<Phase, Histogram> phases = new EnumMap<>(Phase.class);
+
+    /**
+     * Counts of each event
+     */
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    /**
+     * Total durations of imports, in nanoseconds, keyed by upstream project
+     * full name
+     */
+    private final ConcurrentMap<String, Histogram> projects = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Constructor - creates a new instance of ImportMetrics
+     */
+    public ImportMetrics() {
+        for (Phase phase : Phase.values()) {
+            this.phases.put(phase, new Histogram());
+        }
+
+        for (Counter counter : Counter.values()) {
+            this.counters.put(counter, new LongAdder());
+        }
+    }
+
+    /**
+     * Getter for the shared instance
+     * 
+     * @return
+     *      Shared instance, registered for notification of project changes
+     */
+    public static ImportMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the duration of a phase
+     * 
+     * @param phase
+     *      Phase of the import
+     * @param nanos
+     *      Duration of the phase, in nanoseconds
+     */
+    public void recordPhase(final Phase phase, final long nanos) {
+        this.phases.get(phase).record(nanos);
+    }
+
+    /**
+     * Records the total duration of an import from a given upstream project
+     * 
+     * @param projectFullName
+     *      Full name of the upstream project
+     * @param nanos
+     *      Total duration of the import, in nanoseconds
+     */
+    public void recordProject(final String projectFullName, final long nanos) {
+        if (projectFullName == null) {
+            return;
+        }
+
+        Histogram histogram = this.projects.get(projectFullName);
+
+        if (histogram == null) {
+            Histogram created = new Histogram();
+
+            histogram = this.projects.putIfAbsent(projectFullName, created);
+            histogram = (histogram != null ? histogram : created);
+        }
+
+        histogram.record(nanos);
+    }
+
+    /**
+     * Increments a counter by one
+     * 
+     * @param counter
+     *      Counter to increment
+     */
+    public void increment(final Counter counter) {
+        this.counters.get(counter).increment();
+    }
+
+    /**
+     * Increments a counter by a given amount
+     * 
+     * @param counter
+     *      Counter to increment
+     * @param amount
+     *      Amount by which to increment the counter
+     */
+    public void add(final Counter counter, final long amount) {
+        this.counters.get(counter).add(amount);
+    }
+
+    /**
+     * Getter for the histogram of a phase
+     * 
+     * @param phase
+     *      Phase of the import
+     * @return
+     *      Durations of the phase, in nanoseconds
+     */
+    public Histogram getPhase(final Phase phase) {
+        return this.phases.get(phase);
+    }
+
+    /**
+     * Getter for the count of an event
+     * 
+     * @param counter
+     *      Counted event
+     * @return
+     *      Count of the event
+     */
+    public long getCount(final Counter counter) {
+        return this.counters.get(counter).sum();
+    }
+
+    /**
+     * Getter for the histograms of each upstream project
+     * 
+     * @return
+     *      Total durations of imports, in nanoseconds, keyed by upstream
+     *      project full name in name order
+     */
+    public Map<String, Histogram> getProjects() {
+        return Collections.unmodifiableMap(new TreeMap<>(this.projects));
+    }
+
+    /**
+     * Discards every figure recorded
+     */
+    public void reset() {
+        for (Histogram histogram : this.phases.values()) {
+            histogram.reset();
+        }
+
+        for (LongAdder counter : this.counters.values()) {
+            counter.reset();
+        }
+
+        this.projects.clear();
+    }
+
+    /**
+     * Produces a JSON representation of every figure recorded, with
+     * durations in microseconds
+     * 
+     * @return
+     *      JSON object of phases, counters and upstream projects
+     */
+    public JSONObject toJSON() {
+        JSONObject phasesJson = new JSONObject();
+        for (Phase phase : Phase.values()) {
+            phasesJson.put(phase.name(), toJSON(this.phases.get(phase)));
+        }
+
+        JSONObject countersJson = new JSONObject();
+        for (Counter counter : Counter.values()) {
+            countersJson.put(counter.name(), this.getCount(counter));
+        }
+
+        JSONArray projectsJson = new JSONArray();
+        for (Map.Entry<String, Histogram> project : this.getProjects().entrySet()) {
+            JSONObject projectJson = toJSON(project.getValue());
+            projectJson.put("project", project.getKey());
+            projectsJson.add(projectJson);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("phases", phasesJson);
+        json.put("counters", countersJson);
+        json.put("projects", projectsJson);
+
+        return json;
+    }
+
+    /**
+     * Produces a JSON representation of a histogram of durations
+     * 
+     * @param histogram
+     *      Histogram of durations, in nanoseconds
+     * @return
+     *      JSON object of count and summary statistics, in microseconds
+     */
+    private static JSONObject toJSON(final Histogram histogram) {
+        JSONObject json = new JSONObject();
+
+        json.put("count", histogram.getCount());
+        json.put("meanMicros", toMicros(histogram.getMean()));
+        json.put("p50Micros", toMicros(histogram.getValueAtPercentile(50)));
+        json.put("p90Micros", toMicros(histogram.getValueAtPercentile(90)));
+        json.put("p99Micros", toMicros(histogram.getValueAtPercentile(99)));
+        json.put("maxMicros", toMicros(histogram.getMax()));
+
+        return json;
+    }
+
+    /**
+     * Converts nanoseconds to microseconds, for display
+     * 
+     * @param nanos
+     *      Duration in nanoseconds
+     * @return
+     *      Duration in microseconds
+     */
+    public static long toMicros(final long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Not used in this implementation; figures are kept per project only
+     * 
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+    }
+
+    /**
+     * Not used in this implementation; figures are kept per project only
+     * 
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+    }
+
+    /**
+     * Discards the figures recorded for a given upstream project
+     * 
+     * @param projectFullName
+     *      Full name of the project as it was recorded
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        if (projectFullName != null) {
+            this.projects.remove(projectFullName);
+        }
+    }
+
+}
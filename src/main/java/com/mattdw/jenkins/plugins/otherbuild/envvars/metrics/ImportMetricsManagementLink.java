@@ -0,0 +1,201 @@
+/**
+ * ImportMetricsManagementLink.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.metrics;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+import hudson.Extension;
+import hudson.model.ManagementLink;
+import java.io.IOException;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+
+
+/**
+ * ImportMetricsManagementLink - page under "Manage Jenkins" displaying the
+ * {@link ImportMetrics} of imports from other builds, which are also
+ * available as JSON at <pre>json</pre> beneath the page
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@Extension
+public class ImportMetricsManagementLink extends ManagementLink {
+
+    /**
+     * URL name of the page, relative to the Jenkins management page
+     */
+    public static final String URL_NAME = "otherbuild-envvars-metrics";
+
+    /**
+     * Metrics displayed on the page
+     */
+    private final ImportMetrics metrics;
+
+
+
+    /**
+     * Constructor - creates a new instance of ImportMetricsManagementLink
+     * 
+     * @param metrics
+     *      Metrics displayed on the page
+     */
+    public ImportMetricsManagementLink(final ImportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructor - creates a new instance of ImportMetricsManagementLink
+     * displaying the shared metrics
+     */
+    public ImportMetricsManagementLink() {
+        this(ImportMetrics.getInstance());
+    }
+
+    /**
+     * Getter for metrics
+     * 
+     * @return
+     *      Metrics displayed on the page
+     */
+    public ImportMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Getter for the phases of an import, for display
+     * 
+     * @return
+     *      Every phase of an import
+     */
+    public ImportMetrics.Phase[] getPhases() {
+        return ImportMetrics.Phase.values();
+    }
+
+    /**
+     * Getter for the counted events, for display
+     * 
+     * @return
+     *      Every counted event
+     */
+    public ImportMetrics.Counter[] getCounters() {
+        return ImportMetrics.Counter.values();
+    }
+
+    /**
+     * Converts nanoseconds to microseconds, for display
+     * 
+     * @param nanos
+     *      Duration in nanoseconds
+     * @return
+     *      Duration in microseconds
+     */
+    public long toMicros(final long nanos) {
+        return ImportMetrics.toMicros(nanos);
+    }
+
+    /**
+     * Writes the metrics as JSON
+     * 
+     * @param req
+     *      Stapler request
+     * @param rsp
+     *      Stapler response to which the JSON is written
+     * @throws IOException 
+     *      If the response cannot be written
+     */
+    public void doJson(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().write(this.metrics.toJSON().toString());
+    }
+
+    /**
+     * Discards every figure recorded and returns to the page
+     * 
+     * @return
+     *      Redirection to the page
+     */
+    @RequirePOST
+    public HttpResponse doReset() {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+
+        this.metrics.reset();
+
+        return HttpResponses.redirectToDot();
+    }
+
+    /**
+     * Getter for icon file name
+     * 
+     * @return
+     *      Icon displayed on the management page
+     */
+    @Override
+    public String getIconFileName() {
+        return "monitor.png";
+    }
+
+    /**
+     * Getter for URL name
+     * 
+     * @return
+     *      URL name of the page, relative to the Jenkins management page
+     */
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Getter for display name
+     * 
+     * @return
+     *      Display name of the page
+     */
+    @Override
+    public String getDisplayName() {
+        return Messages.ImportMetricsManagementLink_DisplayName();
+    }
+
+    /**
+     * Getter for description
+     * 
+     * @return
+     *      Description of the page, displayed on the management page
+     */
+    @Override
+    public String getDescription() {
+        return Messages.ImportMetricsManagementLink_Description();
+    }
+
+}
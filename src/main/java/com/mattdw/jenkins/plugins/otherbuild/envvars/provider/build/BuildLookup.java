@@ -0,0 +1,89 @@
+/**
+ * BuildLookup.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import hudson.model.AbstractBuild;
+
+
+
+/**
+ * BuildLookup - compound, immutable object designed to store a build located
+ * by a build provider, together with the means by which it was located
+ * 
+ * @param <B> Type of build (must extend {@link AbstractBuild}
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class BuildLookup <B extends AbstractBuild> {
+
+    /**
+     * Build located
+     */
+    private final B build;
+
+    /**
+     * Means by which the build was located
+     */
+    private final BuildLookupStrategy strategy;
+
+
+
+    /**
+     * Constructor - creates a new instance of BuildLookup
+     * 
+     * @param build
+     *      Build located
+     * @param strategy 
+     *      Means by which the build was located
+     */
+    public BuildLookup(final B build, final BuildLookupStrategy strategy) {
+        this.build = build;
+        this.strategy = strategy;
+    }
+
+    /**
+     * Getter for build
+     * 
+     * @return 
+     *      Build located
+     */
+    public B getBuild() {
+        return this.build;
+    }
+
+    /**
+     * Getter for strategy
+     * 
+     * @return 
+     *      Means by which the build was located
+     */
+    public BuildLookupStrategy getStrategy() {
+        return this.strategy;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * BuildLookupStrategy.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+
+
+/**
+ * BuildLookupStrategy - means by which a build provider located a build
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public enum BuildLookupStrategy {
+
+    /**
+     * Resolved through a permalink of the project (e.g. lastSuccessfulBuild)
+     */
+    PERMALINK,
+
+    /**
+     * Found by display name through the display name index
+     */
+    INDEX,
+
+    /**
+     * Found by the value of a parameter or environment variable through the
+     * variable value index
+     */
+    VAR_VALUE,
+
+    /**
+     * Found by build number (or build ID)
+     */
+    NUMBER,
+
+    /**
+     * Found by display name through a walk of the history of the project
+     * (or, for an aggregate import, found newest first through such a walk)
+     */
+    SCAN,
+
+    /**
+     * Found by result through the build metadata index, for an aggregate
+     * import of the builds of a given result
+     */
+    RESULT_INDEX,
+
+    /**
+     * Found by a provider which does not report how it located the build
+     */
+    UNKNOWN
+
+}
@@ -35,7 +35,7 @@ import hudson.model.AbstractProject;
  * 
  * @author M.D.Ward <dev@mattdw.co.uk>
  */
-public class BuildNumberExternalBuildProvider implements ExternalBuildProvider<AbstractProject, AbstractBuild> {
+public class BuildNumberExternalBuildProvider implements LookupReportingExternalBuildProvider<AbstractProject, AbstractBuild> {
 
     /**
      * Provides a target build by build number and project
@@ -54,14 +54,63 @@ public class BuildNumberExternalBuildProvider implements ExternalBuildProvider<A
     public AbstractBuild provideBuild(
         AbstractProject project,
         String id
+    ) throws BuildNotFoundException {
+        return this.lookupBuild(project, id).getBuild();
+    }
+
+    /**
+     * Provides a target build by build number and project, together with the
+     * means by which it was located
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Build number of the target build
+     * @return
+     *      Target build (if it can be found), located by number
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given build number (id)
+     *      for the given project
+     */
+    @Override
+    public BuildLookup<AbstractBuild> lookupBuild(
+        AbstractProject project,
+        String id
     ) throws BuildNotFoundException {
         AbstractBuild build = project.getBuild(id);
 
         if (build != null) {
-            return build;
+            return new BuildLookup<>(build, BuildLookupStrategy.NUMBER);
         }
         
         throw new BuildNotFoundException(project.getName(), id);
     }
 
+    /**
+     * Provides a target build by build number and project, together with the
+     * means by which it was located; as identifiers are only ever build
+     * numbers, the order is ignored
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Build number of the target build
+     * @param order
+     *      Order in which the identifier is tried as a display name and as
+     *      a build number; ignored
+     * @return
+     *      Target build (if it can be found), located by number
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given build number (id)
+     *      for the given project
+     */
+    @Override
+    public BuildLookup<AbstractBuild> lookupBuild(
+        AbstractProject project,
+        String id,
+        BuildResolutionOrder order
+    ) throws BuildNotFoundException {
+        return this.lookupBuild(project, id);
+    }
+
 }
@@ -0,0 +1,76 @@
+/**
+ * BuildResolutionOrder.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+
+
+
+/**
+ * BuildResolutionOrder - order in which a build identifier is tried as a
+ * display name and as a build number when locating a build
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public enum BuildResolutionOrder {
+
+    /**
+     * Identifiers are matched against display names first, falling back to
+     * build numbers; a numeric display name takes precedence over a build
+     * with that number
+     */
+    NAME_FIRST {
+        @Override
+        public String getDisplayName() {
+            return Messages.BuildResolutionOrder_NameFirst();
+        }
+    },
+
+    /**
+     * Numeric identifiers are looked up directly by build number, without
+     * any walk through the history of the project, falling back to display
+     * names only where there is no build with that number
+     */
+    NUMBER_FIRST {
+        @Override
+        public String getDisplayName() {
+            return Messages.BuildResolutionOrder_NumberFirst();
+        }
+    };
+
+
+
+    /**
+     * Getter for displayName
+     * 
+     * @return 
+     *      Name of the order, for display
+     */
+    public abstract String getDisplayName();
+
+}
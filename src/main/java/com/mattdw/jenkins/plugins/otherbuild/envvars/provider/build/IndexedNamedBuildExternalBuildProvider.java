@@ -0,0 +1,157 @@
+/**
+ * IndexedNamedBuildExternalBuildProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+
+
+/**
+ * IndexedNamedBuildExternalBuildProvider - Provides builds identified primarily
+ * by display name, falling back to the build number upon failure, with display
+ * names resolved through a {@link DisplayNameBuildIndex} rather than a walk
+ * through the entire history of the project
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class IndexedNamedBuildExternalBuildProvider extends NamedBuildExternalBuildProvider {
+
+    /**
+     * Index of build display names to build numbers
+     */
+    protected final DisplayNameBuildIndex index;
+
+
+
+    /**
+     * Constructor - creates a new instance of IndexedNamedBuildExternalBuildProvider
+     *
+     * @param index
+     *      Index of build display names to build numbers
+     */
+    public IndexedNamedBuildExternalBuildProvider(final DisplayNameBuildIndex index) {
+        this(index, BuildResolutionOrder.NAME_FIRST);
+    }
+
+    /**
+     * Constructor - creates a new instance of IndexedNamedBuildExternalBuildProvider
+     *
+     * @param index
+     *      Index of build display names to build numbers
+     * @param resolutionOrder
+     *      Default order in which identifiers are tried as display names and
+     *      build numbers
+     */
+    public IndexedNamedBuildExternalBuildProvider(
+        final DisplayNameBuildIndex index,
+        final BuildResolutionOrder resolutionOrder
+    ) {
+        super(resolutionOrder);
+
+        this.index = index;
+    }
+
+    /**
+     * Constructor - creates a new instance of IndexedNamedBuildExternalBuildProvider
+     * using the shared display name index
+     */
+    public IndexedNamedBuildExternalBuildProvider() {
+        this(DisplayNameBuildIndex.getInstance());
+    }
+
+    /**
+     * Finds a build by display name and project
+     *
+     * @param project
+     *      Project from which to provide the target build
+     * @param name
+     *      Display name of the target build
+     * @return
+     *      Target build (if it can be found)
+     * @throws BuildNotFoundException
+     *      If the build could not be found with the given build display name
+     *      for the given project
+     */
+    @Override
+    protected AbstractBuild findBuildByName(
+        final AbstractProject project,
+        final String name
+    ) throws BuildNotFoundException {
+        return this.lookupBuildByName(project, name).getBuild();
+    }
+
+    /**
+     * Finds a build by display name and project, together with the means by
+     * which it was located
+     *
+     * @param project
+     *      Project from which to provide the target build
+     * @param name
+     *      Display name of the target build
+     * @return
+     *      Target build (if it can be found), located through the index or,
+     *      should the index prove stale, by a walk through the history of
+     *      the project
+     * @throws BuildNotFoundException
+     *      If the build could not be found with the given build display name
+     *      for the given project
+     */
+    @Override
+    protected BuildLookup<AbstractBuild> lookupBuildByName(
+        final AbstractProject project,
+        final String name
+    ) throws BuildNotFoundException {
+        Integer number = this.index.lookup(project, name);
+
+        // A populated index which has no entry means there is no such build
+        if (number == null) {
+            throw new BuildNotFoundException(project.getName(), name);
+        }
+
+        AbstractBuild build = project.getBuildByNumber(number);
+
+        if (build != null && name.equals(build.getDisplayName())) {
+            return new BuildLookup<>(build, BuildLookupStrategy.INDEX);
+        }
+
+        /*
+         * The index has drifted from the build records (e.g. through a change
+         * not signalled to any listener), so it is discarded to be rebuilt
+         * and this lookup falls back to walking the history
+         */
+        this.index.invalidate(project);
+
+        return new BuildLookup<>(
+            super.findBuildByName(project, name),
+            BuildLookupStrategy.SCAN
+        );
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * LookupReportingExternalBuildProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+
+
+/**
+ * LookupReportingExternalBuildProvider - interface definition for a build
+ * provider which reports the means by which it located each build, for
+ * diagnosis of slow imports
+ * 
+ * @param <P> Type of project (must extend {@link AbstractProject}
+ * @param <B> Type of build (must extend {@link AbstractBuild}
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public interface LookupReportingExternalBuildProvider <P extends AbstractProject, B extends AbstractBuild> extends ExternalBuildProvider<P, B> {
+
+    /**
+     * Provides a target build by project and identifier, together with the
+     * means by which it was located
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Identifier of the target build
+     * @return
+     *      Target build (if it can be found) and the means by which it was
+     *      located
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given identifier
+     *      for the given project
+     */
+    public BuildLookup<B> lookupBuild(P project, String id) throws BuildNotFoundException;
+
+    /**
+     * Provides a target build by project and identifier, trying the identifier
+     * in a given order where the provider distinguishes display names from
+     * build numbers, together with the means by which it was located
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Identifier of the target build
+     * @param order
+     *      Order in which the identifier is tried as a display name and as a
+     *      build number; NULL for the default order of the provider, which
+     *      a provider that does not distinguish the two may ignore
+     * @return
+     *      Target build (if it can be found) and the means by which it was
+     *      located
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given identifier
+     *      for the given project
+     */
+    public BuildLookup<B> lookupBuild(P project, String id, BuildResolutionOrder order) throws BuildNotFoundException;
+
+}
@@ -24,10 +24,8 @@
 
 package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
 
-import com.google.common.base.Predicate;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
-import java.util.List;
 
 /**
  * NamedBuildExternalBuildProvider - Provides builds identified primarily by
@@ -38,72 +36,341 @@ import java.util.List;
 public class NamedBuildExternalBuildProvider extends BuildNumberExternalBuildProvider {
 
     /**
-     * Provides a target build by build name/number and project
+     * Maximum number of past builds, newest first, searched for a display
+     * name; zero or less for no limit; may be set through the system property
+     * NamedBuildExternalBuildProvider.maxSearchDepth
+     */
+    public static final int DEFAULT_MAX_SEARCH_DEPTH = Integer.getInteger(
+        NamedBuildExternalBuildProvider.class.getSimpleName() + ".maxSearchDepth",
+        0
+    );
+
+    /**
+     * Maximum age of past builds searched for a display name, in
+     * milliseconds; zero or less for no limit; may be set through the system
+     * property NamedBuildExternalBuildProvider.maxSearchAgeMillis
+     */
+    public static final long DEFAULT_MAX_SEARCH_AGE_MILLIS = Long.getLong(
+        NamedBuildExternalBuildProvider.class.getSimpleName() + ".maxSearchAgeMillis",
+        0L
+    );
+
+    /**
+     * Globally configured maximum number of past builds, newest first,
+     * searched for a display name by providers without a limit of their own
+     */
+    private static volatile int configuredMaxSearchDepth = DEFAULT_MAX_SEARCH_DEPTH;
+
+    /**
+     * Globally configured maximum age of past builds, in milliseconds,
+     * searched for a display name by providers without a limit of their own
+     */
+    private static volatile long configuredMaxSearchAgeMillis = DEFAULT_MAX_SEARCH_AGE_MILLIS;
+
+    /**
+     * Default order in which identifiers are tried as display names and
+     * build numbers
+     */
+    protected final BuildResolutionOrder resolutionOrder;
+
+    /**
+     * Maximum number of past builds, newest first, searched for a display
+     * name; zero or less for no limit; NULL for the global configuration
+     */
+    protected final Integer maxSearchDepth;
+
+    /**
+     * Maximum age of past builds searched for a display name, in
+     * milliseconds; zero or less for no limit; NULL for the global
+     * configuration
+     */
+    protected final Long maxSearchAgeMillis;
+
+
+
+    /**
+     * Constructor - creates a new instance of NamedBuildExternalBuildProvider
+     * 
+     * @param resolutionOrder
+     *      Default order in which identifiers are tried as display names and
+     *      build numbers; NULL for display names first
+     * @param maxSearchDepth
+     *      Maximum number of past builds, newest first, searched for a
+     *      display name; zero or less for no limit; NULL for the global
+     *      configuration
+     * @param maxSearchAgeMillis
+     *      Maximum age of past builds searched for a display name, in
+     *      milliseconds; zero or less for no limit; NULL for the global
+     *      configuration
+     */
+    public NamedBuildExternalBuildProvider(
+        final BuildResolutionOrder resolutionOrder,
+        final Integer maxSearchDepth,
+        final Long maxSearchAgeMillis
+    ) {
+        this.resolutionOrder = (
+            resolutionOrder != null ? resolutionOrder : BuildResolutionOrder.NAME_FIRST
+        );
+        this.maxSearchDepth = maxSearchDepth;
+        this.maxSearchAgeMillis = maxSearchAgeMillis;
+    }
+
+    /**
+     * Constructor - creates a new instance of NamedBuildExternalBuildProvider
+     * searching as far back as the global configuration allows
+     * 
+     * @param resolutionOrder
+     *      Default order in which identifiers are tried as display names and
+     *      build numbers; NULL for display names first
+     */
+    public NamedBuildExternalBuildProvider(final BuildResolutionOrder resolutionOrder) {
+        this(resolutionOrder, null, null);
+    }
+
+    /**
+     * Constructor - creates a new instance of NamedBuildExternalBuildProvider
+     * trying display names before build numbers
+     */
+    public NamedBuildExternalBuildProvider() {
+        this(BuildResolutionOrder.NAME_FIRST);
+    }
+
+    /**
+     * Sets the limits within which providers without limits of their own
+     * search for a display name; the limits take effect for searches which
+     * begin from this point onwards
+     * 
+     * @param maxSearchDepth
+     *      Maximum number of past builds, newest first, searched for a
+     *      display name; zero or less for no limit
+     * @param maxSearchAgeMillis
+     *      Maximum age of past builds searched for a display name, in
+     *      milliseconds; zero or less for no limit
+     */
+    public static void configureSearchLimits(
+        final int maxSearchDepth,
+        final long maxSearchAgeMillis
+    ) {
+        configuredMaxSearchDepth = maxSearchDepth;
+        configuredMaxSearchAgeMillis = maxSearchAgeMillis;
+    }
+
+    /**
+     * Getter for the globally configured maximum search depth
+     * 
+     * @return
+     *      Maximum number of past builds, newest first, searched for a
+     *      display name by providers without a limit of their own; zero or
+     *      less for no limit
+     */
+    public static int getConfiguredMaxSearchDepth() {
+        return configuredMaxSearchDepth;
+    }
+
+    /**
+     * Getter for the globally configured maximum search age
+     * 
+     * @return
+     *      Maximum age of past builds, in milliseconds, searched for a
+     *      display name by providers without a limit of their own; zero or
+     *      less for no limit
+     */
+    public static long getConfiguredMaxSearchAgeMillis() {
+        return configuredMaxSearchAgeMillis;
+    }
+
+    /**
+     * Getter for resolutionOrder
+     * 
+     * @return 
+     *      Default order in which identifiers are tried as display names and
+     *      build numbers
+     */
+    public BuildResolutionOrder getResolutionOrder() {
+        return this.resolutionOrder;
+    }
+
+    /**
+     * Provides a target build by build name/number and project, together
+     * with the means by which it was located
      * 
      * @param project
      *      Project from which to provide the target build
      * @param id
      *      Display name or build number of the target build
      * @return
-     *      Target build (if it can be found)
+     *      Target build (if it can be found) and the means by which it was
+     *      located
      * @throws BuildNotFoundException 
      *      If the build could not be found with the given build display name
      *      or number for the given project
      */
     @Override
-    public AbstractBuild provideBuild(
+    public BuildLookup<AbstractBuild> lookupBuild(
         final AbstractProject project,
         final String id
     ) throws BuildNotFoundException {
+        return this.lookupBuild(project, id, this.resolutionOrder);
+    }
+
+    /**
+     * Provides a target build by build name/number and project, in a given
+     * order, together with the means by which it was located
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Display name or build number of the target build
+     * @param order
+     *      Order in which the identifier is tried as a display name and as
+     *      a build number; NULL for the default order of this provider
+     * @return
+     *      Target build (if it can be found) and the means by which it was
+     *      located
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given build display name
+     *      or number for the given project
+     */
+    @Override
+    public BuildLookup<AbstractBuild> lookupBuild(
+        final AbstractProject project,
+        final String id,
+        final BuildResolutionOrder order
+    ) throws BuildNotFoundException {
+        final Integer number;
+
+        // Numeric identifiers need no walk of the history (nor an index) to be found by number
+        if (
+            (order != null ? order : this.resolutionOrder) == BuildResolutionOrder.NUMBER_FIRST
+            && (number = parseBuildNumber(id)) != null
+        ) {
+            AbstractBuild build = project.getBuildByNumber(number);
+
+            if (build != null) {
+                return new BuildLookup<>(build, BuildLookupStrategy.NUMBER);
+            }
+
+            return this.lookupBuildByName(project, id);
+        }
+
         try {
-            return this.findBuildByName(project, id);
+            return this.lookupBuildByName(project, id);
         } catch (BuildNotFoundException ex) {
-            return super.provideBuild(project, id);
+            return super.lookupBuild(project, id);
         }
     }
 
     /**
-     * Finds a build by display name and project
+     * Finds a build by display name and project, together with the means by
+     * which it was located
      * 
      * @param project
      *      Project from which to provide the target build
      * @param name
      *      Display name of the target build
      * @return
-     *      Target build (if it can be found)
+     *      Target build (if it can be found), located by a walk through the
+     *      history of the project
      * @throws BuildNotFoundException 
      *      If the build could not be found with the given build display name
      *      for the given project
      */
+    protected BuildLookup<AbstractBuild> lookupBuildByName(
+        final AbstractProject project,
+        final String name
+    ) throws BuildNotFoundException {
+        return new BuildLookup<>(
+            this.findBuildByName(project, name),
+            BuildLookupStrategy.SCAN
+        );
+    }
+
+    /**
+     * Finds a build by display name and project, searching the history of the
+     * project newest first and stopping at the first match, or once the
+     * maximum search depth or age has been reached
+     * 
+     * @param project
+     *      Project from which to provide the target build
+     * @param name
+     *      Display name of the target build
+     * @return
+     *      Newest build with the given display name (if it can be found)
+     * @throws BuildNotFoundException 
+     *      If the build could not be found with the given build display name
+     *      for the given project within the search limits
+     */
     protected AbstractBuild findBuildByName(
         final AbstractProject project,
         final String name
     ) throws BuildNotFoundException {
-        
-        // Filter builds by a name matching predicate (rather than 
-        // inefficiently iterating through)
-        List<AbstractBuild> matchingBuilds = project.getBuilds().filter(
-            new Predicate<AbstractBuild>() {
-                @Override
-                public boolean apply(AbstractBuild t) {
-                    String displayName;
-                    
-                    return (
-                        t != null
-                        && (displayName = t.getDisplayName()) != null
-                        && t.getDisplayName().equals(name)
-                    );
-                }
-            }
+        final int maxDepth = (
+            this.maxSearchDepth != null ? this.maxSearchDepth : configuredMaxSearchDepth
+        );
+        final long maxAgeMillis = (
+            this.maxSearchAgeMillis != null ? this.maxSearchAgeMillis : configuredMaxSearchAgeMillis
         );
+        final long oldest = (
+            maxAgeMillis > 0
+            ? System.currentTimeMillis() - maxAgeMillis
+            : Long.MIN_VALUE
+        );
+        int searched = 0;
+
+        /*
+         * Builds are loaded lazily as the history is iterated (newest first),
+         * so stopping at the first match leaves older builds unloaded
+         */
+        for (Object o : project.getBuilds()) {
+            AbstractBuild build = (AbstractBuild) o;
+
+            if (build == null) {
+                continue;
+            }
 
-        // Return the first build in the filtered list if at least one was found
-        if (matchingBuilds.size() > 0) {
-            return matchingBuilds.get(0);
+            if (
+                (maxDepth > 0 && ++searched > maxDepth)
+                || (oldest != Long.MIN_VALUE && build.getTimeInMillis() < oldest)
+            ) {
+                break;
+            }
+
+            if (name.equals(build.getDisplayName())) {
+                return build;
+            }
         }
-        
-        // ...and throw an exception if none were found
+
         throw new BuildNotFoundException(project.getName(), name);
     }
+
+    /**
+     * Parses a build identifier as a build number, if it consists solely of
+     * decimal digits
+     * 
+     * @param id
+     *      Build identifier
+     * @return 
+     *      Build number, or NULL if the identifier is not a build number
+     */
+    protected static Integer parseBuildNumber(final String id) {
+        if (id == null || id.isEmpty()) {
+            return null;
+        }
+
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return null;
+            }
+        }
+
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException ex) {
+            // Too large to be a build number
+            return null;
+        }
+    }
     
 }
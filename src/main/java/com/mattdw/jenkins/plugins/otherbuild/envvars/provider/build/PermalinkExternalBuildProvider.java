@@ -0,0 +1,166 @@
+/**
+ * PermalinkExternalBuildProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.PermalinkProjectAction.Permalink;
+import hudson.model.Run;
+import hudson.util.PermalinkList;
+
+
+
+/**
+ * PermalinkExternalBuildProvider - Provides builds identified by permalink
+ * (e.g. lastSuccessfulBuild, lastStableBuild or lastCompletedBuild, with or
+ * without the "Build" suffix), falling back to display name and then to
+ * build number upon failure
+ * 
+ * Permalinks are resolved through the project itself, which caches the
+ * builds to which they refer, so no walk through the history of the
+ * project is necessary
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class PermalinkExternalBuildProvider extends IndexedNamedBuildExternalBuildProvider {
+
+    /**
+     * Suffix of the identifiers of the built-in permalinks, which may be
+     * omitted from a given identifier
+     */
+    public static final String PERMALINK_SUFFIX = "Build";
+
+
+
+    /**
+     * Constructor - creates a new instance of PermalinkExternalBuildProvider
+     *
+     * @param index
+     *      Index of build display names to build numbers
+     */
+    public PermalinkExternalBuildProvider(final DisplayNameBuildIndex index) {
+        super(index);
+    }
+
+    /**
+     * Constructor - creates a new instance of PermalinkExternalBuildProvider
+     *
+     * @param index
+     *      Index of build display names to build numbers
+     * @param resolutionOrder
+     *      Default order in which identifiers other than permalinks are tried
+     *      as display names and build numbers
+     */
+    public PermalinkExternalBuildProvider(
+        final DisplayNameBuildIndex index,
+        final BuildResolutionOrder resolutionOrder
+    ) {
+        super(index, resolutionOrder);
+    }
+
+    /**
+     * Constructor - creates a new instance of PermalinkExternalBuildProvider
+     * using the shared display name index
+     */
+    public PermalinkExternalBuildProvider() {
+        super();
+    }
+
+    /**
+     * Provides a target build by permalink, then display name or build number
+     * (in the given order) and project, together with the means by which it
+     * was located
+     *
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      Permalink, display name or build number of the target build
+     * @param order
+     *      Order in which an identifier which is not a permalink is tried as
+     *      a display name and as a build number; NULL for the default order
+     *      of this provider
+     * @return
+     *      Target build (if it can be found) and the means by which it was
+     *      located
+     * @throws BuildNotFoundException
+     *      If the build could not be found with the given permalink, display
+     *      name or build number for the given project
+     */
+    @Override
+    public BuildLookup<AbstractBuild> lookupBuild(
+        final AbstractProject project,
+        final String id,
+        final BuildResolutionOrder order
+    ) throws BuildNotFoundException {
+        Permalink permalink = this.findPermalink(project, id);
+
+        if (permalink == null) {
+            return super.lookupBuild(project, id, order);
+        }
+
+        Run<?, ?> build = permalink.resolve(project);
+
+        // A permalink which currently refers to no build is not a display name
+        if (!(build instanceof AbstractBuild)) {
+            throw new BuildNotFoundException(project.getName(), id);
+        }
+
+        return new BuildLookup<>((AbstractBuild) build, BuildLookupStrategy.PERMALINK);
+    }
+
+    /**
+     * Finds the permalink of a project with a given identifier
+     *
+     * @param project
+     *      Project whose permalinks are to be searched
+     * @param id
+     *      Identifier of the permalink, optionally without the "Build" suffix
+     * @return
+     *      Permalink with the given identifier, or NULL if there is none
+     */
+    protected Permalink findPermalink(
+        final AbstractProject project,
+        final String id
+    ) {
+        PermalinkList permalinks = project.getPermalinks();
+
+        if (permalinks == null || id == null || id.isEmpty()) {
+            return null;
+        }
+
+        Permalink permalink = permalinks.get(id);
+
+        if (permalink == null && !id.endsWith(PERMALINK_SUFFIX)) {
+            permalink = permalinks.get(id + PERMALINK_SUFFIX);
+        }
+
+        return permalink;
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * VarValueExternalBuildProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.VarValueBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+
+
+/**
+ * VarValueExternalBuildProvider - Provides builds identified by the value of
+ * an indexed parameter or environment variable, given as NAME=value (e.g.
+ * GIT_COMMIT=0a1b2c3), falling back to permalink, display name and then to
+ * build number for any other identifier
+ *
+ * Values are resolved through a {@link VarValueBuildIndex}, so no walk
+ * through the history of the project is necessary
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class VarValueExternalBuildProvider extends PermalinkExternalBuildProvider {
+
+    /**
+     * Separator between the variable name and the value in an identifier
+     */
+    public static final char VAR_VALUE_SEPARATOR = '=';
+
+    /**
+     * Index of variable values to build numbers
+     */
+    protected final VarValueBuildIndex varValueIndex;
+
+
+
+    /**
+     * Constructor - creates a new instance of VarValueExternalBuildProvider
+     *
+     * @param index
+     *      Index of build display names to build numbers
+     * @param varValueIndex
+     *      Index of variable values to build numbers
+     */
+    public VarValueExternalBuildProvider(
+        final DisplayNameBuildIndex index,
+        final VarValueBuildIndex varValueIndex
+    ) {
+        super(index);
+
+        this.varValueIndex = varValueIndex;
+    }
+
+    /**
+     * Constructor - creates a new instance of VarValueExternalBuildProvider
+     * using the shared display name and variable value indexes
+     */
+    public VarValueExternalBuildProvider() {
+        this(DisplayNameBuildIndex.getInstance(), VarValueBuildIndex.getInstance());
+    }
+
+    /**
+     * Provides a target build by indexed variable value, then permalink,
+     * display name or build number (in the given order) and project, together
+     * with the means by which it was located
+     *
+     * @param project
+     *      Project from which to provide the target build
+     * @param id
+     *      NAME=value of an indexed variable, or permalink, display name or
+     *      build number of the target build
+     * @param order
+     *      Order in which an identifier which is neither a variable value nor
+     *      a permalink is tried as a display name and as a build number; NULL
+     *      for the default order of this provider
+     * @return
+     *      Target build (if it can be found) and the means by which it was
+     *      located
+     * @throws BuildNotFoundException
+     *      If the build could not be found with the given identifier for the
+     *      given project
+     */
+    @Override
+    public BuildLookup<AbstractBuild> lookupBuild(
+        final AbstractProject project,
+        final String id,
+        final BuildResolutionOrder order
+    ) throws BuildNotFoundException {
+        final int separator = (id != null ? id.indexOf(VAR_VALUE_SEPARATOR) : -1);
+
+        if (separator > 0) {
+            final String varName = id.substring(0, separator).trim();
+
+            if (this.varValueIndex.isIndexed(varName)) {
+                Integer number = this.varValueIndex.lookup(project, varName, id.substring(separator + 1));
+                AbstractBuild build = (number != null ? project.getBuildByNumber(number) : null);
+
+                if (build != null) {
+                    return new BuildLookup<>(build, BuildLookupStrategy.VAR_VALUE);
+                }
+            }
+        }
+
+        // An identifier which is not an indexed value may yet be a display name
+        return super.lookupBuild(project, id, order);
+    }
+
+}
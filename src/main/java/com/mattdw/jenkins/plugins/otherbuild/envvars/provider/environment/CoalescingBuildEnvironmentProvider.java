@@ -0,0 +1,480 @@
+/**
+ * CoalescingBuildEnvironmentProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndexListener;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.metrics.ImportMetrics;
+import hudson.model.AbstractBuild;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+
+
+/**
+ * CoalescingBuildEnvironmentProvider - decorates another environment provider
+ * such that concurrent requests for the environment of the same build share a
+ * single computation, the result of which is then retained for a short time
+ * 
+ * This addresses a burst of downstream builds all importing from the same
+ * upstream build, which would otherwise each compute its environment in turn;
+ * only the environments of completed builds are retained beyond the requests
+ * in flight, and retained environments are discarded as soon as the build is
+ * changed or deleted (through {@link BuildIndexListener})
+ * 
+ * Environments provided are shared between callers, so are read-only
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class CoalescingBuildEnvironmentProvider implements BuildEnvironmentProvider<AbstractBuild>, BuildIndex {
+
+    /**
+     * Time for which the environment of a completed build is retained after
+     * it has been computed; may be set through the system property
+     * CoalescingBuildEnvironmentProvider.retainMillis
+     */
+    public static final long DEFAULT_RETAIN_MILLIS = Long.getLong(
+        CoalescingBuildEnvironmentProvider.class.getSimpleName() + ".retainMillis",
+        TimeUnit.SECONDS.toMillis(10)
+    );
+
+    /**
+     * Shared instance, decorating a {@link SnapshotBuildEnvironmentProvider}
+     * and registered for notification of build and project changes
+     */
+    private static final CoalescingBuildEnvironmentProvider INSTANCE = BuildIndexListener.register(
+        new CoalescingBuildEnvironmentProvider(new SnapshotBuildEnvironmentProvider(), DEFAULT_RETAIN_MILLIS)
+    );
+
+    /**
+     * Provider to which the computation of each environment is delegated
+     */
+    protected final BuildEnvironmentProvider<AbstractBuild> delegate;
+
+    /**
+     * Time for which the environment of a completed build is retained, in
+     * milliseconds; zero or less to share only computations in flight
+     */
+    protected final long retainMillis;
+
+    /**
+     * Metrics on which shared (hit) and fresh (missed) environments are counted
+     */
+    protected final ImportMetrics metrics;
+
+    /**
+     * Computations in flight and retained results, keyed by build
+     */
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Constructor - creates a new instance of CoalescingBuildEnvironmentProvider
+     * 
+     * @param delegate
+     *      Provider to which the computation of each environment is delegated
+     * @param retainMillis
+     *      Time for which the environment of a completed build is retained,
+     *      in milliseconds; zero or less to share only computations in flight
+     * @param metrics
+     *      Metrics on which shared (hit) and fresh (missed) environments
+     *      are counted
+     */
+    public CoalescingBuildEnvironmentProvider(
+        final BuildEnvironmentProvider<AbstractBuild> delegate,
+        final long retainMillis,
+        final ImportMetrics metrics
+    ) {
+        this.delegate = delegate;
+        this.retainMillis = retainMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Constructor - creates a new instance of CoalescingBuildEnvironmentProvider
+     * which counts on the shared metrics
+     * 
+     * @param delegate
+     *      Provider to which the computation of each environment is delegated
+     * @param retainMillis
+     *      Time for which the environment of a completed build is retained,
+     *      in milliseconds; zero or less to share only computations in flight
+     */
+    public CoalescingBuildEnvironmentProvider(
+        final BuildEnvironmentProvider<AbstractBuild> delegate,
+        final long retainMillis
+    ) {
+        this(delegate, retainMillis, ImportMetrics.getInstance());
+    }
+
+    /**
+     * Getter for the shared instance
+     * 
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static CoalescingBuildEnvironmentProvider getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Provides the environment variables of a given build, joining any
+     * computation already in flight for the same build or returning a
+     * recently computed result
+     * 
+     * @param build
+     *      Build from which to provide environment variables
+     * @param listener
+     *      Build listener - necessary to derive an environment from a past
+     *      build; where a computation is shared, only the listener of the
+     *      request which started it is used
+     * @return
+     *      Environment variables of the given build; read-only where shared
+     * @throws IOException
+     *      If any I/O errors occur in deriving the environment
+     * @throws InterruptedException 
+     *      If any interruption errors occur in deriving the environment
+     */
+    @Override
+    public Map<String, String> provideEnvironment(
+        final AbstractBuild build,
+        final TaskListener listener
+    ) throws IOException, InterruptedException {
+        final Key key = Key.of(build);
+
+        // Builds which cannot be identified are not shared
+        if (key == null) {
+            return this.delegate.provideEnvironment(build, listener);
+        }
+
+        for (;;) {
+            Entry entry = this.entries.get(key);
+            boolean owner = false;
+
+            if (entry == null || !entry.isUsable(build, System.currentTimeMillis())) {
+                Entry created = new Entry(build, new FutureTask<>(new Callable<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> call() throws Exception {
+                        // Wrapped once, so that no caller may alter what the others are given
+                        return Collections.unmodifiableMap(delegate.provideEnvironment(build, listener));
+                    }
+                }));
+
+                if (entry == null ? this.entries.putIfAbsent(key, created) != null : !this.entries.replace(key, entry, created)) {
+
+                    // Another request has started a computation in the meantime, which is joined instead
+                    continue;
+                }
+
+                entry = created;
+                owner = true;
+
+                this.metrics.increment(ImportMetrics.Counter.CACHE_MISSES);
+
+                this.purgeExpired(System.currentTimeMillis());
+
+                // The computation is run on the thread of the request which started it
+                entry.task.run();
+                entry.completed(build, this.retainMillis);
+            } else {
+                this.metrics.increment(ImportMetrics.Counter.CACHE_HITS);
+            }
+
+            try {
+                return entry.task.get();
+            } catch (ExecutionException ex) {
+
+                // A failed computation is not retained, so a later request may retry
+                this.entries.remove(key, entry);
+
+                Throwable cause = ex.getCause();
+
+                /*
+                 * A computation interrupted on the thread of another request
+                 * was abandoned rather than failed, so this request starts
+                 * one of its own
+                 */
+                if (!owner && cause instanceof InterruptedException) {
+                    continue;
+                }
+
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Discards any environment retained for a new or changed build, as it
+     * may no longer be current (e.g. a snapshot having since been saved)
+     * 
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        this.discard(build);
+    }
+
+    /**
+     * Discards any environment retained for a deleted build
+     * 
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        this.discard(build);
+    }
+
+    /**
+     * Discards every environment retained for a given project
+     * 
+     * @param projectFullName
+     *      Full name of the project as it was indexed
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        if (projectFullName == null) {
+            return;
+        }
+
+        for (Iterator<Key> i = this.entries.keySet().iterator(); i.hasNext();) {
+            if (projectFullName.equals(i.next().projectFullName)) {
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Discards any environment retained for a given build; computations in
+     * flight are unaffected for the requests already sharing them
+     * 
+     * @param build
+     *      Build for which to discard the environment
+     */
+    protected void discard(final Run<?, ?> build) {
+        final Key key = Key.of(build);
+
+        if (key != null) {
+            this.entries.remove(key);
+        }
+    }
+
+    /**
+     * Discards every retained environment which has expired
+     * 
+     * @param now
+     *      Current time, in milliseconds
+     */
+    private void purgeExpired(final long now) {
+        for (Iterator<Entry> i = this.entries.values().iterator(); i.hasNext();) {
+            if (i.next().isExpired(now)) {
+                i.remove();
+            }
+        }
+    }
+
+
+
+    /**
+     * Identity of a build, by project full name and build number
+     */
+    protected static final class Key {
+
+        /**
+         * Full name of the project of the build
+         */
+        private final String projectFullName;
+
+        /**
+         * Number of the build
+         */
+        private final int number;
+
+
+
+        /**
+         * Constructor - creates a new instance of Key
+         * 
+         * @param projectFullName
+         *      Full name of the project of the build
+         * @param number
+         *      Number of the build
+         */
+        Key(final String projectFullName, final int number) {
+            this.projectFullName = projectFullName;
+            this.number = number;
+        }
+
+        /**
+         * Creates the key of a given build
+         * 
+         * @param build
+         *      Build for which to create a key
+         * @return 
+         *      Key of the build, or NULL if the build has no identifiable project
+         */
+        static Key of(final Run<?, ?> build) {
+            final Job<?, ?> project = build.getParent();
+            final String projectFullName = (project != null ? project.getFullName() : null);
+
+            return (projectFullName != null ? new Key(projectFullName, build.getNumber()) : null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+
+            return (this.number == other.number && this.projectFullName.equals(other.projectFullName));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.projectFullName.hashCode() + this.number;
+        }
+
+    }
+
+
+
+    /**
+     * Computation of the environment of a single build, in flight or complete
+     */
+    private static final class Entry {
+
+        /**
+         * Build object for which the computation was started; a different
+         * object under the same key (e.g. after a reload) is not shared
+         */
+        private final AbstractBuild build;
+
+        /**
+         * Computation of the environment
+         */
+        private final FutureTask<Map<String, String>> task;
+
+        /**
+         * Time after which a completed computation is no longer shared;
+         * Long.MAX_VALUE while in flight
+         */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+
+
+        /**
+         * Constructor - creates a new instance of Entry
+         * 
+         * @param build
+         *      Build object for which the computation was started
+         * @param task
+         *      Computation of the environment
+         */
+        Entry(final AbstractBuild build, final FutureTask<Map<String, String>> task) {
+            this.build = build;
+            this.task = task;
+        }
+
+        /**
+         * Records the completion of the computation, retaining the result
+         * for the given time only if the build itself has completed
+         * 
+         * @param build
+         *      Build for which the environment was computed
+         * @param retainMillis
+         *      Time for which to retain the result, in milliseconds
+         */
+        void completed(final AbstractBuild build, final long retainMillis) {
+            this.expiresAt = (
+                retainMillis > 0 && !build.isBuilding()
+                ? System.currentTimeMillis() + retainMillis
+                : Long.MIN_VALUE
+            );
+        }
+
+        /**
+         * Indicates whether or not the computation may be shared with a
+         * request for a given build
+         * 
+         * @param build
+         *      Build object of the request
+         * @param now
+         *      Current time, in milliseconds
+         * @return 
+         *      TRUE if the computation is for the same build object and is
+         *      either in flight or retained; otherwise FALSE
+         */
+        boolean isUsable(final AbstractBuild build, final long now) {
+            return (this.build == build && !this.isExpired(now));
+        }
+
+        /**
+         * Indicates whether or not the computation has completed and is no
+         * longer retained
+         * 
+         * @param now
+         *      Current time, in milliseconds
+         * @return 
+         *      TRUE if expired; otherwise FALSE
+         */
+        boolean isExpired(final long now) {
+            return (now >= this.expiresAt);
+        }
+
+    }
+
+}
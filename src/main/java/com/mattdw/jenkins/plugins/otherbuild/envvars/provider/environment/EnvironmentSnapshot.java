@@ -0,0 +1,211 @@
+/**
+ * EnvironmentSnapshot.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import hudson.model.AbstractBuild;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.PasswordParameterValue;
+import hudson.model.Run;
+import hudson.util.AtomicFileWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+
+
+/**
+ * EnvironmentSnapshot - reads and writes a snapshot of the environment of a
+ * build, stored as a side file in the build directory, so that the environment
+ * may be imported as it was when the build completed without recomputing it
+ * 
+ * Sensitive variables (password parameters and any others the build marks
+ * as sensitive) are never written to a snapshot, so are not available for
+ * import from one
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public final class EnvironmentSnapshot {
+
+    /**
+     * Name of the snapshot file within the build directory
+     */
+    public static final String FILE_NAME = "otherbuild-envvars-snapshot.properties";
+
+
+
+    /**
+     * Private constructor - this class is not to be instantiated
+     */
+    private EnvironmentSnapshot() {
+    }
+
+    /**
+     * Returns the snapshot file of a given build
+     * 
+     * @param build
+     *      Build for which to return the snapshot file
+     * @return
+     *      Snapshot file (which may not exist), or NULL if the build has no
+     *      build directory
+     */
+    public static File getFile(final Run<?, ?> build) {
+        File rootDir = build.getRootDir();
+
+        return (rootDir != null ? new File(rootDir, FILE_NAME) : null);
+    }
+
+    /**
+     * Indicates whether or not a snapshot exists for a given build
+     * 
+     * @param build
+     *      Build to check
+     * @return
+     *      TRUE if a snapshot exists; otherwise FALSE
+     */
+    public static boolean exists(final Run<?, ?> build) {
+        File file = getFile(build);
+
+        return (file != null && file.isFile());
+    }
+
+    /**
+     * Loads the snapshot of a given build
+     * 
+     * @param build
+     *      Build for which to load the snapshot
+     * @return
+     *      Environment variables as they were when the snapshot was saved,
+     *      or NULL if no snapshot exists
+     * @throws IOException 
+     *      If the snapshot exists but cannot be read
+     */
+    public static Map<String, String> load(final Run<?, ?> build) throws IOException {
+        File file = getFile(build);
+
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        Map<String, String> vars = new HashMap<>((int) (properties.size() / 0.75f) + 1);
+
+        for (String name : properties.stringPropertyNames()) {
+            vars.put(name, properties.getProperty(name));
+        }
+
+        return vars;
+    }
+
+    /**
+     * Saves a snapshot of given environment variables for a given build,
+     * replacing any existing snapshot atomically; sensitive variables of the
+     * build are omitted
+     * 
+     * @param build
+     *      Build for which to save the snapshot
+     * @param vars
+     *      Environment variables of the build
+     * @throws IOException 
+     *      If the snapshot cannot be written
+     */
+    public static void save(final Run<?, ?> build, final Map<String, String> vars) throws IOException {
+        File file = getFile(build);
+
+        if (file == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        Set<String> sensitiveVarNames = getSensitiveVarNames(build);
+
+        for (Map.Entry<String, String> var : vars.entrySet()) {
+            if (var.getKey() != null && var.getValue() != null && !sensitiveVarNames.contains(var.getKey())) {
+                properties.setProperty(var.getKey(), var.getValue());
+            }
+        }
+
+        AtomicFileWriter writer = new AtomicFileWriter(file, StandardCharsets.UTF_8.name());
+
+        try {
+            properties.store(writer, null);
+            writer.commit();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    /**
+     * Returns the names of the sensitive variables of a given build, which
+     * are not to be written to disk in cleartext
+     * 
+     * @param build
+     *      Build for which to return the sensitive variable names
+     * @return
+     *      Names of the password (and other sensitive) parameters of the
+     *      build, together with any other variables the build marks as
+     *      sensitive
+     */
+    public static Set<String> getSensitiveVarNames(final Run<?, ?> build) {
+        Set<String> names = new HashSet<>();
+
+        if (build instanceof AbstractBuild) {
+            Set<String> sensitiveBuildVariables = ((AbstractBuild<?, ?>) build).getSensitiveBuildVariables();
+
+            if (sensitiveBuildVariables != null) {
+                names.addAll(sensitiveBuildVariables);
+            }
+        }
+
+        ParametersAction parameters = build.getAction(ParametersAction.class);
+
+        if (parameters != null) {
+            for (ParameterValue parameter : parameters.getParameters()) {
+                if (parameter != null && (parameter instanceof PasswordParameterValue || parameter.isSensitive())) {
+                    names.add(parameter.getName());
+                }
+            }
+        }
+
+        return names;
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * EnvironmentSnapshotListener.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.ImportOtherBuildEnvVarsBuilder;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+
+
+
+/**
+ * EnvironmentSnapshotListener - saves an {@link EnvironmentSnapshot} of every
+ * build as it completes, if snapshots are enabled in the global configuration
+ * of {@link ImportOtherBuildEnvVarsBuilder}
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@Extension
+public class EnvironmentSnapshotListener extends RunListener<Run> {
+
+    /**
+     * Logger for failures to save a snapshot (which are not fatal, as the
+     * environment will be computed at the time of import instead)
+     */
+    private static final Logger LOGGER = Logger.getLogger(EnvironmentSnapshotListener.class.getName());
+
+    /**
+     * Saves a snapshot of the environment of a completed build
+     * 
+     * @param build
+     *      Build which has completed
+     * @param listener 
+     *      Listener for the build - necessary to derive its environment
+     */
+    @Override
+    public void onCompleted(Run build, TaskListener listener) {
+        if (!this.isEnabled()) {
+            return;
+        }
+
+        try {
+            EnvironmentSnapshot.save(build, build.getEnvironment(listener));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to save environment snapshot for " + build, ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Indicates whether or not snapshots are enabled
+     * 
+     * @return
+     *      TRUE if snapshots are enabled in the global configuration;
+     *      otherwise FALSE
+     */
+    protected boolean isEnabled() {
+        Jenkins jenkins = Jenkins.getInstance();
+
+        if (jenkins == null) {
+            return false;
+        }
+
+        ImportOtherBuildEnvVarsBuilder.DescriptorImpl descriptor = jenkins.getDescriptorByType(
+            ImportOtherBuildEnvVarsBuilder.DescriptorImpl.class
+        );
+
+        return (descriptor != null && descriptor.isSnapshotEnvironments());
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * SnapshotBuildEnvironmentProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.Map;
+
+
+
+/**
+ * SnapshotBuildEnvironmentProvider - provides the environment of a build from
+ * the {@link EnvironmentSnapshot} recorded when it completed, falling back to
+ * computing the environment at the time of the request if no snapshot exists
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class SnapshotBuildEnvironmentProvider extends LiveBuildEnvironmentProvider {
+
+    /**
+     * Provides the environment variables of a given build
+     * 
+     * @param build
+     *      Build from which to provide environment variables
+     * @param listener
+     *      Build listener - necessary to derive an environment from a past build
+     * @return
+     *      Environment variables of the given build
+     * @throws IOException
+     *      If any I/O errors occur in deriving the environment
+     * @throws InterruptedException 
+     *      If any interruption errors occur in deriving the environment
+     */
+    @Override
+    public Map<String, String> provideEnvironment(
+        AbstractBuild build,
+        TaskListener listener
+    ) throws IOException, InterruptedException {
+        Map<String, String> snapshot = EnvironmentSnapshot.load(build);
+
+        return (snapshot != null ? snapshot : super.provideEnvironment(build, listener));
+    }
+
+}
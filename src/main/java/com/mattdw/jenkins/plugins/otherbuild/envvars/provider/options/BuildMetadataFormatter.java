@@ -0,0 +1,57 @@
+/**
+ * BuildMetadataFormatter.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
+
+
+
+/**
+ * Formats options for past builds on another project from their recorded
+ * {@link BuildMetadata}, so that the builds need not be loaded; implemented
+ * alongside {@link BuildOptionFormatter} by formatters whose labels can be
+ * produced from metadata alone
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public interface BuildMetadataFormatter {
+
+    /**
+     * Produce an appropriately formatted string for a given build from its
+     * metadata, identical to that produced for the loaded build
+     * 
+     * @param build
+     *      Metadata of the build to represent as a string
+     * @return 
+     *      String representing the given build, or NULL if it cannot be
+     *      produced from the metadata alone (in which case the build must be
+     *      loaded and formatted as a build)
+     */
+    public String formatMetadata(BuildMetadata build);
+
+}
@@ -28,8 +28,13 @@
 
 package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
 import hudson.model.AbstractBuild;
 import hudson.model.Result;
 
@@ -59,37 +64,81 @@ public interface BuildOptionFormatter <B extends AbstractBuild> {
      * as strings in the form:
      * 
      * [display name] - [result/status] ([date started])
+     * 
+     * Instances are safe for use by concurrent request threads, and can also
+     * format builds from their recorded {@link BuildMetadata}
      */
-    public static class DefaultImpl implements BuildOptionFormatter<AbstractBuild> {
+    public static class DefaultImpl implements BuildOptionFormatter<AbstractBuild>, BuildMetadataFormatter {
         
+        /**
+         * Default date/time pattern for presenting the build date as a string
+         */
+        public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss z";
+
         /**
          * Default date format for presenting the build date as a string
+         * 
+         * @deprecated
+         *      {@link DateFormat} is not thread-safe, so this shared instance
+         *      is no longer used by default; see DEFAULT_DATE_TIME_FORMATTER
          */
-        public static final DateFormat DEFAULT_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
+        @Deprecated
+        public static final DateFormat DEFAULT_DATE_FORMAT = new SimpleDateFormat(DEFAULT_DATE_PATTERN);
 
         /**
-         * Date format used in presenting the build date as a string
+         * Default (immutable) formatter for presenting the build date as a
+         * string in the default time zone
+         */
+        public static final DateTimeFormatter DEFAULT_DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(
+            DEFAULT_DATE_PATTERN
+        ).withZone(ZoneId.systemDefault());
+
+        /**
+         * Date format used in presenting the build date as a string; NULL if
+         * a {@link DateTimeFormatter} is used instead
          */
         protected final DateFormat dateFormat;
+
+        /**
+         * Formatter used in presenting the build date as a string; NULL if
+         * a {@link DateFormat} is used instead
+         */
+        protected final DateTimeFormatter dateTimeFormatter;
         
         
         
         /**
          * Constructor - creates a new instance of DefaultImpl
          * 
+         * As {@link DateFormat} is not thread-safe, the given date format
+         * is used under its own lock
+         * 
          * @param dateFormat
          *      Date format used in presenting the build date as a string
          */
         public DefaultImpl(final DateFormat dateFormat) {
             this.dateFormat = dateFormat;
+            this.dateTimeFormatter = null;
+        }
+        
+        /**
+         * Constructor - creates a new instance of DefaultImpl
+         * 
+         * @param dateTimeFormatter
+         *      Formatter used in presenting the build date as a string; must
+         *      carry a time zone (see <pre>DateTimeFormatter.withZone</pre>)
+         */
+        public DefaultImpl(final DateTimeFormatter dateTimeFormatter) {
+            this.dateFormat = null;
+            this.dateTimeFormatter = dateTimeFormatter;
         }
         
         /**
          * Constructor - creates a new instance of DefaultImpl assuming a default
-         * date format for presenting the build date as a string
+         * formatter for presenting the build date as a string
          */
         public DefaultImpl() {
-            this(DEFAULT_DATE_FORMAT);
+            this(DEFAULT_DATE_TIME_FORMATTER);
         }
 
         /**
@@ -102,14 +151,83 @@ public interface BuildOptionFormatter <B extends AbstractBuild> {
          */
         @Override
         public String formatBuild(AbstractBuild build) {
-            Result result = build.getResult();
-            
-            return String.format(
-                "%s - %s (%s)",
-                build.getDisplayName(),
-                (result != null ? result.toString() : "NO RESULT"),
-                this.dateFormat.format(build.getTimestamp().getTime())
-            );
+            StringBuilder label = this.startLabel(build.getDisplayName(), build.getResult());
+
+            if (this.dateTimeFormatter != null) {
+                this.dateTimeFormatter.formatTo(
+                    Instant.ofEpochMilli(build.getTimeInMillis()),
+                    label
+                );
+            } else {
+                label.append(this.formatDate(build));
+            }
+
+            return label.append(')').toString();
+        }
+
+        /**
+         * Produce an appropriately formatted string for a given build from its
+         * metadata, identical to that produced for the loaded build
+         * 
+         * @param build
+         *      Metadata of the build to represent as a string
+         * @return 
+         *      String representing the given build, or NULL if its display
+         *      name was not recorded in full
+         */
+        @Override
+        public String formatMetadata(BuildMetadata build) {
+            if (!build.isDisplayNameComplete()) {
+                return null;
+            }
+
+            StringBuilder label = this.startLabel(build.getDisplayName(), build.getResult());
+
+            if (this.dateTimeFormatter != null) {
+                this.dateTimeFormatter.formatTo(
+                    Instant.ofEpochMilli(build.getTimeInMillis()),
+                    label
+                );
+            } else {
+                synchronized (this.dateFormat) {
+                    label.append(this.dateFormat.format(new Date(build.getTimeInMillis())));
+                }
+            }
+
+            return label.append(')').toString();
+        }
+
+        /**
+         * Starts a label with the display name and result of a build, up to
+         * the opening bracket of its date
+         * 
+         * @param displayName
+         *      Display name of the build
+         * @param result
+         *      Result of the build; NULL if it has none
+         * @return 
+         *      Label to which the date and closing bracket are to be appended
+         */
+        protected StringBuilder startLabel(String displayName, Result result) {
+            return new StringBuilder(64)
+                .append(displayName)
+                .append(" - ")
+                .append(result != null ? result.toString() : "NO RESULT")
+                .append(" (");
+        }
+
+        /**
+         * Formats the date of a given build with the configured {@link DateFormat}
+         * 
+         * @param build
+         *      Build whose date is to be formatted
+         * @return 
+         *      Formatted build date
+         */
+        protected String formatDate(AbstractBuild build) {
+            synchronized (this.dateFormat) {
+                return this.dateFormat.format(build.getTimestamp().getTime());
+            }
         }
         
     }
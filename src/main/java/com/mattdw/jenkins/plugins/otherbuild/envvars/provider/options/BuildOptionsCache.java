@@ -0,0 +1,398 @@
+/**
+ * BuildOptionsCache.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndexListener;
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.util.ListBoxModel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+
+/**
+ * BuildOptionsCache - size-bounded, least-recently-used cache of build option
+ * lists, so that repeated requests to fill the same build selector are served
+ * from memory rather than by loading and formatting the builds again
+ * 
+ * Cached lists for a project are discarded whenever one of its builds is
+ * started, completed, changed or deleted (through {@link BuildIndexListener}),
+ * and are disregarded if the next build number of the project no longer
+ * matches that at which they were produced
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class BuildOptionsCache implements BuildIndex {
+
+    /**
+     * Default maximum number of option lists held in the cache
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    /**
+     * Shared instance, registered for notification of build and project changes
+     */
+    private static final BuildOptionsCache INSTANCE = BuildIndexListener.register(
+        new BuildOptionsCache(DEFAULT_MAX_ENTRIES)
+    );
+
+    /**
+     * Source of generation numbers, which increase each time any project
+     * is invalidated
+     */
+    private final AtomicLong generationCounter = new AtomicLong();
+
+    /**
+     * Generation at which each project was last invalidated, keyed by
+     * project full name
+     */
+    private final Map<String, Long> generations = new HashMap<>();
+
+    /**
+     * Cached option lists, in order of access (least recently used first)
+     */
+    private final LinkedHashMap<Key, Entry> entries;
+
+
+
+    /**
+     * Constructor - creates a new instance of BuildOptionsCache
+     * 
+     * @param maxEntries
+     *      Maximum number of option lists to hold, beyond which the least
+     *      recently used is evicted
+     */
+    public BuildOptionsCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return (this.size() > maxEntries);
+            }
+        };
+    }
+
+    /**
+     * Getter for the shared instance
+     * 
+     * @return
+     *      Shared instance, registered for notification of build and project changes
+     */
+    public static BuildOptionsCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Retrieves a cached option list, if one exists and is still current
+     * 
+     * @param key
+     *      Key of the option list
+     * @param project
+     *      Project from which the option list was produced
+     * @return
+     *      Copy of the cached option list, or NULL if none is cached or the
+     *      cached list has been superseded by a later build
+     */
+    public synchronized ListBoxModel get(final Key key, final AbstractProject project) {
+        Entry entry = this.entries.get(key);
+
+        if (entry == null) {
+            return null;
+        }
+
+        if (
+            entry.generation != this.getGeneration(key.projectFullName)
+            || entry.nextBuildNumber != project.getNextBuildNumber()
+        ) {
+            this.entries.remove(key);
+            return null;
+        }
+
+        return new ListBoxModel(entry.options);
+    }
+
+    /**
+     * Caches an option list, unless the project from which it was produced
+     * has been invalidated since production began
+     * 
+     * @param key
+     *      Key of the option list
+     * @param generation
+     *      Generation of the project (as per <pre>getGeneration</pre>) from
+     *      before the option list was produced
+     * @param nextBuildNumber
+     *      Next build number of the project from before the option list
+     *      was produced
+     * @param options
+     *      Option list to cache
+     */
+    public synchronized void put(
+        final Key key,
+        final long generation,
+        final int nextBuildNumber,
+        final ListBoxModel options
+    ) {
+        if (generation == this.getGeneration(key.projectFullName)) {
+            this.entries.put(key, new Entry(generation, nextBuildNumber, new ListBoxModel(options)));
+        }
+    }
+
+    /**
+     * Retrieves the generation at which a given project was last invalidated
+     * 
+     * @param projectFullName
+     *      Full name of the project
+     * @return
+     *      Generation number; zero if the project has never been invalidated
+     */
+    public synchronized long getGeneration(final String projectFullName) {
+        Long generation = this.generations.get(projectFullName);
+
+        return (generation != null ? generation : 0L);
+    }
+
+    /**
+     * Discards every cached option list for a given project
+     * 
+     * @param projectFullName
+     *      Full name of the project
+     */
+    public synchronized void invalidate(final String projectFullName) {
+        /*
+         * The generation is advanced rather than removed, so that a list
+         * still being produced from the old state cannot then be cached
+         */
+        this.generations.put(projectFullName, this.generationCounter.incrementAndGet());
+
+        Iterator<Key> keys = this.entries.keySet().iterator();
+
+        while (keys.hasNext()) {
+            if (keys.next().projectFullName.equals(projectFullName)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Discards cached option lists for the project of a new or changed build
+     * (whose result or display name may have changed)
+     * 
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(final Run<?, ?> build) {
+        this.invalidate(build);
+    }
+
+    /**
+     * Discards cached option lists for the project of a deleted build
+     * 
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(final Run<?, ?> build) {
+        this.invalidate(build);
+    }
+
+    /**
+     * Discards cached option lists for a deleted, renamed or moved project
+     * 
+     * @param projectFullName
+     *      Full name of the project as it was cached
+     */
+    @Override
+    public void removeProject(final String projectFullName) {
+        if (projectFullName != null) {
+            this.invalidate(projectFullName);
+        }
+    }
+
+    /**
+     * Discards cached option lists for the project of a given build
+     * 
+     * @param build
+     *      Build whose project is to be invalidated
+     */
+    protected void invalidate(final Run<?, ?> build) {
+        Job<?, ?> project = build.getParent();
+
+        if (project != null) {
+            this.invalidate(project.getFullName());
+        }
+    }
+
+
+
+    /**
+     * Key of a cached option list, comprising everything which determines
+     * its content
+     */
+    public static final class Key {
+
+        /**
+         * Full name of the project from which the options are produced
+         */
+        private final String projectFullName;
+
+        /**
+         * Build result by which the options are filtered; NULL if unfiltered
+         */
+        private final Result result;
+
+        /**
+         * Formatter of the option names
+         */
+        private final BuildOptionFormatter formatter;
+
+        /**
+         * Number of options skipped from the newest build
+         */
+        private final int offset;
+
+        /**
+         * Maximum number of options; zero or less if unbounded
+         */
+        private final int limit;
+
+
+
+        /**
+         * Constructor - creates a new instance of Key
+         * 
+         * @param projectFullName
+         *      Full name of the project from which the options are produced
+         * @param result
+         *      Build result by which the options are filtered; NULL if unfiltered
+         * @param formatter
+         *      Formatter of the option names
+         * @param offset
+         *      Number of options skipped from the newest build
+         * @param limit
+         *      Maximum number of options; zero or less if unbounded
+         */
+        public Key(
+            final String projectFullName,
+            final Result result,
+            final BuildOptionFormatter formatter,
+            final int offset,
+            final int limit
+        ) {
+            this.projectFullName = projectFullName;
+            this.result = result;
+            this.formatter = formatter;
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+
+            return (
+                this.offset == other.offset
+                && this.limit == other.limit
+                && this.result == other.result
+                && this.projectFullName.equals(other.projectFullName)
+                && this.formatter.equals(other.formatter)
+            );
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = this.projectFullName.hashCode();
+
+            hash = 31 * hash + (this.result != null ? this.result.hashCode() : 0);
+            hash = 31 * hash + this.formatter.hashCode();
+            hash = 31 * hash + this.offset;
+            hash = 31 * hash + this.limit;
+
+            return hash;
+        }
+
+    }
+
+
+
+    /**
+     * Cached option list, together with the state of the project at which
+     * it was produced
+     */
+    private static final class Entry {
+
+        /**
+         * Generation of the project at which the options were produced
+         */
+        private final long generation;
+
+        /**
+         * Next build number of the project at which the options were produced
+         */
+        private final int nextBuildNumber;
+
+        /**
+         * Cached options
+         */
+        private final ListBoxModel options;
+
+
+
+        /**
+         * Constructor - creates a new instance of Entry
+         * 
+         * @param generation
+         *      Generation of the project at which the options were produced
+         * @param nextBuildNumber
+         *      Next build number of the project at which the options were produced
+         * @param options 
+         *      Cached options
+         */
+        private Entry(final long generation, final int nextBuildNumber, final ListBoxModel options) {
+            this.generation = generation;
+            this.nextBuildNumber = nextBuildNumber;
+            this.options = options;
+        }
+
+    }
+
+}
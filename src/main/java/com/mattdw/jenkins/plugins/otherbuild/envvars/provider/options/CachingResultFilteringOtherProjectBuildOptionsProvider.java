@@ -0,0 +1,332 @@
+/**
+ * CachingResultFilteringOtherProjectBuildOptionsProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.ListBoxModel;
+
+
+
+/**
+ * Extension of {@link ResultFilteringOtherProjectBuildOptionsProvider} which
+ * serves option lists from a {@link BuildOptionsCache} where possible, only
+ * loading and formatting builds when the project has changed since the list
+ * was last produced
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class CachingResultFilteringOtherProjectBuildOptionsProvider extends ResultFilteringOtherProjectBuildOptionsProvider {
+
+    /**
+     * Cache of previously produced option lists
+     */
+    protected final BuildOptionsCache cache;
+
+
+
+    /**
+     * Constructor - creates a new instance of CachingResultFilteringOtherProjectBuildOptionsProvider
+     * 
+     * @param result
+     *      Build result to filter by; if NULL, then no filtering is applied
+     * @param formatter 
+     *      Formatter to build an appropriately formatted string representation
+     *      of a given build; forms part of the cache key, so should be shared
+     *      between providers
+     * @param cache
+     *      Cache of previously produced option lists
+     * @param metadataIndex
+     *      Index of build metadata from which to produce options for completed
+     *      builds, if the formatter is also a {@link BuildMetadataFormatter};
+     *      NULL if every build is to be loaded
+     */
+    public CachingResultFilteringOtherProjectBuildOptionsProvider(
+        final Result result,
+        final BuildOptionFormatter formatter,
+        final BuildOptionsCache cache,
+        final BuildMetadataIndex metadataIndex
+    ) {
+        super(result, formatter, metadataIndex);
+
+        this.cache = cache;
+    }
+
+    /**
+     * Constructor - creates a new instance of CachingResultFilteringOtherProjectBuildOptionsProvider
+     * which loads every build
+     * 
+     * @param result
+     *      Build result to filter by; if NULL, then no filtering is applied
+     * @param formatter 
+     *      Formatter to build an appropriately formatted string representation
+     *      of a given build; forms part of the cache key, so should be shared
+     *      between providers
+     * @param cache
+     *      Cache of previously produced option lists
+     */
+    public CachingResultFilteringOtherProjectBuildOptionsProvider(
+        final Result result,
+        final BuildOptionFormatter formatter,
+        final BuildOptionsCache cache
+    ) {
+        this(result, formatter, cache, null);
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of options, each of which represents a past
+     * build, optionally from another project
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProject(AbstractProject project) {
+        BuildOptionsCache.Key key = this.createKey(project, 0, 0);
+        ListBoxModel model = this.cache.get(key, project);
+
+        if (model == null) {
+            long generation = this.cache.getGeneration(project.getFullName());
+            int nextBuildNumber = project.getNextBuildNumber();
+
+            model = super.getOptionsForProject(project);
+            this.cache.put(key, generation, nextBuildNumber, model);
+        }
+
+        return model;
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options,
+     * each of which represents a past build, optionally from another project,
+     * in order from the newest build
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of options to skip from the newest build before the first
+     *      option in the model
+     * @param limit
+     *      Maximum number of options in the model
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit) {
+        BuildOptionsCache.Key key = this.createKey(project, offset, limit);
+        ListBoxModel model = this.cache.get(key, project);
+
+        if (model == null) {
+            long generation = this.cache.getGeneration(project.getFullName());
+            int nextBuildNumber = project.getNextBuildNumber();
+
+            model = super.getOptionsForProject(project, offset, limit);
+            this.cache.put(key, generation, nextBuildNumber, model);
+        }
+
+        return model;
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, in order from the newest build; as search
+     * queries vary too widely to be worth caching, only option lists
+     * without a query are served from the cache
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of matching options to skip from the newest build before
+     *      the first option in the model
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit, String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return this.getOptionsForProject(project, offset, limit);
+        }
+
+        return super.getOptionsForProject(project, offset, limit, query);
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, each of which represents a past build older
+     * than a given build number, in order from the newest such build; only
+     * the first page of an option list without a query is served from the
+     * cache, as later pages are produced without walking those before them
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param before
+     *      Number below which builds are presented; zero or less to start
+     *      from the newest build
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProjectBefore(AbstractProject project, int before, int limit, String query) {
+        if (before <= 0 && (query == null || query.trim().isEmpty())) {
+            return this.getOptionsForProject(project, 0, limit);
+        }
+
+        return super.getOptionsForProjectBefore(project, before, limit, query);
+    }
+
+    /**
+     * Creates the cache key for an option list produced by this provider
+     * 
+     * @param project
+     *      Project from which the options are produced
+     * @param offset
+     *      Number of options skipped from the newest build
+     * @param limit
+     *      Maximum number of options; zero if unbounded
+     * @return 
+     *      Cache key
+     */
+    protected BuildOptionsCache.Key createKey(AbstractProject project, int offset, int limit) {
+        return new BuildOptionsCache.Key(
+            project.getFullName(),
+            this.result,
+            this.formatter,
+            offset,
+            limit
+        );
+    }
+
+
+
+    /**
+     * Factory counterpart to generate {@link CachingResultFilteringOtherProjectBuildOptionsProvider}
+     * instances which share a single formatter and cache
+     */
+    public static class Factory extends ResultFilteringOtherProjectBuildOptionsProvider.Factory {
+
+        /**
+         * Formatter shared by every provider produced
+         */
+        protected final BuildOptionFormatter formatter;
+
+        /**
+         * Cache shared by every provider produced
+         */
+        protected final BuildOptionsCache cache;
+
+        /**
+         * Build metadata index shared by every provider produced; NULL if
+         * every build is to be loaded
+         */
+        protected final BuildMetadataIndex metadataIndex;
+
+
+
+        /**
+         * Constructor - creates a new instance of Factory
+         * 
+         * @param formatter
+         *      Formatter shared by every provider produced
+         * @param cache 
+         *      Cache shared by every provider produced
+         * @param metadataIndex
+         *      Build metadata index shared by every provider produced; NULL
+         *      if every build is to be loaded
+         */
+        public Factory(
+            final BuildOptionFormatter formatter,
+            final BuildOptionsCache cache,
+            final BuildMetadataIndex metadataIndex
+        ) {
+            this.formatter = formatter;
+            this.cache = cache;
+            this.metadataIndex = metadataIndex;
+        }
+
+        /**
+         * Constructor - creates a new instance of Factory whose providers
+         * load every build
+         * 
+         * @param formatter
+         *      Formatter shared by every provider produced
+         * @param cache 
+         *      Cache shared by every provider produced
+         */
+        public Factory(final BuildOptionFormatter formatter, final BuildOptionsCache cache) {
+            this(formatter, cache, null);
+        }
+
+        /**
+         * Constructor - creates a new instance of Factory using the shared
+         * memoizing formatter, the shared cache and the shared build metadata
+         * index
+         */
+        public Factory() {
+            this(
+                MemoizingBuildOptionFormatter.getInstance(),
+                BuildOptionsCache.getInstance(),
+                BuildMetadataIndex.getInstance()
+            );
+        }
+
+        /**
+         * Produces a {@CachingResultFilteringOtherProjectBuildOptionsProvider}
+         * based on a single given, optionally NULL result
+         * 
+         * @param result
+         *      Result on which to filter; NULL indicates that no filtering
+         *      is to take place
+         * @return 
+         *      {@CachingResultFilteringOtherProjectBuildOptionsProvider} instance
+         */
+        @Override
+        public CachingResultFilteringOtherProjectBuildOptionsProvider buildProvider(Result result) {
+            return new CachingResultFilteringOtherProjectBuildOptionsProvider(
+                result,
+                this.formatter,
+                this.cache,
+                this.metadataIndex
+            );
+        }
+
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * MemoizingBuildOptionFormatter.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildIndexListener;
+import hudson.model.AbstractBuild;
+import hudson.model.Job;
+import hudson.model.Run;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+
+/**
+ * MemoizingBuildOptionFormatter - decorates a {@link BuildOptionFormatter} so
+ * that the label of each completed build is only produced once; the label of
+ * a completed build only changes if its display name is changed, which is
+ * signalled through {@link BuildIndexListener}
+ * 
+ * Labels are held in a size-bounded, least-recently-used map; labels produced
+ * from {@link BuildMetadata} are not held, as they are produced without
+ * loading the build
+ * 
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class MemoizingBuildOptionFormatter implements BuildOptionFormatter<AbstractBuild>, BuildMetadataFormatter, BuildIndex {
+
+    /**
+     * Default maximum number of labels held
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /**
+     * Shared instance decorating the default formatter, registered for
+     * notification of build and project changes
+     */
+    private static final MemoizingBuildOptionFormatter INSTANCE = BuildIndexListener.register(
+        new MemoizingBuildOptionFormatter(new BuildOptionFormatter.DefaultImpl(), DEFAULT_MAX_ENTRIES)
+    );
+
+    /**
+     * Formatter which produces the labels
+     */
+    protected final BuildOptionFormatter<AbstractBuild> formatter;
+
+    /**
+     * Labels of completed builds, in order of access (least recently used first)
+     */
+    private final LinkedHashMap<LabelKey, String> labels;
+
+    /**
+     * Number of times labels have been discarded, guarded by the lock on
+     * {@link #labels}; a label produced while labels were discarded may be
+     * stale, so is not held
+     */
+    private long generation = 0;
+
+
+
+    /**
+     * Constructor - creates a new instance of MemoizingBuildOptionFormatter
+     * 
+     * @param formatter
+     *      Formatter which produces the labels
+     * @param maxEntries
+     *      Maximum number of labels to hold, beyond which the least recently
+     *      used is evicted
+     */
+    public MemoizingBuildOptionFormatter(
+        final BuildOptionFormatter<AbstractBuild> formatter,
+        final int maxEntries
+    ) {
+        this.formatter = formatter;
+        this.labels = new LinkedHashMap<LabelKey, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LabelKey, String> eldest) {
+                return (this.size() > maxEntries);
+            }
+        };
+    }
+
+    /**
+     * Getter for the shared instance
+     * 
+     * @return
+     *      Shared instance decorating the default formatter
+     */
+    public static MemoizingBuildOptionFormatter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Produce an appropriately formatted string for a given build, reusing
+     * the label produced previously if the build has completed
+     * 
+     * @param build
+     *      Build to represent as a string
+     * @return 
+     *      String representing the given build
+     */
+    @Override
+    public String formatBuild(AbstractBuild build) {
+
+        Job<?, ?> project = build.getParent();
+
+        // The label of a build in progress changes as soon as it has a result
+        if (project == null || build.isBuilding() || build.getResult() == null) {
+            return this.formatter.formatBuild(build);
+        }
+
+        LabelKey key = new LabelKey(project.getFullName(), build.getNumber());
+        String label;
+        long generation;
+
+        synchronized (this.labels) {
+            label = this.labels.get(key);
+            generation = this.generation;
+        }
+
+        if (label == null) {
+            label = this.formatter.formatBuild(build);
+
+            synchronized (this.labels) {
+                if (this.generation == generation) {
+                    this.labels.put(key, label);
+                }
+            }
+        }
+
+        return label;
+    }
+
+    /**
+     * Produce an appropriately formatted string for a given build from its
+     * metadata, if the decorated formatter supports it
+     * 
+     * @param build
+     *      Metadata of the build to represent as a string
+     * @return 
+     *      String representing the given build, or NULL if it cannot be
+     *      produced from the metadata alone
+     */
+    @Override
+    public String formatMetadata(BuildMetadata build) {
+        if (this.formatter instanceof BuildMetadataFormatter) {
+            return ((BuildMetadataFormatter) this.formatter).formatMetadata(build);
+        }
+
+        return null;
+    }
+
+    /**
+     * Discards the label of a new or changed build
+     * 
+     * @param build
+     *      Build which has been created or changed
+     */
+    @Override
+    public void updateBuild(Run<?, ?> build) {
+        this.removeBuild(build);
+    }
+
+    /**
+     * Discards the label of a deleted build
+     * 
+     * @param build
+     *      Build which has been deleted
+     */
+    @Override
+    public void removeBuild(Run<?, ?> build) {
+        Job<?, ?> project = build.getParent();
+
+        if (project != null) {
+            synchronized (this.labels) {
+                this.labels.remove(new LabelKey(project.getFullName(), build.getNumber()));
+                this.generation++;
+            }
+        }
+    }
+
+    /**
+     * Discards the labels of every build of a deleted, renamed or moved project
+     * 
+     * @param projectFullName
+     *      Full name of the project as it was known
+     */
+    @Override
+    public void removeProject(String projectFullName) {
+        synchronized (this.labels) {
+            this.generation++;
+
+            Iterator<LabelKey> keys = this.labels.keySet().iterator();
+
+            while (keys.hasNext()) {
+                if (keys.next().projectFullName.equals(projectFullName)) {
+                    keys.remove();
+                }
+            }
+        }
+    }
+
+
+
+    /**
+     * Key of a label, identifying a build by project full name and number
+     */
+    private static final class LabelKey {
+
+        /**
+         * Full name of the project of the build
+         */
+        private final String projectFullName;
+
+        /**
+         * Build number
+         */
+        private final int number;
+
+
+
+        /**
+         * Constructor - creates a new instance of LabelKey
+         * 
+         * @param projectFullName
+         *      Full name of the project of the build
+         * @param number
+         *      Build number
+         */
+        private LabelKey(final String projectFullName, final int number) {
+            this.projectFullName = projectFullName;
+            this.number = number;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LabelKey)) {
+                return false;
+            }
+
+            LabelKey other = (LabelKey) o;
+
+            return (this.number == other.number && this.projectFullName.equals(other.projectFullName));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.projectFullName.hashCode() + this.number;
+        }
+
+    }
+
+}
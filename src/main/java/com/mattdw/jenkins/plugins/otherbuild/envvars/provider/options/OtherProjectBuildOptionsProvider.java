@@ -30,6 +30,7 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
 
 import hudson.model.AbstractProject;
 import hudson.util.ListBoxModel;
+import java.util.List;
 
 
 
@@ -52,6 +53,82 @@ public interface OtherProjectBuildOptionsProvider {
      */
     public ListBoxModel getOptionsForProject(AbstractProject project);
     
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options,
+     * each of which represents a past build, optionally from another project,
+     * in order from the newest build; builds older than those needed to fill
+     * the model are not loaded
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of options to skip from the newest build before the first
+     *      option in the model (i.e. the number of options on previous pages)
+     * @param limit
+     *      Maximum number of options in the model
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit);
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, each of which represents a past build,
+     * optionally from another project, in order from the newest build;
+     * builds older than those needed to fill the model are not loaded
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of matching options to skip from the newest build before
+     *      the first option in the model
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit, String query);
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, each of which represents a past build older
+     * than a given build number, in order from the newest such build; a list
+     * is paged by continuing from the last build of the previous page, so
+     * that the builds on previous pages are not walked again
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param before
+     *      Number below which builds are presented (i.e. the number of the
+     *      last build on the previous page); zero or less to start from the
+     *      newest build
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    public ListBoxModel getOptionsForProjectBefore(AbstractProject project, int before, int limit, String query);
+
+    /**
+     * Produce a {@link ListBoxModel} of options for the builds with the given
+     * numbers (e.g. the matches of a build search index), in the
+     * order given; only those builds are loaded
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param numbers
+     *      Numbers of the builds to present
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    public ListBoxModel getOptionsForBuilds(AbstractProject project, List<Integer> numbers);
+    
     
     
     /**
@@ -29,7 +29,11 @@
 package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
 
 import com.google.common.base.Predicate;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Result;
@@ -43,6 +47,14 @@ import hudson.util.RunList;
  * based on a single result (if one is specified otherwise presents all past
  * builds) in a given project
  * 
+ * Where given a {@link BuildMetadataIndex} and a formatter which is also a
+ * {@link BuildMetadataFormatter}, options for completed builds are produced
+ * from their recorded metadata, so that only builds in progress (and those
+ * which cannot be formatted from metadata alone) are loaded; likewise, where
+ * given a {@link BuildMetadataIndex} and a result, the builds with that
+ * result are found through the bitmap of the result in the index, so that
+ * builds with other results are neither loaded nor read
+ * 
  * @author M.D.Ward <dev@mattdw.co.uk>
  */
 public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherProjectBuildOptionsProvider {
@@ -58,6 +70,12 @@ public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherPro
      */
     protected final BuildOptionFormatter formatter;
 
+    /**
+     * Index of build metadata from which to produce options for completed
+     * builds; NULL if every build is loaded
+     */
+    protected final BuildMetadataIndex metadataIndex;
+
 
 
     /**
@@ -68,13 +86,36 @@ public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherPro
      * @param formatter 
      *      Formatter to build an appropriately formatted string representation
      *      of a given build
+     * @param metadataIndex
+     *      Index of build metadata from which to produce options for completed
+     *      builds, if the formatter is also a {@link BuildMetadataFormatter};
+     *      NULL if every build is to be loaded
      */
     public ResultFilteringOtherProjectBuildOptionsProvider(
         final Result result,
-        final BuildOptionFormatter formatter
+        final BuildOptionFormatter formatter,
+        final BuildMetadataIndex metadataIndex
     ) {
         this.result = result;
         this.formatter = formatter;
+        this.metadataIndex = metadataIndex;
+    }
+
+    /**
+     * Constructor - creates a new instance of ResultFilteringOtherProjectBuildOptionsProvider
+     * which loads every build
+     * 
+     * @param result
+     *      Build result to filter by; if NULL, then no filtering is applied
+     * @param formatter 
+     *      Formatter to build an appropriately formatted string representation
+     *      of a given build
+     */
+    public ResultFilteringOtherProjectBuildOptionsProvider(
+        final Result result,
+        final BuildOptionFormatter formatter
+    ) {
+        this(result, formatter, null);
     }
 
     /**
@@ -96,6 +137,10 @@ public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherPro
      */
     @Override
     public ListBoxModel getOptionsForProject(AbstractProject project) {
+        if (this.usesMetadata()) {
+            return this.collectMetadataOptions(project, 0, 0, Integer.MAX_VALUE, null);
+        }
+
         ListBoxModel model = new ListBoxModel();
 
         List<AbstractBuild> builds = this.filterBuilds(project.getBuilds());
@@ -112,6 +157,333 @@ public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherPro
         return model;
     }
 
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options,
+     * each of which represents a past build, optionally from another project,
+     * in order from the newest build; builds older than those needed to fill
+     * the model are not loaded
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of options to skip from the newest build before the first
+     *      option in the model (i.e. the number of options on previous pages)
+     * @param limit
+     *      Maximum number of options in the model
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit) {
+        return this.collectOptions(project, 0, offset, limit, null);
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, each of which represents a past build,
+     * optionally from another project, in order from the newest build;
+     * builds older than those needed to fill the model are not loaded
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param offset
+     *      Number of matching options to skip from the newest build before
+     *      the first option in the model
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProject(AbstractProject project, int offset, int limit, String query) {
+        return this.collectOptions(project, 0, offset, limit, toNeedle(query));
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of at most a given number of options
+     * matching a search query, each of which represents a past build older
+     * than a given build number, in order from the newest such build; builds
+     * newer than the given number are neither loaded nor read
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param before
+     *      Number below which builds are presented (i.e. the number of the
+     *      last build on the previous page); zero or less to start from the
+     *      newest build
+     * @param limit
+     *      Maximum number of options in the model
+     * @param query
+     *      Text which the presented name or the number of each build must
+     *      contain (ignoring case); NULL or empty to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForProjectBefore(AbstractProject project, int before, int limit, String query) {
+        return this.collectOptions(project, before, 0, limit, toNeedle(query));
+    }
+
+    /**
+     * Produce a {@link ListBoxModel} of options for the builds with the given
+     * numbers, in the order given; builds which no longer exist or which do
+     * not pass the result filter are omitted
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param numbers
+     *      Numbers of the builds to present
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    @Override
+    public ListBoxModel getOptionsForBuilds(AbstractProject project, List<Integer> numbers) {
+        ListBoxModel model = new ListBoxModel();
+
+        for (Integer number : numbers) {
+            BuildMetadata metadata = (this.usesMetadata() ? this.metadataIndex.get(project, number) : null);
+
+            if (metadata != null) {
+                if (!this.matchesResult(metadata)) {
+                    continue;
+                }
+
+                String name = this.formatMetadata(metadata);
+
+                if (name != null) {
+                    model.add(name, String.valueOf(metadata.getNumber()));
+                    continue;
+                }
+            }
+
+            AbstractBuild b = (AbstractBuild) project.getBuildByNumber(number);
+
+            if (b != null && this.matchesResult(b)) {
+                model.add(this.formatter.formatBuild(b), String.valueOf(b.getNumber()));
+            }
+        }
+
+        return model;
+    }
+
+    /**
+     * Walks the history of a project from the newest build (or from the
+     * newest build older than a given number), collecting options for those
+     * builds which pass the result filter and match a normalised search query
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param before
+     *      Number below which builds are walked; zero or less to walk from
+     *      the newest build
+     * @param offset
+     *      Number of matching options to skip from the newest build
+     * @param limit
+     *      Maximum number of options in the model
+     * @param needle
+     *      Lower case text which the presented name or the number of each
+     *      build must contain; NULL to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    protected ListBoxModel collectOptions(AbstractProject project, int before, int offset, int limit, String needle) {
+        if (this.usesMetadata()) {
+            return this.collectMetadataOptions(project, before, offset, limit, needle);
+        }
+
+        ListBoxModel model = new ListBoxModel();
+        int skipped = 0;
+
+        /*
+         * Builds are walked one at a time from the newest, as opposed to
+         * through getBuilds(), so that only as many build records are loaded
+         * as are needed to fill the model
+         */
+        for (
+            AbstractBuild b = (AbstractBuild) (before > 0 ? project.getNearestOldBuild(before - 1) : project.getLastBuild());
+            b != null && model.size() < limit;
+            b = (AbstractBuild) b.getPreviousBuild()
+        ) {
+            if (!this.matchesResult(b)) {
+                continue;
+            }
+
+            // A build is only formatted ahead of time where the query needs it
+            String name = null;
+
+            if (
+                needle != null
+                && !(name = this.formatter.formatBuild(b)).toLowerCase(Locale.ENGLISH).contains(needle)
+                && !String.valueOf(b.getNumber()).contains(needle)
+            ) {
+                continue;
+            }
+
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+
+            model.add(
+                (name != null ? name : this.formatter.formatBuild(b)),
+                String.valueOf(b.getNumber())
+            );
+        }
+
+        return model;
+    }
+
+    /**
+     * Walks the recorded metadata of a project from the newest build (or from
+     * the newest build older than a given number), collecting options for those builds which pass the result filter and
+     * match a normalised search query; where a result filter is set, only
+     * the builds in the bitmap of that result are read; builds newer than the
+     * newest recorded build (i.e. those in progress) are loaded, as are any
+     * builds which cannot be formatted from their metadata
+     * 
+     * @param project
+     *      Project from which to load the builds
+     * @param before
+     *      Number below which builds are walked; zero or less to walk from
+     *      the newest build
+     * @param offset
+     *      Number of matching options to skip from the newest build
+     * @param limit
+     *      Maximum number of options in the model
+     * @param needle
+     *      Lower case text which the presented name or the number of each
+     *      build must contain; NULL to match every build
+     * @return 
+     *      {@link ListBoxModel} of selectable options, each representing a build
+     */
+    protected ListBoxModel collectMetadataOptions(AbstractProject project, int before, int offset, int limit, String needle) {
+        final Iterator<BuildMetadata> recorded = (
+            this.result != null
+            ? this.metadataIndex.getBuilds(project, this.result, before)
+            : this.metadataIndex.getBuilds(project, before)
+        ).iterator();
+        final OptionCollector collector = new OptionCollector(offset, limit, needle);
+        final Integer lastRecorded = this.metadataIndex.getLastBuildNumber(project);
+        final int newestRecorded = (lastRecorded != null ? lastRecorded : 0);
+        final int newest = (before > 0 ? Math.min(before, project.getNextBuildNumber()) : project.getNextBuildNumber()) - 1;
+
+        /*
+         * Builds are not recorded until they complete; the next build number
+         * reveals whether there are any newer builds, so that the newest build
+         * is only loaded where there are
+         */
+        if (newest > newestRecorded) {
+            AbstractBuild b = (AbstractBuild) (before > 0 ? project.getNearestOldBuild(newest) : project.getLastBuild());
+
+            while (b != null && b.getNumber() > newestRecorded && !collector.isFull()) {
+                if (this.matchesResult(b)) {
+                    collector.offer(this.formatter.formatBuild(b), b.getNumber());
+                }
+
+                b = (b.getNumber() - 1 > newestRecorded ? (AbstractBuild) b.getPreviousBuild() : null);
+            }
+        }
+
+        while (recorded.hasNext() && !collector.isFull()) {
+            BuildMetadata metadata = recorded.next();
+
+            if (!this.matchesResult(metadata)) {
+                continue;
+            }
+
+            String name = this.formatMetadata(metadata);
+
+            if (name == null) {
+                AbstractBuild b = (AbstractBuild) project.getBuildByNumber(metadata.getNumber());
+
+                if (b == null) {
+                    continue;
+                }
+
+                name = this.formatter.formatBuild(b);
+            }
+
+            collector.offer(name, metadata.getNumber());
+        }
+
+        return collector.getModel();
+    }
+
+    /**
+     * Indicates whether or not completed builds are found (and where possible
+     * presented) through their recorded metadata
+     * 
+     * @return 
+     *      TRUE if a metadata index is set and either the formatter can
+     *      format metadata or a result filter is set; otherwise FALSE
+     */
+    protected boolean usesMetadata() {
+        return (
+            this.metadataIndex != null
+            && (this.formatter instanceof BuildMetadataFormatter || this.result != null)
+        );
+    }
+
+    /**
+     * Normalises a search query into the lower case text which the presented
+     * name or the number of each build must contain
+     * 
+     * @param query
+     *      Search query
+     * @return 
+     *      Trimmed, lower case query; NULL if the query is NULL or blank
+     */
+    protected static String toNeedle(String query) {
+        return (query != null && !query.trim().isEmpty() ? query.trim().toLowerCase(Locale.ENGLISH) : null);
+    }
+
+    /**
+     * Formats a build from its recorded metadata, if the formatter supports it
+     * 
+     * @param build
+     *      Metadata of the build to represent as a string
+     * @return 
+     *      String representing the given build, or NULL if the build must be
+     *      loaded to be formatted
+     */
+    protected String formatMetadata(BuildMetadata build) {
+        return (
+            this.formatter instanceof BuildMetadataFormatter
+            ? ((BuildMetadataFormatter) this.formatter).formatMetadata(build)
+            : null
+        );
+    }
+
+    /**
+     * Indicates whether or not the metadata of a given build passes the
+     * result filter
+     * 
+     * @param build
+     *      Metadata of the build to test
+     * @return 
+     *      TRUE if no result filter is set or the build has the filtered
+     *      result; otherwise FALSE
+     */
+    protected boolean matchesResult(BuildMetadata build) {
+        return (this.result == null || build.getResult() == this.result);
+    }
+
+    /**
+     * Indicates whether or not a given build passes the result filter
+     * 
+     * @param build
+     *      Build to test
+     * @return 
+     *      TRUE if no result filter is set or the build has the filtered
+     *      result; otherwise FALSE
+     */
+    protected boolean matchesResult(AbstractBuild build) {
+        return (this.result == null || build.getResult() == this.result);
+    }
+
     /**
      * Filters a given list of builds on a pre-defined {@link Predicate} closure
      * 
@@ -138,6 +510,107 @@ public class ResultFilteringOtherProjectBuildOptionsProvider implements OtherPro
 
 
 
+    /**
+     * Collects options which match a search query into a model, skipping a
+     * given number of matching options and stopping at a given limit
+     */
+    protected static class OptionCollector {
+
+        /**
+         * Model into which options are collected
+         */
+        private final ListBoxModel model = new ListBoxModel();
+
+        /**
+         * Number of matching options to skip
+         */
+        private final int offset;
+
+        /**
+         * Maximum number of options in the model
+         */
+        private final int limit;
+
+        /**
+         * Lower case text which the presented name or the number of each
+         * build must contain; NULL to match every build
+         */
+        private final String needle;
+
+        /**
+         * Number of matching options skipped so far
+         */
+        private int skipped = 0;
+
+
+
+        /**
+         * Constructor - creates a new instance of OptionCollector
+         * 
+         * @param offset
+         *      Number of matching options to skip
+         * @param limit
+         *      Maximum number of options in the model
+         * @param needle
+         *      Lower case text which the presented name or the number of each
+         *      build must contain; NULL to match every build
+         */
+        public OptionCollector(final int offset, final int limit, final String needle) {
+            this.offset = offset;
+            this.limit = limit;
+            this.needle = needle;
+        }
+
+        /**
+         * Offers an option to the model, which adds it if it matches the
+         * search query and is not to be skipped
+         * 
+         * @param name
+         *      Presented name of the build
+         * @param number
+         *      Build number
+         */
+        public void offer(final String name, final int number) {
+            if (
+                this.needle != null
+                && !name.toLowerCase(Locale.ENGLISH).contains(this.needle)
+                && !String.valueOf(number).contains(this.needle)
+            ) {
+                return;
+            }
+
+            if (this.skipped < this.offset) {
+                this.skipped++;
+                return;
+            }
+
+            this.model.add(name, String.valueOf(number));
+        }
+
+        /**
+         * Indicates whether or not the model has reached its limit
+         * 
+         * @return 
+         *      TRUE if no more options will be added; otherwise FALSE
+         */
+        public boolean isFull() {
+            return (this.model.size() >= this.limit);
+        }
+
+        /**
+         * Getter for model
+         * 
+         * @return 
+         *      Model of the collected options
+         */
+        public ListBoxModel getModel() {
+            return this.model;
+        }
+
+    }
+
+
+
     /**
      * Factory counterpart to generate {@link ResultFilteringOtherProjectBuildOptionsProvider}
      * instances
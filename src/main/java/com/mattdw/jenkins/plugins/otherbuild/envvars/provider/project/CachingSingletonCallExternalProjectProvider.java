@@ -0,0 +1,241 @@
+/**
+ * CachingSingletonCallExternalProjectProvider.java
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jenkins.model.Jenkins;
+
+
+
+/**
+ * CachingSingletonCallExternalProjectProvider - provides a project through the
+ * singleton Jenkins.getActiveInstance() method (or an extension thereof), with
+ * the singleton accessor resolved once into a {@link MethodHandle} and
+ * projects cached by full name until they are deleted, renamed or moved
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class CachingSingletonCallExternalProjectProvider extends SingletonCallExternalProjectProvider {
+
+    /**
+     * Resolved singleton accessors, keyed by the Jenkins (or extension
+     * thereof) class descriptor on which they are declared
+     */
+    private static final ConcurrentMap<Class<?>, MethodHandle> ACCESSORS = new ConcurrentHashMap<>();
+
+    /**
+     * Previously provided projects, keyed by full name; shared between all
+     * instances so that invalidation by {@link ItemListenerImpl} applies to each
+     */
+    private static final ConcurrentMap<String, AbstractProject> PROJECTS = new ConcurrentHashMap<>();
+
+
+
+    /**
+     * Constructor - creates a new instance of CachingSingletonCallExternalProjectProvider
+     * with a specific Jenkins (or extension thereof) class descriptor
+     *
+     * @param jenkinsClass
+     *      Class descriptor of the Jenkins implementation on which the static
+     *      singleton method to load projects will be executed
+     */
+    public CachingSingletonCallExternalProjectProvider(Class<Jenkins> jenkinsClass) {
+        super(jenkinsClass);
+    }
+
+    /**
+     * Constructor - creates a new instance of CachingSingletonCallExternalProjectProvider
+     */
+    public CachingSingletonCallExternalProjectProvider() {
+        this(null);
+    }
+
+    /**
+     * Provides a target project by name, from the cache where possible
+     *
+     * @param name
+     *      Name (identifier) of the target project
+     * @return
+     *      Target project (if it can be found)
+     * @throws ProjectNotFoundException
+     *      If the project cannot be found with the given name (id)
+     */
+    @Override
+    public AbstractProject provideProject(String name) throws ProjectNotFoundException {
+        AbstractProject project = PROJECTS.get(name);
+
+        /*
+         * A full name lookup only returns projects visible to the current
+         * user, so the same must hold for a project served from the cache
+         */
+        if (project != null) {
+            if (project.getACL().hasPermission(Item.READ)) {
+                return project;
+            }
+
+            throw new ProjectNotFoundException(name);
+        }
+
+        try {
+            project = (
+                (Jenkins) this.getJenkinsAccessor().invoke()
+            ).getItemByFullName(name, AbstractProject.class);
+        } catch (NoSuchMethodException | SecurityException | IllegalAccessException | IllegalArgumentException ex) {
+            // Any reflective/other exceptions need to be rethrown
+            throw new ProjectNotFoundException(name, ex);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            // A checked exception thrown through the accessor, as would be wrapped by reflection
+            throw new ProjectNotFoundException(name, ex);
+        }
+
+        // If the project was successfully loaded (non-null), cache and return it
+        if (project != null) {
+            PROJECTS.put(name, project);
+
+            return project;
+        }
+
+        // ...otherwise throw an appropriate exception
+        throw new ProjectNotFoundException(name);
+    }
+
+    /**
+     * Retrieves the singleton accessor for the configured Jenkins class
+     * descriptor, resolving it on first use
+     *
+     * @return
+     *      Method handle for the static getActiveInstance() method
+     * @throws NoSuchMethodException
+     *      If the class descriptor does not declare or inherit the accessor
+     * @throws IllegalAccessException
+     *      If the accessor is not publicly accessible
+     */
+    protected MethodHandle getJenkinsAccessor() throws NoSuchMethodException, IllegalAccessException {
+        MethodHandle accessor = ACCESSORS.get(this.jenkinsClass);
+
+        if (accessor == null) {
+            accessor = MethodHandles.publicLookup().findStatic(
+                this.jenkinsClass,
+                "getActiveInstance",
+                MethodType.methodType(Jenkins.class)
+            );
+
+            ACCESSORS.put(this.jenkinsClass, accessor);
+        }
+
+        return accessor;
+    }
+
+    /**
+     * Discards cached projects with a given full name, along with any nested
+     * within it (e.g. the contents of a deleted or moved folder)
+     *
+     * @param fullName
+     *      Full name of the item to discard
+     */
+    static void invalidate(final String fullName) {
+        if (fullName == null) {
+            return;
+        }
+
+        final String prefix = fullName + "/";
+
+        for (Iterator<String> it = PROJECTS.keySet().iterator(); it.hasNext();) {
+            String name = it.next();
+
+            if (name.equals(fullName) || name.startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Discards all cached projects
+     */
+    static void invalidateAll() {
+        PROJECTS.clear();
+    }
+
+
+
+    /**
+     * Item listener which discards cached projects when they are deleted,
+     * renamed or moved, or when all items are [re]loaded
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+
+        /**
+         * Discards a deleted item from the cache
+         *
+         * @param item
+         *      Item which has been deleted
+         */
+        @Override
+        public void onDeleted(Item item) {
+            invalidate(item.getFullName());
+        }
+
+        /**
+         * Discards a renamed or moved item from the cache
+         *
+         * @param item
+         *      Item which has been renamed or moved
+         * @param oldFullName
+         *      Full name of the item prior to the change
+         * @param newFullName
+         *      Full name of the item after the change
+         */
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            invalidate(oldFullName);
+        }
+
+        /**
+         * Discards all cached items once items have been [re]loaded, as
+         * any cached project objects may since have been replaced
+         */
+        @Override
+        public void onLoaded() {
+            invalidateAll();
+        }
+
+    }
+
+}
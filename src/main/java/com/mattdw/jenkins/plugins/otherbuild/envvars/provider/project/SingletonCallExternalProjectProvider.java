@@ -40,7 +40,7 @@ public class SingletonCallExternalProjectProvider implements ExternalProjectProv
      * Class descriptor of the Jenkins implementation on which the static
      * singleton method to load projects will be executed
      */
-    private final Class<Jenkins> jenkinsClass;
+    protected final Class<Jenkins> jenkinsClass;
 
     /**
      * Constructor - creates a new instance of SingletonCallExternalProjectProvider
@@ -0,0 +1,124 @@
+/*
+ * Progressively populates the build selection list of an "other build"
+ * parameter: options are fetched from the server a page at a time, newest
+ * first, with further pages fetched (each continuing from the last build of
+ * the previous page) as the list is scrolled towards its end;
+ * whenever the search text changes, the list is instead filled with the
+ * newest matching builds from the server-side search index
+ */
+Behaviour.specify("SELECT.otherbuild-options", "otherbuild-options", 0, function (select) {
+    var url = select.getAttribute("optionsUrl");
+    var searchUrl = select.getAttribute("searchUrl");
+    var search = select.parentNode.querySelector("INPUT.otherbuild-options-search");
+    var query = "";
+    var offset = 0;
+    var before = 0;
+    var more = true;
+    var loading = false;
+    var generation = 0;
+    var searchTimer = null;
+
+    function load(reset) {
+        if (reset) {
+            generation++;
+            offset = 0;
+            before = 0;
+            more = true;
+            loading = false;
+            select.options.length = 0;
+        }
+
+        if (loading || !more) {
+            return;
+        }
+
+        var requestGeneration = generation;
+        var xhr = new XMLHttpRequest();
+
+        loading = true;
+        xhr.open(
+            "GET",
+            (
+                query && searchUrl
+                ? searchUrl + "&q=" + encodeURIComponent(query)
+                : url + "&offset=" + offset + "&before=" + before + "&q=" + encodeURIComponent(query)
+            ),
+            true
+        );
+        xhr.onreadystatechange = function () {
+            if (xhr.readyState !== 4) {
+                return;
+            }
+
+            // Responses to a superseded search are discarded
+            if (requestGeneration !== generation) {
+                return;
+            }
+
+            loading = false;
+
+            if (xhr.status !== 200) {
+                more = false;
+                return;
+            }
+
+            var page = JSON.parse(xhr.responseText);
+
+            for (var i = 0; i < page.options.length; i++) {
+                var option = document.createElement("option");
+
+                option.text = page.options[i].name;
+                option.value = page.options[i].value;
+                select.appendChild(option);
+            }
+
+            if (offset === 0 && select.options.length > 0 && select.selectedIndex < 0) {
+                select.selectedIndex = 0;
+            }
+
+            offset += page.options.length;
+            before = page.next;
+
+            // Searches return only the newest matches, so are never paged
+            more = (page.more && !(query && searchUrl));
+
+            // A page too short to scroll could otherwise never load the next
+            if (more && select.scrollHeight <= select.clientHeight) {
+                load(false);
+            }
+        };
+        xhr.send(null);
+    }
+
+    select.addEventListener("scroll", function () {
+        if (select.scrollTop + select.clientHeight >= select.scrollHeight - 20) {
+            load(false);
+        }
+    });
+
+    if (search) {
+        search.addEventListener("input", function () {
+            if (searchTimer) {
+                clearTimeout(searchTimer);
+            }
+
+            searchTimer = setTimeout(function () {
+                searchTimer = null;
+
+                if (search.value !== query) {
+                    query = search.value;
+                    load(true);
+                }
+            }, 250);
+        });
+
+        // Enter within the search box should not submit the build form
+        search.addEventListener("keydown", function (e) {
+            if (e.keyCode === 13) {
+                e.preventDefault();
+            }
+        });
+    }
+
+    load(true);
+});
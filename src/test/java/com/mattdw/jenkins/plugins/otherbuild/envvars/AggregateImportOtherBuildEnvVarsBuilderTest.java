@@ -0,0 +1,219 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.AggregateImportConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.VarReducer;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildNotFoundException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultOptionsProvider;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.util.ListBoxModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.runners.MockitoJUnitRunner;
+import static org.mockito.Mockito.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AggregateImportOtherBuildEnvVarsBuilderTest {
+
+    private final String projectName = "PROJECT NAME";
+    private ImportVarsExecutorFactory executorFactory;
+    private ImportVarsExecutor executor;
+    private AggregateImportOtherBuildEnvVarsBuilder builder;
+
+    private AbstractBuild build;
+    private TaskListener listener;
+    private java.io.PrintStream logger;
+    private EnvVars buildVars;
+
+    @Before
+    public void setUp() throws Exception {
+        this.executorFactory = mock(ImportVarsExecutorFactory.class);
+        this.executor = mock(ImportVarsExecutor.class);
+
+        this.builder = new AggregateImportOtherBuildEnvVarsBuilder(
+            this.projectName,
+            5,
+            new EnvContributingVarsImporter("RECENT_%s"),
+            this.executorFactory
+        );
+
+        this.build = mock(AbstractBuild.class);
+        this.listener = mock(TaskListener.class);
+        this.logger = mock(java.io.PrintStream.class);
+        this.buildVars = mock(EnvVars.class);
+
+        when(this.executorFactory.createExecutor()).thenReturn(this.executor);
+        when(this.listener.getLogger()).thenReturn(this.logger);
+        when(this.build.getEnvironment(same(this.listener))).thenReturn(this.buildVars);
+    }
+
+    @Test
+    public void testDefaults() {
+        assertEquals(this.projectName, this.builder.getProjectName());
+        assertEquals(5, this.builder.getBuildCount());
+        assertEquals("RECENT_%s", this.builder.getVarNameTemplate());
+        assertNull(this.builder.getBuildResultFilter());
+        assertSame(VarReducer.DISTINCT, this.builder.getReducer());
+        assertEquals(VarReducer.DEFAULT_SEPARATOR, this.builder.getSeparator());
+        assertNull(this.builder.getIncludeVars());
+        assertNull(this.builder.getExcludeVars());
+    }
+
+    @Test
+    public void testSetters() {
+        this.builder.setBuildResultFilter(" SUCCESS ");
+        this.builder.setReducer(VarReducer.COLLECT);
+        this.builder.setSeparator(" ");
+
+        assertEquals("SUCCESS", this.builder.getBuildResultFilter());
+        assertSame(VarReducer.COLLECT, this.builder.getReducer());
+        assertEquals(" ", this.builder.getSeparator());
+
+        this.builder.setBuildResultFilter("");
+        this.builder.setSeparator("");
+
+        assertNull(this.builder.getBuildResultFilter());
+        assertEquals(VarReducer.DEFAULT_SEPARATOR, this.builder.getSeparator());
+    }
+
+    @Test
+    public void testDataBoundConstructorAppliesFilter() {
+        AggregateImportOtherBuildEnvVarsBuilder bound = new AggregateImportOtherBuildEnvVarsBuilder(
+            this.projectName,
+            3,
+            "%s",
+            "VERSION",
+            "SECRET_*"
+        );
+
+        assertEquals("VERSION", bound.getIncludeVars());
+        assertEquals("SECRET_*", bound.getExcludeVars());
+    }
+
+    @Test
+    public void testPrePerform() throws Exception {
+        this.builder = new AggregateImportOtherBuildEnvVarsBuilder(
+            this.projectName,
+            5,
+            new EnvContributingVarsImporter("%s"),
+            null
+        );
+        this.builder.prePerform();
+
+        java.lang.reflect.Field executorFactoryField = this.builder.getClass().getDeclaredField("executorFactory");
+        executorFactoryField.setAccessible(true);
+
+        assertTrue(executorFactoryField.get(this.builder) instanceof ImportVarsExecutorFactory.ImporterImpl);
+    }
+
+    @Test
+    public void testPerform() throws Exception {
+        ArgumentCaptor<AggregateImportConfiguration> configuration = ArgumentCaptor.forClass(AggregateImportConfiguration.class);
+        ArgumentCaptor<TemplatingOtherBuildEnvVarsImporter> varImporter = ArgumentCaptor.forClass(TemplatingOtherBuildEnvVarsImporter.class);
+
+        this.builder.setBuildResultFilter("SUCCESS");
+        this.builder.setReducer(VarReducer.COLLECT);
+
+        when(
+            this.executor.performAggregate(
+                configuration.capture(),
+                varImporter.capture(),
+                same(this.buildVars),
+                same(this.listener),
+                same(this.build)
+            )
+        ).thenReturn(new ImportVarsResult(this.projectName, "12..8", 4));
+
+        this.builder.perform(this.build, null, null, this.listener);
+
+        AggregateImportConfiguration given = configuration.getValue();
+        assertEquals(this.projectName, given.getProjectName());
+        assertEquals(5, given.getBuildCount());
+        assertSame(Result.SUCCESS, given.getResultFilter());
+        assertSame(VarReducer.COLLECT, given.getReducer());
+        assertEquals(VarReducer.DEFAULT_SEPARATOR, given.getSeparator());
+        assertEquals("RECENT_%s", given.getVarTemplater().getVarNameTemplate());
+
+        // Reduced variables have already been templated
+        assertEquals("%s", varImporter.getValue().getVarNameTemplate());
+
+        verify(this.logger, times(1)).println(
+            eq(Messages.ImportOtherBuildEnvVarsBuilder_Imported(4, "12..8", this.projectName))
+        );
+        verify(this.build, times(1)).addAction(isA(ImportVarsResultAction.class));
+        verify(this.build, never()).setResult(any(Result.class));
+    }
+
+    @Test
+    public void testPerformFailsBuildOnImportError() throws Exception {
+        when(
+            this.executor.performAggregate(
+                any(AggregateImportConfiguration.class),
+                any(TemplatingOtherBuildEnvVarsImporter.class),
+                same(this.buildVars),
+                same(this.listener),
+                same(this.build)
+            )
+        ).thenThrow(new BuildNotFoundException(this.projectName, "latest 5"));
+
+        this.builder.perform(this.build, null, null, this.listener);
+
+        verify(this.build, times(1)).setResult(same(Result.FAILURE));
+    }
+
+    @Test
+    public void testDescriptorFillsBuildResultFilterItemsWithAnyResult() {
+        ResultOptionsProvider resultOptionsProvider = mock(ResultOptionsProvider.class);
+        ListBoxModel results = new ListBoxModel();
+        results.add("SUCCESS");
+
+        when(resultOptionsProvider.getBuildResultOptions()).thenReturn(results);
+
+        ListBoxModel options = new AggregateImportOtherBuildEnvVarsBuilder.DescriptorImpl(
+            resultOptionsProvider
+        ).doFillBuildResultFilterItems();
+
+        assertEquals(2, options.size());
+        assertEquals("", options.get(0).value);
+        assertEquals("SUCCESS", options.get(1).value);
+    }
+
+}
@@ -26,9 +26,11 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
 import hudson.EnvVars;
 import hudson.FilePath;
@@ -130,6 +132,14 @@ public class ImportOtherBuildEnvVarsBuilderTest {
         assertEquals(this.buildId, this.builder.getBuildId());
     }
 
+    @Test
+    public void testResolutionOrder() {
+        assertEquals(BuildResolutionOrder.NAME_FIRST, this.builder.getResolutionOrder());
+
+        this.builder.setResolutionOrder(BuildResolutionOrder.NUMBER_FIRST);
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, this.builder.getResolutionOrder());
+    }
+
     @Test
     public void testGetVarNameTemplate() {
         String varNameTemplate = "TEMPLATE";
@@ -246,6 +256,8 @@ public class ImportOtherBuildEnvVarsBuilderTest {
         verify(this.result, times(1)).getProjectName();
         verify(this.result, times(1)).getBuildId();
         verify(this.result, times(1)).getTotalVarsImported();
+        verify(this.result, times(1)).getLookupStrategy();
+        verify(this.build, times(1)).addAction(isA(ImportVarsResultAction.class));
     }
     
     @Test
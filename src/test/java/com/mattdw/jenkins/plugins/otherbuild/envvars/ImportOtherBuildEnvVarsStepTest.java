@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.EnvVarsImport;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.LazyImportedEnvVars;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.io.PrintStream;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ImportOtherBuildEnvVarsStepTest {
+
+    private final String projectName = "PROJECT NAME";
+    private ImportOtherBuildEnvVarsStep step;
+    private EnvVars env;
+    private TaskListener listener;
+    private PrintStream logger;
+    private ImportVarsExecutorFactory executorFactory;
+    private ImportVarsExecutor executor;
+
+    @Before
+    public void setUp() {
+        this.step = new ImportOtherBuildEnvVarsStep(this.projectName, "${UPSTREAM_BUILD}");
+        this.env = new EnvVars("UPSTREAM_BUILD", "42");
+        this.listener = mock(TaskListener.class);
+        this.logger = mock(PrintStream.class);
+        this.executorFactory = mock(ImportVarsExecutorFactory.class);
+        this.executor = mock(ImportVarsExecutor.class);
+
+        when(this.listener.getLogger()).thenReturn(this.logger);
+        when(this.executorFactory.createExecutor()).thenReturn(this.executor);
+    }
+
+    @Test
+    public void testDefaults() {
+        assertEquals(this.projectName, this.step.getProjectName());
+        assertEquals("${UPSTREAM_BUILD}", this.step.getBuildId());
+        assertNull(this.step.getVarNameTemplate());
+        assertEquals(BuildResolutionOrder.NAME_FIRST, this.step.getResolutionOrder());
+        assertFalse(this.step.isLazy());
+    }
+
+    @Test
+    public void testCreateImportExpandsBuildId() {
+        this.step.setVarNameTemplate("UPSTREAM_%s");
+        this.step.setResolutionOrder(BuildResolutionOrder.NUMBER_FIRST);
+
+        EnvVarsImport envVarsImport = this.step.createImport(this.env);
+
+        assertEquals(this.projectName, envVarsImport.getProjectName());
+        assertEquals("42", envVarsImport.getBuildId());
+        assertEquals("UPSTREAM_%s", envVarsImport.getVarNameTemplate());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, envVarsImport.getResolutionOrder());
+    }
+
+    @Test
+    public void testEagerStepReturnsImportedVars() throws Exception {
+        ArgumentCaptor<ImportVarsConfiguration> configuration = ArgumentCaptor.forClass(ImportVarsConfiguration.class);
+
+        when(
+            this.executor.perform(
+                configuration.capture(),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(this.listener),
+                (AbstractBuild) isNull()
+            )
+        ).thenAnswer(new Answer<ImportVarsResult>() {
+            @Override
+            public ImportVarsResult answer(InvocationOnMock invocation) throws Throwable {
+                ((EnvVars) invocation.getArguments()[2]).put("VERSION", "1.0");
+
+                return new ImportVarsResult(projectName, "42", 1);
+            }
+        });
+
+        Map<String, String> vars = ImportOtherBuildEnvVarsStep.Execution.perform(
+            this.step,
+            this.env,
+            this.listener,
+            this.executorFactory
+        );
+
+        assertEquals("1.0", vars.get("VERSION"));
+        assertEquals(1, vars.size());
+        assertFalse(this.env.containsKey("VERSION"));
+        assertEquals("42", configuration.getValue().getBuildId());
+
+        verify(this.logger, times(1)).println(
+            eq(Messages.ImportOtherBuildEnvVarsBuilder_Imported(1, "42", this.projectName))
+        );
+    }
+
+    @Test
+    public void testLazyStepResolvesBuildButDefersImport() throws Exception {
+        ArgumentCaptor<ImportVarsConfiguration> configuration = ArgumentCaptor.forClass(ImportVarsConfiguration.class);
+        AbstractBuild otherBuild = mock(AbstractBuild.class);
+
+        this.step.setLazy(true);
+
+        when(otherBuild.getNumber()).thenReturn(17);
+        when(this.executor.resolve(configuration.capture(), isA(EnvVars.class))).thenReturn(otherBuild);
+
+        Map<String, String> vars = ImportOtherBuildEnvVarsStep.Execution.perform(
+            this.step,
+            this.env,
+            this.listener,
+            this.executorFactory
+        );
+
+        assertTrue(vars instanceof LazyImportedEnvVars);
+        assertFalse(((LazyImportedEnvVars) vars).isImported());
+        assertEquals("42", configuration.getValue().getBuildId());
+        assertEquals("17", ((LazyImportedEnvVars) vars).getEnvVarsImport().getBuildId());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, ((LazyImportedEnvVars) vars).getEnvVarsImport().getResolutionOrder());
+
+        verify(this.executor, never()).perform(
+            any(ImportVarsConfiguration.class),
+            any(EnvContributingVarsImporter.class),
+            any(EnvVars.class),
+            any(TaskListener.class),
+            any(AbstractBuild.class)
+        );
+        verifyZeroInteractions(this.logger);
+    }
+
+    @Test
+    public void testLazyStepAbortsWhenBuildNotFound() throws Exception {
+        this.step.setLazy(true);
+
+        when(this.executor.resolve(isA(ImportVarsConfiguration.class), isA(EnvVars.class))).thenThrow(
+            new ProjectNotFoundException(this.projectName)
+        );
+
+        try {
+            ImportOtherBuildEnvVarsStep.Execution.perform(this.step, this.env, this.listener, this.executorFactory);
+            fail("Expected AbortException");
+        } catch (AbortException ex) {
+            assertTrue(ex.getMessage().contains(this.projectName));
+        }
+    }
+
+    @Test
+    public void testImportErrorAbortsStep() throws Exception {
+        when(
+            this.executor.perform(
+                isA(ImportVarsConfiguration.class),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(this.listener),
+                (AbstractBuild) isNull()
+            )
+        ).thenThrow(new ProjectNotFoundException(this.projectName));
+
+        try {
+            ImportOtherBuildEnvVarsStep.Execution.perform(this.step, this.env, this.listener, this.executorFactory);
+            fail("Expected AbortException");
+        } catch (AbortException ex) {
+            assertTrue(ex.getMessage().contains(this.projectName));
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResult;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsResultAction;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.runners.MockitoJUnitRunner;
+import static org.mockito.Mockito.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MultiSourceImportOtherBuildEnvVarsBuilderTest {
+
+    private OtherBuildImportSource firstSource;
+    private OtherBuildImportSource secondSource;
+    private ImportVarsExecutorFactory executorFactory;
+    private ImportVarsExecutor executor;
+    private MultiSourceImportOtherBuildEnvVarsBuilder builder;
+
+    private AbstractBuild build;
+    private TaskListener listener;
+    private java.io.PrintStream logger;
+    private EnvVars buildVars;
+
+    @Before
+    public void setUp() throws Exception {
+        this.firstSource = new OtherBuildImportSource("FIRST PROJECT", "lastSuccessful", "FIRST_%s");
+        this.secondSource = new OtherBuildImportSource("SECOND PROJECT", "42", "SECOND_%s");
+        this.executorFactory = mock(ImportVarsExecutorFactory.class);
+        this.executor = mock(ImportVarsExecutor.class);
+
+        this.builder = new MultiSourceImportOtherBuildEnvVarsBuilder(
+            Arrays.asList(this.firstSource, this.secondSource),
+            this.executorFactory
+        );
+
+        this.build = mock(AbstractBuild.class);
+        this.listener = mock(TaskListener.class);
+        this.logger = mock(java.io.PrintStream.class);
+        this.buildVars = mock(EnvVars.class);
+
+        when(this.executorFactory.createExecutor()).thenReturn(this.executor);
+        when(this.listener.getLogger()).thenReturn(this.logger);
+        when(this.build.getEnvironment(same(this.listener))).thenReturn(this.buildVars);
+    }
+
+    @Test
+    public void testGetSources() {
+        assertEquals(Arrays.asList(this.firstSource, this.secondSource), this.builder.getSources());
+        assertEquals("FIRST PROJECT", this.firstSource.getProjectName());
+        assertEquals("lastSuccessful", this.firstSource.getBuildId());
+        assertEquals("FIRST_%s", this.firstSource.getVarNameTemplate());
+    }
+
+    @Test
+    public void testPrePerform() throws Exception {
+        this.builder = new MultiSourceImportOtherBuildEnvVarsBuilder(Arrays.asList(this.firstSource), null);
+        this.builder.prePerform();
+
+        java.lang.reflect.Field executorFactoryField = this.builder.getClass().getDeclaredField("executorFactory");
+        executorFactoryField.setAccessible(true);
+
+        assertTrue(executorFactoryField.get(this.builder) instanceof ImportVarsExecutorFactory.ImporterImpl);
+    }
+
+    @Test
+    public void testPerform() throws Exception {
+        ArgumentCaptor<List> configurations = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<TemplatingOtherBuildEnvVarsImporter> varImporter = ArgumentCaptor.forClass(TemplatingOtherBuildEnvVarsImporter.class);
+
+        when(
+            this.executor.performAll(
+                configurations.capture(),
+                varImporter.capture(),
+                same(this.buildVars),
+                same(this.listener),
+                same(this.build)
+            )
+        ).thenReturn(Arrays.asList(
+            new ImportVarsResult("FIRST PROJECT", "12", 3),
+            new ImportVarsResult("SECOND PROJECT", "42", 5)
+        ));
+
+        this.builder.perform(this.build, null, null, this.listener);
+
+        List<ImportVarsConfiguration> given = configurations.getValue();
+        assertEquals(2, given.size());
+        assertEquals("FIRST PROJECT", given.get(0).getProjectName());
+        assertEquals("lastSuccessful", given.get(0).getBuildId());
+        assertEquals("SECOND PROJECT", given.get(1).getProjectName());
+        assertEquals("42", given.get(1).getBuildId());
+
+        // Merged variables have already been templated by their sources
+        assertTrue(varImporter.getValue() instanceof EnvContributingVarsImporter);
+        assertEquals("%s", varImporter.getValue().getVarNameTemplate());
+
+        verify(this.logger, times(1)).println(
+            eq(Messages.ImportOtherBuildEnvVarsBuilder_Imported(3, "12", "FIRST PROJECT"))
+        );
+        verify(this.logger, times(1)).println(
+            eq(Messages.ImportOtherBuildEnvVarsBuilder_Imported(5, "42", "SECOND PROJECT"))
+        );
+        verify(this.logger, times(1)).println(
+            eq(
+                Messages.ImportOtherBuildEnvVarsBuilder_ImportTimings(
+                    "SECOND PROJECT", "42", BuildLookupStrategy.UNKNOWN, 0L, 0L, 0L, 0L, 0L
+                )
+            )
+        );
+        verify(this.build, times(1)).addAction(isA(ImportVarsResultAction.class));
+        verify(this.build, never()).setResult(any(Result.class));
+    }
+
+    @Test
+    public void testPerformFailsBuildOnImportError() throws Exception {
+        when(
+            this.executor.performAll(
+                anyList(),
+                any(TemplatingOtherBuildEnvVarsImporter.class),
+                same(this.buildVars),
+                same(this.listener),
+                same(this.build)
+            )
+        ).thenThrow(new ProjectNotFoundException("SECOND PROJECT"));
+
+        this.builder.perform(this.build, null, null, this.listener);
+
+        verify(this.build, times(1)).setResult(same(Result.FAILURE));
+    }
+
+}
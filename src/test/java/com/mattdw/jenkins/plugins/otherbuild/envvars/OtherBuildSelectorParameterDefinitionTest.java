@@ -27,18 +27,23 @@ import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfigu
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildSearchIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.OtherProjectBuildOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultFilteringOtherProjectBuildOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options.ResultOptionsProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
-import hudson.EnvVars;
 import hudson.model.AbstractProject;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersDefinitionProperty;
 import hudson.model.Result;
 import hudson.model.TaskListener;
 import hudson.util.ListBoxModel;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Map;
 import jenkins.model.Jenkins;
 import jenkins.model.Jenkins.JenkinsHolder;
 import net.sf.json.JSONObject;
@@ -47,6 +52,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 import org.junit.runner.RunWith;
 import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 import static org.mockito.Mockito.*;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -150,6 +156,22 @@ public class OtherBuildSelectorParameterDefinitionTest {
         assertSame(this.projectName, this.parameter.getProjectName());
     }
 
+    @Test
+    public void testMaxBuildOptions() {
+        assertEquals(0, this.parameter.getMaxBuildOptions());
+
+        this.parameter.setMaxBuildOptions(25);
+        assertEquals(25, this.parameter.getMaxBuildOptions());
+    }
+
+    @Test
+    public void testResolutionOrderDefaultsToNumberFirst() {
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, this.parameter.getResolutionOrder());
+
+        this.parameter.setResolutionOrder(BuildResolutionOrder.NAME_FIRST);
+        assertEquals(BuildResolutionOrder.NAME_FIRST, this.parameter.getResolutionOrder());
+    }
+
     @Test
     public void testPreCreateValue() throws Exception {
         this.parameter = new OtherBuildSelectorParameterDefinition(
@@ -198,11 +220,12 @@ public class OtherBuildSelectorParameterDefinitionTest {
         assertSame(this.parameterName, castValue.getName());
         assertSame(this.parameterDescription, castValue.getValue());
         
-        ImportVarsConfiguration<TemplatingEnvVarsCopier<EnvVars>> valueConfig = castValue.getConfiguration();
+        ImportVarsConfiguration<TemplatingEnvVarsCopier<Map<String, String>>> valueConfig = castValue.getConfiguration();
         
         assertSame(this.varImporter, valueConfig.getVarTemplater());
         assertSame(this.projectName, valueConfig.getProjectName());
         assertSame(this.parameterDescription, valueConfig.getBuildId());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, valueConfig.getResolutionOrder());
         
         Class<?> valueClass = OtherBuildSelectorParameterValue.class;
         java.lang.reflect.Field executorField = valueClass.getDeclaredField("executor");
@@ -299,6 +322,38 @@ public class OtherBuildSelectorParameterDefinitionTest {
         verify(buildOptionsProvider, times(1)).getOptionsForProject(same(project));
     }
 
+    @Test
+    public void testDoFillValueItemsWithMaxBuildOptions() throws Exception {
+        final String queryParam = "PARAMETER";
+        
+        AbstractProject project = mock(AbstractProject.class);
+        ParametersDefinitionProperty prop = mock(ParametersDefinitionProperty.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        
+        when(project.getProperty(same(ParametersDefinitionProperty.class))).thenReturn(prop);
+        when(prop.getParameterDefinition(same(queryParam))).thenReturn(parameter);
+        when(parameter.getBuildResultFilter()).thenReturn(this.buildResultFilter);
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        when(parameter.getMaxBuildOptions()).thenReturn(25);
+        
+        ListBoxModel listBox = mock(ListBoxModel.class);
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(eq(Result.SUCCESS))).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(buildOptionsProvider.getOptionsForProject(same(project), eq(0), eq(25))).thenReturn(listBox);
+        
+        when(this.descriptor.doFillValueItems(same(project), same(queryParam))).thenCallRealMethod();
+        when(this.descriptor.doFillValueItems(isA(OtherBuildSelectorParameterDefinition.class))).thenCallRealMethod();
+        assertSame(
+            listBox,
+            this.descriptor.doFillValueItems(project, queryParam)
+        );
+        
+        verify(parameter, times(1)).getMaxBuildOptions();
+        verify(buildOptionsProvider, times(1)).getOptionsForProject(same(project), eq(0), eq(25));
+        verify(buildOptionsProvider, never()).getOptionsForProject(same(project));
+    }
+
     @Test
     public void testDoFillValueItemsReturnsEmptyListAsFallback() throws Exception {
         final String queryParam = "PARAMETER";
@@ -352,6 +407,241 @@ public class OtherBuildSelectorParameterDefinitionTest {
         verify(this.projectProvider, times(1)).provideProject(same(this.projectName));
     }
     
+    @Test
+    public void testGetValueOptionsReturnsPageWithFurtherOptionsIndicator() throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        
+        when(parameter.getBuildResultFilter()).thenReturn(this.buildResultFilter);
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        
+        ListBoxModel listBox = new ListBoxModel();
+        listBox.add("#3", "3");
+        listBox.add("#2", "2");
+        listBox.add("#1", "1");
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(eq(Result.SUCCESS))).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(buildOptionsProvider.getOptionsForProjectBefore(same(project), eq(7), eq(3), eq("QUERY"))).thenReturn(listBox);
+        
+        when(this.descriptor.getValueOptions(same(parameter), anyInt(), anyInt(), anyInt(), anyString())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        JSONObject page = this.descriptor.getValueOptions(parameter, 4, 7, 2, "QUERY");
+        
+        assertEquals(2, page.getJSONArray("options").size());
+        assertEquals("#3", page.getJSONArray("options").getJSONObject(0).getString("name"));
+        assertEquals("2", page.getJSONArray("options").getJSONObject(1).getString("value"));
+        assertEquals(4, page.getInt("offset"));
+        assertEquals(2, page.getInt("next"));
+        assertTrue(page.getBoolean("more"));
+        
+        verify(buildOptionsProvider, times(1)).getOptionsForProjectBefore(same(project), eq(7), eq(3), eq("QUERY"));
+        verify(buildOptionsProvider, never()).getOptionsForProject(any(AbstractProject.class), anyInt(), anyInt(), anyString());
+    }
+    
+    @Test
+    public void testGetValueOptionsUsesDefaultPageSize() throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(null)).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(buildOptionsProvider.getOptionsForProjectBefore(same(project), anyInt(), anyInt(), anyString())).thenReturn(new ListBoxModel());
+        
+        when(this.descriptor.getValueOptions(same(parameter), anyInt(), anyInt(), anyInt(), anyString())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        JSONObject page = this.descriptor.getValueOptions(parameter, -1, 0, 0, "");
+        
+        assertEquals(0, page.getJSONArray("options").size());
+        assertEquals(0, page.getInt("offset"));
+        assertEquals(0, page.getInt("next"));
+        assertFalse(page.getBoolean("more"));
+        
+        verify(buildOptionsProvider, times(1)).getOptionsForProjectBefore(
+            same(project),
+            eq(0),
+            eq(OtherBuildSelectorParameterDefinition.DescriptorImpl.OPTIONS_PAGE_SIZE + 1),
+            eq("")
+        );
+    }
+    
+    @Test
+    public void testGetValueOptionsRespectsMaxBuildOptions() throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        
+        when(parameter.getBuildResultFilter()).thenReturn(this.buildResultFilter);
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        when(parameter.getMaxBuildOptions()).thenReturn(60);
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(eq(Result.SUCCESS))).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(buildOptionsProvider.getOptionsForProjectBefore(same(project), anyInt(), anyInt(), anyString())).thenReturn(new ListBoxModel());
+        
+        when(this.descriptor.getValueOptions(same(parameter), anyInt(), anyInt(), anyInt(), anyString())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        this.descriptor.getValueOptions(parameter, 50, 120, 50, "");
+        
+        JSONObject exhausted = this.descriptor.getValueOptions(parameter, 60, 100, 50, "");
+        assertEquals(0, exhausted.getJSONArray("options").size());
+        assertFalse(exhausted.getBoolean("more"));
+        
+        verify(buildOptionsProvider, times(1)).getOptionsForProjectBefore(same(project), eq(120), eq(11), eq(""));
+        verify(buildOptionsProvider, times(1)).getOptionsForProjectBefore(same(project), anyInt(), anyInt(), anyString());
+    }
+    
+    @Test
+    public void testGetValueOptionsReturnsEmptyPageOnException() throws Exception {
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        
+        when(parameter.getBuildResultFilter()).thenReturn(this.buildResultFilter);
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(eq(Result.SUCCESS))).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenThrow(new ProjectNotFoundException(this.projectName));
+        
+        when(this.descriptor.getValueOptions(same(parameter), anyInt(), anyInt(), anyInt(), anyString())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        JSONObject page = this.descriptor.getValueOptions(parameter, 0, 0, 0, "");
+        
+        assertEquals(0, page.getJSONArray("options").size());
+        assertFalse(page.getBoolean("more"));
+    }
+    
+    @Test
+    public void testDoValueOptionsWritesJson() throws Exception {
+        final String queryParam = "PARAMETER";
+        
+        AbstractProject project = mock(AbstractProject.class);
+        ParametersDefinitionProperty prop = mock(ParametersDefinitionProperty.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        StaplerResponse rsp = mock(StaplerResponse.class);
+        StringWriter writer = new StringWriter();
+        
+        JSONObject page = new JSONObject();
+        page.put("more", false);
+        
+        when(project.getProperty(same(ParametersDefinitionProperty.class))).thenReturn(prop);
+        when(prop.getParameterDefinition(same(queryParam))).thenReturn(parameter);
+        when(rsp.getWriter()).thenReturn(new PrintWriter(writer));
+        when(this.descriptor.getValueOptions(same(parameter), eq(50), eq(81), eq(25), eq("QUERY"))).thenReturn(page);
+        
+        doCallRealMethod().when(this.descriptor).doValueOptions(
+            same(project), same(queryParam), anyInt(), anyInt(), anyInt(), anyString(), same(rsp)
+        );
+        
+        this.descriptor.doValueOptions(project, queryParam, 50, 81, 25, "QUERY", rsp);
+        
+        assertEquals(page.toString(), writer.toString());
+        
+        verify(rsp, times(1)).setContentType(eq("application/json;charset=UTF-8"));
+        verify(this.descriptor, times(1)).getValueOptions(same(parameter), eq(50), eq(81), eq(25), eq("QUERY"));
+    }
+    
+    @Test
+    public void testSearchValueOptionsUsesSearchIndex() throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        BuildSearchIndex searchIndex = mock(BuildSearchIndex.class);
+        this.descriptor.searchIndex = searchIndex;
+        
+        when(parameter.getBuildResultFilter()).thenReturn(this.buildResultFilter);
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        
+        ListBoxModel listBox = new ListBoxModel();
+        listBox.add("#12", "12");
+        listBox.add("#10", "10");
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(eq(Result.SUCCESS))).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(searchIndex.search(same(project), eq("QUERY"), same(Result.SUCCESS), eq(3))).thenReturn(Arrays.asList(12, 10, 7));
+        when(buildOptionsProvider.getOptionsForBuilds(same(project), eq(Arrays.asList(12, 10)))).thenReturn(listBox);
+        
+        when(this.descriptor.searchValueOptions(same(parameter), anyString(), anyInt())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        JSONObject page = this.descriptor.searchValueOptions(parameter, "QUERY", 2);
+        
+        assertEquals(2, page.getJSONArray("options").size());
+        assertEquals("12", page.getJSONArray("options").getJSONObject(0).getString("value"));
+        assertTrue(page.getBoolean("more"));
+        
+        verify(searchIndex, times(1)).search(same(project), eq("QUERY"), same(Result.SUCCESS), eq(3));
+        verify(buildOptionsProvider, never()).getOptionsForProject(same(project));
+    }
+    
+    @Test
+    public void testSearchValueOptionsUsesDefaultLimitWithinMaxBuildOptions() throws Exception {
+        AbstractProject project = mock(AbstractProject.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        BuildSearchIndex searchIndex = mock(BuildSearchIndex.class);
+        this.descriptor.searchIndex = searchIndex;
+        
+        when(parameter.getProjectName()).thenReturn(this.projectName);
+        
+        ResultFilteringOtherProjectBuildOptionsProvider buildOptionsProvider = mock(ResultFilteringOtherProjectBuildOptionsProvider.class);
+        when(this.buildOptionsProviderFactory.buildProvider(null)).thenReturn(buildOptionsProvider);
+        when(this.projectProvider.provideProject(same(this.projectName))).thenReturn(project);
+        when(searchIndex.search(same(project), anyString(), any(Result.class), anyInt())).thenReturn(Arrays.<Integer>asList());
+        when(buildOptionsProvider.getOptionsForBuilds(same(project), anyList())).thenReturn(new ListBoxModel());
+        
+        when(this.descriptor.searchValueOptions(same(parameter), anyString(), anyInt())).thenCallRealMethod();
+        when(this.descriptor.createValueOptionsPage(isA(ListBoxModel.class), anyInt(), anyBoolean())).thenCallRealMethod();
+        
+        assertFalse(this.descriptor.searchValueOptions(parameter, "", 0).getBoolean("more"));
+        
+        when(parameter.getMaxBuildOptions()).thenReturn(5);
+        this.descriptor.searchValueOptions(parameter, "", 0);
+        
+        verify(searchIndex, times(1)).search(
+            same(project),
+            eq(""),
+            (Result) isNull(),
+            eq(OtherBuildSelectorParameterDefinition.DescriptorImpl.SEARCH_RESULT_LIMIT + 1)
+        );
+        verify(searchIndex, times(1)).search(same(project), eq(""), (Result) isNull(), eq(6));
+    }
+    
+    @Test
+    public void testDoSearchValueOptionsWritesJson() throws Exception {
+        final String queryParam = "PARAMETER";
+        
+        AbstractProject project = mock(AbstractProject.class);
+        ParametersDefinitionProperty prop = mock(ParametersDefinitionProperty.class);
+        OtherBuildSelectorParameterDefinition parameter = mock(OtherBuildSelectorParameterDefinition.class);
+        StaplerResponse rsp = mock(StaplerResponse.class);
+        StringWriter writer = new StringWriter();
+        
+        JSONObject page = new JSONObject();
+        page.put("more", false);
+        
+        when(project.getProperty(same(ParametersDefinitionProperty.class))).thenReturn(prop);
+        when(prop.getParameterDefinition(same(queryParam))).thenReturn(parameter);
+        when(rsp.getWriter()).thenReturn(new PrintWriter(writer));
+        when(this.descriptor.searchValueOptions(same(parameter), eq("QUERY"), eq(10))).thenReturn(page);
+        
+        doCallRealMethod().when(this.descriptor).doSearchValueOptions(
+            same(project), same(queryParam), anyString(), anyInt(), same(rsp)
+        );
+        
+        this.descriptor.doSearchValueOptions(project, queryParam, "QUERY", 10, rsp);
+        
+        assertEquals(page.toString(), writer.toString());
+        
+        verify(rsp, times(1)).setContentType(eq("application/json;charset=UTF-8"));
+    }
+    
     @Test
     public void testGetDescriptorDisplayName() {
         when(this.descriptor.getDisplayName()).thenCallRealMethod();
@@ -25,15 +25,26 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars;
 
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsConfiguration;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.ImportVarsExecutor;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.ExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment.BuildEnvironmentProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 import static org.mockito.Mockito.*;
 import static org.junit.Assert.*;
 
@@ -45,18 +56,18 @@ import static org.junit.Assert.*;
 public class OtherBuildSelectorParameterValueTest {
     
     private final String parameterName = "PARAMETER NAME";
-    private ImportVarsConfiguration<TemplatingEnvVarsCopier<EnvVars>> configuration;
+    private ImportVarsConfiguration<TemplatingEnvVarsCopier<Map<String, String>>> configuration;
     private ImportVarsExecutor executor;
     private TaskListener listener;
     private OtherBuildSelectorParameterValue value;
     
     private Run<?, ?> build;
     private EnvVars vars;
-    private TemplatingEnvVarsCopier<EnvVars> varCopier;
+    private TemplatingEnvVarsCopier<Map<String, String>> varCopier;
 
     @Before
     public void setUp() throws Exception {
-        this.configuration = (ImportVarsConfiguration<TemplatingEnvVarsCopier<EnvVars>>) mock(ImportVarsConfiguration.class);
+        this.configuration = (ImportVarsConfiguration<TemplatingEnvVarsCopier<Map<String, String>>>) mock(ImportVarsConfiguration.class);
         this.executor = mock(ImportVarsExecutor.class);
         this.listener = mock(TaskListener.class);
         
@@ -69,7 +80,7 @@ public class OtherBuildSelectorParameterValueTest {
         
         this.build = mock(Run.class);
         this.vars = mock(EnvVars.class);
-        this.varCopier = (TemplatingEnvVarsCopier<EnvVars>) mock(TemplatingEnvVarsCopier.class);
+        this.varCopier = (TemplatingEnvVarsCopier<Map<String, String>>) mock(TemplatingEnvVarsCopier.class);
         
         when(this.vars.put(any(String.class), any(String.class))).thenReturn(null);
     }
@@ -103,7 +114,7 @@ public class OtherBuildSelectorParameterValueTest {
         when(
             this.executor.perform(
                 same(this.configuration),
-                same(this.varCopier),
+                isA(TemplatingEnvVarsCopier.class),
                 same(this.vars),
                 same(this.listener),
                 isNull(AbstractBuild.class)
@@ -114,13 +125,27 @@ public class OtherBuildSelectorParameterValueTest {
         
         verify(this.configuration, times(1)).getVarTemplater();
         
+        ArgumentCaptor<TemplatingEnvVarsCopier> copierCaptor = ArgumentCaptor.forClass(TemplatingEnvVarsCopier.class);
+        
         verify(this.executor, times(1)).perform(
             same(this.configuration),
-            same(this.varCopier),
+            copierCaptor.capture(),
             same(this.vars),
             same(this.listener),
             isNull(AbstractBuild.class)
         );
+        
+        // The copier handed to the executor must delegate to the configured copier
+        Map<String, String> source = new HashMap<>();
+        Map<String, String> target = new HashMap<>();
+        
+        when(this.varCopier.getVarNameTemplate()).thenReturn("IMPORTED_%s");
+        
+        TemplatingEnvVarsCopier<Map<String, String>> copier = copierCaptor.getValue();
+        copier.copyEnvVars(source, target);
+        
+        assertEquals("IMPORTED_%s", copier.getVarNameTemplate());
+        verify(this.varCopier, times(1)).copyEnvVars(same(source), isA(Map.class));
     }
 
     @Test
@@ -132,7 +157,7 @@ public class OtherBuildSelectorParameterValueTest {
         when(
             this.executor.perform(
                 same(this.configuration),
-                same(this.varCopier),
+                isA(TemplatingEnvVarsCopier.class),
                 same(this.vars),
                 same(this.listener),
                 isNull(AbstractBuild.class)
@@ -158,11 +183,111 @@ public class OtherBuildSelectorParameterValueTest {
         
         verify(this.executor, times(0)).perform(
             same(this.configuration),
-            same(this.varCopier),
+            isA(TemplatingEnvVarsCopier.class),
             same(this.vars),
             same(this.listener),
             isNull(AbstractBuild.class)
         );
     }
 
+    @Test
+    public void testBuildEnvironmentImportsOncePerBuild() throws Exception {
+        final EnvVars otherBuildVars = new EnvVars("ONE", "one");
+        final EnvVars currentBuildVars = new EnvVars();
+
+        when(this.configuration.getBuildId()).thenReturn("42");
+        when(this.configuration.getVarTemplater()).thenReturn(this.varCopier);
+
+        this.value = new OtherBuildSelectorParameterValue(
+            parameterName,
+            configuration,
+            executor,
+            listener
+        );
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                Map<String, String> target = (Map<String, String>) invocation.getArguments()[1];
+                target.put("IMPORTED_ONE", "one");
+
+                return null;
+            }
+        }).when(this.varCopier).copyEnvVars(same(otherBuildVars), isA(Map.class));
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                TemplatingEnvVarsCopier<Map<String, String>> copier = (TemplatingEnvVarsCopier<Map<String, String>>) invocation.getArguments()[1];
+                copier.copyEnvVars(otherBuildVars, (EnvVars) invocation.getArguments()[2]);
+
+                return null;
+            }
+        }).when(this.executor).perform(
+            same(this.configuration),
+            isA(TemplatingEnvVarsCopier.class),
+            isA(EnvVars.class),
+            same(this.listener),
+            isNull(AbstractBuild.class)
+        );
+
+        this.value.buildEnvironment(this.build, currentBuildVars);
+        assertEquals("one", currentBuildVars.get("IMPORTED_ONE"));
+
+        EnvVars laterBuildVars = new EnvVars();
+        this.value.buildEnvironment(this.build, laterBuildVars);
+        assertEquals("one", laterBuildVars.get("IMPORTED_ONE"));
+
+        verify(this.executor, times(1)).perform(
+            same(this.configuration),
+            isA(TemplatingEnvVarsCopier.class),
+            isA(EnvVars.class),
+            same(this.listener),
+            isNull(AbstractBuild.class)
+        );
+
+        Run<?, ?> otherBuild = mock(Run.class);
+        this.value.buildEnvironment(otherBuild, new EnvVars());
+
+        verify(this.executor, times(2)).perform(
+            same(this.configuration),
+            isA(TemplatingEnvVarsCopier.class),
+            isA(EnvVars.class),
+            same(this.listener),
+            isNull(AbstractBuild.class)
+        );
+    }
+
+    @Test
+    public void testBuildEnvironmentImportsFromNonEnvVarsEnvironment() throws Exception {
+        final String projectName = "PROJECT NAME";
+        final AbstractProject otherProject = mock(AbstractProject.class);
+        final AbstractBuild otherBuild = mock(AbstractBuild.class);
+        final ExternalProjectProvider<AbstractProject> projectProvider = (ExternalProjectProvider<AbstractProject>) mock(ExternalProjectProvider.class);
+        final ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider = (ExternalBuildProvider<AbstractProject, AbstractBuild>) mock(ExternalBuildProvider.class);
+        final BuildEnvironmentProvider<AbstractBuild> environmentProvider = (BuildEnvironmentProvider<AbstractBuild>) mock(BuildEnvironmentProvider.class);
+
+        final Map<String, String> otherBuildVars = new HashMap<>();
+        otherBuildVars.put("ONE", "one");
+
+        when(projectProvider.provideProject(same(projectName))).thenReturn(otherProject);
+        when(buildProvider.provideBuild(same(otherProject), eq("42"))).thenReturn(otherBuild);
+        when(environmentProvider.provideEnvironment(same(otherBuild), same(this.listener))).thenReturn(
+            Collections.unmodifiableMap(otherBuildVars)
+        );
+
+        this.value = new OtherBuildSelectorParameterValue(
+            parameterName,
+            new ImportVarsConfiguration<>(projectName, "42", new EnvContributingVarsImporter("IMPORTED_%s")),
+            new ImportVarsExecutor.CopierImpl(projectProvider, buildProvider, environmentProvider),
+            listener
+        );
+
+        EnvVars currentBuildVars = new EnvVars();
+        this.value.buildEnvironment(this.build, currentBuildVars);
+
+        assertEquals("one", currentBuildVars.get("IMPORTED_ONE"));
+        assertEquals("42", currentBuildVars.get(parameterName));
+    }
+
 }
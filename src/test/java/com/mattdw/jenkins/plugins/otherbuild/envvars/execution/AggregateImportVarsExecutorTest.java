@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameFilter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildNotFoundException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.ExternalBuildProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment.BuildEnvironmentProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ProjectNotFoundException;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.util.RunList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import org.junit.runner.RunWith;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AggregateImportVarsExecutorTest {
+
+    private static final String PROJECT_NAME = "TARGET PROJECT NAME";
+
+    private ExternalProjectProvider<AbstractProject> projectProvider;
+    private ExternalBuildProvider<AbstractProject, AbstractBuild> buildProvider;
+    private BuildEnvironmentProvider<AbstractBuild> environmentProvider;
+    private BuildMetadataIndex metadataIndex;
+    private ImportVarsExecutor.CopierImpl copierImpl;
+    private EnvContributingVarsImporter varCopier;
+    private EnvVars currentBuildVars;
+    private TaskListener listener;
+    private AbstractProject otherProject;
+    private AbstractBuild currentBuild;
+    private AbstractBuild runningBuild;
+    private AbstractBuild newestBuild;
+    private AbstractBuild failedBuild;
+    private AbstractBuild oldestBuild;
+
+
+
+    @Before
+    public void setUp() throws Exception {
+        this.projectProvider = (ExternalProjectProvider<AbstractProject>) mock(ExternalProjectProvider.class);
+        this.buildProvider = (ExternalBuildProvider<AbstractProject, AbstractBuild>) mock(ExternalBuildProvider.class);
+        this.environmentProvider = (BuildEnvironmentProvider<AbstractBuild>) mock(BuildEnvironmentProvider.class);
+        this.metadataIndex = mock(BuildMetadataIndex.class);
+
+        this.copierImpl = new ImportVarsExecutor.CopierImpl(
+            this.projectProvider,
+            this.buildProvider,
+            this.environmentProvider,
+            this.metadataIndex
+        );
+
+        this.varCopier = new EnvContributingVarsImporter(EnvContributingVarsImporter.VAR_NAME_TOKEN);
+        this.currentBuildVars = new EnvVars();
+        this.listener = mock(TaskListener.class);
+        this.otherProject = mock(AbstractProject.class);
+        this.currentBuild = mock(AbstractBuild.class);
+
+        this.runningBuild = this.mockBuild(5, null, true, "VERSION", "5.0", "BRANCH", "develop");
+        this.newestBuild = this.mockBuild(4, Result.SUCCESS, false, "VERSION", "4.0", "BRANCH", "master");
+        this.failedBuild = this.mockBuild(3, Result.FAILURE, false, "VERSION", "3.0", "BRANCH", "master");
+        this.oldestBuild = this.mockBuild(2, Result.SUCCESS, false, "VERSION", "2.0", "BRANCH", "master");
+
+        when(this.projectProvider.provideProject(same(PROJECT_NAME))).thenReturn(this.otherProject);
+        when(this.otherProject.getFullName()).thenReturn(PROJECT_NAME);
+        when(this.metadataIndex.getBuildNumbers(same(this.otherProject), same(Result.SUCCESS))).thenReturn(
+            new int[]{4, 2}
+        );
+        when(this.otherProject.getBuilds()).thenReturn(
+            RunList.fromRuns(
+                Arrays.asList(
+                    new AbstractBuild[]{this.runningBuild, this.newestBuild, this.failedBuild, this.oldestBuild}
+                )
+            )
+        );
+    }
+
+    private AbstractBuild mockBuild(
+        int number,
+        Result result,
+        boolean building,
+        String... vars
+    ) throws Exception {
+        AbstractBuild build = mock(AbstractBuild.class);
+        Map<String, String> envVars = new HashMap<>();
+
+        for (int i = 0; i < vars.length; i += 2) {
+            envVars.put(vars[i], vars[i + 1]);
+        }
+
+        when(build.getNumber()).thenReturn(number);
+        when(build.getResult()).thenReturn(result);
+        when(build.isBuilding()).thenReturn(building);
+        when(this.otherProject.getBuildByNumber(number)).thenReturn(build);
+        when(this.environmentProvider.provideEnvironment(same(build), any(TaskListener.class))).thenReturn(envVars);
+
+        return build;
+    }
+
+    private AggregateImportConfiguration<TemplatingEnvVarsCopier> configure(
+        int buildCount,
+        Result resultFilter,
+        VarReducer reducer,
+        TemplatingEnvVarsCopier templater
+    ) {
+        return new AggregateImportConfiguration<>(
+            PROJECT_NAME,
+            buildCount,
+            resultFilter,
+            reducer,
+            null,
+            templater
+        );
+    }
+
+    @Test
+    public void testPerformAggregateReducesNewestCompletedBuilds() throws Exception {
+        ImportVarsResult result = this.copierImpl.performAggregate(
+            this.configure(3, null, VarReducer.DISTINCT, new EnvContributingVarsImporter("OTHER_%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0,3.0,2.0", this.currentBuildVars.get("OTHER_VERSION"));
+        assertEquals("master", this.currentBuildVars.get("OTHER_BRANCH"));
+
+        assertEquals(PROJECT_NAME, result.getProjectName());
+        assertEquals("4..2", result.getBuildId());
+        assertEquals(2, result.getTotalVarsImported());
+        assertEquals(BuildLookupStrategy.SCAN, result.getLookupStrategy());
+
+        verify(this.environmentProvider, never()).provideEnvironment(same(this.runningBuild), any(TaskListener.class));
+        verifyZeroInteractions(this.buildProvider);
+    }
+
+    @Test
+    public void testPerformAggregateStopsOnceEnoughBuildsFound() throws Exception {
+        ImportVarsResult result = this.copierImpl.performAggregate(
+            this.configure(1, null, VarReducer.COLLECT, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0", this.currentBuildVars.get("VERSION"));
+        assertEquals("4", result.getBuildId());
+
+        verify(this.failedBuild, never()).isBuilding();
+        verify(this.environmentProvider, never()).provideEnvironment(same(this.failedBuild), any(TaskListener.class));
+        verify(this.environmentProvider, never()).provideEnvironment(same(this.oldestBuild), any(TaskListener.class));
+    }
+
+    @Test
+    public void testPerformAggregateFiltersByResult() throws Exception {
+        ImportVarsResult result = this.copierImpl.performAggregate(
+            this.configure(5, Result.SUCCESS, VarReducer.COLLECT, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0,2.0", this.currentBuildVars.get("VERSION"));
+        assertEquals("master,master", this.currentBuildVars.get("BRANCH"));
+        assertEquals("4..2", result.getBuildId());
+        assertEquals(BuildLookupStrategy.RESULT_INDEX, result.getLookupStrategy());
+
+        // Only the builds recorded with the result are loaded
+        verify(this.otherProject, never()).getBuildByNumber(3);
+        verify(this.otherProject, never()).getBuilds();
+        verify(this.environmentProvider, never()).provideEnvironment(same(this.failedBuild), any(TaskListener.class));
+    }
+
+    @Test
+    public void testPerformAggregateFiltersByResultWithoutMetadataIndex() throws Exception {
+        this.copierImpl = new ImportVarsExecutor.CopierImpl(
+            this.projectProvider,
+            this.buildProvider,
+            this.environmentProvider,
+            null
+        );
+
+        ImportVarsResult result = this.copierImpl.performAggregate(
+            this.configure(5, Result.SUCCESS, VarReducer.COLLECT, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0,2.0", this.currentBuildVars.get("VERSION"));
+        assertEquals("4..2", result.getBuildId());
+        assertEquals(BuildLookupStrategy.SCAN, result.getLookupStrategy());
+
+        verify(this.environmentProvider, never()).provideEnvironment(same(this.failedBuild), any(TaskListener.class));
+        verifyZeroInteractions(this.metadataIndex);
+    }
+
+    @Test
+    public void testPerformAggregateKeepsOnlyNewestValue() throws Exception {
+        this.copierImpl.performAggregate(
+            this.configure(3, null, VarReducer.NEWEST, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0", this.currentBuildVars.get("VERSION"));
+    }
+
+    @Test
+    public void testPerformAggregateAppliesVarNameFilter() throws Exception {
+        ImportVarsResult result = this.copierImpl.performAggregate(
+            this.configure(
+                3,
+                null,
+                VarReducer.DISTINCT,
+                new EnvContributingVarsImporter("%s", new VarNameFilter("VERSION", null))
+            ),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0,3.0,2.0", this.currentBuildVars.get("VERSION"));
+        assertFalse(this.currentBuildVars.containsKey("BRANCH"));
+        assertEquals(1, result.getTotalVarsImported());
+    }
+
+    @Test
+    public void testPerformCountsOnlyFilteredVars() throws Exception {
+        final EnvContributingVarsImporter filteringCopier = new EnvContributingVarsImporter(
+            "%s",
+            new VarNameFilter("VERSION", null)
+        );
+
+        when(this.buildProvider.provideBuild(same(this.otherProject), eq("4"))).thenReturn(this.newestBuild);
+
+        ImportVarsResult result = this.copierImpl.perform(
+            new ImportVarsConfiguration<TemplatingEnvVarsCopier>(PROJECT_NAME, "4", filteringCopier),
+            filteringCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0", this.currentBuildVars.get("VERSION"));
+        assertFalse(this.currentBuildVars.containsKey("BRANCH"));
+        assertEquals(1, result.getTotalVarsImported());
+    }
+
+    @Test
+    public void testPerformAllCountsOnlyFilteredVars() throws Exception {
+        when(this.buildProvider.provideBuild(same(this.otherProject), eq("4"))).thenReturn(this.newestBuild);
+
+        List<ImportVarsResult> results = this.copierImpl.performAll(
+            Arrays.asList(
+                new ImportVarsConfiguration<TemplatingEnvVarsCopier>(
+                    PROJECT_NAME,
+                    "4",
+                    new EnvContributingVarsImporter("%s", new VarNameFilter(null, "BRANCH"))
+                )
+            ),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals("4.0", this.currentBuildVars.get("VERSION"));
+        assertFalse(this.currentBuildVars.containsKey("BRANCH"));
+        assertEquals(1, results.get(0).getTotalVarsImported());
+    }
+
+    @Test(expected = BuildNotFoundException.class)
+    public void testPerformAggregateThrowsWhenNoBuildsMatch() throws Exception {
+        this.copierImpl.performAggregate(
+            this.configure(3, Result.UNSTABLE, VarReducer.DISTINCT, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+    }
+
+    @Test(expected = ProjectNotFoundException.class)
+    public void testPerformAggregateThrowsWhenProjectNotFound() throws Exception {
+        when(this.projectProvider.provideProject(same(PROJECT_NAME))).thenThrow(
+            new ProjectNotFoundException(PROJECT_NAME)
+        );
+
+        this.copierImpl.performAggregate(
+            this.configure(3, null, VarReducer.DISTINCT, new EnvContributingVarsImporter("%s")),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EnvVarsImportTest {
+
+    private final String projectName = "PROJECT NAME";
+    private final String buildId = "42";
+    private ImportVarsExecutor executor;
+    private TaskListener listener;
+
+    @Before
+    public void setUp() {
+        this.executor = mock(ImportVarsExecutor.class);
+        this.listener = mock(TaskListener.class);
+    }
+
+    @Test
+    public void testDefaultsToOriginalVarNames() {
+        assertEquals(
+            EnvVarsImport.DEFAULT_VAR_NAME_TEMPLATE,
+            new EnvVarsImport(this.projectName, this.buildId, null, null, null, null).getVarNameTemplate()
+        );
+        assertEquals(
+            EnvVarsImport.DEFAULT_VAR_NAME_TEMPLATE,
+            new EnvVarsImport(this.projectName, this.buildId, "", null, null, null).getVarNameTemplate()
+        );
+    }
+
+    @Test
+    public void testPinToUsesBuildNumberFirst() {
+        EnvVarsImport envVarsImport = new EnvVarsImport(
+            this.projectName,
+            "lastSuccessfulBuild",
+            "UPSTREAM_%s",
+            null,
+            null,
+            BuildResolutionOrder.NAME_FIRST
+        );
+
+        EnvVarsImport pinned = envVarsImport.pinTo(this.buildId);
+
+        assertEquals(this.projectName, pinned.getProjectName());
+        assertEquals(this.buildId, pinned.getBuildId());
+        assertEquals("UPSTREAM_%s", pinned.getVarNameTemplate());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, pinned.getResolutionOrder());
+    }
+
+    @Test
+    public void testPinResolvesBuildWithoutImporting() throws Exception {
+        final AbstractBuild build = mock(AbstractBuild.class);
+
+        ArgumentCaptor<ImportVarsConfiguration> configuration = ArgumentCaptor.forClass(ImportVarsConfiguration.class);
+
+        when(build.getNumber()).thenReturn(17);
+        when(this.executor.resolve(configuration.capture(), isA(EnvVars.class))).thenReturn(build);
+
+        EnvVarsImport envVarsImport = new EnvVarsImport(
+            this.projectName,
+            "lastSuccessfulBuild",
+            "UPSTREAM_%s",
+            null,
+            null,
+            BuildResolutionOrder.NAME_FIRST
+        );
+
+        EnvVarsImport pinned = envVarsImport.pin(this.executor);
+
+        assertEquals("17", pinned.getBuildId());
+        assertEquals("UPSTREAM_%s", pinned.getVarNameTemplate());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, pinned.getResolutionOrder());
+
+        assertEquals(this.projectName, configuration.getValue().getProjectName());
+        assertEquals("lastSuccessfulBuild", configuration.getValue().getBuildId());
+        assertEquals(BuildResolutionOrder.NAME_FIRST, configuration.getValue().getResolutionOrder());
+
+        verify(this.executor, never()).perform(
+            any(ImportVarsConfiguration.class),
+            any(EnvContributingVarsImporter.class),
+            any(EnvVars.class),
+            any(TaskListener.class),
+            any(AbstractBuild.class)
+        );
+    }
+
+    @Test
+    public void testPerformDelegatesToExecutorWithoutCurrentBuild() throws Exception {
+        final EnvVars target = new EnvVars();
+        final ImportVarsResult result = new ImportVarsResult(this.projectName, this.buildId, 1);
+
+        ArgumentCaptor<ImportVarsConfiguration> configuration = ArgumentCaptor.forClass(ImportVarsConfiguration.class);
+
+        when(
+            this.executor.perform(
+                configuration.capture(),
+                isA(EnvContributingVarsImporter.class),
+                same(target),
+                same(this.listener),
+                (AbstractBuild) isNull()
+            )
+        ).thenAnswer(new Answer<ImportVarsResult>() {
+            @Override
+            public ImportVarsResult answer(InvocationOnMock invocation) throws Throwable {
+                EnvContributingVarsImporter copier = (EnvContributingVarsImporter) invocation.getArguments()[1];
+                copier.copyEnvVars(Collections.singletonMap("VERSION", "1.0"), target);
+
+                return result;
+            }
+        });
+
+        EnvVarsImport envVarsImport = new EnvVarsImport(
+            this.projectName,
+            this.buildId,
+            "UPSTREAM_%s",
+            null,
+            null,
+            BuildResolutionOrder.NUMBER_FIRST
+        );
+
+        assertSame(result, envVarsImport.perform(this.executor, target, this.listener));
+        assertEquals("1.0", target.get("UPSTREAM_VERSION"));
+
+        assertEquals(this.projectName, configuration.getValue().getProjectName());
+        assertEquals(this.buildId, configuration.getValue().getBuildId());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, configuration.getValue().getResolutionOrder());
+    }
+
+}
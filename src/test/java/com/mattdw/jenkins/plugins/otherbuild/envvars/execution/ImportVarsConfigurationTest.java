@@ -24,6 +24,7 @@
 package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.VarNameTemplateAware;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
 import org.junit.Before;
 import org.junit.Test;
 import static org.mockito.Mockito.*;
@@ -69,5 +70,19 @@ public class ImportVarsConfigurationTest {
     public void testGetVarTemplater() {
         assertSame(this.varTemplater, this.config.getVarTemplater());
     }
+
+    @Test
+    public void testGetResolutionOrder() {
+        assertNull(this.config.getResolutionOrder());
+
+        ImportVarsConfiguration orderedConfig = new ImportVarsConfiguration(
+            this.projectName,
+            this.buildId,
+            this.varTemplater,
+            BuildResolutionOrder.NUMBER_FIRST
+        );
+
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, orderedConfig.getResolutionOrder());
+    }
     
 }
@@ -25,6 +25,8 @@ package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingEnvVarsCopier;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.TemplatingOtherBuildEnvVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.metrics.ImportMetrics;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.ExternalBuildProvider;
 import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project.ExternalProjectProvider;
 import hudson.EnvVars;
@@ -127,10 +129,39 @@ public class ImportVarsExecutorTest {
         assertSame(PROJECT_NAME, result.getProjectName());
         assertEquals(String.valueOf(BUILD_NUMBER), result.getBuildId());
         assertEquals(OTHER_BUILD_VARS_TOTAL, result.getTotalVarsImported());
+        assertEquals(BuildLookupStrategy.UNKNOWN, result.getLookupStrategy());
+        assertTrue(result.getTotalNanos() >= result.getTransferNanos());
 
         verify(this.varCopier, times(1)).copyEnvVars(same(this.otherBuildVars), same(this.currentBuildVars));
     }
 
+    @Test
+    public void testPerformRecordsMetrics() throws Exception {
+        final ImportMetrics metrics = ImportMetrics.getInstance();
+        final long imports = metrics.getCount(ImportMetrics.Counter.IMPORTS);
+        final long varsCopied = metrics.getCount(ImportMetrics.Counter.VARS_COPIED);
+        final long[] phaseCounts = new long[ImportMetrics.Phase.values().length];
+
+        for (ImportMetrics.Phase phase : ImportMetrics.Phase.values()) {
+            phaseCounts[phase.ordinal()] = metrics.getPhase(phase).getCount();
+        }
+
+        this.copierImpl.perform(
+            new ImportVarsConfiguration(PROJECT_NAME, BUILD_ID, this.varCopier),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals(imports + 1, metrics.getCount(ImportMetrics.Counter.IMPORTS));
+        assertEquals(varsCopied + OTHER_BUILD_VARS_TOTAL, metrics.getCount(ImportMetrics.Counter.VARS_COPIED));
+
+        for (ImportMetrics.Phase phase : ImportMetrics.Phase.values()) {
+            assertEquals(phaseCounts[phase.ordinal()] + 1, metrics.getPhase(phase).getCount());
+        }
+    }
+
     @Test
     public void testImporterImplPerform() throws Exception {
         this.config = new ImportVarsConfiguration(
@@ -156,4 +187,55 @@ public class ImportVarsExecutorTest {
         verify(this.varImporter, times(1)).importVars(same(this.currentBuild), same(this.otherBuildVars));
     }
 
+    @Test
+    public void testCopierImplPerformAllMergesInOrderOfPrecedence() throws Exception {
+        final AbstractProject secondProject = mock(AbstractProject.class);
+        final AbstractBuild secondBuild = mock(AbstractBuild.class);
+        final EnvVars secondBuildVars = new EnvVars("SHARED", "second", "SECOND_ONLY", "2");
+        final TemplatingEnvVarsCopier secondCopier = new com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter("%s");
+
+        when(this.currentBuildVars.expand(eq("SECOND BUILD ID"))).thenReturn("SECOND BUILD ID");
+        when(this.projectProvider.provideProject(eq("SECOND PROJECT NAME"))).thenReturn(secondProject);
+        when(this.buildProvider.provideBuild(same(secondProject), eq("SECOND BUILD ID"))).thenReturn(secondBuild);
+        when(secondBuild.getNumber()).thenReturn(42);
+        when(secondBuild.getEnvironment(same(this.listener))).thenReturn(secondBuildVars);
+
+        doAnswer(new org.mockito.stubbing.Answer() {
+            @Override
+            public Object answer(org.mockito.invocation.InvocationOnMock invocation) throws Throwable {
+                java.util.Map<String, String> target = (java.util.Map<String, String>) invocation.getArguments()[1];
+                target.put("SHARED", "first");
+                target.put("FIRST_ONLY", "1");
+
+                return null;
+            }
+        }).when(this.varCopier).copyEnvVars(same(this.otherBuildVars), isA(java.util.Map.class));
+
+        java.util.List<ImportVarsResult> results = this.copierImpl.performAll(
+            java.util.Arrays.asList(
+                new ImportVarsConfiguration(PROJECT_NAME, BUILD_ID, this.varCopier),
+                new ImportVarsConfiguration("SECOND PROJECT NAME", "SECOND BUILD ID", secondCopier)
+            ),
+            this.varCopier,
+            this.currentBuildVars,
+            this.listener,
+            this.currentBuild
+        );
+
+        assertEquals(2, results.size());
+        assertSame(PROJECT_NAME, results.get(0).getProjectName());
+        assertEquals(String.valueOf(BUILD_NUMBER), results.get(0).getBuildId());
+        assertEquals(OTHER_BUILD_VARS_TOTAL, results.get(0).getTotalVarsImported());
+        assertEquals("SECOND PROJECT NAME", results.get(1).getProjectName());
+        assertEquals("42", results.get(1).getBuildId());
+        assertEquals(2, results.get(1).getTotalVarsImported());
+
+        org.mockito.ArgumentCaptor<java.util.Map> merged = org.mockito.ArgumentCaptor.forClass(java.util.Map.class);
+        verify(this.varCopier, times(1)).copyEnvVars(merged.capture(), same(this.currentBuildVars));
+
+        assertEquals("second", merged.getValue().get("SHARED"));
+        assertEquals("1", merged.getValue().get("FIRST_ONLY"));
+        assertEquals("2", merged.getValue().get("SECOND_ONLY"));
+    }
+
 }
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import hudson.model.AbstractBuild;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ImportVarsResultActionTest {
+
+    private AbstractBuild build;
+    private ImportVarsResult firstResult;
+    private ImportVarsResult secondResult;
+
+    @Before
+    public void setUp() {
+        this.build = mock(AbstractBuild.class);
+        this.firstResult = new ImportVarsResult("FIRST PROJECT", "12", 3);
+        this.secondResult = new ImportVarsResult("SECOND PROJECT", "42", 5);
+    }
+
+    @Test
+    public void testRecordAddsActionToBuild() {
+        ArgumentCaptor<ImportVarsResultAction> actionCaptor = ArgumentCaptor.forClass(ImportVarsResultAction.class);
+
+        ImportVarsResultAction.record(this.build, Collections.singletonList(this.firstResult));
+
+        verify(this.build, times(1)).addAction(actionCaptor.capture());
+
+        assertEquals(
+            Collections.singletonList(this.firstResult),
+            actionCaptor.getValue().getResults()
+        );
+    }
+
+    @Test
+    public void testRecordAppendsToExistingAction() {
+        ImportVarsResultAction action = new ImportVarsResultAction();
+        action.addResults(Collections.singletonList(this.firstResult));
+
+        when(this.build.getAction(ImportVarsResultAction.class)).thenReturn(action);
+
+        ImportVarsResultAction.record(this.build, Collections.singletonList(this.secondResult));
+
+        verify(this.build, never()).addAction(any(ImportVarsResultAction.class));
+
+        assertEquals(
+            Arrays.asList(this.firstResult, this.secondResult),
+            action.getResults()
+        );
+    }
+
+    @Test
+    public void testRecordDoesNotLockBuild() {
+        final AbstractBuild build = this.build;
+
+        when(build.getAction(ImportVarsResultAction.class)).thenAnswer(new Answer<ImportVarsResultAction>() {
+            @Override
+            public ImportVarsResultAction answer(InvocationOnMock invocation) {
+                assertFalse(Thread.holdsLock(build));
+                return null;
+            }
+        });
+
+        ImportVarsResultAction.record(build, Collections.singletonList(this.firstResult));
+
+        verify(build, times(1)).addAction(isA(ImportVarsResultAction.class));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetResultsIsUnmodifiable() {
+        new ImportVarsResultAction().getResults().add(this.firstResult);
+    }
+
+    @Test
+    public void testOnAttachedRetainsRun() {
+        ImportVarsResultAction action = new ImportVarsResultAction();
+
+        action.onAttached(this.build);
+
+        assertSame(this.build, action.getRun());
+        assertEquals(ImportVarsResultAction.URL_NAME, action.getUrlName());
+    }
+
+}
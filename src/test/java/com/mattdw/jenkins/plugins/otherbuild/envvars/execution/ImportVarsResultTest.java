@@ -23,6 +23,7 @@
  */
 package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildLookupStrategy;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -62,5 +63,55 @@ public class ImportVarsResultTest {
     public void testGetTotalVarsImported() {
         assertSame(this.totalVarsImported, this.result.getTotalVarsImported());
     }
+
+    @Test
+    public void testDefaultTimingsAndStrategy() {
+        assertEquals(BuildLookupStrategy.UNKNOWN, this.result.getLookupStrategy());
+        assertEquals(0L, this.result.getTotalNanos());
+        assertEquals(0L, this.result.getEnvBytes());
+    }
+
+    @Test
+    public void testTimingsAndSize() {
+        ImportVarsResult timedResult = new ImportVarsResult(
+            this.projectName,
+            this.buildId,
+            this.totalVarsImported,
+            BuildLookupStrategy.INDEX,
+            1L,
+            20L,
+            300L,
+            4000L,
+            512L
+        );
+
+        assertEquals(BuildLookupStrategy.INDEX, timedResult.getLookupStrategy());
+        assertEquals(1L, timedResult.getProjectLookupNanos());
+        assertEquals(20L, timedResult.getBuildLookupNanos());
+        assertEquals(300L, timedResult.getEnvironmentNanos());
+        assertEquals(4000L, timedResult.getTransferNanos());
+        assertEquals(4321L, timedResult.getTotalNanos());
+        assertEquals(512L, timedResult.getEnvBytes());
+    }
+
+    @Test
+    public void testSizeOfMatchesUtf8Encoding() throws Exception {
+        java.util.Map<String, String> vars = new java.util.HashMap<>();
+
+        vars.put("ASCII", "value");
+        vars.put("ACCENTED", "caf\u00e9");
+        vars.put("CJK", "\u6f22\u5b57");
+        vars.put("SURROGATE", "\ud83d\ude00");
+        vars.put("EMPTY", "");
+
+        long expected = 0L;
+
+        for (java.util.Map.Entry<String, String> entry : vars.entrySet()) {
+            expected += entry.getKey().getBytes("UTF-8").length + entry.getValue().getBytes("UTF-8").length;
+        }
+
+        assertEquals(expected, ImportVarsResult.sizeOf(vars));
+        assertEquals(0L, ImportVarsResult.sizeOf(null));
+    }
     
 }
@@ -0,0 +1,212 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.Messages;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.execution.factory.ImportVarsExecutorFactory;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.importer.EnvContributingVarsImporter;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildNotFoundException;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build.BuildResolutionOrder;
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LazyImportedEnvVarsTest {
+
+    private final String projectName = "PROJECT NAME";
+    private ImportVarsExecutorFactory executorFactory;
+    private ImportVarsExecutor executor;
+    private LazyImportedEnvVars vars;
+
+    @Before
+    public void setUp() {
+        this.executorFactory = mock(ImportVarsExecutorFactory.class);
+        this.executor = mock(ImportVarsExecutor.class);
+
+        when(this.executorFactory.createExecutor()).thenReturn(this.executor);
+
+        this.vars = new LazyImportedEnvVars(
+            new EnvVarsImport(this.projectName, "lastSuccessfulBuild", null, null, null, BuildResolutionOrder.NAME_FIRST),
+            this.executorFactory
+        );
+    }
+
+    @Test
+    public void testNothingIsImportedUntilRead() {
+        assertFalse(this.vars.isImported());
+
+        verifyZeroInteractions(this.executorFactory, this.executor);
+    }
+
+    @Test
+    public void testImportsOnceOnFirstReadAndPinsBuild() throws Exception {
+        when(
+            this.executor.perform(
+                isA(ImportVarsConfiguration.class),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(TaskListener.NULL),
+                (AbstractBuild) isNull()
+            )
+        ).thenAnswer(new Answer<ImportVarsResult>() {
+            @Override
+            public ImportVarsResult answer(InvocationOnMock invocation) throws Throwable {
+                ((EnvVars) invocation.getArguments()[2]).put("VERSION", "1.0");
+
+                return new ImportVarsResult(projectName, "42", 1);
+            }
+        });
+
+        assertEquals("1.0", this.vars.get("VERSION"));
+        assertTrue(this.vars.containsKey("VERSION"));
+        assertEquals(1, this.vars.size());
+        assertEquals(Collections.singletonMap("VERSION", "1.0"), this.vars);
+        assertTrue(this.vars.isImported());
+
+        assertEquals("42", this.vars.getEnvVarsImport().getBuildId());
+        assertEquals(BuildResolutionOrder.NUMBER_FIRST, this.vars.getEnvVarsImport().getResolutionOrder());
+
+        verify(this.executorFactory, times(1)).createExecutor();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIsReadOnly() {
+        this.vars.put("VERSION", "2.0");
+    }
+
+    @Test
+    public void testImportFailureIsRaisedOnRead() throws Exception {
+        when(
+            this.executor.perform(
+                isA(ImportVarsConfiguration.class),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(TaskListener.NULL),
+                (AbstractBuild) isNull()
+            )
+        ).thenThrow(new BuildNotFoundException(this.projectName, "lastSuccessfulBuild"));
+
+        try {
+            this.vars.get("VERSION");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof BuildNotFoundException);
+        }
+
+        assertFalse(this.vars.isImported());
+    }
+
+    @Test
+    public void testImportFailureIsReportedToListener() throws Exception {
+        TaskListener listener = mock(TaskListener.class);
+        PrintStream logger = mock(PrintStream.class);
+
+        when(listener.getLogger()).thenReturn(logger);
+        when(
+            this.executor.perform(
+                isA(ImportVarsConfiguration.class),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(listener),
+                (AbstractBuild) isNull()
+            )
+        ).thenThrow(new BuildNotFoundException(this.projectName, "lastSuccessfulBuild"));
+
+        LazyImportedEnvVars reportingVars = new LazyImportedEnvVars(
+            this.vars.getEnvVarsImport(),
+            this.executorFactory,
+            listener
+        );
+
+        try {
+            reportingVars.size();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            String message = Messages.ImportOtherBuildEnvVarsBuilder_ImportError(ex.getCause().getMessage());
+
+            assertEquals(message, ex.getMessage());
+            verify(logger, times(1)).println(message);
+        }
+    }
+
+    @Test
+    public void testImportedVarsArePersistedWithMap() throws Exception {
+        when(
+            this.executor.perform(
+                isA(ImportVarsConfiguration.class),
+                isA(EnvContributingVarsImporter.class),
+                isA(EnvVars.class),
+                same(TaskListener.NULL),
+                (AbstractBuild) isNull()
+            )
+        ).thenAnswer(new Answer<ImportVarsResult>() {
+            @Override
+            public ImportVarsResult answer(InvocationOnMock invocation) throws Throwable {
+                ((EnvVars) invocation.getArguments()[2]).put("VERSION", "1.0");
+
+                return new ImportVarsResult(projectName, "42", 1);
+            }
+        });
+
+        assertEquals("1.0", this.vars.get("VERSION"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this.vars);
+        }
+
+        LazyImportedEnvVars resumed;
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            resumed = (LazyImportedEnvVars) in.readObject();
+        }
+
+        assertTrue(resumed.isImported());
+        assertEquals(Collections.singletonMap("VERSION", "1.0"), resumed);
+        assertEquals("42", resumed.getEnvVarsImport().getBuildId());
+
+        verify(this.executorFactory, times(1)).createExecutor();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.execution;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class VarReducerTest {
+
+    private static Map<String, String> vars(String... keysAndValues) {
+        Map<String, String> vars = new HashMap<>();
+
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            vars.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+
+        return vars;
+    }
+
+    private static Map<String, String> reduce(VarReducer reducer, String separator) {
+        VarReducer.Accumulator accumulator = reducer.createAccumulator(separator);
+
+        accumulator.accumulate(vars("VERSION", "3.0", "BRANCH", "master"));
+        accumulator.accumulate(vars("VERSION", "2.0", "BRANCH", "master", "OLD", ""));
+        accumulator.accumulate(vars("VERSION", "1.0", "BRANCH", "develop"));
+
+        return accumulator.getResult();
+    }
+
+    @Test
+    public void testCollect() {
+        Map<String, String> result = reduce(VarReducer.COLLECT, ",");
+
+        assertEquals("3.0,2.0,1.0", result.get("VERSION"));
+        assertEquals("master,master,develop", result.get("BRANCH"));
+        assertEquals("", result.get("OLD"));
+    }
+
+    @Test
+    public void testNewest() {
+        Map<String, String> result = reduce(VarReducer.NEWEST, ",");
+
+        assertEquals("3.0", result.get("VERSION"));
+        assertEquals("master", result.get("BRANCH"));
+        assertEquals("", result.get("OLD"));
+    }
+
+    @Test
+    public void testDistinct() {
+        Map<String, String> result = reduce(VarReducer.DISTINCT, " ");
+
+        assertEquals("3.0 2.0 1.0", result.get("VERSION"));
+        assertEquals("master develop", result.get("BRANCH"));
+        assertEquals("", result.get("OLD"));
+    }
+
+    @Test
+    public void testDistinctKeepsEmptyValues() {
+        VarReducer.Accumulator accumulator = VarReducer.DISTINCT.createAccumulator(",");
+
+        accumulator.accumulate(vars("VALUE", ""));
+        accumulator.accumulate(vars("VALUE", "set"));
+        accumulator.accumulate(vars("VALUE", ""));
+
+        assertEquals(",set", accumulator.getResult().get("VALUE"));
+    }
+
+    @Test
+    public void testEmptyAccumulator() {
+        for (VarReducer reducer : VarReducer.values()) {
+            assertTrue(reducer.createAccumulator(",").getResult().isEmpty());
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.importer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class CompactEnvVarsTest {
+
+    @Test
+    public void testEncodeDecodeRoundTrip() throws Exception {
+        Map<String, String> envVars = new HashMap<>();
+        envVars.put("PATH", "/usr/local/bin:/usr/bin:/bin");
+        envVars.put("ORIGINAL_PATH", "/usr/local/bin:/usr/bin:/bin");
+        envVars.put("EMPTY", "");
+        envVars.put("UNICODE", "café ☃");
+        envVars.put("NULL", null);
+
+        assertEquals(envVars, CompactEnvVars.decode(CompactEnvVars.encode(envVars)));
+    }
+
+    @Test
+    public void testEncodeDecodeEmptyMap() throws Exception {
+        assertTrue(CompactEnvVars.decode(CompactEnvVars.encode(new HashMap<String, String>())).isEmpty());
+    }
+
+    @Test
+    public void testEncodingIsSmallerThanRepetitiveInput() {
+        Map<String, String> envVars = new HashMap<>();
+        StringBuilder plain = new StringBuilder();
+
+        for (int i = 0; i < 200; i++) {
+            envVars.put("NODE_PROPERTY_" + i, "/opt/tools/jdk1.8.0/bin:/usr/bin:/bin");
+            plain.append("NODE_PROPERTY_").append(i).append("/opt/tools/jdk1.8.0/bin:/usr/bin:/bin");
+        }
+
+        assertTrue(CompactEnvVars.encode(envVars).length() < plain.length() / 4);
+    }
+
+    @Test
+    public void testDecodedStringsAreShared() throws Exception {
+        Map<String, String> envVars = new HashMap<>();
+        envVars.put("JAVA_HOME", "/opt/tools/jdk1.8.0");
+
+        String encoded = CompactEnvVars.encode(envVars);
+        Map<String, String> first = CompactEnvVars.decode(encoded);
+        Map<String, String> second = CompactEnvVars.decode(encoded);
+
+        assertSame(first.get("JAVA_HOME"), second.get("JAVA_HOME"));
+        assertSame(
+            first.keySet().iterator().next(),
+            second.keySet().iterator().next()
+        );
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsInvalidBase64() throws Exception {
+        CompactEnvVars.decode("not base64!");
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsCorruptData() throws Exception {
+        CompactEnvVars.decode("AAAAAAAA");
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsValueCountBeyondInput() throws Exception {
+        CompactEnvVars.decode(encodeInts(CompactEnvVars.FORMAT_VERSION, Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsStringLengthBeyondInput() throws Exception {
+        CompactEnvVars.decode(encodeInts(CompactEnvVars.FORMAT_VERSION, 1, Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsNegativeStringLength() throws Exception {
+        CompactEnvVars.decode(encodeInts(CompactEnvVars.FORMAT_VERSION, 1, -2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDecodeRejectsEntryCountBeyondInput() throws Exception {
+        CompactEnvVars.decode(encodeInts(CompactEnvVars.FORMAT_VERSION, 0, 1000000));
+    }
+
+    private static String encodeInts(int version, int... ints) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeByte(version);
+
+            for (int i : ints) {
+                out.writeInt(i);
+            }
+        }
+
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+}
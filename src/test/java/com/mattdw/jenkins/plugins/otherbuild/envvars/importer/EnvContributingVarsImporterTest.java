@@ -27,6 +27,7 @@ import hudson.EnvVars;
 import hudson.model.AbstractBuild;
 import hudson.model.EnvironmentContributingAction;
 import hudson.model.Run;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -113,6 +114,159 @@ public class EnvContributingVarsImporterTest {
     }
 
 
+    @Test
+    public void testCopyEnvVarsAppliesTemplate() {
+        EnvVars source = new EnvVars();
+        source.put("ONE", "one");
+
+        EnvVars target = new EnvVars();
+        this.importer.copyEnvVars(source, target);
+
+        assertEquals(1, target.size());
+        assertEquals("one", target.get("VAR NAME TEMPLATE ONE"));
+        assertEquals("VAR NAME TEMPLATE ONE", this.importer.templateVarName("ONE"));
+        assertEquals(target, this.importer.templateEnvVars(source));
+    }
+
+    @Test
+    public void testCopyEnvVarsAppliesFilter() {
+        this.importer = new EnvContributingVarsImporter(
+            "%s",
+            new VarNameFilter("DEPLOY_*, PATH", "DEPLOY_SECRET")
+        );
+
+        EnvVars source = new EnvVars();
+        source.put("DEPLOY_TARGET", "production");
+        source.put("DEPLOY_SECRET", "hunter2");
+        source.put("PATH", "/bin");
+        source.put("NODE_NAME", "master");
+
+        EnvVars target = new EnvVars();
+        this.importer.copyEnvVars(source, target);
+
+        assertEquals(2, target.size());
+        assertEquals("production", target.get("DEPLOY_TARGET"));
+        assertEquals("/bin", target.get("PATH"));
+    }
+
+    @Test
+    public void testImportVarsPersistsOnlyFilteredVars() throws Exception {
+        Run<?, ?> targetBuild = (Run<?, ?>) mock(Run.class);
+
+        final Class<EnvContributingVarsImporter.ContributingAction> actionClass = EnvContributingVarsImporter.ContributingAction.class;
+        final MutableHolder<EnvContributingVarsImporter.ContributingAction> holder = new MutableHolder<>();
+
+        this.importer = new EnvContributingVarsImporter(this.varNameTemplate, new VarNameFilter(null, "/^T.*$/"));
+
+        final EnvVars otherBuildEnvVars = new EnvVars();
+        otherBuildEnvVars.put("ONE", "one");
+        otherBuildEnvVars.put("TWO", "2");
+
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                holder.setObject(invocation.getArgumentAt(0, actionClass));
+
+                return null;
+            }
+        }).when(targetBuild).replaceAction(isA(actionClass));
+
+        this.importer.importVars(targetBuild, otherBuildEnvVars);
+
+        java.lang.reflect.Field varsField = actionClass.getDeclaredField("otherBuildEnvVars");
+        varsField.setAccessible(true);
+
+        assertEquals(java.util.Collections.singletonMap("ONE", "one"), varsField.get(holder.getObject()));
+    }
+
+    @Test
+    public void testContributingActionHoldsLargeImportsInCompactForm() throws Exception {
+        final Map<String, String> otherBuildEnvVars = new java.util.HashMap<>();
+
+        for (int i = 0; i < EnvContributingVarsImporter.COMPACT_THRESHOLD; i++) {
+            otherBuildEnvVars.put("VAR_" + i, "value");
+        }
+
+        EnvContributingVarsImporter.ContributingAction action = this.importer.new ContributingAction(otherBuildEnvVars);
+
+        java.lang.reflect.Field plainField = EnvContributingVarsImporter.ContributingAction.class.getDeclaredField("otherBuildEnvVars");
+        java.lang.reflect.Field compactField = EnvContributingVarsImporter.ContributingAction.class.getDeclaredField("compactEnvVars");
+        plainField.setAccessible(true);
+        compactField.setAccessible(true);
+
+        assertNull(plainField.get(action));
+        assertNotNull(compactField.get(action));
+        assertEquals(otherBuildEnvVars, action.getOtherBuildEnvVars());
+
+        EnvVars currentBuildEnvVars = new EnvVars();
+        action.buildEnvVars(mock(AbstractBuild.class), currentBuildEnvVars);
+
+        assertEquals(EnvContributingVarsImporter.COMPACT_THRESHOLD, currentBuildEnvVars.size());
+        assertEquals("value", currentBuildEnvVars.get("VAR NAME TEMPLATE VAR_0"));
+    }
+
+    @Test
+    public void testContributingActionToleratesCorruptCompactForm() throws Exception {
+        EnvContributingVarsImporter.ContributingAction action = this.importer.new ContributingAction(null);
+
+        java.lang.reflect.Field compactField = EnvContributingVarsImporter.ContributingAction.class.getDeclaredField("compactEnvVars");
+        compactField.setAccessible(true);
+        compactField.set(action, "CORRUPT");
+
+        EnvVars currentBuildEnvVars = new EnvVars();
+        action.buildEnvVars(mock(AbstractBuild.class), currentBuildEnvVars);
+
+        assertTrue(currentBuildEnvVars.isEmpty());
+    }
+
+    @Test
+    public void testContributingActionReadResolveInternsPlainForm() throws Exception {
+        final Map<String, String> otherBuildEnvVars = new java.util.HashMap<>();
+        otherBuildEnvVars.put(new String("ONE"), new String("one"));
+
+        EnvContributingVarsImporter.ContributingAction action = this.importer.new ContributingAction(otherBuildEnvVars);
+
+        assertSame(action, action.readResolve());
+        assertSame(CompactEnvVars.intern("one"), action.getOtherBuildEnvVars().get("ONE"));
+    }
+
+    @Test
+    public void testAcceptAllFilterIsDiscarded() {
+        this.importer = new EnvContributingVarsImporter(this.varNameTemplate, new VarNameFilter(" ", null));
+
+        assertNull(this.importer.getVarNameFilter());
+    }
+
+    @Test
+    public void testTemplateVarNameFallsBackToFormatForOtherDirectives() {
+        this.importer = new EnvContributingVarsImporter("100%%_%s");
+
+        assertEquals("100%_ONE", this.importer.templateVarName("ONE"));
+    }
+
+    @Test
+    public void testReadResolveRecompilesTemplate() throws Exception {
+        java.lang.reflect.Field prefixField = EnvContributingVarsImporter.class.getDeclaredField("varNamePrefix");
+        java.lang.reflect.Field suffixField = EnvContributingVarsImporter.class.getDeclaredField("varNameSuffix");
+        prefixField.setAccessible(true);
+        suffixField.setAccessible(true);
+
+        prefixField.set(this.importer, null);
+        suffixField.set(this.importer, null);
+
+        assertSame(this.importer, this.importer.readResolve());
+        assertEquals("VAR NAME TEMPLATE ", prefixField.get(this.importer));
+        assertEquals("", suffixField.get(this.importer));
+    }
+
+    @Test
+    public void testIsVarNameTemplateValid() {
+        assertTrue(EnvContributingVarsImporter.isVarNameTemplateValid("PREFIX_%s_SUFFIX"));
+        assertFalse(EnvContributingVarsImporter.isVarNameTemplateValid("PREFIX_SUFFIX"));
+        assertFalse(EnvContributingVarsImporter.isVarNameTemplateValid("%s_%s"));
+    }
+
+
 
     private static class MutableHolder<T> {
         
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.importer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class VarNameFilterTest {
+
+    @Test
+    public void testEmptyFilterAcceptsAll() {
+        VarNameFilter filter = new VarNameFilter(null, "  \n ");
+
+        assertTrue(filter.isAcceptAll());
+        assertNull(filter.getIncludes());
+        assertNull(filter.getExcludes());
+        assertTrue(filter.accepts("ANYTHING"));
+    }
+
+    @Test
+    public void testIncludeExactNamesAndPrefixes() {
+        VarNameFilter filter = new VarNameFilter("PATH\nDEPLOY_*,GIT_*", null);
+
+        assertTrue(filter.accepts("PATH"));
+        assertTrue(filter.accepts("DEPLOY_"));
+        assertTrue(filter.accepts("DEPLOY_TARGET"));
+        assertTrue(filter.accepts("GIT_COMMIT"));
+        assertFalse(filter.accepts("PATHS"));
+        assertFalse(filter.accepts("DEPLOY"));
+        assertFalse(filter.accepts("NODE_NAME"));
+    }
+
+    @Test
+    public void testGlobsWithInnerWildcards() {
+        VarNameFilter filter = new VarNameFilter("*_VERSION, BUILD_?, A.B*", null);
+
+        assertTrue(filter.accepts("JAVA_VERSION"));
+        assertTrue(filter.accepts("BUILD_1"));
+        assertTrue(filter.accepts("A.BC"));
+        assertFalse(filter.accepts("VERSION"));
+        assertFalse(filter.accepts("BUILD_12"));
+        assertFalse(filter.accepts("AXBC"));
+    }
+
+    @Test
+    public void testRegexPatterns() {
+        VarNameFilter filter = new VarNameFilter("/^(GIT|SVN)_.*$/", "/.*_PASSWORD/");
+
+        assertTrue(filter.accepts("GIT_BRANCH"));
+        assertTrue(filter.accepts("SVN_REVISION"));
+        assertFalse(filter.accepts("SVN_PASSWORD"));
+        assertFalse(filter.accepts("HG_BRANCH"));
+    }
+
+    @Test
+    public void testRegexPatternsMayContainCommas() {
+        VarNameFilter filter = new VarNameFilter("/^A{1,3}$/, /^(B|C),?D$/\nEXACT", null);
+
+        assertTrue(filter.accepts("AAA"));
+        assertFalse(filter.accepts("AAAA"));
+        assertTrue(filter.accepts("BD"));
+        assertTrue(filter.accepts("C,D"));
+        assertTrue(filter.accepts("EXACT"));
+        assertFalse(filter.accepts("3}$/"));
+
+        assertEquals(
+            Arrays.asList("/^A{1,3}$/", "/^(B|C),?D$/", "EXACT", "/", "B*"),
+            VarNameFilter.CompiledPatterns.split("/^A{1,3}$/, /^(B|C),?D$/\nEXACT,/ ,B*")
+        );
+    }
+
+    @Test
+    public void testRegexBackreferencesAreNotShiftedByOtherPatterns() {
+        VarNameFilter filter = new VarNameFilter("/^(X)(Y)$/, A?B, /^(.)\\1_DUP$/", null);
+
+        assertTrue(filter.accepts("XY"));
+        assertTrue(filter.accepts("AXB"));
+        assertTrue(filter.accepts("QQ_DUP"));
+        assertFalse(filter.accepts("QR_DUP"));
+    }
+
+    @Test
+    public void testExcludeTakesPrecedence() {
+        VarNameFilter filter = new VarNameFilter("*", "PATH, NODE_*");
+
+        assertTrue(filter.accepts("BUILD_NUMBER"));
+        assertFalse(filter.accepts("PATH"));
+        assertFalse(filter.accepts("NODE_LABELS"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorRejectsInvalidRegex() {
+        new VarNameFilter("/[A-Z/", null);
+    }
+
+    @Test
+    public void testArePatternsValid() {
+        assertTrue(VarNameFilter.arePatternsValid(null));
+        assertTrue(VarNameFilter.arePatternsValid("A*, /^B$/"));
+        assertFalse(VarNameFilter.arePatternsValid("/(B/"));
+    }
+
+    @Test
+    public void testFilter() {
+        Map<String, String> source = new HashMap<>();
+        source.put("KEEP", "1");
+        source.put("DROP", "2");
+
+        assertEquals(java.util.Collections.singletonMap("KEEP", "1"), new VarNameFilter("KEEP", null).filter(source));
+        assertSame(source, new VarNameFilter(null, null).filter(source));
+    }
+
+    @Test
+    public void testReadResolveRecompilesPatterns() throws Exception {
+        VarNameFilter filter = new VarNameFilter("A*", "AB");
+
+        java.lang.reflect.Field includeField = VarNameFilter.class.getDeclaredField("includePatterns");
+        java.lang.reflect.Field excludeField = VarNameFilter.class.getDeclaredField("excludePatterns");
+        includeField.setAccessible(true);
+        excludeField.setAccessible(true);
+
+        includeField.set(filter, null);
+        excludeField.set(filter, null);
+
+        assertSame(filter, filter.readResolve());
+        assertTrue(filter.accepts("AC"));
+        assertFalse(filter.accepts("AB"));
+    }
+
+}
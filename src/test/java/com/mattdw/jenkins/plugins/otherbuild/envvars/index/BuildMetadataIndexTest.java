@@ -0,0 +1,430 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.RunList;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BuildMetadataIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private AbstractBuild newerBuild;
+    private AbstractBuild olderBuild;
+    private File rootDir;
+    private BuildMetadataIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        this.project = mock(AbstractProject.class);
+        this.rootDir = this.folder.newFolder();
+        this.newerBuild = this.mockBuild(2, "RELEASE", Result.SUCCESS, 2000L);
+        this.olderBuild = this.mockBuild(1, "CANDIDATE", Result.FAILURE, 1000L);
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+        when(this.project.getRootDir()).thenReturn(this.rootDir);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(Arrays.asList(new AbstractBuild[]{this.newerBuild, this.olderBuild}))
+        );
+
+        this.index = new BuildMetadataIndex();
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(BuildMetadataIndex.getInstance());
+        assertSame(BuildMetadataIndex.getInstance(), BuildMetadataIndex.getInstance());
+    }
+
+    @Test
+    public void testGetBuildsRebuildsOnceNewestFirst() {
+        assertEquals(Arrays.asList(2, 1), this.numbers(this.index.getBuilds(this.project)));
+        assertEquals(Arrays.asList(2, 1), this.numbers(this.index.getBuilds(this.project)));
+
+        BuildMetadata metadata = this.index.get(this.project, 1);
+
+        assertEquals(1, metadata.getNumber());
+        assertEquals("CANDIDATE", metadata.getDisplayName());
+        assertTrue(metadata.isDisplayNameComplete());
+        assertSame(Result.FAILURE, metadata.getResult());
+        assertEquals(1000L, metadata.getTimeInMillis());
+        assertNull(this.index.get(this.project, 3));
+
+        assertTrue(new File(this.rootDir, BuildMetadataIndex.FILE_NAME).isFile());
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testIndexIsReadFromFileWithoutLoadingBuilds() {
+        this.index.getBuilds(this.project);
+
+        BuildMetadataIndex reloaded = new BuildMetadataIndex();
+        BuildMetadata metadata = reloaded.get(this.project, 2);
+
+        assertEquals("RELEASE", metadata.getDisplayName());
+        assertSame(Result.SUCCESS, metadata.getResult());
+        assertEquals(2000L, metadata.getTimeInMillis());
+        assertEquals(Arrays.asList(2, 1), this.numbers(reloaded.getBuilds(this.project)));
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testUpdateBuildAppendsAndRewritesRecords() {
+        this.index.getBuilds(this.project);
+
+        AbstractBuild newestBuild = this.mockBuild(3, "NEXT", null, 3000L);
+        this.index.updateBuild(newestBuild);
+
+        when(this.newerBuild.getDisplayName()).thenReturn("RENAMED");
+        this.index.updateBuild(this.newerBuild);
+
+        BuildMetadataIndex reloaded = new BuildMetadataIndex();
+
+        assertEquals(Arrays.asList(3, 2, 1), this.numbers(reloaded.getBuilds(this.project)));
+        assertNull(reloaded.get(this.project, 3).getResult());
+        assertEquals("RENAMED", reloaded.get(this.project, 2).getDisplayName());
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testUpdateBuildIgnoresBuildsInProgress() {
+        this.index.getBuilds(this.project);
+
+        AbstractBuild runningBuild = this.mockBuild(3, "RUNNING", null, 3000L);
+        when(runningBuild.isBuilding()).thenReturn(true);
+
+        this.index.updateBuild(runningBuild);
+
+        assertNull(this.index.get(this.project, 3));
+    }
+
+    @Test
+    public void testUpdateBuildIgnoresProjectsNotYetIndexed() {
+        this.index.updateBuild(this.newerBuild);
+        this.index.removeBuild(this.olderBuild);
+
+        assertFalse(new File(this.rootDir, BuildMetadataIndex.FILE_NAME).exists());
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testRemoveBuildIsPersisted() {
+        this.index.getBuilds(this.project);
+        this.index.removeBuild(this.newerBuild);
+
+        assertNull(this.index.get(this.project, 2));
+        assertEquals(Arrays.asList(1), this.numbers(this.index.getBuilds(this.project)));
+        assertEquals(Arrays.asList(1), this.numbers(new BuildMetadataIndex().getBuilds(this.project)));
+    }
+
+    @Test
+    public void testLongDisplayNameIsTruncatedOnCharacterBoundary() {
+        StringBuilder name = new StringBuilder();
+
+        for (int i = 0; i < BuildMetadataIndex.MAX_NAME_BYTES; i++) {
+            name.append('\u00e9');
+        }
+
+        when(this.newerBuild.getDisplayName()).thenReturn(name.toString());
+
+        BuildMetadata metadata = this.index.get(this.project, 2);
+
+        assertFalse(metadata.isDisplayNameComplete());
+        assertTrue(name.toString().startsWith(metadata.getDisplayName()));
+        assertEquals(BuildMetadataIndex.MAX_NAME_BYTES / 2, metadata.getDisplayName().length());
+        assertTrue(this.index.get(this.project, 1).isDisplayNameComplete());
+    }
+
+    @Test
+    public void testInvalidFileIsRebuilt() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(new File(this.rootDir, BuildMetadataIndex.FILE_NAME))) {
+            out.write("NOT AN INDEX FILE".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(Arrays.asList(2, 1), this.numbers(this.index.getBuilds(this.project)));
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testIndexGrowsBeyondInitialCapacity() {
+        when(this.project.getBuilds()).thenReturn(new RunList());
+
+        this.index.getBuilds(this.project);
+
+        for (int number = 1; number <= BuildMetadataIndex.INITIAL_CAPACITY * 3; number++) {
+            this.index.updateBuild(this.mockBuild(number, "#" + number, Result.SUCCESS, number));
+        }
+
+        List<Integer> numbers = this.numbers(new BuildMetadataIndex().getBuilds(this.project));
+
+        assertEquals(BuildMetadataIndex.INITIAL_CAPACITY * 3, numbers.size());
+        assertEquals(Integer.valueOf(BuildMetadataIndex.INITIAL_CAPACITY * 3), numbers.get(0));
+    }
+
+    @Test
+    public void testInvalidateCausesRebuild() {
+        this.index.getBuilds(this.project);
+        this.index.invalidate(this.project);
+
+        assertFalse(new File(this.rootDir, BuildMetadataIndex.FILE_NAME).exists());
+
+        this.index.getBuilds(this.project);
+
+        verify(this.project, times(2)).getBuilds();
+    }
+
+    @Test
+    public void testIndexIsHeldOffHeapWithoutProjectDirectory() {
+        when(this.project.getRootDir()).thenReturn(null);
+
+        assertEquals(Arrays.asList(2, 1), this.numbers(this.index.getBuilds(this.project)));
+
+        this.index.updateBuild(this.mockBuild(3, "NEXT", Result.SUCCESS, 3000L));
+
+        assertEquals("NEXT", this.index.get(this.project, 3).getDisplayName());
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testBuildsAreFoundByResult() {
+        AbstractBuild successfulBuild = this.mockBuild(4, "FOUR", Result.SUCCESS, 4000L);
+        AbstractBuild failedBuild = this.mockBuild(3, "THREE", Result.FAILURE, 3000L);
+
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(Arrays.asList(new AbstractBuild[]{
+                successfulBuild,
+                failedBuild,
+                this.newerBuild,
+                this.olderBuild
+            }))
+        );
+
+        assertArrayEquals(new int[]{4, 2}, this.index.getBuildNumbers(this.project, Result.SUCCESS));
+        assertArrayEquals(new int[]{3, 1}, this.index.getBuildNumbers(this.project, Result.FAILURE));
+        assertArrayEquals(new int[0], this.index.getBuildNumbers(this.project, Result.ABORTED));
+        assertArrayEquals(new int[0], this.index.getBuildNumbers(this.project, null));
+        assertEquals(Arrays.asList(3, 1), this.numbers(this.index.getBuilds(this.project, Result.FAILURE)));
+
+        assertEquals(Integer.valueOf(4), this.index.getLastBuildNumber(this.project));
+        assertArrayEquals(new int[0], this.index.getBuildNumbers(this.project, Result.NOT_BUILT));
+
+        assertArrayEquals(new int[]{4, 2}, new BuildMetadataIndex().getBuildNumbers(this.project, Result.SUCCESS));
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testResultBitmapsFollowUpdatesAndDeletions() {
+        this.index.getBuilds(this.project);
+
+        when(this.newerBuild.getResult()).thenReturn(Result.UNSTABLE);
+        this.index.updateBuild(this.newerBuild);
+
+        assertArrayEquals(new int[0], this.index.getBuildNumbers(this.project, Result.SUCCESS));
+        assertArrayEquals(new int[]{2}, this.index.getBuildNumbers(this.project, Result.UNSTABLE));
+
+        this.index.removeBuild(this.newerBuild);
+
+        assertEquals(Integer.valueOf(1), this.index.getLastBuildNumber(this.project));
+        assertArrayEquals(new int[0], new BuildMetadataIndex().getBuildNumbers(this.project, Result.UNSTABLE));
+    }
+
+    @Test
+    public void testRebuildDoesNotBlockOtherProjects() throws Exception {
+        final CountDownLatch walking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AbstractProject slowProject = mock(AbstractProject.class);
+
+        when(slowProject.getFullName()).thenReturn("SLOW PROJECT");
+        when(slowProject.getRootDir()).thenReturn(this.folder.newFolder());
+        when(slowProject.getBuilds()).thenAnswer(new Answer<RunList>() {
+            @Override
+            public RunList answer(InvocationOnMock invocation) throws Throwable {
+                walking.countDown();
+                release.await(5, TimeUnit.SECONDS);
+
+                return new RunList();
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<List<Integer>> slow = executor.submit(new Callable<List<Integer>>() {
+                @Override
+                public List<Integer> call() {
+                    return numbers(index.getBuilds(slowProject));
+                }
+            });
+
+            assertTrue(walking.await(5, TimeUnit.SECONDS));
+
+            // Served while the other project is still being walked
+            assertEquals(Arrays.asList(2, 1), this.numbers(this.index.getBuilds(this.project)));
+
+            release.countDown();
+
+            assertTrue(slow.get(5, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlotsOfDeletedBuildsAreReused() throws Exception {
+        this.index.getBuilds(this.project);
+        this.index.removeBuild(this.olderBuild);
+        this.index.updateBuild(this.mockBuild(3, "NEXT", Result.SUCCESS, 3000L));
+
+        assertEquals(2, this.recordCount());
+        assertEquals(Arrays.asList(3, 2), this.numbers(new BuildMetadataIndex().getBuilds(this.project)));
+    }
+
+    @Test
+    public void testLoadCompactsMostlyDeletedFile() throws Exception {
+        this.index.getBuilds(this.project);
+
+        List<AbstractBuild> builds = new ArrayList<>();
+
+        for (int number = 3; number <= 10; number++) {
+            AbstractBuild build = this.mockBuild(number, "#" + number, Result.FAILURE, number * 1000L);
+
+            builds.add(build);
+            this.index.updateBuild(build);
+        }
+
+        for (AbstractBuild build : builds.subList(0, 7)) {
+            this.index.removeBuild(build);
+        }
+
+        assertEquals(10, this.recordCount());
+
+        BuildMetadataIndex reloaded = new BuildMetadataIndex();
+
+        assertEquals(Arrays.asList(10, 2, 1), this.numbers(reloaded.getBuilds(this.project)));
+        assertEquals(3, this.recordCount());
+        assertEquals("#10", reloaded.get(this.project, 10).getDisplayName());
+        assertArrayEquals(new int[]{10, 1}, reloaded.getBuildNumbers(this.project, Result.FAILURE));
+        assertEquals(Arrays.asList(10, 2, 1), this.numbers(new BuildMetadataIndex().getBuilds(this.project)));
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testLoadReconcilesWithBuildDirectories() throws Exception {
+        this.index.getBuilds(this.project);
+
+        File buildDir = this.folder.newFolder();
+        AbstractBuild missingBuild = this.mockBuild(3, "MISSED", Result.UNSTABLE, 3000L);
+        AbstractBuild runningBuild = this.mockBuild(4, "RUNNING", null, 4000L);
+
+        when(runningBuild.isBuilding()).thenReturn(true);
+
+        for (String name : new String[] {"2", "3", "4", "lastSuccessfulBuild"}) {
+            assertTrue(new File(buildDir, name).mkdir());
+        }
+
+        when(this.project.getBuildDir()).thenReturn(buildDir);
+        when(this.project.getBuildByNumber(3)).thenReturn(missingBuild);
+        when(this.project.getBuildByNumber(4)).thenReturn(runningBuild);
+
+        BuildMetadataIndex reloaded = new BuildMetadataIndex();
+
+        assertEquals(Arrays.asList(3, 2), this.numbers(reloaded.getBuilds(this.project)));
+        assertEquals("MISSED", reloaded.get(this.project, 3).getDisplayName());
+        assertArrayEquals(new int[0], reloaded.getBuildNumbers(this.project, Result.FAILURE));
+        assertEquals(Arrays.asList(3, 2), this.numbers(new BuildMetadataIndex().getBuilds(this.project)));
+
+        verify(this.project, times(1)).getBuilds();
+        verify(this.project, never()).getBuildByNumber(2);
+    }
+
+    private int recordCount() throws Exception {
+        try (DataInputStream in = new DataInputStream(
+            new FileInputStream(new File(this.rootDir, BuildMetadataIndex.FILE_NAME))
+        )) {
+            in.skipBytes(8);
+
+            return in.readInt();
+        }
+    }
+
+    private AbstractBuild mockBuild(int number, String displayName, Result result, long timeInMillis) {
+        AbstractBuild build = mock(AbstractBuild.class);
+
+        when(build.getParent()).thenReturn(this.project);
+        when(build.getNumber()).thenReturn(number);
+        when(build.getDisplayName()).thenReturn(displayName);
+        when(build.getResult()).thenReturn(result);
+        when(build.getTimeInMillis()).thenReturn(timeInMillis);
+
+        return build;
+    }
+
+    private List<Integer> numbers(Iterable<BuildMetadata> builds) {
+        List<Integer> numbers = new ArrayList<>();
+
+        for (BuildMetadata build : builds) {
+            numbers.add(build.getNumber());
+        }
+
+        return numbers;
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.RunList;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BuildSearchIndexTest {
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private AbstractBuild newerBuild;
+    private AbstractBuild olderBuild;
+    private BuildSearchIndex index;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.newerBuild = mock(AbstractBuild.class);
+        this.olderBuild = mock(AbstractBuild.class);
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(Arrays.asList(new AbstractBuild[]{this.newerBuild, this.olderBuild}))
+        );
+
+        when(this.newerBuild.getParent()).thenReturn(this.project);
+        when(this.newerBuild.getNumber()).thenReturn(12);
+        when(this.newerBuild.getDisplayName()).thenReturn("Release 2.0");
+        when(this.newerBuild.getDescription()).thenReturn("Deployed to staging");
+        when(this.newerBuild.getResult()).thenReturn(Result.UNSTABLE);
+
+        when(this.olderBuild.getParent()).thenReturn(this.project);
+        when(this.olderBuild.getNumber()).thenReturn(11);
+        when(this.olderBuild.getDisplayName()).thenReturn("Release 1.0");
+        when(this.olderBuild.getResult()).thenReturn(Result.SUCCESS);
+
+        this.index = new BuildSearchIndex();
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(BuildSearchIndex.getInstance());
+        assertSame(BuildSearchIndex.getInstance(), BuildSearchIndex.getInstance());
+    }
+
+    @Test
+    public void testSearchMatchesEachFieldNewestFirst() {
+        assertEquals(Arrays.asList(12, 11), this.index.search(this.project, "release", null, 10));
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "#11", null, 10));
+        assertEquals(Arrays.asList(12), this.index.search(this.project, "STAGING", null, 10));
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "success", null, 10));
+        assertEquals(Collections.emptyList(), this.index.search(this.project, "nightly", null, 10));
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testSearchRequiresEveryTerm() {
+        assertEquals(Arrays.asList(12), this.index.search(this.project, " release  unstable ", null, 10));
+    }
+
+    @Test
+    public void testSearchMatchesBeginningsOfWords() {
+        assertEquals(Arrays.asList(12, 11), this.index.search(this.project, "rel", null, 10));
+        assertEquals(Arrays.asList(12), this.index.search(this.project, "2.", null, 10));
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "11", null, 10));
+        assertEquals(Collections.emptyList(), this.index.search(this.project, "ease", null, 10));
+    }
+
+    @Test
+    public void testSearchPopulatesFromMetadataIndexLoadingDescriptionsOnDemand() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+
+        when(this.project.getBuildByNumber(12)).thenReturn(this.newerBuild);
+        when(this.project.getBuildByNumber(11)).thenReturn(this.olderBuild);
+        when(metadataIndex.getBuilds(this.project)).thenReturn(Arrays.asList(
+            new BuildMetadata(12, "Release 2.0", true, Result.UNSTABLE, 2000L),
+            new BuildMetadata(11, "Release 1.0", true, Result.SUCCESS, 1000L)
+        ));
+
+        this.index = new BuildSearchIndex(metadataIndex);
+
+        assertEquals(Arrays.asList(12, 11), this.index.search(this.project, "release", null, 10));
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "release", Result.SUCCESS, 10));
+
+        verify(this.project, never()).getBuildByNumber(anyInt());
+
+        assertEquals(Arrays.asList(12), this.index.search(this.project, "staging", null, 10));
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "success", null, 10));
+        assertEquals(Arrays.asList(12), this.index.search(this.project, "staging", null, 10));
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, times(1)).getBuildByNumber(12);
+        verify(this.project, times(1)).getBuildByNumber(11);
+    }
+
+    @Test
+    public void testSearchLimitsDescriptionsLoaded() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+
+        when(this.project.getBuildByNumber(12)).thenReturn(this.newerBuild);
+        when(this.project.getBuildByNumber(11)).thenReturn(this.olderBuild);
+        when(metadataIndex.getBuilds(this.project)).thenReturn(Arrays.asList(
+            new BuildMetadata(12, "Release 2.0", true, Result.UNSTABLE, 2000L),
+            new BuildMetadata(11, "Release 1.0", true, Result.SUCCESS, 1000L)
+        ));
+
+        this.index = new BuildSearchIndex(metadataIndex, 1);
+
+        assertEquals(Collections.emptyList(), this.index.search(this.project, "nightly", null, 10));
+
+        verify(this.project, times(1)).getBuildByNumber(12);
+        verify(this.project, never()).getBuildByNumber(11);
+
+        assertEquals(Collections.emptyList(), this.index.search(this.project, "nightly", null, 10));
+
+        verify(this.project, times(1)).getBuildByNumber(12);
+        verify(this.project, times(1)).getBuildByNumber(11);
+    }
+
+    @Test
+    public void testSearchAppliesResultFilterAndLimit() {
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "release", Result.SUCCESS, 10));
+        assertEquals(Arrays.asList(12), this.index.search(this.project, null, null, 1));
+    }
+
+    @Test
+    public void testUpdateBuildReflectsChanges() {
+        this.index.search(this.project, null, null, 10);
+
+        when(this.olderBuild.getDescription()).thenReturn("Hotfix");
+        this.index.updateBuild(this.olderBuild);
+
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "hotfix", null, 10));
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testRemoveBuild() {
+        this.index.search(this.project, null, null, 10);
+        this.index.removeBuild(this.newerBuild);
+
+        assertEquals(Arrays.asList(11), this.index.search(this.project, "release", null, 10));
+    }
+
+    @Test
+    public void testUpdateBuildIgnoresProjectsNotYetIndexed() {
+        this.index.updateBuild(this.newerBuild);
+
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testRemoveProjectCausesRepopulation() {
+        this.index.search(this.project, null, null, 10);
+        this.index.removeProject(this.projectName);
+        this.index.search(this.project, null, null, 10);
+
+        verify(this.project, times(2)).getBuilds();
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.RunList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DisplayNameBuildIndexTest {
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private AbstractBuild newerBuild;
+    private AbstractBuild olderBuild;
+    private DisplayNameBuildIndex index;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.newerBuild = mock(AbstractBuild.class);
+        this.olderBuild = mock(AbstractBuild.class);
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.newerBuild, this.olderBuild}))
+        );
+
+        when(this.newerBuild.getParent()).thenReturn(this.project);
+        when(this.newerBuild.getNumber()).thenReturn(2);
+        when(this.newerBuild.getDisplayName()).thenReturn("RELEASE");
+
+        when(this.olderBuild.getParent()).thenReturn(this.project);
+        when(this.olderBuild.getNumber()).thenReturn(1);
+        when(this.olderBuild.getDisplayName()).thenReturn("RELEASE");
+
+        this.index = new DisplayNameBuildIndex();
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(DisplayNameBuildIndex.getInstance());
+        assertSame(DisplayNameBuildIndex.getInstance(), DisplayNameBuildIndex.getInstance());
+    }
+
+    @Test
+    public void testLookupPopulatesOnceAndReturnsNewestBuild() {
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RELEASE"));
+        assertNull(this.index.lookup(this.project, "UNKNOWN"));
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testUpdateBuildReflectsRename() {
+        this.index.lookup(this.project, "RELEASE");
+
+        when(this.newerBuild.getDisplayName()).thenReturn("RENAMED");
+        this.index.updateBuild(this.newerBuild);
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RENAMED"));
+        assertEquals(Integer.valueOf(1), this.index.lookup(this.project, "RELEASE"));
+
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testRemoveBuild() {
+        this.index.lookup(this.project, "RELEASE");
+
+        this.index.removeBuild(this.newerBuild);
+        assertEquals(Integer.valueOf(1), this.index.lookup(this.project, "RELEASE"));
+
+        this.index.removeBuild(this.olderBuild);
+        assertNull(this.index.lookup(this.project, "RELEASE"));
+    }
+
+    @Test
+    public void testUpdateBuildIgnoresProjectsNotYetIndexed() {
+        this.index.updateBuild(this.newerBuild);
+
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testRemoveProjectCausesRepopulation() {
+        this.index.lookup(this.project, "RELEASE");
+        this.index.removeProject(this.projectName);
+        this.index.lookup(this.project, "RELEASE");
+
+        verify(this.project, times(2)).getBuilds();
+    }
+
+    @Test
+    public void testLookupRepopulatesForReplacedProject() {
+        AbstractProject replacement = mock(AbstractProject.class);
+
+        when(replacement.getFullName()).thenReturn(this.projectName);
+        when(replacement.getBuilds()).thenReturn(new RunList());
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RELEASE"));
+        assertNull(this.index.lookup(replacement, "RELEASE"));
+
+        verify(replacement, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testLookupPopulatesFromMetadataIndex() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+        AbstractBuild runningBuild = mock(AbstractBuild.class);
+
+        when(runningBuild.getNumber()).thenReturn(4);
+        when(runningBuild.getDisplayName()).thenReturn("RUNNING");
+        when(runningBuild.isBuilding()).thenReturn(true);
+        when(runningBuild.getPreviousBuild()).thenReturn(null);
+        when(this.project.getLastBuild()).thenReturn(runningBuild);
+        when(this.project.getBuildByNumber(2)).thenReturn(this.newerBuild);
+        when(metadataIndex.getBuilds(this.project)).thenReturn(java.util.Arrays.asList(
+            new BuildMetadata(3, "NIGHTLY", true, null, 3000L),
+            new BuildMetadata(2, "RELEA", false, null, 2000L),
+            new BuildMetadata(1, "RELEASE", true, null, 1000L)
+        ));
+
+        this.index = new DisplayNameBuildIndex(metadataIndex);
+
+        assertEquals(Integer.valueOf(4), this.index.lookup(this.project, "RUNNING"));
+        assertEquals(Integer.valueOf(3), this.index.lookup(this.project, "NIGHTLY"));
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RELEASE"));
+        assertNull(this.index.lookup(this.project, "RELEA"));
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, never()).getBuildByNumber(1);
+        verify(this.project, never()).getBuildByNumber(3);
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.model.AbstractProject;
+import hudson.model.Job;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ProjectIndexesTest {
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private AtomicInteger loads;
+    private ProjectIndexes<Object> indexes;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.loads = new AtomicInteger();
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+
+        this.indexes = new ProjectIndexes<>(new ProjectIndexes.Loader<Object>() {
+            @Override
+            public Object load(Job<?, ?> project) {
+                loads.incrementAndGet();
+
+                try {
+                    Thread.sleep(50L);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return new Object();
+            }
+        });
+    }
+
+    @Test
+    public void testGetLoadsOnce() {
+        assertNull(this.indexes.getExisting(this.project));
+
+        Object index = this.indexes.get(this.project);
+
+        assertSame(index, this.indexes.get(this.project));
+        assertSame(index, this.indexes.getExisting(this.project));
+        assertEquals(1, this.loads.get());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareSingleLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        return indexes.get(project);
+                    }
+                }));
+            }
+
+            Object index = futures.get(0).get(5, TimeUnit.SECONDS);
+
+            for (Future<Object> future : futures) {
+                assertSame(index, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, this.loads.get());
+    }
+
+    @Test
+    public void testReplacedProjectIsReloaded() {
+        AbstractProject replacement = mock(AbstractProject.class);
+
+        when(replacement.getFullName()).thenReturn(this.projectName);
+
+        Object index = this.indexes.get(this.project);
+
+        assertNull(this.indexes.getExisting(replacement));
+        assertNotSame(index, this.indexes.get(replacement));
+        assertNull(this.indexes.getExisting(this.project));
+        assertEquals(2, this.loads.get());
+    }
+
+    @Test
+    public void testRemoveCausesReload() {
+        this.indexes.get(this.project);
+
+        assertTrue(this.indexes.contains(this.projectName));
+
+        this.indexes.remove(this.projectName);
+        this.indexes.remove(null);
+
+        assertFalse(this.indexes.contains(this.projectName));
+        assertNull(this.indexes.getExisting(this.project));
+
+        this.indexes.get(this.project);
+
+        assertEquals(2, this.loads.get());
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.index;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.ParametersAction;
+import hudson.model.StringParameterValue;
+import hudson.model.TaskListener;
+import hudson.util.RunList;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class VarValueBuildIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private AbstractBuild newerBuild;
+    private AbstractBuild olderBuild;
+    private File rootDir;
+    private VarValueBuildIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        this.project = mock(AbstractProject.class);
+        this.newerBuild = mock(AbstractBuild.class);
+        this.olderBuild = mock(AbstractBuild.class);
+        this.rootDir = this.folder.newFolder();
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+        when(this.project.getRootDir()).thenReturn(this.rootDir);
+
+        EnvVars newerVars = new EnvVars();
+        newerVars.put("GIT_COMMIT", "abc123");
+        newerVars.put("UNINDEXED", "ignored");
+
+        when(this.newerBuild.getParent()).thenReturn(this.project);
+        when(this.newerBuild.getNumber()).thenReturn(2);
+        when(this.newerBuild.getAction(ParametersAction.class)).thenReturn(
+            new ParametersAction(new StringParameterValue("RELEASE_ID", "1.0"))
+        );
+        when(this.newerBuild.getEnvironment(any(TaskListener.class))).thenReturn(newerVars);
+
+        EnvVars olderVars = new EnvVars();
+        olderVars.put("GIT_COMMIT", "abc123");
+
+        when(this.olderBuild.getParent()).thenReturn(this.project);
+        when(this.olderBuild.getNumber()).thenReturn(1);
+        when(this.olderBuild.getAction(ParametersAction.class)).thenReturn(
+            new ParametersAction(new StringParameterValue("RELEASE_ID", "0.9"))
+        );
+        when(this.olderBuild.getEnvironment(any(TaskListener.class))).thenReturn(olderVars);
+
+        this.index = new VarValueBuildIndex();
+        this.index.setIndexedVarNames(Arrays.asList("GIT_COMMIT", "RELEASE_ID"));
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(VarValueBuildIndex.getInstance());
+        assertSame(VarValueBuildIndex.getInstance(), VarValueBuildIndex.getInstance());
+    }
+
+    @Test
+    public void testParseVarNames() {
+        assertEquals(
+            Arrays.asList("GIT_COMMIT", "RELEASE_ID", "BRANCH"),
+            Arrays.asList(VarValueBuildIndex.parseVarNames(" GIT_COMMIT,RELEASE_ID\n\nBRANCH, GIT_COMMIT ").toArray())
+        );
+        assertTrue(VarValueBuildIndex.parseVarNames(null).isEmpty());
+    }
+
+    @Test
+    public void testLookupReturnsNewestBuildWithValue() {
+        this.index.updateBuild(this.olderBuild);
+        this.index.updateBuild(this.newerBuild);
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+        assertEquals(Integer.valueOf(1), this.index.lookup(this.project, "RELEASE_ID", "0.9"));
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RELEASE_ID", "1.0"));
+        assertNull(this.index.lookup(this.project, "RELEASE_ID", "2.0"));
+        assertNull(this.index.lookup(this.project, "UNINDEXED", "ignored"));
+    }
+
+    @Test
+    public void testUpdateBuildIgnoresBuildsInProgress() throws Exception {
+        when(this.newerBuild.isBuilding()).thenReturn(true);
+
+        this.index.updateBuild(this.newerBuild);
+
+        assertNull(this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+        verify(this.newerBuild, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testUpdateBuildReadsEachBuildOnce() throws Exception {
+        this.index.updateBuild(this.newerBuild);
+        this.index.updateBuild(this.newerBuild);
+
+        verify(this.newerBuild, times(1)).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testUpdateBuildPrefersParametersToEnvironment() throws Exception {
+        this.index.setIndexedVarNames(Collections.singleton("RELEASE_ID"));
+        this.index.updateBuild(this.newerBuild);
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "RELEASE_ID", "1.0"));
+        verify(this.newerBuild, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testUpdateBuildDoesNothingWithoutIndexedVarNames() throws Exception {
+        this.index.setIndexedVarNames(null);
+        this.index.updateBuild(this.newerBuild);
+
+        assertFalse(new File(this.rootDir, VarValueBuildIndex.FILE_NAME).exists());
+        verify(this.newerBuild, never()).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testRemoveBuild() {
+        this.index.updateBuild(this.olderBuild);
+        this.index.updateBuild(this.newerBuild);
+
+        this.index.removeBuild(this.newerBuild);
+        assertEquals(Integer.valueOf(1), this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+
+        this.index.removeBuild(this.olderBuild);
+        assertNull(this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+    }
+
+    @Test
+    public void testIndexIsReloadedFromProjectDirectory() throws Exception {
+        this.index.updateBuild(this.olderBuild);
+        this.index.updateBuild(this.newerBuild);
+        this.index.removeBuild(this.newerBuild);
+
+        assertTrue(new File(this.rootDir, VarValueBuildIndex.FILE_NAME).isFile());
+
+        VarValueBuildIndex reloaded = new VarValueBuildIndex();
+        reloaded.setIndexedVarNames(Arrays.asList("GIT_COMMIT", "RELEASE_ID"));
+
+        assertEquals(Integer.valueOf(1), reloaded.lookup(this.project, "GIT_COMMIT", "abc123"));
+        assertEquals(Integer.valueOf(1), reloaded.lookup(this.project, "RELEASE_ID", "0.9"));
+        assertNull(reloaded.lookup(this.project, "RELEASE_ID", "1.0"));
+
+        // Builds already indexed are not read again after a reload
+        reloaded.updateBuild(this.olderBuild);
+        verify(this.olderBuild, times(1)).getEnvironment(any(TaskListener.class));
+    }
+
+    @Test
+    public void testBuildsAreAppendedToIndexFile() throws Exception {
+        File file = new File(this.rootDir, VarValueBuildIndex.FILE_NAME);
+
+        this.index.updateBuild(this.olderBuild);
+
+        String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+        this.index.updateBuild(this.newerBuild);
+        this.index.removeBuild(this.olderBuild);
+
+        String appended = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+        assertTrue(appended.startsWith(written));
+        assertTrue(appended.substring(written.length()).contains("2\\:GIT_COMMIT=abc123"));
+        assertTrue(appended.substring(written.length()).contains("1=-"));
+    }
+
+    @Test
+    public void testIndexFileIsCompactedOnLoadOnceMostlyRemoved() throws Exception {
+        File file = new File(this.rootDir, VarValueBuildIndex.FILE_NAME);
+
+        this.index.updateBuild(this.olderBuild);
+        this.index.updateBuild(this.newerBuild);
+        this.index.removeBuild(this.olderBuild);
+        this.index.removeBuild(this.newerBuild);
+
+        VarValueBuildIndex reloaded = new VarValueBuildIndex();
+        reloaded.setIndexedVarNames(Arrays.asList("GIT_COMMIT", "RELEASE_ID"));
+
+        assertNull(reloaded.lookup(this.project, "GIT_COMMIT", "abc123"));
+        assertFalse(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("=-"));
+    }
+
+    @Test
+    public void testLookupReindexesBuildsCompletedBeforeVarWasIndexed() throws Exception {
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(Arrays.asList(new AbstractBuild[]{this.newerBuild, this.olderBuild}))
+        );
+
+        this.index.setIndexedVarNames(Collections.singleton("RELEASE_ID"));
+        this.index.updateBuild(this.olderBuild);
+        this.index.updateBuild(this.newerBuild);
+
+        this.index.setIndexedVarNames(Arrays.asList("GIT_COMMIT", "RELEASE_ID"));
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+        assertEquals(Integer.valueOf(1), this.index.lookup(this.project, "RELEASE_ID", "0.9"));
+
+        VarValueBuildIndex reloaded = new VarValueBuildIndex();
+        reloaded.setIndexedVarNames(Arrays.asList("GIT_COMMIT", "RELEASE_ID"));
+
+        this.index.removeBuild(this.newerBuild);
+
+        assertEquals(Integer.valueOf(1), reloaded.lookup(this.project, "GIT_COMMIT", "abc123"));
+
+        // The variables covered are persisted, so the history is walked only once
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareSingleLoad() throws Exception {
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        when(this.project.getRootDir()).thenAnswer(new Answer<File>() {
+            @Override
+            public File answer(InvocationOnMock invocation) throws Throwable {
+                loading.countDown();
+                release.await(10, TimeUnit.SECONDS);
+
+                return rootDir;
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Callable<Integer> lookup = new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return index.lookup(project, "GIT_COMMIT", "abc123");
+                }
+            };
+
+            Future<Integer> first = executor.submit(lookup);
+
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+            Future<Integer> second = executor.submit(lookup);
+
+            release.countDown();
+
+            assertNull(first.get(10, TimeUnit.SECONDS));
+            assertNull(second.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(this.project, times(1)).getRootDir();
+    }
+
+    @Test
+    public void testRemoveProjectCausesReload() {
+        this.index.updateBuild(this.newerBuild);
+        this.index.removeProject(this.projectName);
+
+        assertEquals(Integer.valueOf(2), this.index.lookup(this.project, "GIT_COMMIT", "abc123"));
+        verify(this.project, times(2)).getRootDir();
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class HistogramTest {
+
+    private Histogram histogram;
+
+    @Before
+    public void setUp() {
+        this.histogram = new Histogram();
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        assertEquals(0L, this.histogram.getCount());
+        assertEquals(0L, this.histogram.getMean());
+        assertEquals(0L, this.histogram.getMax());
+        assertEquals(0L, this.histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long v = 0; v < Histogram.SUB_BUCKET_COUNT; v++) {
+            assertEquals(v, Histogram.highestValueOf(Histogram.bucketIndex(v)));
+        }
+    }
+
+    @Test
+    public void testBucketsCoverValuesWithBoundedError() {
+        long[] values = {8L, 9L, 1000L, 123456789L, Long.MAX_VALUE};
+
+        for (long v : values) {
+            int index = Histogram.bucketIndex(v);
+            long highest = Histogram.highestValueOf(index);
+
+            assertTrue(index < Histogram.BUCKET_COUNT);
+            assertTrue(highest >= v);
+            assertTrue(Histogram.highestValueOf(index - 1) < v);
+            assertTrue(highest - v <= v / Histogram.SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    public void testStatistics() {
+        for (long v = 1; v <= 1000; v++) {
+            this.histogram.record(v * 1000L);
+        }
+
+        assertEquals(1000L, this.histogram.getCount());
+        assertEquals(500500L, this.histogram.getMean());
+        assertEquals(1000000L, this.histogram.getMax());
+        assertEquals(1000000L, this.histogram.getValueAtPercentile(100));
+
+        long median = this.histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500000L && median <= 500000L + 500000L / Histogram.SUB_BUCKET_COUNT);
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        this.histogram.record(-5L);
+
+        assertEquals(1L, this.histogram.getCount());
+        assertEquals(0L, this.histogram.getMax());
+    }
+
+    @Test
+    public void testReset() {
+        this.histogram.record(42L);
+        this.histogram.reset();
+
+        assertEquals(0L, this.histogram.getCount());
+        assertEquals(0L, this.histogram.getSum());
+        assertEquals(0L, this.histogram.getMax());
+        assertEquals(0L, this.histogram.getValueAtPercentile(50));
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.metrics;
+
+import java.util.concurrent.TimeUnit;
+import net.sf.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class ImportMetricsTest {
+
+    private ImportMetrics metrics;
+
+    @Before
+    public void setUp() {
+        this.metrics = new ImportMetrics();
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(ImportMetrics.getInstance());
+        assertSame(ImportMetrics.getInstance(), ImportMetrics.getInstance());
+    }
+
+    @Test
+    public void testRecordPhaseAndCounters() {
+        this.metrics.recordPhase(ImportMetrics.Phase.ENVIRONMENT, 2000L);
+        this.metrics.increment(ImportMetrics.Counter.IMPORTS);
+        this.metrics.add(ImportMetrics.Counter.VARS_COPIED, 25L);
+
+        assertEquals(1L, this.metrics.getPhase(ImportMetrics.Phase.ENVIRONMENT).getCount());
+        assertEquals(0L, this.metrics.getPhase(ImportMetrics.Phase.TRANSFER).getCount());
+        assertEquals(1L, this.metrics.getCount(ImportMetrics.Counter.IMPORTS));
+        assertEquals(25L, this.metrics.getCount(ImportMetrics.Counter.VARS_COPIED));
+        assertEquals(0L, this.metrics.getCount(ImportMetrics.Counter.BUILD_NOT_FOUND));
+    }
+
+    @Test
+    public void testRecordProjectAndRemoveProject() {
+        this.metrics.recordProject("UPSTREAM B", 10L);
+        this.metrics.recordProject("UPSTREAM A", 20L);
+        this.metrics.recordProject("UPSTREAM A", 30L);
+        this.metrics.recordProject(null, 40L);
+
+        assertEquals(2, this.metrics.getProjects().size());
+        assertEquals("UPSTREAM A", this.metrics.getProjects().keySet().iterator().next());
+        assertEquals(2L, this.metrics.getProjects().get("UPSTREAM A").getCount());
+
+        this.metrics.removeProject("UPSTREAM A");
+
+        assertFalse(this.metrics.getProjects().containsKey("UPSTREAM A"));
+        assertTrue(this.metrics.getProjects().containsKey("UPSTREAM B"));
+    }
+
+    @Test
+    public void testReset() {
+        this.metrics.recordPhase(ImportMetrics.Phase.TRANSFER, 1L);
+        this.metrics.increment(ImportMetrics.Counter.CACHE_HITS);
+        this.metrics.recordProject("UPSTREAM", 1L);
+
+        this.metrics.reset();
+
+        assertEquals(0L, this.metrics.getPhase(ImportMetrics.Phase.TRANSFER).getCount());
+        assertEquals(0L, this.metrics.getCount(ImportMetrics.Counter.CACHE_HITS));
+        assertTrue(this.metrics.getProjects().isEmpty());
+    }
+
+    @Test
+    public void testToJSON() {
+        this.metrics.recordPhase(ImportMetrics.Phase.PROJECT_LOOKUP, TimeUnit.MILLISECONDS.toNanos(3));
+        this.metrics.increment(ImportMetrics.Counter.PROJECT_NOT_FOUND);
+        this.metrics.recordProject("UPSTREAM", TimeUnit.MILLISECONDS.toNanos(5));
+
+        JSONObject json = this.metrics.toJSON();
+
+        JSONObject projectLookup = json.getJSONObject("phases").getJSONObject("PROJECT_LOOKUP");
+        assertEquals(1L, projectLookup.getLong("count"));
+        assertEquals(3000L, projectLookup.getLong("maxMicros"));
+
+        assertEquals(1L, json.getJSONObject("counters").getLong("PROJECT_NOT_FOUND"));
+        assertEquals("UPSTREAM", json.getJSONArray("projects").getJSONObject(0).getString("project"));
+    }
+
+}
@@ -83,5 +83,25 @@ public class BuildNumberExternalBuildProviderTest {
         
         verify(this.project, times(1)).getBuild(same(buildId));
     }
+
+    @Test
+    public void testLookupBuildReportsNumberStrategy() throws Exception {
+        when(this.project.getBuild(same(this.buildId))).thenReturn(this.build);
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, this.buildId);
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.NUMBER, lookup.getStrategy());
+    }
+
+    @Test
+    public void testLookupBuildIgnoresResolutionOrder() throws Exception {
+        when(this.project.getBuild(same(this.buildId))).thenReturn(this.build);
+
+        LookupReportingExternalBuildProvider<AbstractProject, AbstractBuild> provider = this.buildProvider;
+
+        assertSame(this.build, provider.lookupBuild(this.project, this.buildId, BuildResolutionOrder.NAME_FIRST).getBuild());
+        assertSame(this.build, provider.lookupBuild(this.project, this.buildId, null).getBuild());
+    }
     
 }
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.RunList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IndexedNamedBuildExternalBuildProviderTest {
+
+    private final String buildId = "NEW BUILD ID";
+    private AbstractProject project;
+    private AbstractBuild build;
+    private DisplayNameBuildIndex index;
+    private IndexedNamedBuildExternalBuildProvider buildProvider;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+        this.index = mock(DisplayNameBuildIndex.class);
+
+        this.buildProvider = new IndexedNamedBuildExternalBuildProvider(this.index);
+    }
+
+    @Test
+    public void testDefaultConstructorUsesSharedIndex() {
+        assertSame(
+            DisplayNameBuildIndex.getInstance(),
+            new IndexedNamedBuildExternalBuildProvider().index
+        );
+    }
+
+    @Test
+    public void testProvideBuildFindsBuildThroughIndex() throws Exception {
+        when(this.index.lookup(same(this.project), same(this.buildId))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, this.buildId));
+
+        verify(this.index, times(1)).lookup(same(this.project), same(this.buildId));
+        verify(this.project, times(1)).getBuildByNumber(42);
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testProvideBuildFallsBackToNumberWhenNotIndexed() throws Exception {
+        when(this.index.lookup(same(this.project), same(this.buildId))).thenReturn(null);
+        when(this.project.getBuild(same(this.buildId))).thenReturn(this.build);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, this.buildId));
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, times(1)).getBuild(same(this.buildId));
+    }
+
+    @Test
+    public void testProvideBuildInvalidatesStaleIndex() throws Exception {
+        AbstractBuild renamedBuild = mock(AbstractBuild.class);
+
+        when(this.index.lookup(same(this.project), same(this.buildId))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(renamedBuild);
+        when(renamedBuild.getDisplayName()).thenReturn("RENAMED");
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}))
+        );
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, this.buildId));
+
+        verify(this.index, times(1)).invalidate(same(this.project));
+        verify(this.project, times(1)).getBuilds();
+    }
+
+    @Test
+    public void testLookupBuildReportsIndexHit() throws Exception {
+        when(this.index.lookup(same(this.project), same(this.buildId))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, this.buildId);
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.INDEX, lookup.getStrategy());
+    }
+
+    @Test
+    public void testLookupBuildReportsScanForStaleIndex() throws Exception {
+        AbstractBuild renamedBuild = mock(AbstractBuild.class);
+
+        when(this.index.lookup(same(this.project), same(this.buildId))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(renamedBuild);
+        when(renamedBuild.getDisplayName()).thenReturn("RENAMED");
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}))
+        );
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, this.buildId);
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.SCAN, lookup.getStrategy());
+    }
+
+}
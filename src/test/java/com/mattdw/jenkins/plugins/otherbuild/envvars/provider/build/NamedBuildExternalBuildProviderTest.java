@@ -82,5 +82,177 @@ public class NamedBuildExternalBuildProviderTest {
         verify(this.project, times(1)).getBuilds();
         verify(this.project, times(1)).getBuild(same(buildId));
     }
+
+    @Test
+    public void testLookupBuildReportsStrategy() throws Exception {
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}));
+
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+        when(this.project.getBuild(eq("42"))).thenReturn(this.build);
+
+        assertEquals(
+            BuildLookupStrategy.SCAN,
+            this.buildProvider.lookupBuild(this.project, this.buildId).getStrategy()
+        );
+        assertEquals(
+            BuildLookupStrategy.NUMBER,
+            this.buildProvider.lookupBuild(this.project, "42").getStrategy()
+        );
+    }
+
+    @Test
+    public void testNumberFirstFindsNumericIdWithoutScan() throws Exception {
+        this.buildProvider = new NamedBuildExternalBuildProvider(BuildResolutionOrder.NUMBER_FIRST);
+
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, "42");
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.NUMBER, lookup.getStrategy());
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, never()).getBuild(anyString());
+    }
+
+    @Test
+    public void testNumberFirstFallsBackToNameForMissingNumber() throws Exception {
+        this.buildProvider = new NamedBuildExternalBuildProvider(BuildResolutionOrder.NUMBER_FIRST);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}));
+
+        when(this.project.getBuildByNumber(2016)).thenReturn(null);
+        when(this.build.getDisplayName()).thenReturn("2016");
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, "2016");
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.SCAN, lookup.getStrategy());
+    }
+
+    @Test
+    public void testNumberFirstTriesNameFirstForNonNumericId() throws Exception {
+        this.buildProvider = new NamedBuildExternalBuildProvider(BuildResolutionOrder.NUMBER_FIRST);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}));
+
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, this.buildId));
+
+        verify(this.project, never()).getBuildByNumber(anyInt());
+    }
+
+    @Test
+    public void testOrderMayBeGivenPerLookup() throws Exception {
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}));
+
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+
+        assertEquals(BuildResolutionOrder.NAME_FIRST, this.buildProvider.getResolutionOrder());
+        assertEquals(
+            BuildLookupStrategy.NUMBER,
+            this.buildProvider.lookupBuild(this.project, "42", BuildResolutionOrder.NUMBER_FIRST).getStrategy()
+        );
+
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testParseBuildNumber() {
+        assertEquals(Integer.valueOf(42), NamedBuildExternalBuildProvider.parseBuildNumber("42"));
+        assertNull(NamedBuildExternalBuildProvider.parseBuildNumber(null));
+        assertNull(NamedBuildExternalBuildProvider.parseBuildNumber(""));
+        assertNull(NamedBuildExternalBuildProvider.parseBuildNumber("-1"));
+        assertNull(NamedBuildExternalBuildProvider.parseBuildNumber("42a"));
+        assertNull(NamedBuildExternalBuildProvider.parseBuildNumber("99999999999"));
+    }
+
+    @Test
+    public void testFindBuildByNameStopsAtNewestMatch() throws Exception {
+        AbstractBuild olderBuild = mock(AbstractBuild.class);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build, olderBuild}));
+
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        assertSame(this.build, this.buildProvider.findBuildByName(this.project, this.buildId));
+
+        verifyZeroInteractions(olderBuild);
+    }
+
+    @Test
+    public void testFindBuildByNameHonoursMaxSearchDepth() throws Exception {
+        AbstractBuild newerBuild = mock(AbstractBuild.class);
+        this.buildProvider = new NamedBuildExternalBuildProvider(BuildResolutionOrder.NAME_FIRST, 1, 0L);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{newerBuild, this.build}));
+
+        when(newerBuild.getDisplayName()).thenReturn("NEWER");
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        try {
+            this.buildProvider.findBuildByName(this.project, this.buildId);
+
+            fail("Exception was not thrown");
+        } catch (BuildNotFoundException ex) {
+            verify(this.build, never()).getDisplayName();
+        }
+    }
+
+    @Test
+    public void testFindBuildByNameHonoursMaxSearchAge() throws Exception {
+        AbstractBuild recentBuild = mock(AbstractBuild.class);
+        this.buildProvider = new NamedBuildExternalBuildProvider(BuildResolutionOrder.NAME_FIRST, 0, 60000L);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{recentBuild, this.build}));
+
+        when(recentBuild.getTimeInMillis()).thenReturn(System.currentTimeMillis());
+        when(recentBuild.getDisplayName()).thenReturn("RECENT");
+        when(this.build.getTimeInMillis()).thenReturn(System.currentTimeMillis() - 120000L);
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        assertSame(recentBuild, this.buildProvider.findBuildByName(this.project, "RECENT"));
+
+        try {
+            this.buildProvider.findBuildByName(this.project, this.buildId);
+
+            fail("Exception was not thrown");
+        } catch (BuildNotFoundException ex) {
+            verify(this.build, never()).getDisplayName();
+        }
+    }
+
+    @Test
+    public void testFindBuildByNameHonoursConfiguredLimits() throws Exception {
+        AbstractBuild newerBuild = mock(AbstractBuild.class);
+        this.runList = RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{newerBuild, this.build}));
+
+        when(newerBuild.getDisplayName()).thenReturn("NEWER");
+        when(this.build.getDisplayName()).thenReturn(this.buildId);
+        when(this.project.getBuilds()).thenReturn(this.runList);
+
+        int maxSearchDepth = NamedBuildExternalBuildProvider.getConfiguredMaxSearchDepth();
+        long maxSearchAgeMillis = NamedBuildExternalBuildProvider.getConfiguredMaxSearchAgeMillis();
+
+        try {
+            NamedBuildExternalBuildProvider.configureSearchLimits(1, 0L);
+
+            try {
+                this.buildProvider.findBuildByName(this.project, this.buildId);
+
+                fail("Exception was not thrown");
+            } catch (BuildNotFoundException ex) {
+                verify(this.build, never()).getDisplayName();
+            }
+
+            NamedBuildExternalBuildProvider.configureSearchLimits(0, 0L);
+
+            assertSame(this.build, this.buildProvider.findBuildByName(this.project, this.buildId));
+        } finally {
+            NamedBuildExternalBuildProvider.configureSearchLimits(maxSearchDepth, maxSearchAgeMillis);
+        }
+    }
     
 }
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.PermalinkProjectAction.Permalink;
+import hudson.util.PermalinkList;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PermalinkExternalBuildProviderTest {
+
+    private AbstractProject project;
+    private AbstractBuild build;
+    private Permalink permalink;
+    private DisplayNameBuildIndex index;
+    private PermalinkExternalBuildProvider buildProvider;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+        this.permalink = mock(Permalink.class);
+        this.index = mock(DisplayNameBuildIndex.class);
+
+        when(this.permalink.getId()).thenReturn("lastSuccessfulBuild");
+        when(this.project.getPermalinks()).thenReturn(new PermalinkList(Arrays.asList(this.permalink)));
+
+        this.buildProvider = new PermalinkExternalBuildProvider(this.index);
+    }
+
+    @Test
+    public void testProvideBuildResolvesPermalink() throws Exception {
+        doReturn(this.build).when(this.permalink).resolve(same(this.project));
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, "lastSuccessfulBuild"));
+
+        verify(this.project, never()).getBuilds();
+        verifyZeroInteractions(this.index);
+    }
+
+    @Test
+    public void testProvideBuildResolvesPermalinkWithoutSuffix() throws Exception {
+        doReturn(this.build).when(this.permalink).resolve(same(this.project));
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, "lastSuccessful"));
+    }
+
+    @Test
+    public void testProvideBuildFailsForPermalinkWithoutBuild() {
+        doReturn(null).when(this.permalink).resolve(same(this.project));
+
+        try {
+            this.buildProvider.provideBuild(this.project, "lastSuccessfulBuild");
+
+            fail("Exception was not thrown");
+        } catch (BuildNotFoundException ex) {
+            verifyZeroInteractions(this.index);
+        }
+    }
+
+    @Test
+    public void testProvideBuildFallsBackToNameAndNumber() throws Exception {
+        when(this.index.lookup(same(this.project), eq("42"))).thenReturn(null);
+        when(this.project.getBuild(eq("42"))).thenReturn(this.build);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, "42"));
+
+        verify(this.permalink, never()).resolve(same(this.project));
+    }
+
+    @Test
+    public void testLookupBuildReportsStrategy() throws Exception {
+        doReturn(this.build).when(this.permalink).resolve(same(this.project));
+        when(this.index.lookup(same(this.project), eq("42"))).thenReturn(null);
+        when(this.project.getBuild(eq("42"))).thenReturn(this.build);
+
+        BuildLookup<AbstractBuild> permalinkLookup = this.buildProvider.lookupBuild(this.project, "lastSuccessful");
+        BuildLookup<AbstractBuild> numberLookup = this.buildProvider.lookupBuild(this.project, "42");
+
+        assertSame(this.build, permalinkLookup.getBuild());
+        assertEquals(BuildLookupStrategy.PERMALINK, permalinkLookup.getStrategy());
+        assertSame(this.build, numberLookup.getBuild());
+        assertEquals(BuildLookupStrategy.NUMBER, numberLookup.getStrategy());
+    }
+
+    @Test
+    public void testNumberFirstStillResolvesPermalinksFirst() throws Exception {
+        this.buildProvider = new PermalinkExternalBuildProvider(this.index, BuildResolutionOrder.NUMBER_FIRST);
+
+        AbstractBuild numberedBuild = mock(AbstractBuild.class);
+
+        doReturn(this.build).when(this.permalink).resolve(same(this.project));
+        when(this.project.getBuildByNumber(42)).thenReturn(numberedBuild);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, "lastSuccessful"));
+        assertSame(numberedBuild, this.buildProvider.provideBuild(this.project, "42"));
+
+        verifyZeroInteractions(this.index);
+    }
+    
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.build;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.DisplayNameBuildIndex;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.VarValueBuildIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.PermalinkList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class VarValueExternalBuildProviderTest {
+
+    private AbstractProject project;
+    private AbstractBuild build;
+    private DisplayNameBuildIndex index;
+    private VarValueBuildIndex varValueIndex;
+    private VarValueExternalBuildProvider buildProvider;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+        this.index = mock(DisplayNameBuildIndex.class);
+        this.varValueIndex = mock(VarValueBuildIndex.class);
+
+        when(this.project.getPermalinks()).thenReturn(new PermalinkList());
+        when(this.varValueIndex.isIndexed("GIT_COMMIT")).thenReturn(true);
+
+        this.buildProvider = new VarValueExternalBuildProvider(this.index, this.varValueIndex);
+    }
+
+    @Test
+    public void testDefaultConstructorUsesSharedIndexes() {
+        VarValueExternalBuildProvider defaultProvider = new VarValueExternalBuildProvider();
+
+        assertSame(DisplayNameBuildIndex.getInstance(), defaultProvider.index);
+        assertSame(VarValueBuildIndex.getInstance(), defaultProvider.varValueIndex);
+    }
+
+    @Test
+    public void testLookupBuildFindsBuildByIndexedValue() throws Exception {
+        when(this.varValueIndex.lookup(same(this.project), eq("GIT_COMMIT"), eq("abc=123"))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, "GIT_COMMIT=abc=123");
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.VAR_VALUE, lookup.getStrategy());
+
+        verify(this.project, never()).getBuilds();
+        verifyZeroInteractions(this.index);
+    }
+
+    @Test
+    public void testLookupBuildFallsBackForUnindexedVariable() throws Exception {
+        when(this.index.lookup(same(this.project), eq("OTHER=value"))).thenReturn(7);
+        when(this.project.getBuildByNumber(7)).thenReturn(this.build);
+        when(this.build.getDisplayName()).thenReturn("OTHER=value");
+
+        BuildLookup<AbstractBuild> lookup = this.buildProvider.lookupBuild(this.project, "OTHER=value");
+
+        assertSame(this.build, lookup.getBuild());
+        assertEquals(BuildLookupStrategy.INDEX, lookup.getStrategy());
+
+        verify(this.varValueIndex, never()).lookup(same(this.project), anyString(), anyString());
+    }
+
+    @Test
+    public void testLookupBuildFallsBackForDeletedBuild() throws Exception {
+        when(this.varValueIndex.lookup(same(this.project), eq("GIT_COMMIT"), eq("abc123"))).thenReturn(42);
+        when(this.project.getBuildByNumber(42)).thenReturn(null);
+        when(this.index.lookup(same(this.project), eq("GIT_COMMIT=abc123"))).thenReturn(null);
+
+        try {
+            this.buildProvider.provideBuild(this.project, "GIT_COMMIT=abc123");
+            fail("Expected BuildNotFoundException");
+        } catch (BuildNotFoundException ex) {
+            verify(this.project, never()).getBuilds();
+        }
+    }
+
+    @Test
+    public void testProvideBuildFindsBuildByNumber() throws Exception {
+        when(this.index.lookup(same(this.project), eq("12"))).thenReturn(null);
+        when(this.project.getBuild("12")).thenReturn(this.build);
+
+        assertSame(this.build, this.buildProvider.provideBuild(this.project, "12"));
+
+        verify(this.varValueIndex, never()).isIndexed(anyString());
+    }
+
+}
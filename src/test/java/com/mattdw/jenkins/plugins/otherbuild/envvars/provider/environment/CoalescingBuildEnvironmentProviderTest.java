@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CoalescingBuildEnvironmentProviderTest {
+
+    private static final int CONCURRENT_REQUESTS = 8;
+
+    private final Map<String, String> envVars = Collections.singletonMap("UPSTREAM", "value");
+    private BuildEnvironmentProvider<AbstractBuild> delegate;
+    private AbstractProject project;
+    private AbstractBuild build;
+    private TaskListener listener;
+    private CoalescingBuildEnvironmentProvider environmentProvider;
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() throws Exception {
+        this.delegate = (BuildEnvironmentProvider<AbstractBuild>) mock(BuildEnvironmentProvider.class);
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+        this.listener = mock(TaskListener.class);
+
+        when(this.project.getFullName()).thenReturn("UPSTREAM PROJECT");
+        when(this.build.getParent()).thenReturn(this.project);
+        when(this.build.getNumber()).thenReturn(7);
+        when(this.delegate.provideEnvironment(same(this.build), any(TaskListener.class))).thenReturn(this.envVars);
+
+        this.environmentProvider = new CoalescingBuildEnvironmentProvider(this.delegate, TimeUnit.MINUTES.toMillis(1));
+        this.threads = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+    }
+
+    @After
+    public void tearDown() {
+        this.threads.shutdownNow();
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(CoalescingBuildEnvironmentProvider.getInstance());
+        assertSame(CoalescingBuildEnvironmentProvider.getInstance(), CoalescingBuildEnvironmentProvider.getInstance());
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneComputation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        when(this.delegate.provideEnvironment(same(this.build), any(TaskListener.class))).thenAnswer(
+            new Answer<Map<String, String>>() {
+                @Override
+                public Map<String, String> answer(InvocationOnMock invocation) throws Throwable {
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+
+                    return envVars;
+                }
+            }
+        );
+
+        List<Future<Map<String, String>>> results = new ArrayList<>();
+
+        for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+            results.add(this.threads.submit(new Callable<Map<String, String>>() {
+                @Override
+                public Map<String, String> call() throws Exception {
+                    return environmentProvider.provideEnvironment(build, listener);
+                }
+            }));
+        }
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Allow the remaining requests to arrive while the first is in flight
+        Thread.sleep(100);
+        release.countDown();
+
+        Map<String, String> shared = results.get(0).get(10, TimeUnit.SECONDS);
+
+        assertEquals(this.envVars, shared);
+
+        for (Future<Map<String, String>> result : results) {
+            assertSame(shared, result.get(10, TimeUnit.SECONDS));
+        }
+
+        verify(this.delegate, times(1)).provideEnvironment(same(this.build), any(TaskListener.class));
+    }
+
+    @Test
+    public void testCompletedBuildEnvironmentIsRetained() throws Exception {
+        Map<String, String> retained = this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        assertEquals(this.envVars, retained);
+        assertSame(retained, this.environmentProvider.provideEnvironment(this.build, this.listener));
+
+        verify(this.delegate, times(1)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+    @Test
+    public void testEnvironmentIsNotRetainedWithoutRetainTime() throws Exception {
+        this.environmentProvider = new CoalescingBuildEnvironmentProvider(this.delegate, 0);
+
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        verify(this.delegate, times(2)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+    @Test
+    public void testRunningBuildEnvironmentIsNotRetained() throws Exception {
+        when(this.build.isBuilding()).thenReturn(true);
+
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        verify(this.delegate, times(2)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+    @Test
+    public void testUpdateBuildDiscardsRetainedEnvironment() throws Exception {
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.updateBuild(this.build);
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        verify(this.delegate, times(2)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+    @Test
+    public void testRemoveProjectDiscardsRetainedEnvironment() throws Exception {
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.removeProject("UPSTREAM PROJECT");
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        verify(this.delegate, times(2)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+    @Test
+    public void testDifferentBuildObjectIsNotShared() throws Exception {
+        AbstractBuild reloadedBuild = mock(AbstractBuild.class);
+
+        when(reloadedBuild.getParent()).thenReturn(this.project);
+        when(reloadedBuild.getNumber()).thenReturn(7);
+
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.provideEnvironment(reloadedBuild, this.listener);
+
+        verify(this.delegate, times(1)).provideEnvironment(same(reloadedBuild), same(this.listener));
+    }
+
+    @Test
+    public void testFailureIsNotRetained() throws Exception {
+        when(this.delegate.provideEnvironment(same(this.build), same(this.listener)))
+            .thenThrow(new IOException("FAILED"))
+            .thenReturn(this.envVars);
+
+        try {
+            this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+            fail("Exception was not thrown");
+        } catch (IOException ex) {
+            assertEquals("FAILED", ex.getMessage());
+        }
+
+        assertEquals(this.envVars, this.environmentProvider.provideEnvironment(this.build, this.listener));
+    }
+
+    @Test
+    public void testSharedEnvironmentIsReadOnly() throws Exception {
+        Map<String, String> computed = new HashMap<>(this.envVars);
+
+        when(this.delegate.provideEnvironment(same(this.build), same(this.listener))).thenReturn(computed);
+
+        Map<String, String> first = this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        try {
+            first.put("UPSTREAM", "altered");
+
+            fail("Exception was not thrown");
+        } catch (UnsupportedOperationException ex) {
+            // Expected
+        }
+
+        assertEquals("value", this.environmentProvider.provideEnvironment(this.build, this.listener).get("UPSTREAM"));
+    }
+
+    @Test
+    public void testUnidentifiableBuildIsDelegatedDirectly() throws Exception {
+        when(this.build.getParent()).thenReturn(null);
+
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+        this.environmentProvider.provideEnvironment(this.build, this.listener);
+
+        verify(this.delegate, times(2)).provideEnvironment(same(this.build), same(this.listener));
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import hudson.model.AbstractBuild;
+import hudson.model.ParametersAction;
+import hudson.model.PasswordParameterValue;
+import hudson.model.Run;
+import hudson.model.StringParameterValue;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+public class EnvironmentSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Run<?, ?> build;
+    private File rootDir;
+
+    @Before
+    public void setUp() throws Exception {
+        this.build = mock(Run.class);
+        this.rootDir = this.folder.newFolder();
+
+        when(this.build.getRootDir()).thenReturn(this.rootDir);
+    }
+
+    @Test
+    public void testLoadReturnsNullWithoutSnapshot() throws Exception {
+        assertFalse(EnvironmentSnapshot.exists(this.build));
+        assertNull(EnvironmentSnapshot.load(this.build));
+    }
+
+    @Test
+    public void testLoadReturnsNullWithoutBuildDirectory() throws Exception {
+        when(this.build.getRootDir()).thenReturn(null);
+
+        assertNull(EnvironmentSnapshot.getFile(this.build));
+        assertNull(EnvironmentSnapshot.load(this.build));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Map<String, String> vars = new HashMap<>();
+        vars.put("ONE", "one");
+        vars.put("MULTI_LINE", "first\nsecond = third");
+        vars.put("UNICODE", "é中");
+
+        EnvironmentSnapshot.save(this.build, vars);
+
+        assertTrue(EnvironmentSnapshot.exists(this.build));
+        assertEquals(
+            new File(this.rootDir, EnvironmentSnapshot.FILE_NAME),
+            EnvironmentSnapshot.getFile(this.build)
+        );
+        assertEquals(vars, EnvironmentSnapshot.load(this.build));
+    }
+
+    @Test
+    public void testSaveOmitsSensitiveVariables() throws Exception {
+        AbstractBuild<?, ?> sensitiveBuild = mock(AbstractBuild.class);
+
+        when(sensitiveBuild.getRootDir()).thenReturn(this.rootDir);
+        when(sensitiveBuild.getSensitiveBuildVariables()).thenReturn(Collections.singleton("TOKEN"));
+        when(sensitiveBuild.getAction(ParametersAction.class)).thenReturn(
+            new ParametersAction(
+                new PasswordParameterValue("DEPLOY_PASSWORD", "hunter2"),
+                new StringParameterValue("RELEASE_ID", "1.0")
+            )
+        );
+
+        Map<String, String> vars = new HashMap<>();
+        vars.put("DEPLOY_PASSWORD", "hunter2");
+        vars.put("TOKEN", "s3cr3t");
+        vars.put("RELEASE_ID", "1.0");
+
+        EnvironmentSnapshot.save(sensitiveBuild, vars);
+
+        String contents = new String(
+            Files.readAllBytes(EnvironmentSnapshot.getFile(sensitiveBuild).toPath()),
+            StandardCharsets.UTF_8
+        );
+
+        assertFalse(contents.contains("DEPLOY_PASSWORD"));
+        assertFalse(contents.contains("hunter2"));
+        assertFalse(contents.contains("s3cr3t"));
+        assertEquals(Collections.singletonMap("RELEASE_ID", "1.0"), EnvironmentSnapshot.load(sensitiveBuild));
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.environment;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SnapshotBuildEnvironmentProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AbstractBuild build;
+    private TaskListener listener;
+    private EnvVars liveVars;
+    private SnapshotBuildEnvironmentProvider environmentProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        this.build = mock(AbstractBuild.class);
+        this.listener = mock(TaskListener.class);
+        this.liveVars = new EnvVars("LIVE", "live");
+
+        when(this.build.getRootDir()).thenReturn(this.folder.newFolder());
+        when(this.build.getEnvironment(same(this.listener))).thenReturn(this.liveVars);
+
+        this.environmentProvider = new SnapshotBuildEnvironmentProvider();
+    }
+
+    @Test
+    public void testProvideEnvironmentFallsBackToLiveEnvironment() throws Exception {
+        assertSame(this.liveVars, this.environmentProvider.provideEnvironment(this.build, this.listener));
+
+        verify(this.build, times(1)).getEnvironment(same(this.listener));
+    }
+
+    @Test
+    public void testProvideEnvironmentReadsSnapshot() throws Exception {
+        Map<String, String> snapshotVars = Collections.singletonMap("SNAPSHOT", "snapshot");
+
+        EnvironmentSnapshot.save(this.build, snapshotVars);
+
+        assertEquals(snapshotVars, this.environmentProvider.provideEnvironment(this.build, this.listener));
+
+        verify(this.build, never()).getEnvironment(any(TaskListener.class));
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.ListBoxModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BuildOptionsCacheTest {
+
+    private final String projectName = "PROJECT NAME";
+    private AbstractProject project;
+    private BuildOptionFormatter formatter;
+    private BuildOptionsCache.Key key;
+    private ListBoxModel options;
+    private BuildOptionsCache cache;
+
+    @Before
+    public void setUp() {
+        this.project = mock(AbstractProject.class);
+        this.formatter = mock(BuildOptionFormatter.class);
+        this.key = new BuildOptionsCache.Key(this.projectName, Result.SUCCESS, this.formatter, 0, 0);
+        this.options = new ListBoxModel();
+        this.options.add("FORTY TWO", "42");
+
+        when(this.project.getFullName()).thenReturn(this.projectName);
+        when(this.project.getNextBuildNumber()).thenReturn(43);
+
+        this.cache = new BuildOptionsCache(2);
+    }
+
+    @Test
+    public void testGetInstanceReturnsSharedInstance() {
+        assertNotNull(BuildOptionsCache.getInstance());
+        assertSame(BuildOptionsCache.getInstance(), BuildOptionsCache.getInstance());
+    }
+
+    @Test
+    public void testGetReturnsCopyOfCachedOptions() {
+        assertNull(this.cache.get(this.key, this.project));
+
+        this.cache.put(this.key, this.cache.getGeneration(this.projectName), 43, this.options);
+
+        ListBoxModel cached = this.cache.get(
+            new BuildOptionsCache.Key(this.projectName, Result.SUCCESS, this.formatter, 0, 0),
+            this.project
+        );
+
+        assertNotNull(cached);
+        assertNotSame(this.options, cached);
+        assertEquals(1, cached.size());
+        assertEquals("42", cached.get(0).value);
+    }
+
+    @Test
+    public void testGetIgnoresOptionsForEarlierNextBuildNumber() {
+        this.cache.put(this.key, this.cache.getGeneration(this.projectName), 42, this.options);
+
+        assertNull(this.cache.get(this.key, this.project));
+    }
+
+    @Test
+    public void testUpdateBuildInvalidatesProject() {
+        AbstractBuild build = mock(AbstractBuild.class);
+        when(build.getParent()).thenReturn(this.project);
+
+        this.cache.put(this.key, this.cache.getGeneration(this.projectName), 43, this.options);
+        this.cache.updateBuild(build);
+
+        assertNull(this.cache.get(this.key, this.project));
+    }
+
+    @Test
+    public void testPutIgnoresOptionsProducedBeforeInvalidation() {
+        long generation = this.cache.getGeneration(this.projectName);
+
+        this.cache.removeProject(this.projectName);
+        this.cache.put(this.key, generation, 43, this.options);
+
+        assertNull(this.cache.get(this.key, this.project));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedOptionsAreEvicted() {
+        BuildOptionsCache.Key secondKey = new BuildOptionsCache.Key(this.projectName, null, this.formatter, 0, 0);
+        BuildOptionsCache.Key thirdKey = new BuildOptionsCache.Key(this.projectName, Result.FAILURE, this.formatter, 0, 0);
+
+        this.cache.put(this.key, 0L, 43, this.options);
+        this.cache.put(secondKey, 0L, 43, this.options);
+        this.cache.get(this.key, this.project);
+        this.cache.put(thirdKey, 0L, 43, this.options);
+
+        assertNotNull(this.cache.get(this.key, this.project));
+        assertNull(this.cache.get(secondKey, this.project));
+        assertNotNull(this.cache.get(thirdKey, this.project));
+    }
+
+}
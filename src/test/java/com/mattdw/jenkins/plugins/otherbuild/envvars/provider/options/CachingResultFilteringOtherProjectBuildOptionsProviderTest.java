@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.util.ListBoxModel;
+import hudson.util.RunList;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CachingResultFilteringOtherProjectBuildOptionsProviderTest {
+
+    private final Result result = Result.SUCCESS;
+    private BuildOptionFormatter formatter;
+    private BuildOptionsCache cache;
+    private AbstractProject project;
+    private AbstractBuild build;
+    private CachingResultFilteringOtherProjectBuildOptionsProvider provider;
+
+    @Before
+    public void setUp() {
+        this.formatter = mock(BuildOptionFormatter.class);
+        this.cache = new BuildOptionsCache(BuildOptionsCache.DEFAULT_MAX_ENTRIES);
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+
+        when(this.project.getFullName()).thenReturn("PROJECT NAME");
+        when(this.project.getNextBuildNumber()).thenReturn(43);
+        when(this.project.getBuilds()).thenReturn(
+            RunList.fromRuns(java.util.Arrays.asList(new AbstractBuild[]{this.build}))
+        );
+        when(this.project.getLastBuild()).thenReturn(this.build);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(this.build.getNumber()).thenReturn(42);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+
+        this.provider = new CachingResultFilteringOtherProjectBuildOptionsProvider(
+            this.result,
+            this.formatter,
+            this.cache
+        );
+    }
+
+    @Test
+    public void testGetOptionsForProjectServesRepeatRequestsFromCache() {
+        ListBoxModel first = this.provider.getOptionsForProject(this.project);
+        ListBoxModel second = this.provider.getOptionsForProject(this.project);
+
+        assertEquals(1, second.size());
+        assertEquals(first.get(0).name, second.get(0).name);
+        assertEquals("42", second.get(0).value);
+
+        verify(this.project, times(1)).getBuilds();
+        verify(this.formatter, times(1)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testGetOptionsForProjectReloadsAfterNewBuild() {
+        this.provider.getOptionsForProject(this.project);
+
+        when(this.project.getNextBuildNumber()).thenReturn(44);
+        this.provider.getOptionsForProject(this.project);
+
+        verify(this.project, times(2)).getBuilds();
+    }
+
+    @Test
+    public void testBoundedOptionsAreCachedSeparately() {
+        this.provider.getOptionsForProject(this.project);
+        this.provider.getOptionsForProject(this.project, 0, 10);
+        this.provider.getOptionsForProject(this.project, 0, 10);
+
+        verify(this.project, times(1)).getBuilds();
+        verify(this.project, times(1)).getLastBuild();
+    }
+
+    @Test
+    public void testOptionsWithoutQueryAreServedFromCache() {
+        this.provider.getOptionsForProject(this.project, 0, 10, null);
+        this.provider.getOptionsForProject(this.project, 0, 10, "");
+
+        verify(this.project, times(1)).getLastBuild();
+    }
+
+    @Test
+    public void testOnlyFirstPageOfContinuedOptionsIsServedFromCache() {
+        when(this.project.getNearestOldBuild(42)).thenReturn(this.build);
+
+        this.provider.getOptionsForProjectBefore(this.project, 0, 10, null);
+        this.provider.getOptionsForProjectBefore(this.project, 0, 10, "");
+        this.provider.getOptionsForProjectBefore(this.project, 43, 10, null);
+        this.provider.getOptionsForProjectBefore(this.project, 43, 10, null);
+
+        verify(this.project, times(1)).getLastBuild();
+        verify(this.project, times(2)).getNearestOldBuild(42);
+    }
+
+    @Test
+    public void testOptionsWithQueryBypassCache() {
+        ListBoxModel first = this.provider.getOptionsForProject(this.project, 0, 10, "forty");
+        ListBoxModel second = this.provider.getOptionsForProject(this.project, 0, 10, "forty");
+
+        assertEquals(1, first.size());
+        assertEquals("42", second.get(0).value);
+        assertEquals(0, this.provider.getOptionsForProject(this.project, 0, 10, "UNMATCHED").size());
+
+        verify(this.project, times(3)).getLastBuild();
+    }
+
+    @Test
+    public void testFactorySharesFormatterAndCache() {
+        CachingResultFilteringOtherProjectBuildOptionsProvider.Factory factory = new CachingResultFilteringOtherProjectBuildOptionsProvider.Factory(
+            this.formatter,
+            this.cache
+        );
+
+        CachingResultFilteringOtherProjectBuildOptionsProvider first = factory.buildProvider(Result.SUCCESS);
+        CachingResultFilteringOtherProjectBuildOptionsProvider second = factory.buildProvider(null);
+
+        assertSame(this.formatter, first.formatter);
+        assertSame(this.formatter, second.formatter);
+        assertSame(this.cache, first.cache);
+        assertSame(this.cache, second.cache);
+        assertSame(BuildOptionsCache.getInstance(), new CachingResultFilteringOtherProjectBuildOptionsProvider.Factory().cache);
+    }
+
+    @Test
+    public void testDefaultFactorySharesMetadataIndex() {
+        CachingResultFilteringOtherProjectBuildOptionsProvider.Factory factory = new CachingResultFilteringOtherProjectBuildOptionsProvider.Factory();
+
+        assertSame(BuildMetadataIndex.getInstance(), factory.metadataIndex);
+        assertSame(BuildMetadataIndex.getInstance(), factory.buildProvider(Result.SUCCESS).metadataIndex);
+        assertNull(this.provider.metadataIndex);
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
+
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MemoizingBuildOptionFormatterTest {
+
+    private BuildOptionFormatter<AbstractBuild> delegate;
+    private AbstractProject project;
+    private AbstractBuild build;
+    private MemoizingBuildOptionFormatter formatter;
+
+    @Before
+    public void setUp() {
+        this.delegate = mock(BuildOptionFormatter.class);
+        this.project = mock(AbstractProject.class);
+        this.build = mock(AbstractBuild.class);
+
+        when(this.project.getFullName()).thenReturn("PROJECT NAME");
+        when(this.build.getParent()).thenReturn(this.project);
+        when(this.build.getNumber()).thenReturn(42);
+        when(this.build.getResult()).thenReturn(Result.SUCCESS);
+        when(this.delegate.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+
+        this.formatter = new MemoizingBuildOptionFormatter(this.delegate, 10);
+    }
+
+    @Test
+    public void testGetInstanceDecoratesDefaultFormatter() {
+        assertSame(MemoizingBuildOptionFormatter.getInstance(), MemoizingBuildOptionFormatter.getInstance());
+        assertTrue(MemoizingBuildOptionFormatter.getInstance().formatter instanceof BuildOptionFormatter.DefaultImpl);
+    }
+
+    @Test
+    public void testFormatBuildMemoizesCompletedBuilds() {
+        assertEquals("FORTY TWO", this.formatter.formatBuild(this.build));
+        assertEquals("FORTY TWO", this.formatter.formatBuild(this.build));
+
+        verify(this.delegate, times(1)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testFormatBuildDoesNotMemoizeBuildsInProgress() {
+        when(this.build.isBuilding()).thenReturn(true);
+
+        this.formatter.formatBuild(this.build);
+        this.formatter.formatBuild(this.build);
+
+        verify(this.delegate, times(2)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testUpdateBuildDiscardsLabel() {
+        this.formatter.formatBuild(this.build);
+        this.formatter.updateBuild(this.build);
+
+        when(this.delegate.formatBuild(same(this.build))).thenReturn("RENAMED");
+        assertEquals("RENAMED", this.formatter.formatBuild(this.build));
+    }
+
+    @Test
+    public void testFormatBuildDoesNotHoldLabelProducedDuringUpdate() {
+        when(this.delegate.formatBuild(same(this.build))).thenAnswer(new Answer<String>() {
+            private int calls = 0;
+
+            @Override
+            public String answer(InvocationOnMock invocation) {
+                // The build is changed while its first label is being produced
+                if (this.calls++ == 0) {
+                    MemoizingBuildOptionFormatterTest.this.formatter.updateBuild(MemoizingBuildOptionFormatterTest.this.build);
+                    return "STALE";
+                }
+
+                return "FORTY TWO";
+            }
+        });
+
+        assertEquals("STALE", this.formatter.formatBuild(this.build));
+        assertEquals("FORTY TWO", this.formatter.formatBuild(this.build));
+        assertEquals("FORTY TWO", this.formatter.formatBuild(this.build));
+
+        verify(this.delegate, times(2)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testRemoveProjectDiscardsLabels() {
+        this.formatter.formatBuild(this.build);
+        this.formatter.removeProject("PROJECT NAME");
+        this.formatter.formatBuild(this.build);
+
+        verify(this.delegate, times(2)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testFormatMetadataDelegatesWhereSupported() {
+        BuildMetadata metadata = new BuildMetadata(42, "#42", true, Result.SUCCESS, 0L);
+        BuildOptionFormatter<AbstractBuild> metadataDelegate = mock(
+            BuildOptionFormatter.class,
+            withSettings().extraInterfaces(BuildMetadataFormatter.class)
+        );
+
+        when(((BuildMetadataFormatter) metadataDelegate).formatMetadata(same(metadata))).thenReturn("FORTY TWO");
+
+        assertNull(this.formatter.formatMetadata(metadata));
+        assertEquals(
+            "FORTY TWO",
+            new MemoizingBuildOptionFormatter(metadataDelegate, 10).formatMetadata(metadata)
+        );
+    }
+
+}
@@ -23,6 +23,7 @@
  */
 package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
 import hudson.model.AbstractBuild;
 import hudson.model.Result;
 import org.junit.Before;
@@ -32,6 +33,8 @@ import java.util.Date;
 import java.text.DateFormat;
 import java.text.FieldPosition;
 import java.text.SimpleDateFormat;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -52,12 +55,52 @@ public class OtherProjectBuildOptionFormatterTest {
     }
 
     @Test
-    public void testDefaultConstructorUsesSimpleDateFormat() {
+    public void testDefaultConstructorUsesDateTimeFormatter() {
         BuildOptionFormatter.DefaultImpl formatterImpl = new BuildOptionFormatter.DefaultImpl();
 
-        assertTrue(formatterImpl.dateFormat instanceof SimpleDateFormat);
-        assertNotNull(formatterImpl.dateFormat);
-        assertEquals("yyyy-MM-dd HH:mm:ss z", ((SimpleDateFormat) (formatterImpl.dateFormat)).toPattern());
+        assertNull(formatterImpl.dateFormat);
+        assertSame(BuildOptionFormatter.DefaultImpl.DEFAULT_DATE_TIME_FORMATTER, formatterImpl.dateTimeFormatter);
+        assertEquals("yyyy-MM-dd HH:mm:ss z", BuildOptionFormatter.DefaultImpl.DEFAULT_DATE_PATTERN);
+        assertEquals(
+            "yyyy-MM-dd HH:mm:ss z",
+            ((SimpleDateFormat) BuildOptionFormatter.DefaultImpl.DEFAULT_DATE_FORMAT).toPattern()
+        );
+    }
+
+    @Test
+    public void testFormatBuildWithDateTimeFormatter() {
+        this.formatter = new BuildOptionFormatter.DefaultImpl(
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z").withZone(ZoneOffset.UTC)
+        );
+
+        final AbstractBuild build = mock(AbstractBuild.class);
+
+        when(build.getResult()).thenReturn(null);
+        when(build.getDisplayName()).thenReturn("#42");
+        when(build.getTimeInMillis()).thenReturn(1451606400000L);
+
+        assertEquals("#42 - NO RESULT (2016-01-01 00:00:00 Z)", this.formatter.formatBuild(build));
+
+        verify(build, never()).getTimestamp();
+    }
+
+    @Test
+    public void testFormatMetadataMatchesFormatBuild() {
+        BuildOptionFormatter.DefaultImpl formatterImpl = new BuildOptionFormatter.DefaultImpl(
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss z").withZone(ZoneOffset.UTC)
+        );
+
+        final AbstractBuild build = mock(AbstractBuild.class);
+
+        when(build.getResult()).thenReturn(Result.SUCCESS);
+        when(build.getDisplayName()).thenReturn("#42");
+        when(build.getTimeInMillis()).thenReturn(1451606400000L);
+
+        assertEquals(
+            formatterImpl.formatBuild(build),
+            formatterImpl.formatMetadata(new BuildMetadata(42, "#42", true, Result.SUCCESS, 1451606400000L))
+        );
+        assertNull(formatterImpl.formatMetadata(new BuildMetadata(42, "#4", false, Result.SUCCESS, 1451606400000L)));
     }
     
     @Test
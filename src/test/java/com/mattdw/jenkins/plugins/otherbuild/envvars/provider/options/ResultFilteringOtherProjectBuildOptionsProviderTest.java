@@ -23,6 +23,8 @@
  */
 package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.options;
 
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadata;
+import com.mattdw.jenkins.plugins.otherbuild.envvars.index.BuildMetadataIndex;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Result;
@@ -126,4 +128,310 @@ public class ResultFilteringOtherProjectBuildOptionsProviderTest {
         verify(this.formatter, times(1)).formatBuild(same(this.build));
     }
    
+    @Test
+    public void testGetOptionsForProjectWithOffsetAndLimit() {
+        AbstractBuild newestBuild = mock(AbstractBuild.class);
+        AbstractBuild filteredBuild = mock(AbstractBuild.class);
+        AbstractBuild olderBuild = mock(AbstractBuild.class);
+        AbstractBuild oldestBuild = mock(AbstractBuild.class);
+
+        when(this.project.getLastBuild()).thenReturn(newestBuild);
+        when(newestBuild.getPreviousBuild()).thenReturn(filteredBuild);
+        when(filteredBuild.getPreviousBuild()).thenReturn(this.build);
+        when(this.build.getPreviousBuild()).thenReturn(olderBuild);
+        when(olderBuild.getPreviousBuild()).thenReturn(oldestBuild);
+
+        when(newestBuild.getResult()).thenReturn(this.result);
+        when(filteredBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(olderBuild.getResult()).thenReturn(this.result);
+
+        when(this.build.getNumber()).thenReturn(42);
+        when(olderBuild.getNumber()).thenReturn(41);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+        when(this.formatter.formatBuild(same(olderBuild))).thenReturn("FORTY ONE");
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project, 1, 2);
+        assertEquals(2, list.size());
+
+        assertEquals("FORTY TWO", list.get(0).name);
+        assertEquals("42", list.get(0).value);
+        assertEquals("FORTY ONE", list.get(1).name);
+        assertEquals("41", list.get(1).value);
+
+        verify(this.project, never()).getBuilds();
+        verify(this.formatter, never()).formatBuild(same(newestBuild));
+        verify(this.formatter, never()).formatBuild(same(filteredBuild));
+        verifyZeroInteractions(oldestBuild);
+    }
+
+    @Test
+    public void testGetOptionsForProjectBeforeContinuesBelowGivenBuild() {
+        AbstractBuild olderBuild = mock(AbstractBuild.class);
+
+        when(this.project.getNearestOldBuild(42)).thenReturn(this.build);
+        when(this.build.getPreviousBuild()).thenReturn(olderBuild);
+
+        when(this.build.getResult()).thenReturn(this.result);
+        when(olderBuild.getResult()).thenReturn(this.result);
+
+        when(this.build.getNumber()).thenReturn(42);
+        when(olderBuild.getNumber()).thenReturn(40);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+        when(this.formatter.formatBuild(same(olderBuild))).thenReturn("FORTY");
+
+        ListBoxModel list = this.provider.getOptionsForProjectBefore(this.project, 43, 10, null);
+        assertEquals(2, list.size());
+        assertEquals("42", list.get(0).value);
+        assertEquals("40", list.get(1).value);
+
+        verify(this.project, never()).getLastBuild();
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testGetOptionsForProjectWithLimitAndNoBuilds() {
+        when(this.project.getLastBuild()).thenReturn(null);
+
+        assertEquals(0, this.provider.getOptionsForProject(this.project, 0, 50).size());
+
+        verify(this.project, never()).getBuilds();
+    }
+
+    @Test
+    public void testGetOptionsForProjectWithQueryMatchesNameOrNumber() {
+        AbstractBuild newestBuild = mock(AbstractBuild.class);
+        AbstractBuild numberedBuild = mock(AbstractBuild.class);
+        AbstractBuild oldestBuild = mock(AbstractBuild.class);
+
+        when(this.project.getLastBuild()).thenReturn(newestBuild);
+        when(newestBuild.getPreviousBuild()).thenReturn(this.build);
+        when(this.build.getPreviousBuild()).thenReturn(numberedBuild);
+        when(numberedBuild.getPreviousBuild()).thenReturn(oldestBuild);
+
+        when(newestBuild.getResult()).thenReturn(this.result);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(numberedBuild.getResult()).thenReturn(this.result);
+        when(oldestBuild.getResult()).thenReturn(this.result);
+
+        when(newestBuild.getNumber()).thenReturn(44);
+        when(this.build.getNumber()).thenReturn(43);
+        when(numberedBuild.getNumber()).thenReturn(42);
+        when(oldestBuild.getNumber()).thenReturn(41);
+        when(this.formatter.formatBuild(same(newestBuild))).thenReturn("Nightly");
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("Release 1.0");
+        when(this.formatter.formatBuild(same(numberedBuild))).thenReturn("Nightly");
+        when(this.formatter.formatBuild(same(oldestBuild))).thenReturn("Release 0.9");
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project, 0, 10, "  RELEASE ");
+        assertEquals(2, list.size());
+        assertEquals("43", list.get(0).value);
+        assertEquals("41", list.get(1).value);
+
+        list = this.provider.getOptionsForProject(this.project, 0, 1, "42");
+        assertEquals(1, list.size());
+        assertEquals("Nightly", list.get(0).name);
+        assertEquals("42", list.get(0).value);
+    }
+
+    @Test
+    public void testGetOptionsForProjectWithQueryAppliesOffsetToMatches() {
+        AbstractBuild newestBuild = mock(AbstractBuild.class);
+        AbstractBuild olderBuild = mock(AbstractBuild.class);
+
+        when(this.project.getLastBuild()).thenReturn(newestBuild);
+        when(newestBuild.getPreviousBuild()).thenReturn(this.build);
+        when(this.build.getPreviousBuild()).thenReturn(olderBuild);
+
+        when(newestBuild.getResult()).thenReturn(this.result);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(olderBuild.getResult()).thenReturn(this.result);
+
+        when(newestBuild.getNumber()).thenReturn(44);
+        when(this.build.getNumber()).thenReturn(43);
+        when(olderBuild.getNumber()).thenReturn(42);
+        when(this.formatter.formatBuild(same(newestBuild))).thenReturn("Release 1.1");
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("Nightly");
+        when(this.formatter.formatBuild(same(olderBuild))).thenReturn("Release 1.0");
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project, 1, 10, "release");
+        assertEquals(1, list.size());
+        assertEquals("42", list.get(0).value);
+
+        verify(this.formatter, times(1)).formatBuild(same(olderBuild));
+    }
+
+    @Test
+    public void testGetOptionsForProjectWithEmptyQueryMatchesEveryBuild() {
+        when(this.project.getLastBuild()).thenReturn(this.build);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(this.build.getNumber()).thenReturn(42);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project, 0, 10, " ");
+        assertEquals(1, list.size());
+        assertEquals("42", list.get(0).value);
+
+        verify(this.formatter, times(1)).formatBuild(same(this.build));
+    }
+
+    @Test
+    public void testGetOptionsForBuildsLoadsOnlyGivenBuilds() {
+        AbstractBuild filteredBuild = mock(AbstractBuild.class);
+
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+        when(this.project.getBuildByNumber(41)).thenReturn(filteredBuild);
+        when(this.project.getBuildByNumber(40)).thenReturn(null);
+        when(this.build.getResult()).thenReturn(this.result);
+        when(this.build.getNumber()).thenReturn(42);
+        when(filteredBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO");
+
+        ListBoxModel list = this.provider.getOptionsForBuilds(this.project, java.util.Arrays.asList(42, 41, 40));
+        assertEquals(1, list.size());
+        assertEquals("FORTY TWO", list.get(0).name);
+        assertEquals("42", list.get(0).value);
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, never()).getLastBuild();
+        verify(this.formatter, never()).formatBuild(same(filteredBuild));
+    }
+
+    @Test
+    public void testGetOptionsForProjectWithLimitUsesMetadata() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+        BuildOptionFormatter metadataFormatter = mock(
+            BuildOptionFormatter.class,
+            withSettings().extraInterfaces(BuildMetadataFormatter.class)
+        );
+        BuildMetadata aborted = new BuildMetadata(5, "FIVE", true, Result.ABORTED, 5000L);
+        BuildMetadata truncated = new BuildMetadata(3, "THR", false, Result.ABORTED, 3000L);
+        AbstractBuild runningBuild = mock(AbstractBuild.class);
+
+        when(metadataIndex.getBuilds(this.project, Result.ABORTED, 0)).thenReturn(java.util.Arrays.asList(
+            aborted,
+            truncated,
+            new BuildMetadata(2, "TWO", true, Result.ABORTED, 2000L)
+        ));
+        when(metadataIndex.getLastBuildNumber(this.project)).thenReturn(5);
+        when(this.project.getNextBuildNumber()).thenReturn(7);
+        when(this.project.getLastBuild()).thenReturn(runningBuild);
+        when(runningBuild.getNumber()).thenReturn(6);
+        when(runningBuild.isBuilding()).thenReturn(true);
+        when(this.project.getBuildByNumber(3)).thenReturn(this.build);
+        when(((BuildMetadataFormatter) metadataFormatter).formatMetadata(same(aborted))).thenReturn("FIVE - ABORTED");
+        when(((BuildMetadataFormatter) metadataFormatter).formatMetadata(same(truncated))).thenReturn(null);
+        when(metadataFormatter.formatBuild(same(this.build))).thenReturn("THREE - ABORTED");
+
+        this.provider = new ResultFilteringOtherProjectBuildOptionsProvider(
+            this.result,
+            metadataFormatter,
+            metadataIndex
+        );
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project, 0, 2);
+        assertEquals(2, list.size());
+        assertEquals("FIVE - ABORTED", list.get(0).name);
+        assertEquals("5", list.get(0).value);
+        assertEquals("THREE - ABORTED", list.get(1).name);
+        assertEquals("3", list.get(1).value);
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, never()).getBuildByNumber(4);
+        verify(this.project, never()).getBuildByNumber(5);
+        verify(runningBuild, never()).getPreviousBuild();
+        verify(metadataIndex, never()).getBuilds(this.project, 0);
+    }
+
+    @Test
+    public void testGetOptionsForProjectLoadsOnlyBuildsInResultBitmap() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+
+        when(metadataIndex.getBuilds(this.project, Result.ABORTED, 0)).thenReturn(java.util.Arrays.asList(
+            new BuildMetadata(42, "FORTY TWO", true, Result.ABORTED, 42000L)
+        ));
+        when(metadataIndex.getLastBuildNumber(this.project)).thenReturn(45);
+        when(this.project.getNextBuildNumber()).thenReturn(46);
+        when(this.project.getBuildByNumber(42)).thenReturn(this.build);
+        when(this.formatter.formatBuild(same(this.build))).thenReturn("FORTY TWO - ABORTED");
+
+        this.provider = new ResultFilteringOtherProjectBuildOptionsProvider(
+            this.result,
+            this.formatter,
+            metadataIndex
+        );
+
+        ListBoxModel list = this.provider.getOptionsForProject(this.project);
+        assertEquals(1, list.size());
+        assertEquals("FORTY TWO - ABORTED", list.get(0).name);
+        assertEquals("42", list.get(0).value);
+
+        verify(this.project, never()).getBuilds();
+        verify(this.project, never()).getLastBuild();
+        verify(this.project, times(1)).getBuildByNumber(anyInt());
+    }
+
+    @Test
+    public void testGetOptionsForProjectBeforeReadsOnlyOlderMetadata() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+        BuildOptionFormatter metadataFormatter = mock(
+            BuildOptionFormatter.class,
+            withSettings().extraInterfaces(BuildMetadataFormatter.class)
+        );
+        BuildMetadata older = new BuildMetadata(3, "THREE", true, Result.ABORTED, 3000L);
+
+        when(metadataIndex.getBuilds(this.project, Result.ABORTED, 5)).thenReturn(java.util.Arrays.asList(
+            older,
+            new BuildMetadata(2, "TWO", true, Result.ABORTED, 2000L)
+        ));
+        when(metadataIndex.getLastBuildNumber(this.project)).thenReturn(5);
+        when(this.project.getNextBuildNumber()).thenReturn(7);
+        when(((BuildMetadataFormatter) metadataFormatter).formatMetadata(same(older))).thenReturn("THREE - ABORTED");
+
+        this.provider = new ResultFilteringOtherProjectBuildOptionsProvider(
+            this.result,
+            metadataFormatter,
+            metadataIndex
+        );
+
+        ListBoxModel list = this.provider.getOptionsForProjectBefore(this.project, 5, 1, null);
+        assertEquals(1, list.size());
+        assertEquals("THREE - ABORTED", list.get(0).name);
+        assertEquals("3", list.get(0).value);
+
+        verify(this.project, never()).getLastBuild();
+        verify(this.project, never()).getNearestOldBuild(anyInt());
+        verify(this.project, never()).getBuildByNumber(anyInt());
+        verify(metadataIndex, never()).getBuilds(this.project, Result.ABORTED, 0);
+    }
+
+    @Test
+    public void testGetOptionsForBuildsUsesMetadata() {
+        BuildMetadataIndex metadataIndex = mock(BuildMetadataIndex.class);
+        BuildOptionFormatter metadataFormatter = mock(
+            BuildOptionFormatter.class,
+            withSettings().extraInterfaces(BuildMetadataFormatter.class)
+        );
+        BuildMetadata aborted = new BuildMetadata(42, "FORTY TWO", true, Result.ABORTED, 42000L);
+
+        when(metadataIndex.get(this.project, 42)).thenReturn(aborted);
+        when(metadataIndex.get(this.project, 41)).thenReturn(
+            new BuildMetadata(41, "FORTY ONE", true, Result.SUCCESS, 41000L)
+        );
+        when(((BuildMetadataFormatter) metadataFormatter).formatMetadata(same(aborted))).thenReturn("FORTY TWO");
+
+        this.provider = new ResultFilteringOtherProjectBuildOptionsProvider(
+            this.result,
+            metadataFormatter,
+            metadataIndex
+        );
+
+        ListBoxModel list = this.provider.getOptionsForBuilds(this.project, java.util.Arrays.asList(42, 41));
+        assertEquals(1, list.size());
+        assertEquals("FORTY TWO", list.get(0).name);
+        assertEquals("42", list.get(0).value);
+
+        verify(this.project, never()).getBuildByNumber(anyInt());
+    }
+
 }
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 M.D.Ward <dev@mattdw.co.uk>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mattdw.jenkins.plugins.otherbuild.envvars.provider.project;
+
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import jenkins.model.Jenkins;
+import org.acegisecurity.Authentication;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+/**
+ *
+ * @author M.D.Ward <dev@mattdw.co.uk>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CachingSingletonCallExternalProjectProviderTest {
+
+    private Jenkins.JenkinsHolder jenkinsHolder;
+    private Jenkins jenkins;
+    private CachingSingletonCallExternalProjectProvider projectProvider;
+    private AbstractProject project;
+    private ACL acl;
+    private final String projectName = "FOLDER/PROJECT NAME";
+
+    @Before
+    public void setUp() throws Exception {
+        this.jenkinsHolder = mock(Jenkins.JenkinsHolder.class);
+        this.jenkins = mock(Jenkins.class);
+
+        when(this.jenkinsHolder.getInstance()).thenReturn(this.jenkins);
+
+        java.lang.reflect.Field jenkinsHolderField = Jenkins.class.getDeclaredField("HOLDER");
+        jenkinsHolderField.setAccessible(true);
+
+        jenkinsHolderField.set(null, this.jenkinsHolder);
+
+        this.project = mock(AbstractProject.class);
+        this.acl = mock(ACL.class);
+
+        when(this.project.getACL()).thenReturn(this.acl);
+        when(this.acl.hasPermission(any(Authentication.class), any(Permission.class))).thenReturn(true);
+
+        CachingSingletonCallExternalProjectProvider.invalidateAll();
+        this.projectProvider = new CachingSingletonCallExternalProjectProvider();
+    }
+
+    @Test
+    public void testProvideProjectCachesProject() throws Exception {
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenReturn(this.project);
+
+        assertSame(this.project, this.projectProvider.provideProject(this.projectName));
+        assertSame(this.project, this.projectProvider.provideProject(this.projectName));
+
+        verify(this.jenkins, times(1)).getItemByFullName(eq(this.projectName), same(AbstractProject.class));
+    }
+
+    @Test
+    public void testProvideProjectDoesNotCacheMissingProject() {
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenReturn(null);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                this.projectProvider.provideProject(this.projectName);
+
+                fail("Exception was expected to be thrown");
+            } catch (ProjectNotFoundException ex) {
+                assertEquals(this.projectName, ex.getProject());
+            }
+        }
+
+        verify(this.jenkins, times(2)).getItemByFullName(eq(this.projectName), same(AbstractProject.class));
+    }
+
+    @Test
+    public void testProvideProjectThrowsExceptionOnLookupException() {
+        Exception cause = new IllegalArgumentException();
+
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenThrow(cause);
+
+        try {
+            this.projectProvider.provideProject(this.projectName);
+
+            fail("Exception was expected to be thrown");
+        } catch (ProjectNotFoundException ex) {
+            assertEquals(this.projectName, ex.getProject());
+            assertSame(cause, ex.getCause());
+        }
+    }
+
+    @Test
+    public void testProvideProjectRethrowsErrors() throws Exception {
+        Error cause = new LinkageError();
+
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenThrow(cause);
+
+        try {
+            this.projectProvider.provideProject(this.projectName);
+
+            fail("Error was expected to be thrown");
+        } catch (LinkageError ex) {
+            assertSame(cause, ex);
+        }
+    }
+
+    @Test
+    public void testProvideProjectRethrowsUnexpectedRuntimeExceptions() throws Exception {
+        RuntimeException cause = new IllegalStateException();
+
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenThrow(cause);
+
+        try {
+            this.projectProvider.provideProject(this.projectName);
+
+            fail("Exception was expected to be thrown");
+        } catch (IllegalStateException ex) {
+            assertSame(cause, ex);
+        }
+    }
+
+    @Test
+    public void testProvideProjectHonoursPermissionsOnCachedProject() throws Exception {
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenReturn(this.project);
+
+        this.projectProvider.provideProject(this.projectName);
+
+        when(this.acl.hasPermission(any(Authentication.class), same(Item.READ))).thenReturn(false);
+
+        try {
+            this.projectProvider.provideProject(this.projectName);
+
+            fail("Exception was expected to be thrown");
+        } catch (ProjectNotFoundException ex) {
+            assertEquals(this.projectName, ex.getProject());
+        }
+    }
+
+    @Test
+    public void testItemListenerInvalidatesDeletedFolderContents() throws Exception {
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenReturn(this.project);
+
+        Item folder = mock(Item.class);
+        when(folder.getFullName()).thenReturn("FOLDER");
+
+        this.projectProvider.provideProject(this.projectName);
+        new CachingSingletonCallExternalProjectProvider.ItemListenerImpl().onDeleted(folder);
+        this.projectProvider.provideProject(this.projectName);
+
+        verify(this.jenkins, times(2)).getItemByFullName(eq(this.projectName), same(AbstractProject.class));
+    }
+
+    @Test
+    public void testItemListenerInvalidatesMovedProject() throws Exception {
+        when(this.jenkins.getItemByFullName(eq(this.projectName), same(AbstractProject.class))).thenReturn(this.project);
+
+        this.projectProvider.provideProject(this.projectName);
+        new CachingSingletonCallExternalProjectProvider.ItemListenerImpl().onLocationChanged(
+            this.project,
+            this.projectName,
+            "OTHER FOLDER/PROJECT NAME"
+        );
+        this.projectProvider.provideProject(this.projectName);
+
+        verify(this.jenkins, times(2)).getItemByFullName(eq(this.projectName), same(AbstractProject.class));
+    }
+
+}